@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.metrics;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.samza.util.Clock;
+
+/**
+ * A lock-free {@link Reservoir} that records values into a log-linear
+ * histogram in the style of HdrHistogram, instead of storing every value.
+ *
+ * <p>Values are bucketed with 6 bits of sub-bucket precision, so any recorded
+ * value is reported with a relative error of at most 1/32, over the whole
+ * positive long range. Counts are striped by recording thread so that
+ * concurrent updaters rarely contend on the same cache line, and
+ * {@link #update(long)} does not allocate once the stripe for the calling
+ * thread exists.
+ *
+ * <p>The window is maintained on the read side: each {@link #getSnapshot()}
+ * reports the values recorded since a baseline that is rolled forward every
+ * half window, so a snapshot covers between half and all of the window size.
+ * If the reservoir is not read for longer than the window, the next snapshot
+ * covers everything since the last baseline.
+ */
+public class HdrHistogramReservoir implements Reservoir {
+
+  /**
+   * default window size
+   */
+  private static final int DEFAULT_WINDOW_SIZE_MS = 300000;
+
+  /**
+   * Values below 2^SUB_BUCKET_BITS are counted exactly, larger values keep
+   * SUB_BUCKET_BITS significant bits.
+   */
+  private static final int SUB_BUCKET_BITS = 6;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int SUB_BUCKET_HALF_COUNT_BITS = SUB_BUCKET_BITS - 1;
+  private static final int SUB_BUCKET_HALF_COUNT = 1 << SUB_BUCKET_HALF_COUNT_BITS;
+  static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKET_HALF_COUNT;
+
+  private static final int MAX_STRIPES = 16;
+
+  private final long windowMs;
+  private final Clock clock;
+  private final int stripeMask;
+
+  /**
+   * Per-thread-group counts, created lazily on the first update that maps to them.
+   */
+  private final AtomicReferenceArray<Stripe> stripes;
+
+  /**
+   * Cumulative counts at the previous and the current baseline, guarded by this.
+   */
+  private long[] previousCounts = new long[BUCKET_COUNT];
+  private long previousSum = 0;
+  private long[] currentCounts = new long[BUCKET_COUNT];
+  private long currentSum = 0;
+  private long currentBaselineMs;
+
+  /**
+   * Default constructor using default window size
+   */
+  public HdrHistogramReservoir() {
+    this(DEFAULT_WINDOW_SIZE_MS);
+  }
+
+  /**
+   * Construct the HdrHistogramReservoir with window size
+   *
+   * @param windowMs the size of the window. unit is millisecond.
+   */
+  public HdrHistogramReservoir(long windowMs) {
+    this(windowMs, new Clock() {
+      @Override
+      public long currentTimeMillis() {
+        return System.currentTimeMillis();
+      }
+    });
+  }
+
+  public HdrHistogramReservoir(long windowMs, Clock clock) {
+    this(windowMs, Runtime.getRuntime().availableProcessors(), clock);
+  }
+
+  public HdrHistogramReservoir(long windowMs, int concurrency, Clock clock) {
+    if (windowMs <= 0) {
+      throw new IllegalArgumentException("Window size must be positive: " + windowMs);
+    }
+    int stripeCount = Integer.highestOneBit(Math.max(1, Math.min(concurrency, MAX_STRIPES)) * 2 - 1);
+    this.windowMs = windowMs;
+    this.clock = clock;
+    this.stripeMask = stripeCount - 1;
+    this.stripes = new AtomicReferenceArray<>(stripeCount);
+    this.currentBaselineMs = clock.currentTimeMillis();
+  }
+
+  @Override
+  public int size() {
+    long[] counts = new long[BUCKET_COUNT];
+    collect(counts);
+    long size = 0;
+    for (long count : counts) {
+      size += count;
+    }
+    return (int) Math.min(size, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public void update(long value) {
+    int stripeIndex = (int) Thread.currentThread().getId() & stripeMask;
+    Stripe stripe = stripes.get(stripeIndex);
+    if (stripe == null) {
+      stripes.compareAndSet(stripeIndex, null, new Stripe());
+      stripe = stripes.get(stripeIndex);
+    }
+    stripe.counts.incrementAndGet(bucketIndex(value));
+    stripe.sum.addAndGet(value);
+  }
+
+  @Override
+  public Snapshot getSnapshot() {
+    long[] counts = new long[BUCKET_COUNT];
+    long sum = collect(counts);
+
+    long size = 0;
+    int lowestIndex = -1;
+    int highestIndex = -1;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      if (counts[i] > 0) {
+        size += counts[i];
+        if (lowestIndex < 0) {
+          lowestIndex = i;
+        }
+        highestIndex = i;
+      }
+    }
+
+    if (size == 0) {
+      return new HistogramSnapshot(0, 0, 0, 0, counts);
+    }
+    return new HistogramSnapshot(lowestEquivalentValue(lowestIndex), highestEquivalentValue(highestIndex), sum,
+        (int) Math.min(size, Integer.MAX_VALUE), counts);
+  }
+
+  /**
+   * Fill <code>counts</code> with the per-bucket counts in the current window,
+   * rolling the baseline forward if half a window has elapsed.
+   *
+   * @return the sum of the values in the current window
+   */
+  private synchronized long collect(long[] counts) {
+    long sum = 0;
+    for (int i = 0; i < stripes.length(); i++) {
+      Stripe stripe = stripes.get(i);
+      if (stripe != null) {
+        sum += stripe.sum.get();
+        for (int j = 0; j < BUCKET_COUNT; j++) {
+          counts[j] += stripe.counts.get(j);
+        }
+      }
+    }
+
+    long now = clock.currentTimeMillis();
+    if (now - currentBaselineMs >= windowMs / 2) {
+      long[] recycled = previousCounts;
+      previousCounts = currentCounts;
+      previousSum = currentSum;
+      System.arraycopy(counts, 0, recycled, 0, BUCKET_COUNT);
+      currentCounts = recycled;
+      currentSum = sum;
+      currentBaselineMs = now;
+    }
+
+    for (int j = 0; j < BUCKET_COUNT; j++) {
+      counts[j] -= previousCounts[j];
+    }
+    return sum - previousSum;
+  }
+
+  static int bucketIndex(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return value < 0 ? 0 : (int) value;
+    }
+    int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    return (shift << SUB_BUCKET_HALF_COUNT_BITS) + (int) (value >>> shift);
+  }
+
+  static long lowestEquivalentValue(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int shift = (index >> SUB_BUCKET_HALF_COUNT_BITS) - 1;
+    return (long) (index - (shift << SUB_BUCKET_HALF_COUNT_BITS)) << shift;
+  }
+
+  static long highestEquivalentValue(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int shift = (index >> SUB_BUCKET_HALF_COUNT_BITS) - 1;
+    return lowestEquivalentValue(index) + ((1L << shift) - 1);
+  }
+
+  private static final class Stripe {
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong sum = new AtomicLong();
+  }
+
+  /**
+   * A {@link Snapshot} backed by the bucket counts of the window instead of the
+   * individual values.
+   */
+  private static final class HistogramSnapshot extends Snapshot {
+    private final long[] counts;
+
+    HistogramSnapshot(long min, long max, double sum, int size, long[] counts) {
+      super(min, max, sum, size);
+      this.counts = counts;
+    }
+
+    @Override
+    public long getPercentile(double percentile) {
+      if (percentile < 0 || percentile > 100) {
+        throw new IllegalArgumentException("Percentile must be in the range [0, 100]: " + percentile);
+      }
+      if (getSize() == 0) {
+        return 0;
+      }
+      long rank = Math.max(1, (long) Math.ceil(percentile / 100 * getSize()));
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank) {
+          return Math.min(highestEquivalentValue(i), getMax());
+        }
+      }
+      return getMax();
+    }
+
+    /**
+     * The histogram does not keep individual values, so every recorded value is
+     * represented by the midpoint of its bucket. The list is only built when it
+     * is asked for, since the statistics of the snapshot, including its
+     * percentiles, are computed from the bucket counts. The values of a bucket
+     * share one boxed midpoint.
+     */
+    @Override
+    public ArrayList<Long> getValues() {
+      ArrayList<Long> values = new ArrayList<>(getSize());
+      for (int i = 0; i < counts.length && values.size() < getSize(); i++) {
+        if (counts[i] == 0) {
+          continue;
+        }
+        long low = lowestEquivalentValue(i);
+        Long midpoint = low + (highestEquivalentValue(i) - low) / 2;
+        for (long j = 0; j < counts[i] && values.size() < getSize(); j++) {
+          values.add(midpoint);
+        }
+      }
+      return values;
+    }
+  }
+}
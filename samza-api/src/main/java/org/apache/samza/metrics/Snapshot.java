@@ -21,6 +21,7 @@ package org.apache.samza.metrics;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 
 /**
  * A statistical snapshot of a collection of values
@@ -64,6 +65,18 @@ public class Snapshot {
     }
   }
 
+  /**
+   * Constructor for snapshots whose statistics are computed by the reservoir
+   * itself and that do not keep the individual values around.
+   */
+  Snapshot(long min, long max, double sum, int size) {
+    this.values = new ArrayList<>(0);
+    this.min = min;
+    this.max = max;
+    this.sum = sum;
+    this.size = size;
+  }
+
   /**
    * Get the maximum value in the collection
    *
@@ -109,6 +122,26 @@ public class Snapshot {
     return size;
   }
 
+  /**
+   * Get the value at the given percentile of the collection, using the
+   * nearest-rank method
+   *
+   * @param percentile percentile in the range [0, 100]
+   * @return value at the percentile, or 0 if the collection is empty
+   */
+  public long getPercentile(double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("Percentile must be in the range [0, 100]: " + percentile);
+    }
+    if (values.isEmpty()) {
+      return 0;
+    }
+    ArrayList<Long> sorted = getValues();
+    Collections.sort(sorted);
+    int rank = (int) Math.ceil(percentile / 100 * sorted.size());
+    return sorted.get(Math.max(rank, 1) - 1);
+  }
+
   /**
    * Return the entire list of values
    *
@@ -187,6 +187,41 @@ public interface MessageStream<M> {
       Serde<K> keySerde, Serde<M> messageSerde, Serde<OM> otherMessageSerde,
       Duration ttl, String id);
 
+  /**
+   * Joins this {@link MessageStream} with another {@link MessageStream} within a time interval using the
+   * provided pairwise {@link JoinFunction}.
+   * <p>
+   * Unlike {@link #join(MessageStream, JoinFunction, Serde, Serde, Serde, Duration, String)}, which only retains
+   * the latest message for each key, every message in each stream is retained and joined with every message
+   * with the same key in the other stream. A message in this stream that arrives at time {@code t} is joined with
+   * the messages in the other stream that arrived in {@code [t - before, t + after]}. Join results are emitted as
+   * matches are found, and messages are expired once they can no longer match any message in the other stream.
+   * <p>
+   * Both inputs being joined must have the same number of partitions, and should be partitioned by the join key.
+   * <p>
+   * The {@code id} must be unique for each operator in this application. It is used as part of the unique ID
+   * for any state stores and streams created by this operator (the full ID also contains the job name, job id and
+   * operator type). If the application logic is changed, this ID must be reused in the new operator to retain
+   * state from the previous version, and changed for the new operator to discard the state from the previous version.
+   *
+   * @param otherStream the other {@link MessageStream} to be joined with
+   * @param joinFn the function to join messages from this and the other {@link MessageStream}
+   * @param keySerde the serde for the join key
+   * @param messageSerde the serde for messages in this stream
+   * @param otherMessageSerde the serde for messages in the other stream
+   * @param before how long before a message in this stream a message in the other stream may arrive and still match
+   * @param after how long after a message in this stream a message in the other stream may arrive and still match
+   * @param id the unique id of this operator in this application
+   * @param <K> the type of join key
+   * @param <OM> the type of messages in the other stream
+   * @param <JM> the type of messages resulting from the {@code joinFn}
+   * @return the joined {@link MessageStream}
+   */
+  <K, OM, JM> MessageStream<JM> join(MessageStream<OM> otherStream,
+      JoinFunction<? extends K, ? super M, ? super OM, ? extends JM> joinFn,
+      Serde<K> keySerde, Serde<M> messageSerde, Serde<OM> otherMessageSerde,
+      Duration before, Duration after, String id);
+
   /**
    * Joins this {@link MessageStream} with another {@link Table} using the provided
    * pairwise {@link StreamTableJoinFunction}.
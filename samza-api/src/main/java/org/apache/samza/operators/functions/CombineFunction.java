@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.operators.functions;
+
+import java.io.Serializable;
+import org.apache.samza.annotation.InterfaceStability;
+
+
+/**
+ * Combines two aggregated values into one. Main usage is in sliding {@link org.apache.samza.operators.windows.Window}s,
+ * where the values aggregated with a {@link FoldLeftFunction} for each slide are combined into the value of a window.
+ *
+ * <p> The function must be associative, and the result must be the same as if all messages of both values had been
+ * aggregated into one value with the {@link FoldLeftFunction}.
+ *
+ * @param <WV> the type of the aggregated value
+ */
+@InterfaceStability.Unstable
+@FunctionalInterface
+public interface CombineFunction<WV> extends InitableFunction, ClosableFunction, Serializable {
+
+  /**
+   * Combines two aggregated values.
+   *
+   * @param value the aggregated value of the earlier messages
+   * @param otherValue the aggregated value of the later messages
+   * @return the combined value
+   */
+  WV apply(WV value, WV otherValue);
+}
@@ -47,6 +47,9 @@ public final class Triggers {
    * Creates a {@link Trigger} that fires when the number of messages in the pane
    * reaches the specified count.
    *
+   * <p> The count is not durable: after a re-start, the count of a pending window restored from the store starts
+   * from zero, so the window fires once {@code count} more messages have arrived for it.
+   *
    * @param count the number of messages to fire the trigger after
    * @param <M> the type of input message in the window
    * @return the created trigger
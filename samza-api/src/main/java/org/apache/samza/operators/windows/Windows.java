@@ -20,6 +20,7 @@
 package org.apache.samza.operators.windows;
 
 import org.apache.samza.annotation.InterfaceStability;
+import org.apache.samza.operators.functions.CombineFunction;
 import org.apache.samza.operators.functions.FoldLeftFunction;
 import org.apache.samza.operators.functions.MapFunction;
 import org.apache.samza.operators.functions.SupplierFunction;
@@ -78,6 +79,9 @@ import java.util.Collection;
  *     A <i>session</i> captures some period of activity over a {@link org.apache.samza.operators.MessageStream}.
  *     The boundary for a session is defined by a {@code sessionGap}. All messages that that arrive within
  *     the gap are grouped into the same session.
+ *   <li>
+ *     Sliding Window: A sliding (or hopping) window defines a series of fixed size intervals that start every
+ *     {@code slide}, so that each message belongs to {@code size / slide} overlapping windows.
  * </ul>
  *
  * <p> A {@link Window} is said to be "keyed" when the incoming messages are first grouped based on their key
@@ -298,4 +302,129 @@ public final class Windows {
     return new WindowInternal<>(defaultTrigger, null, null, (MapFunction<M, K>) keyFn,
         null, WindowType.SESSION, keySerde, null, msgSerde);
   }
+
+  /**
+   * Creates a {@link Window} that groups incoming messages per-key into fixed-size processing time based windows that
+   * start every {@code slide}, and applies the provided fold function to them.
+   *
+   * <p>With a {@code combiner}, each message is aggregated once into the value of its slide, and the values of the
+   * slides of a window are combined when the window fires. Otherwise, each message is aggregated into each of the
+   * {@code size / slide} windows it belongs to. Since the slides are shared by overlapping windows, early firings of a
+   * window with a combiner do not discard its values.
+   *
+   * <p>The below example computes the maximum value per-key over 1 hour windows that slide every minute.
+   *
+   * <pre> {@code
+   *    MessageStream<UserClick> stream = ...;
+   *    MapFunction<UserClick, String> keyFn = ...;
+   *    SupplierFunction<Integer> initialValue = () -> 0;
+   *    FoldLeftFunction<UserClick, Integer, Integer> maxAggregator = (m, c) -> Math.max(parseInt(m), c);
+   *    CombineFunction<Integer> maxCombiner = Math::max;
+   *    MessageStream<WindowPane<String, Integer>> windowedStream = stream.window(
+   *        Windows.keyedSlidingWindow(keyFn, Duration.ofHours(1), Duration.ofMinutes(1), initialValue, maxAggregator,
+   *            maxCombiner, keySerde, valueSerde));
+   * }
+   * </pre>
+   *
+   * @param keyFn the function to extract the window key from a message
+   * @param size the duration of a window in processing time
+   * @param slide the duration between the starts of consecutive windows. The {@code size} must be a multiple of it.
+   * @param initialValue the initial value supplier for the aggregator. Invoked when a new window, or slide with a
+   *                     {@code combiner}, is created.
+   * @param aggregator the function to incrementally update the window value. Invoked when a new message
+   *                   arrives for the window.
+   * @param combiner the optional function to combine the values of the slides of a window
+   * @param keySerde the serde for the window key
+   * @param windowValueSerde the serde for the window value
+   * @param <M> the type of the input message
+   * @param <K> the type of the key in the {@link Window}
+   * @param <WV> the type of the {@link WindowPane} output value
+   * @return the created {@link Window} function
+   */
+  public static <M, K, WV> Window<M, K, WV> keyedSlidingWindow(MapFunction<? super M, ? extends K> keyFn,
+      Duration size, Duration slide, SupplierFunction<? extends WV> initialValue, FoldLeftFunction<? super M, WV> aggregator,
+      CombineFunction<WV> combiner, Serde<K> keySerde, Serde<WV> windowValueSerde) {
+    Trigger<M> defaultTrigger = new TimeTrigger<>(size);
+    return new WindowInternal<>(defaultTrigger, (SupplierFunction<WV>) initialValue, (FoldLeftFunction<M, WV>) aggregator,
+        combiner, (MapFunction<M, K>) keyFn, null, WindowType.SLIDING, size, slide, keySerde, windowValueSerde, null);
+  }
+
+  /**
+   * Creates a {@link Window} that groups incoming messages per-key into fixed-size processing time based windows that
+   * start every {@code slide}.
+   *
+   * <p>Each message is stored once, with the messages of its slide, and the slides of a window are concatenated when
+   * the window fires.
+   *
+   * <p>The below example groups the stream into 1 hour windows that slide every minute for each key.
+   *
+   * <pre> {@code
+   *    MessageStream<UserClick> stream = ...;
+   *    Function<UserClick, String> keyFn = ...;
+   *    MessageStream<WindowPane<String, Collection<UserClick>>> windowedStream = stream.window(
+   *        Windows.keyedSlidingWindow(keyFn, Duration.ofHours(1), Duration.ofMinutes(1), keySerde, msgSerde));
+   * }
+   * </pre>
+   *
+   * @param keyFn the function to extract the window key from a message
+   * @param size the duration of a window in processing time
+   * @param slide the duration between the starts of consecutive windows. The {@code size} must be a multiple of it.
+   * @param keySerde the serde for the window key
+   * @param msgSerde the serde for the input message
+   * @param <M> the type of the input message
+   * @param <K> the type of the key in the {@link Window}
+   * @return the created {@link Window} function
+   */
+  public static <M, K> Window<M, K, Collection<M>> keyedSlidingWindow(MapFunction<? super M, ? extends K> keyFn,
+      Duration size, Duration slide, Serde<K> keySerde, Serde<M> msgSerde) {
+    Trigger<M> defaultTrigger = new TimeTrigger<>(size);
+    return new WindowInternal<>(defaultTrigger, null, null, null, (MapFunction<M, K>) keyFn, null, WindowType.SLIDING,
+        size, slide, keySerde, null, msgSerde);
+  }
+
+  /**
+   * Creates a {@link Window} that groups incoming messages per-key into fixed-size processing time based windows that
+   * start every {@code hop}, and applies the provided fold function to them. A hopping window is the same as a
+   * sliding window, see {@link #keyedSlidingWindow(MapFunction, Duration, Duration, SupplierFunction,
+   * FoldLeftFunction, CombineFunction, Serde, Serde)}.
+   *
+   * @param keyFn the function to extract the window key from a message
+   * @param size the duration of a window in processing time
+   * @param hop the duration between the starts of consecutive windows. The {@code size} must be a multiple of it.
+   * @param initialValue the initial value supplier for the aggregator. Invoked when a new window, or hop with a
+   *                     {@code combiner}, is created.
+   * @param aggregator the function to incrementally update the window value. Invoked when a new message
+   *                   arrives for the window.
+   * @param combiner the optional function to combine the values of the hops of a window
+   * @param keySerde the serde for the window key
+   * @param windowValueSerde the serde for the window value
+   * @param <M> the type of the input message
+   * @param <K> the type of the key in the {@link Window}
+   * @param <WV> the type of the {@link WindowPane} output value
+   * @return the created {@link Window} function
+   */
+  public static <M, K, WV> Window<M, K, WV> keyedHoppingWindow(MapFunction<? super M, ? extends K> keyFn,
+      Duration size, Duration hop, SupplierFunction<? extends WV> initialValue, FoldLeftFunction<? super M, WV> aggregator,
+      CombineFunction<WV> combiner, Serde<K> keySerde, Serde<WV> windowValueSerde) {
+    return keyedSlidingWindow(keyFn, size, hop, initialValue, aggregator, combiner, keySerde, windowValueSerde);
+  }
+
+  /**
+   * Creates a {@link Window} that groups incoming messages per-key into fixed-size processing time based windows that
+   * start every {@code hop}. A hopping window is the same as a sliding window, see
+   * {@link #keyedSlidingWindow(MapFunction, Duration, Duration, Serde, Serde)}.
+   *
+   * @param keyFn the function to extract the window key from a message
+   * @param size the duration of a window in processing time
+   * @param hop the duration between the starts of consecutive windows. The {@code size} must be a multiple of it.
+   * @param keySerde the serde for the window key
+   * @param msgSerde the serde for the input message
+   * @param <M> the type of the input message
+   * @param <K> the type of the key in the {@link Window}
+   * @return the created {@link Window} function
+   */
+  public static <M, K> Window<M, K, Collection<M>> keyedHoppingWindow(MapFunction<? super M, ? extends K> keyFn,
+      Duration size, Duration hop, Serde<K> keySerde, Serde<M> msgSerde) {
+    return keyedSlidingWindow(keyFn, size, hop, keySerde, msgSerde);
+  }
 }
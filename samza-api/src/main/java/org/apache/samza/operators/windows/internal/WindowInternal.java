@@ -17,7 +17,9 @@
  * under the License.
  */
 package org.apache.samza.operators.windows.internal;
+import java.time.Duration;
 import org.apache.samza.annotation.InterfaceStability;
+import org.apache.samza.operators.functions.CombineFunction;
 import org.apache.samza.operators.functions.MapFunction;
 import org.apache.samza.operators.functions.SupplierFunction;
 import org.apache.samza.operators.functions.FoldLeftFunction;
@@ -52,6 +54,11 @@ public final class WindowInternal<M, WK, WV> implements Window<M, WK, WV> {
    */
   private final FoldLeftFunction<M, WV> foldLeftFunction;
 
+  /*
+   * The function that combines the values aggregated for each slide of a sliding window
+   */
+  private final CombineFunction<WV> combineFunction;
+
   /*
    * The function that extracts the key from a {@link MessageEnvelope}
    */
@@ -63,10 +70,16 @@ public final class WindowInternal<M, WK, WV> implements Window<M, WK, WV> {
   private final MapFunction<M, Long> eventTimeExtractor;
 
   /**
-   * The type of this window. Tumbling and Session windows are supported for now.
+   * The type of this window. Tumbling, Session and Sliding windows are supported for now.
    */
   private final WindowType windowType;
 
+  /*
+   * The size and the slide of a sliding window
+   */
+  private final Duration size;
+  private final Duration slide;
+
   private Trigger<M> earlyTrigger;
   private Trigger<M> lateTrigger;
   private AccumulationMode mode;
@@ -82,12 +95,23 @@ public final class WindowInternal<M, WK, WV> implements Window<M, WK, WV> {
   public WindowInternal(Trigger<M> defaultTrigger, SupplierFunction<WV> initializer, FoldLeftFunction<M, WV> foldLeftFunction,
       MapFunction<M, WK> keyExtractor, MapFunction<M, Long> eventTimeExtractor, WindowType windowType, Serde<WK> keySerde,
       Serde<WV> windowValueSerde, Serde<M> msgSerde) {
+    this(defaultTrigger, initializer, foldLeftFunction, null, keyExtractor, eventTimeExtractor, windowType, null, null,
+        keySerde, windowValueSerde, msgSerde);
+  }
+
+  public WindowInternal(Trigger<M> defaultTrigger, SupplierFunction<WV> initializer, FoldLeftFunction<M, WV> foldLeftFunction,
+      CombineFunction<WV> combineFunction, MapFunction<M, WK> keyExtractor, MapFunction<M, Long> eventTimeExtractor,
+      WindowType windowType, Duration size, Duration slide, Serde<WK> keySerde, Serde<WV> windowValueSerde,
+      Serde<M> msgSerde) {
     this.defaultTrigger = defaultTrigger;
     this.initializer = initializer;
     this.foldLeftFunction = foldLeftFunction;
+    this.combineFunction = combineFunction;
     this.eventTimeExtractor = eventTimeExtractor;
     this.keyExtractor = keyExtractor;
     this.windowType = windowType;
+    this.size = size;
+    this.slide = slide;
     this.keySerde = keySerde;
     this.windowValSerde = windowValueSerde;
     this.msgSerde = msgSerde;
@@ -111,6 +135,19 @@ public final class WindowInternal<M, WK, WV> implements Window<M, WK, WV> {
     if (foldLeftFunction == null && initializer != null) {
       throw new IllegalArgumentException("A window without a provided FoldLeftFunction must not have an initializer");
     }
+
+    if (foldLeftFunction == null && combineFunction != null) {
+      throw new IllegalArgumentException("A window without a provided FoldLeftFunction must not have a CombineFunction");
+    }
+
+    if (windowType == WindowType.SLIDING) {
+      if (size == null || slide == null || slide.toMillis() <= 0 || size.toMillis() < slide.toMillis()) {
+        throw new IllegalArgumentException("A sliding window must have a positive slide that is not longer than its size");
+      }
+      if (size.toMillis() % slide.toMillis() != 0) {
+        throw new IllegalArgumentException("The size of a sliding window must be a multiple of its slide");
+      }
+    }
   }
 
   public Trigger<M> getDefaultTrigger() {
@@ -133,6 +170,10 @@ public final class WindowInternal<M, WK, WV> implements Window<M, WK, WV> {
     return foldLeftFunction;
   }
 
+  public CombineFunction<WV> getCombineFunction() {
+    return combineFunction;
+  }
+
   public MapFunction<M, WK> getKeyExtractor() {
     return keyExtractor;
   }
@@ -145,6 +186,14 @@ public final class WindowInternal<M, WK, WV> implements Window<M, WK, WV> {
     return windowType;
   }
 
+  public Duration getSize() {
+    return size;
+  }
+
+  public Duration getSlide() {
+    return slide;
+  }
+
   public AccumulationMode getAccumulationMode() {
     return mode;
   }
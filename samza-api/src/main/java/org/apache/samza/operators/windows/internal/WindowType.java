@@ -19,6 +19,5 @@
 package org.apache.samza.operators.windows.internal;
 
 public enum WindowType {
-  TUMBLING, SESSION
-  //,SLIDING
+  TUMBLING, SESSION, SLIDING
 }
@@ -116,6 +116,23 @@ public interface KeyValueStore<K, V> {
     }
   }
 
+  /**
+   * Merges {@code delta} into the value associated with the specified {@code key}, using the merge operator
+   * configured for this store, e.g. adding it to a counter or appending it to a list.
+   *
+   * <p>Unlike a {@link #get(Object)} followed by a {@link #put(Object, Object)}, the current value is not read, so
+   * stores that support merges natively can apply it as a single write. As with range queries, the merge operator
+   * works on the serialized values, so the value serde must produce the encoding it expects.</p>
+   *
+   * @param key the key whose value {@code delta} is merged into.
+   * @param delta the merge operand.
+   * @throws NullPointerException if the specified {@code key} or {@code delta} is {@code null}.
+   * @throws UnsupportedOperationException if no merge operator is configured for this store.
+   */
+  default void merge(K key, V delta) {
+    throw new UnsupportedOperationException("merge() is not supported in " + this.getClass().getName());
+  }
+
   /**
    * Returns an iterator for a sorted range of entries specified by [{@code from}, {@code to}).
    *
@@ -143,6 +160,32 @@ public interface KeyValueStore<K, V> {
     throw new UnsupportedOperationException("snapshot() is not supported in " + this.getClass().getName());
   }
 
+  /**
+   * Returns an iterator for the sorted entries whose keys start with the specified {@code prefix}.
+   *
+   * <p><b>API Note:</b> The returned iterator MUST be closed after use. Like {@link #range(Object, Object)}, keys are
+   * compared using their serialized byte array representation, so the prefix is matched against the serialized key.
+   * Stores that know their key layout (e.g. RocksDB with a configured prefix extractor) can answer this without
+   * scanning unrelated keys.</p>
+   * @param prefix the key prefix that all the returned keys share.
+   * @return an iterator for the entries whose keys start with {@code prefix}.
+   * @throws NullPointerException if null is used for {@code prefix}.
+   */
+  default KeyValueIterator<K, V> prefixScan(K prefix) {
+    throw new UnsupportedOperationException("prefixScan() is not supported in " + this.getClass().getName());
+  }
+
+  /**
+   * Returns an iterator over all entries of this store that can be repositioned with
+   * {@link SeekableKeyValueIterator#seek(Object)}, so that a single iterator can serve many ordered lookups.
+   *
+   * <p><b>API Note:</b> The returned iterator MUST be closed after use.</p>
+   * @return a seekable iterator, positioned at the first entry of this key-value store.
+   */
+  default SeekableKeyValueIterator<K, V> seekableIterator() {
+    throw new UnsupportedOperationException("seekableIterator() is not supported in " + this.getClass().getName());
+  }
+
   /**
    * Returns an iterator for all entries in this key-value store.
    *
@@ -0,0 +1,35 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.storage.kv;
+
+/**
+ * A {@link KeyValueIterator} that can be repositioned without being re-created.
+ *
+ * <p>Re-using one iterator for a sequence of lookups avoids the cost of opening a new iterator per lookup,
+ * which for on-disk stores means allocating new native read state.</p>
+ */
+public interface SeekableKeyValueIterator<K, V> extends KeyValueIterator<K, V> {
+  /**
+   * Positions this iterator at the first entry whose key is greater than or equal to {@code key}.
+   *
+   * @param key the key to seek to.
+   * @throws NullPointerException if null is used for {@code key}.
+   */
+  void seek(K key);
+}
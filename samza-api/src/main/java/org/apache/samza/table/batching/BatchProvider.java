@@ -29,6 +29,7 @@ public abstract class BatchProvider<K, V, U> implements TablePart, Serializable
 
   private int maxBatchSize = 100;
   private Duration maxBatchDelay = Duration.ofMillis(100);
+  private boolean adaptiveBatching = false;
 
   public BatchProvider<K, V, U> withMaxBatchSize(int maxBatchSize) {
     this.maxBatchSize = maxBatchSize;
@@ -40,6 +41,20 @@ public abstract class BatchProvider<K, V, U> implements TablePart, Serializable
     return this;
   }
 
+  /**
+   * Adapt batches to the observed latency of the table and to {@code task.max.concurrency}.
+   * A batch is performed as soon as it holds all operations that can be outstanding for the task,
+   * since no more operations can arrive until some complete, and a batch is held open for at most
+   * the recent latency of the table, since waiting longer costs more than it saves. The max batch
+   * size and delay remain upper bounds.
+   *
+   * @return this batch provider
+   */
+  public BatchProvider<K, V, U> withAdaptiveBatching() {
+    this.adaptiveBatching = true;
+    return this;
+  }
+
   public int getMaxBatchSize() {
     return maxBatchSize;
   }
@@ -47,4 +62,8 @@ public abstract class BatchProvider<K, V, U> implements TablePart, Serializable
   public Duration getMaxBatchDelay() {
     return maxBatchDelay;
   }
+
+  public boolean isAdaptiveBatching() {
+    return adaptiveBatching;
+  }
 }
@@ -45,6 +45,9 @@ public class CachingTableDescriptor<K, V> extends HybridTableDescriptor<K, V, Ca
   public static final String WRITE_TTL_MS = "writeTtl";
   public static final String CACHE_SIZE = "cacheSize";
   public static final String WRITE_AROUND = "writeAround";
+  public static final String NEGATIVE_TTL_MS = "negativeTtl";
+  public static final String NEGATIVE_CACHE_SIZE = "negativeCacheSize";
+  public static final String REFRESH_AFTER_MS = "refreshAfter";
 
   private Duration readTtl;
   private Duration writeTtl;
@@ -52,6 +55,9 @@ public class CachingTableDescriptor<K, V> extends HybridTableDescriptor<K, V, Ca
   private TableDescriptor<K, V, ?> cache;
   private TableDescriptor<K, V, ?> table;
   private boolean isWriteAround;
+  private Duration negativeTtl;
+  private long negativeCacheSize;
+  private Duration refreshAfter;
 
   /**
    * Constructs a table descriptor instance with internal cache
@@ -134,6 +140,46 @@ public class CachingTableDescriptor<K, V> extends HybridTableDescriptor<K, V, Ca
     return this;
   }
 
+  /**
+   * Specify the TTL for caching lookups of keys that don't exist in the table,
+   * ie. a {@code null} result is returned without accessing the table for the
+   * TTL duration since the lookup. By default, {@code null} results are not cached.
+   * This applies to both the default and custom caches.
+   * @param negativeTtl negative TTL
+   * @return this descriptor
+   */
+  public CachingTableDescriptor<K, V> withNegativeTtl(Duration negativeTtl) {
+    this.negativeTtl = negativeTtl;
+    return this;
+  }
+
+  /**
+   * Specify the max number of keys whose {@code null} results are cached, see
+   * {@link #withNegativeTtl(Duration)}. Beyond it, the least recently cached keys
+   * are evicted, and looked up in the table again. By default, this is the cache
+   * size if it is specified, or 10000 keys otherwise.
+   * @param negativeCacheSize max number of keys whose {@code null} results are cached
+   * @return this descriptor
+   */
+  public CachingTableDescriptor<K, V> withNegativeCacheSize(long negativeCacheSize) {
+    this.negativeCacheSize = negativeCacheSize;
+    return this;
+  }
+
+  /**
+   * Specify the duration after which a cached record is refreshed ahead of its
+   * expiry, ie. a read of a record that was loaded longer than this duration ago
+   * returns the cached record and reloads it from the table asynchronously.
+   * This should be less than the read or write TTL of the cache.
+   * By default, records are not refreshed ahead of expiry.
+   * @param refreshAfter refresh interval
+   * @return this descriptor
+   */
+  public CachingTableDescriptor<K, V> withRefreshAfter(Duration refreshAfter) {
+    this.refreshAfter = refreshAfter;
+    return this;
+  }
+
   @Override
   public String getProviderFactoryClassName() {
     return PROVIDER_FACTORY_CLASS_NAME;
@@ -160,6 +206,15 @@ public class CachingTableDescriptor<K, V> extends HybridTableDescriptor<K, V, Ca
 
     addTableConfig(REAL_TABLE_ID, table.getTableId(), tableConfig);
     addTableConfig(WRITE_AROUND, String.valueOf(isWriteAround), tableConfig);
+    if (negativeTtl != null) {
+      addTableConfig(NEGATIVE_TTL_MS, String.valueOf(negativeTtl.toMillis()), tableConfig);
+    }
+    if (negativeCacheSize > 0) {
+      addTableConfig(NEGATIVE_CACHE_SIZE, String.valueOf(negativeCacheSize), tableConfig);
+    }
+    if (refreshAfter != null) {
+      addTableConfig(REFRESH_AFTER_MS, String.valueOf(refreshAfter.toMillis()), tableConfig);
+    }
 
     return Collections.unmodifiableMap(tableConfig);
   }
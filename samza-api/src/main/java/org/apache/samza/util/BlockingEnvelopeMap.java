@@ -115,6 +115,14 @@ public abstract class BlockingEnvelopeMap implements SystemConsumer {
     bufferedMessagesSize.putIfAbsent(systemStreamPartition, new AtomicLong(0));
   }
 
+  /**
+   * Creates the queue used to buffer the messages of a {@link SystemStreamPartition}. Defaults to an unbounded
+   * {@link LinkedBlockingQueue}. SystemConsumers that have a single thread putting messages for each
+   * {@link SystemStreamPartition} can return a {@link RingBufferEnvelopeQueue} instead, which avoids allocating and
+   * locking per message.
+   *
+   * @return a new queue for a {@link SystemStreamPartition}
+   */
   protected BlockingQueue<IncomingMessageEnvelope> newBlockingQueue() {
     return new LinkedBlockingQueue<IncomingMessageEnvelope>();
   }
@@ -171,7 +179,10 @@ public abstract class BlockingEnvelopeMap implements SystemConsumer {
 
       if (outgoingList.size() > 0) {
         messagesToReturn.put(systemStreamPartition, outgoingList);
-        subtractSizeOnQDrain(systemStreamPartition, outgoingList);
+        // the ring buffer keeps track of its size in bytes itself
+        if (!(queue instanceof RingBufferEnvelopeQueue)) {
+          subtractSizeOnQDrain(systemStreamPartition, outgoingList);
+        }
       }
     }
 
@@ -196,8 +207,11 @@ public abstract class BlockingEnvelopeMap implements SystemConsumer {
    * @throws InterruptedException from underlying concurrent collection
    */
   protected void put(SystemStreamPartition systemStreamPartition, IncomingMessageEnvelope envelope) throws InterruptedException {
-    bufferedMessages.get(systemStreamPartition).put(envelope);
-    bufferedMessagesSize.get(systemStreamPartition).addAndGet(envelope.getSize());
+    BlockingQueue<IncomingMessageEnvelope> queue = bufferedMessages.get(systemStreamPartition);
+    queue.put(envelope);
+    if (!(queue instanceof RingBufferEnvelopeQueue)) {
+      bufferedMessagesSize.get(systemStreamPartition).addAndGet(envelope.getSize());
+    }
   }
 
   /**
@@ -214,9 +228,13 @@ public abstract class BlockingEnvelopeMap implements SystemConsumer {
    */
   protected void putAll(SystemStreamPartition systemStreamPartition, List<IncomingMessageEnvelope> envelopes) throws InterruptedException {
     BlockingQueue<IncomingMessageEnvelope> queue = bufferedMessages.get(systemStreamPartition);
+    boolean tracksSize = !(queue instanceof RingBufferEnvelopeQueue);
 
     for (IncomingMessageEnvelope envelope : envelopes) {
       queue.put(envelope);
+      if (tracksSize) {
+        bufferedMessagesSize.get(systemStreamPartition).addAndGet(envelope.getSize());
+      }
     }
   }
 
@@ -236,8 +254,16 @@ public abstract class BlockingEnvelopeMap implements SystemConsumer {
     if (sizeInBytes == null) {
       throw new NullPointerException("Attempting to get size for " + systemStreamPartition + ", but the system/stream/partition was never registered. or fetch");
     } else {
-      return sizeInBytes.get();
+      return getBufferedSizeInBytes(systemStreamPartition, sizeInBytes);
+    }
+  }
+
+  private long getBufferedSizeInBytes(SystemStreamPartition systemStreamPartition, AtomicLong sizeInBytes) {
+    BlockingQueue<IncomingMessageEnvelope> queue = bufferedMessages.get(systemStreamPartition);
+    if (queue instanceof RingBufferEnvelopeQueue) {
+      return ((RingBufferEnvelopeQueue) queue).getSizeInBytes();
     }
+    return sizeInBytes.get();
   }
 
   protected Boolean setIsAtHead(SystemStreamPartition systemStreamPartition, boolean isAtHead) {
@@ -336,7 +362,7 @@ public abstract class BlockingEnvelopeMap implements SystemConsumer {
         return 0L;
       }
 
-      return sizeInBytes.get();
+      return getBufferedSizeInBytes(systemStreamPartition, sizeInBytes);
     }
   }
 }
@@ -0,0 +1,331 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.util;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.samza.system.IncomingMessageEnvelope;
+
+/**
+ * <p>
+ * A bounded, array-backed {@link BlockingQueue} of {@link IncomingMessageEnvelope}s for a single producer and a
+ * single consumer. Unlike {@link java.util.concurrent.LinkedBlockingQueue}, it does not allocate a node per message
+ * and does not take a lock on either end: the producer and the consumer only publish their own position in the ring
+ * buffer. The consumer can drain all available messages with a single {@link #drainTo(Collection)}.
+ * </p>
+ *
+ * <p>
+ * The queue also keeps track of the total size in bytes of the buffered envelopes (see
+ * {@link IncomingMessageEnvelope#getSize()}), which {@link BlockingEnvelopeMap} uses instead of accounting for the
+ * size itself.
+ * </p>
+ *
+ * <p>
+ * At most one thread may add to the queue at a time, and at most one thread may remove from it at a time. Since
+ * {@link BlockingEnvelopeMap} uses one queue per {@link org.apache.samza.system.SystemStreamPartition}, this allows
+ * a SystemConsumer with a single thread writing the messages of each partition, and any number of threads polling
+ * different partitions concurrently. Removing arbitrary envelopes, with {@link #remove(Object)} or through an
+ * {@link #iterator()}, counts as removing from the queue. The {@link #iterator()} is weakly consistent: it returns the
+ * envelopes that were in the queue when it was created and were not removed while creating it.
+ * </p>
+ *
+ * <p>
+ * SystemConsumers extending {@link BlockingEnvelopeMap} opt in by returning this queue from
+ * {@link BlockingEnvelopeMap#newBlockingQueue()}.
+ * </p>
+ */
+public class RingBufferEnvelopeQueue extends AbstractQueue<IncomingMessageEnvelope>
+    implements BlockingQueue<IncomingMessageEnvelope> {
+  // upper bound for a single park of a blocked producer or consumer, in case an unpark is missed
+  private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  private final int capacity;
+  private final int mask;
+  private final IncomingMessageEnvelope[] buffer;
+
+  // position of the next envelope to remove, only written by the consumer
+  private final AtomicLong head = new AtomicLong(0);
+  // position of the next envelope to add, only written by the producer
+  private final AtomicLong tail = new AtomicLong(0);
+  private final AtomicLong producedBytes = new AtomicLong(0);
+  private final AtomicLong consumedBytes = new AtomicLong(0);
+
+  private volatile Thread waitingProducer = null;
+  private volatile Thread waitingConsumer = null;
+
+  /**
+   * @param capacity the maximum number of envelopes that can be buffered
+   */
+  public RingBufferEnvelopeQueue(int capacity) {
+    if (capacity <= 0 || capacity > (1 << 30)) {
+      throw new IllegalArgumentException("Capacity must be between 1 and 2^30, but was " + capacity);
+    }
+    this.capacity = capacity;
+    int bufferLength = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+    this.mask = bufferLength - 1;
+    this.buffer = new IncomingMessageEnvelope[bufferLength];
+  }
+
+  @Override
+  public boolean offer(IncomingMessageEnvelope envelope) {
+    if (envelope == null) {
+      throw new NullPointerException("Envelope cannot be null.");
+    }
+
+    long currentTail = tail.get();
+    if (currentTail - head.get() >= capacity) {
+      return false;
+    }
+
+    buffer[(int) currentTail & mask] = envelope;
+    producedBytes.lazySet(producedBytes.get() + envelope.getSize());
+    // publishes the envelope to the consumer
+    tail.set(currentTail + 1);
+    unpark(waitingConsumer);
+    return true;
+  }
+
+  @Override
+  public void put(IncomingMessageEnvelope envelope) throws InterruptedException {
+    offer(envelope, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public boolean offer(IncomingMessageEnvelope envelope, long timeout, TimeUnit unit) throws InterruptedException {
+    if (offer(envelope)) {
+      return true;
+    }
+
+    long remainingNanos = unit.toNanos(timeout);
+    long deadline = System.nanoTime() + remainingNanos;
+    waitingProducer = Thread.currentThread();
+    try {
+      // the consumer unparks the producer after removing envelopes, so check again after registering as waiting
+      while (!offer(envelope)) {
+        if (remainingNanos <= 0) {
+          return false;
+        }
+        LockSupport.parkNanos(this, Math.min(remainingNanos, MAX_PARK_NANOS));
+        if (Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+        remainingNanos = deadline - System.nanoTime();
+      }
+      return true;
+    } finally {
+      waitingProducer = null;
+    }
+  }
+
+  @Override
+  public IncomingMessageEnvelope poll() {
+    long currentHead = head.get();
+    if (currentHead == tail.get()) {
+      return null;
+    }
+
+    int index = (int) currentHead & mask;
+    IncomingMessageEnvelope envelope = buffer[index];
+    buffer[index] = null;
+    consumedBytes.lazySet(consumedBytes.get() + envelope.getSize());
+    // frees the slot for the producer
+    head.set(currentHead + 1);
+    unpark(waitingProducer);
+    return envelope;
+  }
+
+  @Override
+  public IncomingMessageEnvelope take() throws InterruptedException {
+    return poll(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public IncomingMessageEnvelope poll(long timeout, TimeUnit unit) throws InterruptedException {
+    IncomingMessageEnvelope envelope = poll();
+    if (envelope != null) {
+      return envelope;
+    }
+
+    long remainingNanos = unit.toNanos(timeout);
+    long deadline = System.nanoTime() + remainingNanos;
+    waitingConsumer = Thread.currentThread();
+    try {
+      // the producer unparks the consumer after adding an envelope, so check again after registering as waiting
+      while ((envelope = poll()) == null) {
+        if (remainingNanos <= 0) {
+          return null;
+        }
+        LockSupport.parkNanos(this, Math.min(remainingNanos, MAX_PARK_NANOS));
+        if (Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+        remainingNanos = deadline - System.nanoTime();
+      }
+      return envelope;
+    } finally {
+      waitingConsumer = null;
+    }
+  }
+
+  @Override
+  public IncomingMessageEnvelope peek() {
+    long currentHead = head.get();
+    return currentHead == tail.get() ? null : buffer[(int) currentHead & mask];
+  }
+
+  @Override
+  public int drainTo(Collection<? super IncomingMessageEnvelope> collection) {
+    return drainTo(collection, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Removes up to {@code maxElements} envelopes and adds them to the {@code collection}, freeing their slots for the
+   * producer at once.
+   */
+  @Override
+  public int drainTo(Collection<? super IncomingMessageEnvelope> collection, int maxElements) {
+    long currentHead = head.get();
+    int numElements = (int) Math.min(tail.get() - currentHead, maxElements);
+    if (numElements <= 0) {
+      return 0;
+    }
+
+    long drainedBytes = 0;
+    for (int i = 0; i < numElements; i++) {
+      int index = (int) (currentHead + i) & mask;
+      IncomingMessageEnvelope envelope = buffer[index];
+      buffer[index] = null;
+      drainedBytes += envelope.getSize();
+      collection.add(envelope);
+    }
+
+    consumedBytes.lazySet(consumedBytes.get() + drainedBytes);
+    head.set(currentHead + numElements);
+    unpark(waitingProducer);
+    return numElements;
+  }
+
+  @Override
+  public int size() {
+    long currentHead = head.get();
+    long size = tail.get() - currentHead;
+    return (int) Math.max(0, Math.min(size, capacity));
+  }
+
+  @Override
+  public int remainingCapacity() {
+    return capacity - size();
+  }
+
+  /**
+   * @return the total size in bytes of the buffered envelopes
+   */
+  public long getSizeInBytes() {
+    long consumed = consumedBytes.get();
+    return Math.max(0, producedBytes.get() - consumed);
+  }
+
+  /**
+   * Returns a weakly consistent iterator over a snapshot of the buffered envelopes, from head to tail. Envelopes added
+   * after it is created are not returned, and envelopes removed after it is created are still returned.
+   * {@link Iterator#remove()} removes the last returned envelope from the queue if it is still buffered, and may only
+   * be called by the thread removing from the queue.
+   */
+  @Override
+  public Iterator<IncomingMessageEnvelope> iterator() {
+    long snapshotHead = head.get();
+    long snapshotTail = tail.get();
+    IncomingMessageEnvelope[] snapshot = new IncomingMessageEnvelope[(int) (snapshotTail - snapshotHead)];
+    for (long position = snapshotHead; position < snapshotTail; position++) {
+      snapshot[(int) (position - snapshotHead)] = buffer[(int) position & mask];
+    }
+    // slots before the current head may have been removed or reused by the producer while they were copied
+    long removedBefore = Math.max(head.get(), snapshotHead) - snapshotHead;
+    List<IncomingMessageEnvelope> envelopes = new ArrayList<>(snapshot.length);
+    for (int i = (int) Math.min(removedBefore, snapshot.length); i < snapshot.length; i++) {
+      envelopes.add(snapshot[i]);
+    }
+
+    Iterator<IncomingMessageEnvelope> iterator = envelopes.iterator();
+    return new Iterator<IncomingMessageEnvelope>() {
+      private IncomingMessageEnvelope lastReturned = null;
+
+      @Override
+      public boolean hasNext() {
+        return iterator.hasNext();
+      }
+
+      @Override
+      public IncomingMessageEnvelope next() {
+        lastReturned = iterator.next();
+        return lastReturned;
+      }
+
+      @Override
+      public void remove() {
+        if (lastReturned == null) {
+          throw new IllegalStateException();
+        }
+        removeEnvelope(lastReturned);
+        lastReturned = null;
+      }
+    };
+  }
+
+  /**
+   * Removes the given envelope instance if it is still buffered, by moving the envelopes ahead of it one slot towards
+   * the tail. Only the slots between the head and the removed envelope are written, so the producer is not affected.
+   */
+  private void removeEnvelope(IncomingMessageEnvelope envelope) {
+    long currentHead = head.get();
+    long currentTail = tail.get();
+    for (long position = currentHead; position < currentTail; position++) {
+      if (buffer[(int) position & mask] == envelope) {
+        for (long i = position; i > currentHead; i--) {
+          buffer[(int) i & mask] = buffer[(int) (i - 1) & mask];
+        }
+        buffer[(int) currentHead & mask] = null;
+        consumedBytes.lazySet(consumedBytes.get() + envelope.getSize());
+        head.set(currentHead + 1);
+        unpark(waitingProducer);
+        return;
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "RingBufferEnvelopeQueue{capacity=" + capacity + ", size=" + size() + "}";
+  }
+
+  private static void unpark(Thread thread) {
+    if (thread != null) {
+      LockSupport.unpark(thread);
+    }
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.metrics;
+
+import static org.mockito.Mockito.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.samza.util.Clock;
+import org.junit.Test;
+
+public class TestHdrHistogramReservoir {
+
+  private final Clock clock = mock(Clock.class);
+
+  @Test
+  public void testUpdateSizeSnapshot() {
+    when(clock.currentTimeMillis()).thenReturn(0L);
+    HdrHistogramReservoir reservoir = new HdrHistogramReservoir(300, 4, clock);
+    reservoir.update(1L);
+    reservoir.update(2L);
+    reservoir.update(3L);
+
+    assertEquals(3, reservoir.size());
+
+    Snapshot snapshot = reservoir.getSnapshot();
+    assertEquals(Arrays.asList(1L, 2L, 3L), snapshot.getValues());
+    assertEquals(3, snapshot.getSize());
+    assertEquals(1, snapshot.getMin());
+    assertEquals(3, snapshot.getMax());
+    assertEquals(6, snapshot.getSum(), 0);
+    assertEquals(2, snapshot.getAverage(), 0);
+  }
+
+  @Test
+  public void testValuesOfABucketShareTheirMidpoint() {
+    when(clock.currentTimeMillis()).thenReturn(0L);
+    HdrHistogramReservoir reservoir = new HdrHistogramReservoir(300, 4, clock);
+    reservoir.update(1000L);
+    reservoir.update(1001L);
+
+    List<Long> values = reservoir.getSnapshot().getValues();
+    assertEquals(2, values.size());
+    assertSame(values.get(0), values.get(1));
+    assertEquals(1000L, values.get(0).longValue(), 1000 / 32);
+  }
+
+  @Test
+  public void testPercentilesWithinPrecision() {
+    when(clock.currentTimeMillis()).thenReturn(0L);
+    HdrHistogramReservoir reservoir = new HdrHistogramReservoir(300, 4, clock);
+    for (long i = 1; i <= 100000; i++) {
+      reservoir.update(i * 1000);
+    }
+
+    Snapshot snapshot = reservoir.getSnapshot();
+    assertEquals(100000, snapshot.getSize());
+    assertEquals(50000000, snapshot.getPercentile(50), 50000000 / 32);
+    assertEquals(99000000, snapshot.getPercentile(99), 99000000 / 32);
+    assertEquals(100000000, snapshot.getMax(), 100000000 / 32);
+    assertEquals(1000, snapshot.getMin(), 1000 / 32);
+    assertEquals(50000500, snapshot.getAverage(), 1);
+  }
+
+  @Test
+  public void testBucketBoundaries() {
+    for (long value : new long[] {0, 1, 63, 64, 65, 127, 128, 1000, 123456789, Long.MAX_VALUE}) {
+      int index = HdrHistogramReservoir.bucketIndex(value);
+      assertTrue(index < HdrHistogramReservoir.BUCKET_COUNT);
+      assertTrue(HdrHistogramReservoir.lowestEquivalentValue(index) <= value);
+      assertTrue(HdrHistogramReservoir.highestEquivalentValue(index) >= value);
+    }
+    assertEquals(Long.MAX_VALUE,
+        HdrHistogramReservoir.highestEquivalentValue(HdrHistogramReservoir.BUCKET_COUNT - 1));
+  }
+
+  @Test
+  public void testRemoveExpiredValues() {
+    when(clock.currentTimeMillis()).thenReturn(0L);
+    HdrHistogramReservoir reservoir = new HdrHistogramReservoir(300, 4, clock);
+    reservoir.update(1L);
+
+    when(clock.currentTimeMillis()).thenReturn(150L);
+    assertEquals(1, reservoir.size());
+
+    when(clock.currentTimeMillis()).thenReturn(200L);
+    reservoir.update(2L);
+    assertEquals(Arrays.asList(1L, 2L), reservoir.getSnapshot().getValues());
+
+    // values recorded before the previous baseline expire once the baseline rolls forward
+    when(clock.currentTimeMillis()).thenReturn(300L);
+    assertEquals(Arrays.asList(2L), reservoir.getSnapshot().getValues());
+
+    when(clock.currentTimeMillis()).thenReturn(400L);
+    reservoir.update(3L);
+    when(clock.currentTimeMillis()).thenReturn(450L);
+    assertEquals(Arrays.asList(3L), reservoir.getSnapshot().getValues());
+  }
+
+  @Test
+  public void testConcurrentUpdates() throws InterruptedException {
+    when(clock.currentTimeMillis()).thenReturn(0L);
+    final HdrHistogramReservoir reservoir = new HdrHistogramReservoir(300, 4, clock);
+    final int threadCount = 8;
+    final int updatesPerThread = 10000;
+    final CountDownLatch done = new CountDownLatch(threadCount);
+    for (int i = 0; i < threadCount; i++) {
+      new Thread(() -> {
+        for (int j = 0; j < updatesPerThread; j++) {
+          reservoir.update(10L);
+        }
+        done.countDown();
+      }).start();
+    }
+    done.await();
+
+    Snapshot snapshot = reservoir.getSnapshot();
+    assertEquals(threadCount * updatesPerThread, snapshot.getSize());
+    assertEquals(10L * threadCount * updatesPerThread, snapshot.getSum(), 0);
+  }
+}
@@ -23,6 +23,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -115,6 +116,22 @@ public class TestBlockingEnvelopeMap {
     assertEquals(0, map.getMessagesSizeInQueue(SSP));
   }
 
+  @Test
+  public void testSizeComputationWithRingBuffer() throws InterruptedException {
+    BlockingEnvelopeMap map = new MockBlockingEnvelopeMap(new RingBufferEnvelopeQueue(4));
+    map.register(SSP, "0");
+    map.put(SSP, ENVELOPE_WITH_SIZE);
+    map.putAll(SSP, Arrays.asList(ENVELOPE_WITH_SIZE, ENVELOPE_WITH_SIZE));
+
+    assertEquals(3, map.getNumMessagesInQueue(SSP));
+    assertEquals(300, map.getMessagesSizeInQueue(SSP));
+
+    Map<SystemStreamPartition, List<IncomingMessageEnvelope>> envelopes = map.poll(FETCH, 0);
+    assertEquals(3, envelopes.get(SSP).size());
+    assertEquals(0, map.getNumMessagesInQueue(SSP));
+    assertEquals(0, map.getMessagesSizeInQueue(SSP));
+  }
+
   @Test
   public void testShouldBlockWhenNotAtHead() throws InterruptedException {
     MockQueue q = new MockQueue();
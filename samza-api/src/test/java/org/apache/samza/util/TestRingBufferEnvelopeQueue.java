@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.util;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.samza.Partition;
+import org.apache.samza.system.IncomingMessageEnvelope;
+import org.apache.samza.system.SystemStreamPartition;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+public class TestRingBufferEnvelopeQueue {
+  private static final SystemStreamPartition SSP = new SystemStreamPartition("test", "test", new Partition(0));
+
+  @Test
+  public void testOfferAndPollAreBounded() {
+    RingBufferEnvelopeQueue queue = new RingBufferEnvelopeQueue(3);
+    IncomingMessageEnvelope first = envelope(0, 10);
+
+    assertTrue(queue.offer(first));
+    assertTrue(queue.offer(envelope(1, 10)));
+    assertTrue(queue.offer(envelope(2, 10)));
+    assertFalse("Queue should not accept more envelopes than its capacity", queue.offer(envelope(3, 10)));
+    assertEquals(3, queue.size());
+    assertEquals(0, queue.remainingCapacity());
+    assertEquals(30, queue.getSizeInBytes());
+
+    assertSame(first, queue.peek());
+    assertSame(first, queue.poll());
+    assertEquals(2, queue.size());
+    assertEquals(20, queue.getSizeInBytes());
+    assertTrue(queue.offer(envelope(3, 10)));
+  }
+
+  @Test
+  public void testDrainToPreservesOrderAcrossWrapAround() {
+    RingBufferEnvelopeQueue queue = new RingBufferEnvelopeQueue(4);
+    List<IncomingMessageEnvelope> drained = new ArrayList<>();
+
+    for (int round = 0; round < 5; round++) {
+      for (int i = 0; i < 3; i++) {
+        assertTrue(queue.offer(envelope(round * 3 + i, 1)));
+      }
+      assertEquals(2, queue.drainTo(drained, 2));
+      assertEquals(1, queue.drainTo(drained));
+      assertTrue(queue.isEmpty());
+      assertEquals(0, queue.getSizeInBytes());
+    }
+
+    assertEquals(15, drained.size());
+    for (int i = 0; i < drained.size(); i++) {
+      assertEquals(String.valueOf(i), drained.get(i).getOffset());
+    }
+    assertNull(queue.poll());
+  }
+
+  @Test
+  public void testPollWithTimeoutReturnsNullWhenEmpty() throws InterruptedException {
+    RingBufferEnvelopeQueue queue = new RingBufferEnvelopeQueue(1);
+    long start = System.nanoTime();
+    assertNull(queue.poll(50, TimeUnit.MILLISECONDS));
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+  }
+
+  @Test
+  public void testPutBlocksUntilConsumerFreesSpace() throws Exception {
+    RingBufferEnvelopeQueue queue = new RingBufferEnvelopeQueue(1);
+    queue.put(envelope(0, 1));
+
+    CountDownLatch putStarted = new CountDownLatch(1);
+    AtomicReference<Exception> failure = new AtomicReference<>();
+    Thread producer = new Thread(() -> {
+      try {
+        putStarted.countDown();
+        queue.put(envelope(1, 1));
+      } catch (Exception e) {
+        failure.set(e);
+      }
+    });
+    producer.setDaemon(true);
+    producer.start();
+    putStarted.await();
+
+    assertEquals("0", queue.take().getOffset());
+    assertEquals("1", queue.poll(10, TimeUnit.SECONDS).getOffset());
+    producer.join(10000);
+    assertFalse(producer.isAlive());
+    assertNull(failure.get());
+  }
+
+  @Test
+  public void testConcurrentProducerAndConsumer() throws Exception {
+    int numEnvelopes = 100000;
+    RingBufferEnvelopeQueue queue = new RingBufferEnvelopeQueue(16);
+    AtomicReference<Exception> failure = new AtomicReference<>();
+    Thread producer = new Thread(() -> {
+      try {
+        for (int i = 0; i < numEnvelopes; i++) {
+          queue.put(envelope(i, 1));
+        }
+      } catch (Exception e) {
+        failure.set(e);
+      }
+    });
+    producer.setDaemon(true);
+    producer.start();
+
+    List<IncomingMessageEnvelope> consumed = new ArrayList<>(numEnvelopes);
+    while (consumed.size() < numEnvelopes) {
+      IncomingMessageEnvelope envelope = queue.poll(10, TimeUnit.SECONDS);
+      assertTrue("Timed out waiting for envelopes", envelope != null);
+      consumed.add(envelope);
+      queue.drainTo(consumed);
+    }
+    producer.join(10000);
+
+    assertNull(failure.get());
+    for (int i = 0; i < numEnvelopes; i++) {
+      assertEquals(String.valueOf(i), consumed.get(i).getOffset());
+    }
+    assertEquals(0, queue.getSizeInBytes());
+  }
+
+  @Test
+  public void testIteratorAndRemoveAcrossWrapAround() {
+    RingBufferEnvelopeQueue queue = new RingBufferEnvelopeQueue(4);
+    for (int i = 0; i < 3; i++) {
+      assertTrue(queue.offer(envelope(i, 1)));
+    }
+    queue.drainTo(new ArrayList<>());
+    for (int i = 3; i < 7; i++) {
+      assertTrue(queue.offer(envelope(i, 10)));
+    }
+
+    List<String> offsets = new ArrayList<>();
+    queue.forEach(envelope -> offsets.add(envelope.getOffset()));
+    assertEquals(ImmutableList.of("3", "4", "5", "6"), offsets);
+    assertEquals(4, queue.toArray().length);
+    assertTrue(queue.contains(envelope(5, 10)));
+
+    assertTrue(queue.remove(envelope(5, 10)));
+    assertFalse(queue.contains(envelope(5, 10)));
+    assertEquals(3, queue.size());
+    assertEquals(30, queue.getSizeInBytes());
+    assertTrue(queue.offer(envelope(7, 10)));
+
+    Iterator<IncomingMessageEnvelope> iterator = queue.iterator();
+    assertEquals("3", iterator.next().getOffset());
+    iterator.remove();
+    // the snapshot is not affected by envelopes that are added or removed after the iterator is created
+    assertEquals("4", queue.poll().getOffset());
+    assertTrue(queue.offer(envelope(8, 10)));
+    assertEquals("4", iterator.next().getOffset());
+
+    List<IncomingMessageEnvelope> drained = new ArrayList<>();
+    assertEquals(3, queue.drainTo(drained));
+    assertEquals("6", drained.get(0).getOffset());
+    assertEquals("7", drained.get(1).getOffset());
+    assertEquals("8", drained.get(2).getOffset());
+    assertEquals(0, queue.getSizeInBytes());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidCapacity() {
+    new RingBufferEnvelopeQueue(0);
+  }
+
+  private static IncomingMessageEnvelope envelope(int offset, int size) {
+    return new IncomingMessageEnvelope(SSP, String.valueOf(offset), null, null, size);
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.benchmarks;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.samza.config.JobConfig;
+import org.apache.samza.config.MapConfig;
+import org.apache.samza.context.Context;
+import org.apache.samza.metrics.MetricsRegistryMap;
+import org.apache.samza.serializers.StringSerde;
+import org.apache.samza.storage.kv.KeyValueStoreMetrics;
+import org.apache.samza.storage.kv.LocalTable;
+import org.apache.samza.storage.kv.SerializedKeyValueStore;
+import org.apache.samza.storage.kv.SerializedKeyValueStoreMetrics;
+import org.apache.samza.storage.kv.inmemory.InMemoryKeyValueStore;
+import org.apache.samza.table.batching.AsyncBatchingTable;
+import org.apache.samza.table.batching.BatchProcessor;
+import org.apache.samza.table.batching.CompactBatchProvider;
+import org.apache.samza.table.batching.CompleteBatchProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures the per-operation cost of the {@link BatchProcessor} behind an {@link AsyncBatchingTable}. Each invocation
+ * issues a batch worth of operations on distinct keys against an in-memory table and waits for all of them to
+ * complete, so batches are always closed by size rather than by the batch timer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class BatchingTableBenchmark {
+  private static final String TABLE_ID = "benchmark-table";
+  private static final int KEY_COUNT = 100000;
+  private static final int BATCH_SIZE = 100;
+
+  @Param({"compact", "complete"})
+  String batchType;
+
+  private ScheduledExecutorService batchTimerExecutorService;
+  private AsyncBatchingTable<String, String, Void> table;
+  private String[] keys;
+  private String value;
+  private final CompletableFuture[] futures = new CompletableFuture[BATCH_SIZE];
+  private int next = 0;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Map<String, String> configs = new HashMap<>();
+    configs.put(JobConfig.JOB_NAME, "benchmark");
+    Context context = BenchmarkContexts.newContext(new MapConfig(configs), Collections.emptySet(), storeName -> null);
+
+    MetricsRegistryMap registry = new MetricsRegistryMap();
+    StringSerde serde = new StringSerde();
+    LocalTable<String, String, Void> localTable = new LocalTable<>(TABLE_ID + "-local",
+        new SerializedKeyValueStore<>(new InMemoryKeyValueStore(new KeyValueStoreMetrics(TABLE_ID, registry)), serde,
+            serde, new SerializedKeyValueStoreMetrics(TABLE_ID, registry)));
+
+    batchTimerExecutorService = Executors.newSingleThreadScheduledExecutor();
+    table = new AsyncBatchingTable<>(TABLE_ID, localTable,
+        ("compact".equals(batchType) ? new CompactBatchProvider<String, String, Void>()
+            : new CompleteBatchProvider<String, String, Void>())
+            .withMaxBatchSize(BATCH_SIZE)
+            .withMaxBatchDelay(Duration.ofSeconds(60)),
+        batchTimerExecutorService);
+    table.init(context);
+
+    value = new String(new char[100]).replace('\0', 'v');
+    keys = new String[KEY_COUNT];
+    for (int i = 0; i < KEY_COUNT; i++) {
+      keys[i] = String.format("key-%08d", i);
+      localTable.put(keys[i], value);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    table.close();
+    batchTimerExecutorService.shutdownNow();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void getAsync() {
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      futures[i] = table.getAsync(nextKey());
+    }
+    CompletableFuture.allOf(futures).join();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void putAsync() {
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      futures[i] = table.putAsync(nextKey(), value);
+    }
+    CompletableFuture.allOf(futures).join();
+  }
+
+  /**
+   * Keys are visited in order so that a compact batch never merges two operations of the same invocation.
+   */
+  private String nextKey() {
+    String key = keys[next];
+    next = (next + 1) % KEY_COUNT;
+    return key;
+  }
+}
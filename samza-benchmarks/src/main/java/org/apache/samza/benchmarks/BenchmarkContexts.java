@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.benchmarks;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import org.apache.samza.Partition;
+import org.apache.samza.config.Config;
+import org.apache.samza.container.TaskName;
+import org.apache.samza.context.ContainerContextImpl;
+import org.apache.samza.context.Context;
+import org.apache.samza.context.ContextImpl;
+import org.apache.samza.context.JobContextImpl;
+import org.apache.samza.context.TaskContextImpl;
+import org.apache.samza.job.model.TaskModel;
+import org.apache.samza.metrics.MetricsRegistryMap;
+import org.apache.samza.storage.kv.KeyValueStore;
+import org.apache.samza.system.SystemStreamPartition;
+
+
+/**
+ * Builds the {@link Context} that operators and tables are initialized with, without a running container.
+ */
+class BenchmarkContexts {
+  static final TaskName TASK_NAME = new TaskName("Partition 0");
+
+  private BenchmarkContexts() {
+  }
+
+  /**
+   * @param config job config, which must at least contain job.name
+   * @param ssps input partitions of the task
+   * @param storeProvider provides the store for a store name
+   * @return a context for a single task
+   */
+  @SuppressWarnings("unchecked")
+  static Context newContext(Config config, Set<SystemStreamPartition> ssps,
+      Function<String, KeyValueStore> storeProvider) {
+    TaskModel taskModel = new TaskModel(TASK_NAME, ssps, new Partition(0));
+    return new ContextImpl(JobContextImpl.fromConfigWithDefaults(config, null),
+        new ContainerContextImpl(null, new MetricsRegistryMap(), null),
+        new TaskContextImpl(taskModel, new MetricsRegistryMap(), storeProvider, null, null, null, null, null, ssps,
+            null),
+        Optional.empty(), Optional.empty(), Optional.empty());
+  }
+}
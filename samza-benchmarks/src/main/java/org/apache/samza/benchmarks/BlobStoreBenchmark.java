@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.benchmarks;
+
+import com.google.common.collect.ImmutableMap;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.apache.samza.checkpoint.CheckpointId;
+import org.apache.samza.config.BlobStoreConfig;
+import org.apache.samza.config.MapConfig;
+import org.apache.samza.storage.blobstore.Metadata;
+import org.apache.samza.storage.blobstore.diff.DirDiff;
+import org.apache.samza.storage.blobstore.index.DirIndex;
+import org.apache.samza.storage.blobstore.index.SnapshotMetadata;
+import org.apache.samza.storage.blobstore.local.LocalBlobStoreManager;
+import org.apache.samza.storage.blobstore.util.BlobStoreUtil;
+import org.apache.samza.storage.blobstore.util.DirDiffUtil;
+import org.apache.samza.util.SystemClock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures the time to back up a store dir to, and restore it from, a {@link LocalBlobStoreManager} with
+ * {@link BlobStoreUtil}, i.e. the blob store state backend without a remote service. Divide the total file size by
+ * the average time for the throughput.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class BlobStoreBenchmark {
+  private static final String JOB_NAME = "benchmark-job";
+  private static final String JOB_ID = "1";
+  private static final String BACKUP_TASK_NAME = "backup-task";
+  private static final String RESTORE_TASK_NAME = "restore-task";
+  private static final String STORE_NAME = "benchmark-store";
+  private static final int THREADS = 8;
+
+  @Param({"16"})
+  int fileCount;
+
+  @Param({"16777216"})
+  int fileSizeBytes;
+
+  @Param({"true", "false"})
+  boolean hardLinksEnabled;
+
+  @Param({"none", "lz4"})
+  String compressionType;
+
+  private File dir;
+  private File blobStoreDir;
+  private File storeDir;
+  private File restoreDir;
+  private ExecutorService executor;
+  private BlobStoreUtil blobStoreUtil;
+  private DirIndex emptyDirIndex;
+  private DirIndex restoreDirIndex;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    dir = Files.createTempDirectory("samza-blob-store-benchmark").toFile();
+    blobStoreDir = new File(dir, "blobs");
+    storeDir = new File(dir, "store");
+    restoreDir = new File(dir, "restore");
+    Files.createDirectories(storeDir.toPath());
+
+    // bytes from a small alphabet, so that compression has something to do
+    Random random = new Random(1);
+    byte[] bytes = new byte[fileSizeBytes];
+    for (int i = 0; i < fileCount; i++) {
+      for (int j = 0; j < bytes.length; j++) {
+        bytes[j] = (byte) ('a' + random.nextInt(16));
+      }
+      Files.write(new File(storeDir, String.format("%06d.sst", i)).toPath(), bytes);
+    }
+
+    executor = Executors.newFixedThreadPool(THREADS);
+    LocalBlobStoreManager blobStoreManager = new LocalBlobStoreManager(blobStoreDir.toPath(), JOB_NAME, JOB_ID,
+        TimeUnit.DAYS.toMillis(1), hardLinksEnabled, executor, SystemClock.instance());
+    blobStoreManager.init();
+    BlobStoreConfig blobStoreConfig = new BlobStoreConfig(new MapConfig(ImmutableMap.of(
+        BlobStoreConfig.COMPRESSION_TYPE, compressionType,
+        BlobStoreConfig.COMPRESSION_SST_FILES_ENABLED, "true")));
+    blobStoreUtil = new BlobStoreUtil(blobStoreManager, executor, blobStoreConfig, null, null);
+
+    emptyDirIndex = new DirIndex(storeDir.getName(), Collections.emptyList(), Collections.emptyList(),
+        Collections.emptyList(), Collections.emptyList());
+    restoreDirIndex = backUp(RESTORE_TASK_NAME);
+  }
+
+  @TearDown(Level.Invocation)
+  public void cleanUpInvocation() throws Exception {
+    FileUtils.deleteDirectory(new File(new File(new File(blobStoreDir, JOB_NAME), JOB_ID), BACKUP_TASK_NAME));
+    FileUtils.deleteDirectory(restoreDir);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    executor.shutdownNow();
+    FileUtils.deleteDirectory(dir);
+  }
+
+  @Benchmark
+  public DirIndex backup() {
+    return backUp(BACKUP_TASK_NAME);
+  }
+
+  @Benchmark
+  public void restore() {
+    Metadata metadata = new Metadata(restoreDir.getAbsolutePath(), Optional.empty(), JOB_NAME, JOB_ID,
+        RESTORE_TASK_NAME, STORE_NAME);
+    blobStoreUtil.restoreDir(restoreDir, restoreDirIndex, metadata, false).join();
+  }
+
+  private DirIndex backUp(String taskName) {
+    DirDiff dirDiff = DirDiffUtil.getDirDiff(storeDir, emptyDirIndex, DirDiffUtil.areSameFile(false, true));
+    SnapshotMetadata snapshotMetadata = new SnapshotMetadata(CheckpointId.create(), JOB_NAME, JOB_ID, taskName,
+        STORE_NAME);
+    return blobStoreUtil.putDir(dirDiff, snapshotMetadata).toCompletableFuture().join();
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.benchmarks;
+
+import com.google.common.cache.CacheBuilder;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.samza.config.JobConfig;
+import org.apache.samza.config.MapConfig;
+import org.apache.samza.context.Context;
+import org.apache.samza.metrics.MetricsRegistryMap;
+import org.apache.samza.serializers.StringSerde;
+import org.apache.samza.storage.kv.KeyValueStoreMetrics;
+import org.apache.samza.storage.kv.LocalTable;
+import org.apache.samza.storage.kv.SerializedKeyValueStore;
+import org.apache.samza.storage.kv.SerializedKeyValueStoreMetrics;
+import org.apache.samza.storage.kv.inmemory.InMemoryKeyValueStore;
+import org.apache.samza.table.caching.CachingTable;
+import org.apache.samza.table.caching.guava.GuavaCacheTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures reads and writes through a {@link CachingTable} with a Guava cache in front of an in-memory table. The
+ * cache size relative to the key count controls the hit rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class CachingTableBenchmark {
+  private static final String TABLE_ID = "benchmark-table";
+
+  @Param({"100000"})
+  int keyCount;
+
+  @Param({"1000", "100000"})
+  int cacheSize;
+
+  @Param({"false", "true"})
+  boolean isWriteAround;
+
+  private CachingTable<String, String, Void> table;
+  private String[] keys;
+  private String value;
+  private final Random random = new Random(1);
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Map<String, String> configs = new HashMap<>();
+    configs.put(JobConfig.JOB_NAME, "benchmark");
+    Context context = BenchmarkContexts.newContext(new MapConfig(configs), Collections.emptySet(), storeName -> null);
+
+    MetricsRegistryMap registry = new MetricsRegistryMap();
+    StringSerde serde = new StringSerde();
+    LocalTable<String, String, Void> localTable = new LocalTable<>(TABLE_ID + "-local",
+        new SerializedKeyValueStore<>(new InMemoryKeyValueStore(new KeyValueStoreMetrics(TABLE_ID, registry)), serde,
+            serde, new SerializedKeyValueStoreMetrics(TABLE_ID, registry)));
+    GuavaCacheTable<String, String, Void> cacheTable = new GuavaCacheTable<>(TABLE_ID + "-cache",
+        CacheBuilder.newBuilder().maximumSize(cacheSize).recordStats().build());
+    table = new CachingTable<>(TABLE_ID, localTable, cacheTable, isWriteAround);
+    localTable.init(context);
+    cacheTable.init(context);
+    table.init(context);
+
+    value = new String(new char[100]).replace('\0', 'v');
+    keys = new String[keyCount];
+    for (int i = 0; i < keyCount; i++) {
+      keys[i] = String.format("key-%08d", i);
+      localTable.put(keys[i], value);
+    }
+  }
+
+  @Benchmark
+  public String get() {
+    return table.get(keys[random.nextInt(keyCount)]);
+  }
+
+  @Benchmark
+  public String getAsync() {
+    return table.getAsync(keys[random.nextInt(keyCount)]).join();
+  }
+
+  @Benchmark
+  public void put() {
+    table.put(keys[random.nextInt(keyCount)], value);
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.benchmarks;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.apache.samza.config.MapConfig;
+import org.apache.samza.metrics.MetricsRegistryMap;
+import org.apache.samza.serializers.StringSerde;
+import org.apache.samza.storage.kv.CachedStore;
+import org.apache.samza.storage.kv.CachedStoreMetrics;
+import org.apache.samza.storage.kv.Entry;
+import org.apache.samza.storage.kv.KeyValueIterator;
+import org.apache.samza.storage.kv.KeyValueStore;
+import org.apache.samza.storage.kv.KeyValueStoreMetrics;
+import org.apache.samza.storage.kv.RocksDbKeyValueStore;
+import org.apache.samza.storage.kv.SerializedKeyValueStore;
+import org.apache.samza.storage.kv.SerializedKeyValueStoreMetrics;
+import org.apache.samza.storage.kv.TinyLfuCachedStore;
+import org.apache.samza.storage.kv.inmemory.InMemoryKeyValueStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.rocksdb.FlushOptions;
+import org.rocksdb.Options;
+import org.rocksdb.WriteOptions;
+
+
+/**
+ * Measures get, put and range on the key-value store layers a task sees: the raw byte store, a
+ * {@link SerializedKeyValueStore} on top of it, and a {@link CachedStore} or {@link TinyLfuCachedStore} on top of that.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class KeyValueStoreBenchmark {
+  private static final String STORE_NAME = "benchmark-store";
+  private static final int RANGE_SIZE = 100;
+
+  @Param({"rocksdb", "inmemory"})
+  String engine;
+
+  @Param({"raw", "serialized", "cached", "tinylfu"})
+  String layer;
+
+  @Param({"100000"})
+  int keyCount;
+
+  @Param({"100"})
+  int valueSize;
+
+  private File dir;
+  private KeyValueStore<byte[], byte[]> rawStore;
+  private KeyValueStore<Object, Object> store;
+  private Object[] keys;
+  private Object value;
+  private final Random random = new Random(1);
+
+  @Setup(Level.Trial)
+  @SuppressWarnings("unchecked")
+  public void setUp() throws Exception {
+    MetricsRegistryMap registry = new MetricsRegistryMap();
+    switch (engine) {
+      case "rocksdb":
+        dir = Files.createTempDirectory("samza-kv-benchmark").toFile();
+        rawStore = new RocksDbKeyValueStore(dir, new Options().setCreateIfMissing(true), new MapConfig(), false,
+            STORE_NAME, new WriteOptions(), new FlushOptions(), new KeyValueStoreMetrics(STORE_NAME, registry));
+        break;
+      case "inmemory":
+        rawStore = new InMemoryKeyValueStore(new KeyValueStoreMetrics(STORE_NAME, registry));
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown engine: " + engine);
+    }
+
+    StringSerde serde = new StringSerde();
+    KeyValueStore<String, String> serializedStore =
+        new SerializedKeyValueStore<>(rawStore, serde, serde, new SerializedKeyValueStoreMetrics(STORE_NAME, registry));
+    String stringValue = new String(new char[valueSize]).replace('\0', 'v');
+    switch (layer) {
+      case "raw":
+        store = (KeyValueStore) rawStore;
+        value = stringValue.getBytes(StandardCharsets.UTF_8);
+        break;
+      case "serialized":
+        store = (KeyValueStore) serializedStore;
+        value = stringValue;
+        break;
+      case "cached":
+        store = (KeyValueStore) new CachedStore<>(serializedStore, 1000, 100,
+            new CachedStoreMetrics(STORE_NAME, registry));
+        value = stringValue;
+        break;
+      case "tinylfu":
+        store = (KeyValueStore) new TinyLfuCachedStore<>(serializedStore, 1000, 100,
+            new CachedStoreMetrics(STORE_NAME, registry));
+        value = stringValue;
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown layer: " + layer);
+    }
+
+    keys = new Object[keyCount];
+    for (int i = 0; i < keyCount; i++) {
+      String key = String.format("key-%08d", i);
+      keys[i] = "raw".equals(layer) ? key.getBytes(StandardCharsets.UTF_8) : key;
+      store.put(keys[i], value);
+    }
+    store.flush();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    store.close();
+    if (dir != null) {
+      FileUtils.deleteDirectory(dir);
+    }
+  }
+
+  @Benchmark
+  public Object get() {
+    return store.get(keys[random.nextInt(keyCount)]);
+  }
+
+  @Benchmark
+  public void put() {
+    store.put(keys[random.nextInt(keyCount)], value);
+  }
+
+  @Benchmark
+  public void range(Blackhole blackhole) {
+    int from = random.nextInt(keyCount - RANGE_SIZE);
+    KeyValueIterator<Object, Object> iterator = store.range(keys[from], keys[from + RANGE_SIZE]);
+    try {
+      while (iterator.hasNext()) {
+        Entry<Object, Object> entry = iterator.next();
+        blackhole.consume(entry.getValue());
+      }
+    } finally {
+      iterator.close();
+    }
+  }
+}
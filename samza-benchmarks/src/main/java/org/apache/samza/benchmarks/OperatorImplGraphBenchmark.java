@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.benchmarks;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.apache.samza.Partition;
+import org.apache.samza.application.descriptors.StreamApplicationDescriptorImpl;
+import org.apache.samza.config.Config;
+import org.apache.samza.config.JobConfig;
+import org.apache.samza.config.MapConfig;
+import org.apache.samza.config.StreamConfig;
+import org.apache.samza.metrics.MetricsRegistryMap;
+import org.apache.samza.operators.MessageStream;
+import org.apache.samza.operators.OperatorSpecGraph;
+import org.apache.samza.operators.OutputStream;
+import org.apache.samza.operators.functions.JoinFunction;
+import org.apache.samza.operators.impl.InputOperatorImpl;
+import org.apache.samza.operators.impl.OperatorImplGraph;
+import org.apache.samza.operators.spec.OperatorSpec;
+import org.apache.samza.operators.spec.StatefulOperatorSpec;
+import org.apache.samza.operators.spec.StoreDescriptor;
+import org.apache.samza.operators.windows.Windows;
+import org.apache.samza.serializers.IntegerSerde;
+import org.apache.samza.serializers.StringSerde;
+import org.apache.samza.storage.kv.KeyValueStore;
+import org.apache.samza.storage.kv.KeyValueStoreMetrics;
+import org.apache.samza.storage.kv.SerializedKeyValueStore;
+import org.apache.samza.storage.kv.SerializedKeyValueStoreMetrics;
+import org.apache.samza.storage.kv.inmemory.InMemoryKeyValueStore;
+import org.apache.samza.system.IncomingMessageEnvelope;
+import org.apache.samza.system.SystemStream;
+import org.apache.samza.system.SystemStreamPartition;
+import org.apache.samza.system.descriptors.GenericInputDescriptor;
+import org.apache.samza.system.descriptors.GenericSystemDescriptor;
+import org.apache.samza.task.MessageCollector;
+import org.apache.samza.task.ReadableCoordinator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures the per-message cost of an {@link OperatorImplGraph} for common operator chains. Stateful operators are
+ * backed by serialized in-memory stores so that the result includes serde and store overhead but no disk I/O.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class OperatorImplGraphBenchmark {
+  private static final String SYSTEM = "benchmark-system";
+  private static final String INPUT = "input";
+  private static final String OTHER_INPUT = "other-input";
+  private static final String OUTPUT = "output";
+  private static final int KEY_COUNT = 1024;
+
+  /**
+   * map-filter: input -> filter -> map -> sendTo
+   * window: input -> map -> keyed tumbling window counting messages per key
+   * join: input joined with other-input on the message -> sendTo
+   */
+  @Param({"map-filter", "window", "join"})
+  String chain;
+
+  private InputOperatorImpl inputOperator;
+  private InputOperatorImpl otherInputOperator;
+  private IncomingMessageEnvelope[] envelopes;
+  private IncomingMessageEnvelope[] otherEnvelopes;
+  private final MessageCollector collector = envelope -> { };
+  private final ReadableCoordinator coordinator = new ReadableCoordinator(BenchmarkContexts.TASK_NAME);
+  private int next = 0;
+
+  @Setup(Level.Trial)
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    Map<String, String> configs = new HashMap<>();
+    configs.put(JobConfig.JOB_NAME, "benchmark");
+    configs.put(JobConfig.JOB_DEFAULT_SYSTEM, SYSTEM);
+    for (String streamId : new String[] {INPUT, OTHER_INPUT, OUTPUT}) {
+      configs.put(String.format(StreamConfig.SYSTEM_FOR_STREAM_ID, streamId), SYSTEM);
+      configs.put(String.format(StreamConfig.PHYSICAL_NAME_FOR_STREAM_ID, streamId), streamId);
+    }
+    Config config = new MapConfig(configs);
+
+    StreamApplicationDescriptorImpl appDesc = new StreamApplicationDescriptorImpl(streamAppDesc -> {
+      GenericSystemDescriptor sd = new GenericSystemDescriptor(SYSTEM, "mockFactoryClass");
+      GenericInputDescriptor<String> inputDescriptor = sd.getInputDescriptor(INPUT, new StringSerde());
+      MessageStream<String> inputStream = streamAppDesc.getInputStream(inputDescriptor);
+      OutputStream<String> outputStream =
+          streamAppDesc.getOutputStream(sd.getOutputDescriptor(OUTPUT, new StringSerde()));
+      switch (chain) {
+        case "map-filter":
+          inputStream
+              .filter(message -> !message.isEmpty())
+              .map(String::toUpperCase)
+              .sendTo(outputStream);
+          break;
+        case "window":
+          inputStream
+              .map(message -> message)
+              .window(Windows.keyedTumblingWindow(message -> message, Duration.ofMinutes(1), () -> 0,
+                  (message, count) -> count + 1, new StringSerde(), new IntegerSerde()), "window");
+          break;
+        case "join":
+          MessageStream<String> otherStream =
+              streamAppDesc.getInputStream(sd.getInputDescriptor(OTHER_INPUT, new StringSerde()));
+          inputStream
+              .join(otherStream, new IdentityJoinFunction(), new StringSerde(), new StringSerde(), new StringSerde(), Duration.ofMinutes(10), "join")
+              .sendTo(outputStream);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown chain: " + chain);
+      }
+    }, config);
+
+    OperatorSpecGraph specGraph = appDesc.getOperatorSpecGraph();
+    Map<String, KeyValueStore> stores = new HashMap<>();
+    MetricsRegistryMap registry = new MetricsRegistryMap();
+    for (OperatorSpec operatorSpec : specGraph.getAllOperatorSpecs()) {
+      if (operatorSpec instanceof StatefulOperatorSpec) {
+        for (StoreDescriptor storeDescriptor : ((StatefulOperatorSpec) operatorSpec).getStoreDescriptors()) {
+          String storeName = storeDescriptor.getStoreName();
+          stores.put(storeName, new SerializedKeyValueStore<>(
+              new InMemoryKeyValueStore(new KeyValueStoreMetrics(storeName, registry)),
+              storeDescriptor.getKeySerde(), storeDescriptor.getMsgSerde(),
+              new SerializedKeyValueStoreMetrics(storeName, registry)));
+        }
+      }
+    }
+
+    SystemStreamPartition inputSsp = new SystemStreamPartition(SYSTEM, INPUT, new Partition(0));
+    SystemStreamPartition otherInputSsp = new SystemStreamPartition(SYSTEM, OTHER_INPUT, new Partition(0));
+    Set<SystemStreamPartition> ssps = new HashSet<>();
+    ssps.add(inputSsp);
+    ssps.add(otherInputSsp);
+    OperatorImplGraph operatorImplGraph =
+        new OperatorImplGraph(specGraph, BenchmarkContexts.newContext(config, ssps, stores::get),
+            System::currentTimeMillis);
+    inputOperator = operatorImplGraph.getInputOperator(new SystemStream(SYSTEM, INPUT));
+    otherInputOperator = operatorImplGraph.getInputOperator(new SystemStream(SYSTEM, OTHER_INPUT));
+
+    envelopes = new IncomingMessageEnvelope[KEY_COUNT];
+    otherEnvelopes = new IncomingMessageEnvelope[KEY_COUNT];
+    for (int i = 0; i < KEY_COUNT; i++) {
+      String message = "key-" + i;
+      envelopes[i] = new IncomingMessageEnvelope(inputSsp, String.valueOf(i), null, message);
+      otherEnvelopes[i] = new IncomingMessageEnvelope(otherInputSsp, String.valueOf(i), null, message);
+    }
+  }
+
+  @Benchmark
+  public void onMessage() {
+    int index = next++ & (KEY_COUNT - 1);
+    inputOperator.onMessageAsync(envelopes[index], collector, coordinator).toCompletableFuture().join();
+    if (otherInputOperator != null) {
+      otherInputOperator.onMessageAsync(otherEnvelopes[index], collector, coordinator).toCompletableFuture().join();
+    }
+  }
+
+  /**
+   * Joins messages that are equal. Static so that the operator spec graph does not capture the benchmark state.
+   */
+  private static class IdentityJoinFunction implements JoinFunction<String, String, String, String> {
+    @Override
+    public String apply(String message, String otherMessage) {
+      return message;
+    }
+
+    @Override
+    public String getFirstKey(String message) {
+      return message;
+    }
+
+    @Override
+    public String getSecondKey(String message) {
+      return message;
+    }
+  }
+}
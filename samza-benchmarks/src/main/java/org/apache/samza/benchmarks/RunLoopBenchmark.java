@@ -0,0 +1,277 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.apache.samza.Partition;
+import org.apache.samza.checkpoint.OffsetManager;
+import org.apache.samza.config.JobConfig;
+import org.apache.samza.config.MapConfig;
+import org.apache.samza.config.RunLoopConfig;
+import org.apache.samza.config.TaskConfig;
+import org.apache.samza.container.RunLoop;
+import org.apache.samza.container.RunLoopTask;
+import org.apache.samza.container.SamzaContainerMetrics;
+import org.apache.samza.container.TaskInstanceMetrics;
+import org.apache.samza.container.TaskName;
+import org.apache.samza.metrics.MetricsRegistryMap;
+import org.apache.samza.scheduler.EpochTimeScheduler;
+import org.apache.samza.serializers.SerdeManager;
+import org.apache.samza.system.IncomingMessageEnvelope;
+import org.apache.samza.system.SystemAdmin;
+import org.apache.samza.system.SystemAdmins;
+import org.apache.samza.system.SystemConsumer;
+import org.apache.samza.system.SystemConsumers;
+import org.apache.samza.system.SystemConsumersMetrics;
+import org.apache.samza.system.SystemStreamPartition;
+import org.apache.samza.system.chooser.RoundRobinChooser;
+import org.apache.samza.system.chooser.RoundRobinChooserMetrics;
+import org.apache.samza.task.ReadableCoordinator;
+import org.apache.samza.task.TaskCallbackFactory;
+import org.apache.samza.util.ScalaJavaUtil;
+import org.apache.samza.util.SinglePartitionWithoutOffsetsSystemAdmin;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures the per-message overhead of the {@link RunLoop} when dispatching to N tasks. Messages come from a real
+ * {@link SystemConsumers} backed by an in-memory {@link SystemConsumer} that always has messages available, so the
+ * result covers choosing, dispatching and completing a message but no I/O.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class RunLoopBenchmark {
+  private static final String SYSTEM = "benchmark-system";
+  private static final String STREAM = "benchmark-stream";
+  private static final int MESSAGES_PER_INVOCATION = 100000;
+  private static final int MESSAGES_PER_POLL = 100;
+
+  @Param({"1", "16", "256"})
+  int taskCount;
+
+  @Param({"1", "4"})
+  int maxConcurrency;
+
+  private SystemConsumers consumerMultiplexer;
+  private RunLoop runLoop;
+
+  @Setup(Level.Invocation)
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    Map<String, String> configs = new HashMap<>();
+    configs.put(TaskConfig.WINDOW_MS, "-1");
+    configs.put(TaskConfig.COMMIT_MS, "-1");
+    configs.put(TaskConfig.MAX_CONCURRENCY, String.valueOf(maxConcurrency));
+    configs.put(JobConfig.JOB_NAME, "benchmark");
+    RunLoopConfig runLoopConfig = new RunLoopConfig(new MapConfig(configs));
+
+    Map<String, SystemAdmin> systemAdmins = new HashMap<>();
+    systemAdmins.put(SYSTEM, new SinglePartitionWithoutOffsetsSystemAdmin());
+    Map<String, SystemConsumer> consumers = new HashMap<>();
+    consumers.put(SYSTEM, new InMemorySystemConsumer());
+    MetricsRegistryMap registry = new MetricsRegistryMap();
+    // no serdes, the messages are passed through as they are
+    SerdeManager serdeManager = new SerdeManager(ScalaJavaUtil.toScalaMap(new HashMap<>()),
+        ScalaJavaUtil.toScalaMap(new HashMap<>()), ScalaJavaUtil.toScalaMap(new HashMap<>()),
+        ScalaJavaUtil.toScalaMap(new HashMap<>()), ScalaJavaUtil.toScalaMap(new HashMap<>()),
+        scala.collection.immutable.Set$.MODULE$.empty(), ScalaJavaUtil.toScalaMap(new HashMap<>()),
+        ScalaJavaUtil.toScalaMap(new HashMap<>()));
+    consumerMultiplexer = new SystemConsumers(new RoundRobinChooser(new RoundRobinChooserMetrics(registry)),
+        ScalaJavaUtil.toScalaMap(consumers), new SystemAdmins(systemAdmins), serdeManager,
+        new SystemConsumersMetrics(registry, ""), SystemConsumers.DEFAULT_NO_NEW_MESSAGES_TIMEOUT(),
+        SystemConsumers.DEFAULT_DROP_SERIALIZATION_ERROR(), 0, ScalaJavaUtil.toScalaFunction(() -> System.nanoTime()),
+        JobConfig.DEFAULT_JOB_ELASTICITY_FACTOR, runLoopConfig.getRunId(),
+        SystemConsumers.DEFAULT_DESERIALIZATION_THREAD_POOL_SIZE());
+
+    Map<TaskName, RunLoopTask> tasks = new HashMap<>();
+    ProcessedCounter counter = new ProcessedCounter();
+    for (int i = 0; i < taskCount; i++) {
+      SystemStreamPartition ssp = new SystemStreamPartition(SYSTEM, STREAM, new Partition(i));
+      TaskName taskName = new TaskName("Partition " + i);
+      tasks.put(taskName, new BenchmarkTask(taskName, ssp, counter, registry));
+      consumerMultiplexer.register(ssp, "0");
+    }
+    consumerMultiplexer.start();
+
+    runLoop = new RunLoop(tasks, null, consumerMultiplexer,
+        new SamzaContainerMetrics("benchmark", registry, ""), System::nanoTime, runLoopConfig);
+    counter.runLoop = runLoop;
+  }
+
+  @TearDown(Level.Invocation)
+  public void tearDown() {
+    consumerMultiplexer.stop();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(MESSAGES_PER_INVOCATION)
+  public void process() {
+    runLoop.run();
+  }
+
+  /**
+   * Shuts the run loop down once {@link #MESSAGES_PER_INVOCATION} messages have been processed by all tasks.
+   * Only accessed from the run loop thread since the tasks complete synchronously.
+   */
+  private static class ProcessedCounter {
+    private RunLoop runLoop;
+    private int processed = 0;
+
+    void inc() {
+      if (++processed == MESSAGES_PER_INVOCATION) {
+        runLoop.shutdown();
+      }
+    }
+  }
+
+  private static class BenchmarkTask implements RunLoopTask {
+    private final TaskName taskName;
+    private final Set<SystemStreamPartition> ssps;
+    private final ProcessedCounter counter;
+    private final TaskInstanceMetrics metrics;
+
+    BenchmarkTask(TaskName taskName, SystemStreamPartition ssp, ProcessedCounter counter,
+        MetricsRegistryMap registry) {
+      this.taskName = taskName;
+      this.ssps = Collections.singleton(ssp);
+      this.counter = counter;
+      this.metrics = new TaskInstanceMetrics(taskName.getTaskName(), registry, "");
+    }
+
+    @Override
+    public TaskName taskName() {
+      return taskName;
+    }
+
+    @Override
+    public void process(IncomingMessageEnvelope envelope, ReadableCoordinator coordinator,
+        TaskCallbackFactory callbackFactory) {
+      counter.inc();
+      callbackFactory.createCallback().complete();
+    }
+
+    @Override
+    public void window(ReadableCoordinator coordinator) {
+    }
+
+    @Override
+    public void scheduler(ReadableCoordinator coordinator) {
+    }
+
+    @Override
+    public void commit() {
+    }
+
+    @Override
+    public void endOfStream(ReadableCoordinator coordinator) {
+    }
+
+    @Override
+    public void drain(ReadableCoordinator coordinator) {
+    }
+
+    @Override
+    public boolean isWindowableTask() {
+      return false;
+    }
+
+    @Override
+    public Set<String> intermediateStreams() {
+      return Collections.emptySet();
+    }
+
+    @Override
+    public Set<SystemStreamPartition> systemStreamPartitions() {
+      return ssps;
+    }
+
+    @Override
+    public OffsetManager offsetManager() {
+      return null;
+    }
+
+    @Override
+    public TaskInstanceMetrics metrics() {
+      return metrics;
+    }
+
+    @Override
+    public EpochTimeScheduler epochTimeScheduler() {
+      return null;
+    }
+  }
+
+  /**
+   * A {@link SystemConsumer} that returns a fixed batch of messages for every polled partition.
+   */
+  private static class InMemorySystemConsumer implements SystemConsumer {
+    private final Map<SystemStreamPartition, List<IncomingMessageEnvelope>> batches = new HashMap<>();
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void stop() {
+    }
+
+    @Override
+    public void register(SystemStreamPartition systemStreamPartition, String offset) {
+      List<IncomingMessageEnvelope> batch = new ArrayList<>(MESSAGES_PER_POLL);
+      for (int i = 0; i < MESSAGES_PER_POLL; i++) {
+        batch.add(new IncomingMessageEnvelope(systemStreamPartition, String.valueOf(i), "key" + i, "value" + i));
+      }
+      batches.put(systemStreamPartition, batch);
+    }
+
+    @Override
+    public Map<SystemStreamPartition, List<IncomingMessageEnvelope>> poll(
+        Set<SystemStreamPartition> systemStreamPartitions, long timeout) {
+      Map<SystemStreamPartition, List<IncomingMessageEnvelope>> result = new HashMap<>();
+      for (SystemStreamPartition ssp : systemStreamPartitions) {
+        result.put(ssp, batches.get(ssp));
+      }
+      return result;
+    }
+  }
+}
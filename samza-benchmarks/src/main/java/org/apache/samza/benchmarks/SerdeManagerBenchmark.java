@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.samza.Partition;
+import org.apache.samza.serializers.JsonSerdeV2;
+import org.apache.samza.serializers.LongSerde;
+import org.apache.samza.serializers.Serde;
+import org.apache.samza.serializers.SerdeManager;
+import org.apache.samza.serializers.StringSerde;
+import org.apache.samza.system.IncomingMessageEnvelope;
+import org.apache.samza.system.OutgoingMessageEnvelope;
+import org.apache.samza.system.SystemStream;
+import org.apache.samza.system.SystemStreamPartition;
+import org.apache.samza.util.ScalaJavaUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures a {@link SerdeManager} round trip: serializing an outgoing envelope and deserializing the bytes as an
+ * incoming envelope, using stream-level key and message serdes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class SerdeManagerBenchmark {
+  private static final SystemStream SYSTEM_STREAM = new SystemStream("benchmark-system", "benchmark-stream");
+  private static final SystemStreamPartition SSP = new SystemStreamPartition(SYSTEM_STREAM, new Partition(0));
+
+  @Param({"string", "long", "json"})
+  String serde;
+
+  private SerdeManager serdeManager;
+  private OutgoingMessageEnvelope outgoingEnvelope;
+  private IncomingMessageEnvelope incomingEnvelope;
+
+  @Setup(Level.Trial)
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    Object key;
+    Object message;
+    Serde messageSerde;
+    switch (serde) {
+      case "string":
+        key = "key";
+        message = new String(new char[100]).replace('\0', 'v');
+        messageSerde = new StringSerde();
+        break;
+      case "long":
+        key = "key";
+        message = 1234567890L;
+        messageSerde = new LongSerde();
+        break;
+      case "json":
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", 1234567890L);
+        map.put("name", "samza");
+        map.put("score", 0.5);
+        key = "key";
+        message = map;
+        messageSerde = new JsonSerdeV2<>(Map.class);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown serde: " + serde);
+    }
+
+    Map<SystemStream, Serde<Object>> keySerdes = new HashMap<>();
+    keySerdes.put(SYSTEM_STREAM, (Serde) new StringSerde());
+    Map<SystemStream, Serde<Object>> messageSerdes = new HashMap<>();
+    messageSerdes.put(SYSTEM_STREAM, messageSerde);
+    serdeManager = new SerdeManager(ScalaJavaUtil.toScalaMap(new HashMap<>()), ScalaJavaUtil.toScalaMap(new HashMap<>()),
+        ScalaJavaUtil.toScalaMap(new HashMap<>()), ScalaJavaUtil.toScalaMap(keySerdes),
+        ScalaJavaUtil.toScalaMap(messageSerdes), scala.collection.immutable.Set$.MODULE$.empty(),
+        ScalaJavaUtil.toScalaMap(new HashMap<>()), ScalaJavaUtil.toScalaMap(new HashMap<>()));
+
+    outgoingEnvelope = new OutgoingMessageEnvelope(SYSTEM_STREAM, key, message);
+    OutgoingMessageEnvelope serialized = serdeManager.toBytes(outgoingEnvelope);
+    incomingEnvelope = new IncomingMessageEnvelope(SSP, "0", serialized.getKey(), serialized.getMessage());
+  }
+
+  @Benchmark
+  public OutgoingMessageEnvelope serialize() {
+    return serdeManager.toBytes(outgoingEnvelope);
+  }
+
+  @Benchmark
+  public IncomingMessageEnvelope deserialize() {
+    return serdeManager.fromBytes(incomingEnvelope);
+  }
+
+  @Benchmark
+  public IncomingMessageEnvelope roundTrip() {
+    OutgoingMessageEnvelope serialized = serdeManager.toBytes(outgoingEnvelope);
+    return serdeManager.fromBytes(new IncomingMessageEnvelope(SSP, "0", serialized.getKey(), serialized.getMessage()));
+  }
+}
@@ -20,6 +20,8 @@
 package org.apache.samza.config;
 
 import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.samza.util.RetryPolicyConfig;
 
 
@@ -51,6 +53,32 @@ public class BlobStoreConfig extends MapConfig {
   // machine with new gid/uid or if gid/uid changes due to host migration
   public static final String COMPARE_FILE_OWNERS_ON_RESTORE = PREFIX + "compare.file.owners.on.restore";
   public static final boolean DEFAULT_COMPARE_FILE_OWNERS_ON_RESTORE = true;
+  // Files larger than this size are uploaded as multiple blobs of at most this size, which are uploaded and
+  // restored concurrently. 0 disables chunking and uploads each file as a single blob.
+  public static final String FILE_CHUNK_SIZE_BYTES = PREFIX + "file.chunk.size.bytes";
+  public static final long DEFAULT_FILE_CHUNK_SIZE_BYTES = 0;
+  // Whether to use CRC32C checksums for uploaded files. Disable to keep creating snapshots that can be restored by
+  // versions that only support CRC32 checksums. Snapshots are restored with the checksum they were created with.
+  public static final String CHECKSUM_CRC32C_ENABLED = PREFIX + "checksum.crc32c.enabled";
+  public static final boolean DEFAULT_CHECKSUM_CRC32C_ENABLED = true;
+  // Compression of uploaded files: none, lz4 or zstd. Requires CRC32C checksums.
+  public static final String COMPRESSION_TYPE = PREFIX + "compression.type";
+  public static final String DEFAULT_COMPRESSION_TYPE = "none";
+  // Whether to compress SST files too. SST files are usually compressed by RocksDB already.
+  public static final String COMPRESSION_SST_FILES_ENABLED = PREFIX + "compression.sst.files.enabled";
+  public static final boolean DEFAULT_COMPRESSION_SST_FILES_ENABLED = false;
+  // Whether to reference the blobs of identical files in the previous snapshot instead of uploading new files again.
+  public static final String DEDUP_ENABLED = PREFIX + "dedup.enabled";
+  public static final boolean DEFAULT_DEDUP_ENABLED = false;
+
+  // Configs for the LocalBlobStoreManagerFactory, which keeps blobs in a local or network mounted directory.
+  public static final String LOCAL_BASE_DIR = PREFIX + "local.base.dir";
+  // Time after which blobs that were put but never had their TTL removed, and deleted blobs, are compacted.
+  public static final String LOCAL_TTL_MS = PREFIX + "local.ttl.ms";
+  public static final long DEFAULT_LOCAL_TTL_MS = TimeUnit.DAYS.toMillis(1);
+  // Whether to hard link local files into the blob store directory instead of copying them, if possible.
+  public static final String LOCAL_HARD_LINKS_ENABLED = PREFIX + "local.hard.links.enabled";
+  public static final boolean DEFAULT_LOCAL_HARD_LINKS_ENABLED = true;
 
   public BlobStoreConfig(Config config) {
     super(config);
@@ -78,4 +106,40 @@ public class BlobStoreConfig extends MapConfig {
   public boolean shouldCompareFileOwnersOnRestore() {
     return getBoolean(COMPARE_FILE_OWNERS_ON_RESTORE, DEFAULT_COMPARE_FILE_OWNERS_ON_RESTORE);
   }
+
+  public long getFileChunkSizeBytes() {
+    return getLong(FILE_CHUNK_SIZE_BYTES, DEFAULT_FILE_CHUNK_SIZE_BYTES);
+  }
+
+  public boolean getChecksumCrc32cEnabled() {
+    return getBoolean(CHECKSUM_CRC32C_ENABLED, DEFAULT_CHECKSUM_CRC32C_ENABLED);
+  }
+
+  public String getCompressionType() {
+    return get(COMPRESSION_TYPE, DEFAULT_COMPRESSION_TYPE);
+  }
+
+  public boolean getCompressionSstFilesEnabled() {
+    return getBoolean(COMPRESSION_SST_FILES_ENABLED, DEFAULT_COMPRESSION_SST_FILES_ENABLED);
+  }
+
+  public boolean getDedupEnabled() {
+    return getBoolean(DEDUP_ENABLED, DEFAULT_DEDUP_ENABLED);
+  }
+
+  public String getLocalBaseDir() {
+    String localBaseDir = get(LOCAL_BASE_DIR);
+    if (StringUtils.isBlank(localBaseDir)) {
+      throw new ConfigException(String.format("Missing config: %s", LOCAL_BASE_DIR));
+    }
+    return localBaseDir;
+  }
+
+  public long getLocalTtlMs() {
+    return getLong(LOCAL_TTL_MS, DEFAULT_LOCAL_TTL_MS);
+  }
+
+  public boolean getLocalHardLinksEnabled() {
+    return getBoolean(LOCAL_HARD_LINKS_ENABLED, DEFAULT_LOCAL_HARD_LINKS_ENABLED);
+  }
 }
@@ -78,6 +78,19 @@ public class JobConfig extends MapConfig {
   static final int DEFAULT_RESTORE_THREAD_POOL_SIZE = 2;
   public static final String RESTORE_THREAD_POOL_MAX_SIZE = "job.container.restore.thread.pool.max.size";
   static final int DEFAULT_RESTORE_THREAD_POOL_MAX_SIZE = 64;
+  // restore the stores of a task concurrently on the restore thread pool, instead of one after another
+  public static final String RESTORE_PARALLEL_STORES_ENABLED = "job.container.restore.parallel.stores.enabled";
+  static final boolean DEFAULT_RESTORE_PARALLEL_STORES_ENABLED = false;
+  // max number of changelog messages to read ahead per restoring store; 0 reads and applies on the same thread
+  public static final String RESTORE_PREFETCH_MAX_MESSAGES = "job.container.restore.prefetch.max.messages";
+  static final int DEFAULT_RESTORE_PREFETCH_MAX_MESSAGES = 0;
+  // number of threads used to process side inputs of different tasks concurrently; 0 processes them on the side input
+  // run loop thread
+  public static final String SIDE_INPUTS_THREAD_POOL_SIZE = "job.container.side.inputs.thread.pool.size";
+  static final int DEFAULT_SIDE_INPUTS_THREAD_POOL_SIZE = 0;
+  // start processing each task as soon as its own stores are restored, instead of after all stores of the container
+  public static final String CONTAINER_PROGRESSIVE_STARTUP_ENABLED = "job.container.progressive.startup.enabled";
+  static final boolean DEFAULT_CONTAINER_PROGRESSIVE_STARTUP_ENABLED = false;
 
   public static final String JOB_INTERMEDIATE_STREAM_PARTITIONS = "job.intermediate.stream.partitions";
 
@@ -395,6 +408,22 @@ public class JobConfig extends MapConfig {
     return getInt(RESTORE_THREAD_POOL_MAX_SIZE, DEFAULT_RESTORE_THREAD_POOL_MAX_SIZE);
   }
 
+  public boolean getRestoreParallelStoresEnabled() {
+    return getBoolean(RESTORE_PARALLEL_STORES_ENABLED, DEFAULT_RESTORE_PARALLEL_STORES_ENABLED);
+  }
+
+  public int getRestorePrefetchMaxMessages() {
+    return getInt(RESTORE_PREFETCH_MAX_MESSAGES, DEFAULT_RESTORE_PREFETCH_MAX_MESSAGES);
+  }
+
+  public int getSideInputsThreadPoolSize() {
+    return getInt(SIDE_INPUTS_THREAD_POOL_SIZE, DEFAULT_SIDE_INPUTS_THREAD_POOL_SIZE);
+  }
+
+  public boolean getContainerProgressiveStartupEnabled() {
+    return getBoolean(CONTAINER_PROGRESSIVE_STARTUP_ENABLED, DEFAULT_CONTAINER_PROGRESSIVE_STARTUP_ENABLED);
+  }
+
   public int getDebounceTimeMs() {
     return getInt(JOB_DEBOUNCE_TIME_MS, DEFAULT_DEBOUNCE_TIME_MS);
   }
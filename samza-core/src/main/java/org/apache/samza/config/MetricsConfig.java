@@ -36,6 +36,10 @@ public class MetricsConfig extends MapConfig {
   public static final String METRICS_TIMER_ENABLED = "metrics.timer.enabled";
   // This flag enables more timer metrics, e.g. handle-message-ns in an operator, for debugging purpose
   public static final String METRICS_TIMER_DEBUG_ENABLED = "metrics.timer.debug.enabled";
+  // The reservoir backing timers created by the container metrics registry
+  public static final String METRICS_TIMER_RESERVOIR = "metrics.timer.reservoir";
+  public static final String METRICS_TIMER_RESERVOIR_SLIDING_WINDOW = "sliding-window";
+  public static final String METRICS_TIMER_RESERVOIR_HDR_HISTOGRAM = "hdr-histogram";
 
   // The following configs are applicable only to {@link MetricsSnapshotReporter}
   // added here only to maintain backwards compatibility of config
@@ -82,4 +86,14 @@ public class MetricsConfig extends MapConfig {
   public boolean getMetricsTimerDebugEnabled() {
     return getBoolean(METRICS_TIMER_DEBUG_ENABLED, false);
   }
+
+  public String getMetricsTimerReservoir() {
+    String reservoir = get(METRICS_TIMER_RESERVOIR, METRICS_TIMER_RESERVOIR_SLIDING_WINDOW);
+    if (!METRICS_TIMER_RESERVOIR_SLIDING_WINDOW.equals(reservoir)
+        && !METRICS_TIMER_RESERVOIR_HDR_HISTOGRAM.equals(reservoir)) {
+      throw new ConfigException(String.format("Unknown value %s for %s. Expected %s or %s.", reservoir,
+          METRICS_TIMER_RESERVOIR, METRICS_TIMER_RESERVOIR_SLIDING_WINDOW, METRICS_TIMER_RESERVOIR_HDR_HISTOGRAM));
+    }
+    return reservoir;
+  }
 }
@@ -82,6 +82,10 @@ public class StorageConfig extends MapConfig {
   public static final long DEFAULT_ROCKSDB_MAX_MANIFEST_FILE_SIZE_IN_BYTES = 1024 * 1024 * 1024L;
 
   static final String DEFAULT_ROCKSDB_MAX_MANIFEST_FILE_SIZE = "stores-default.rocksdb.max.manifest.file.size.bytes";
+  static final String ROCKSDB_SHARED_CACHE_SIZE = "stores-default.rocksdb.shared.cache.size.bytes";
+  static final String ROCKSDB_SHARED_WRITE_BUFFER_SIZE = "stores-default.rocksdb.shared.write.buffer.size.bytes";
+  static final String ROCKSDB_SHARED_CACHE_STRICT_CAPACITY_LIMIT =
+      "stores-default.rocksdb.shared.cache.strict.capacity.limit";
   static final String CHANGELOG_SYSTEM = "job.changelog.system";
   static final String CHANGELOG_DELETE_RETENTION_MS = STORE_PREFIX + "%s.changelog.delete.retention.ms";
   static final long DEFAULT_CHANGELOG_DELETE_RETENTION_MS = TimeUnit.DAYS.toMillis(1);
@@ -92,6 +96,8 @@ public class StorageConfig extends MapConfig {
   static final String SIDE_INPUTS_PROCESSOR_FACTORY = STORE_PREFIX + "%s" + SIDE_INPUT_PROCESSOR_FACTORY_SUFFIX;
   static final String SIDE_INPUTS_PROCESSOR_SERIALIZED_INSTANCE =
       STORE_PREFIX + "%s.side.inputs.processor.serialized.instance";
+  static final String SIDE_INPUTS_WRITE_BATCH_SIZE = STORE_PREFIX + "%s.side.inputs.write.batch.size";
+  static final int DEFAULT_SIDE_INPUTS_WRITE_BATCH_SIZE = 1;
 
   // Internal config to clean storeDirs of a store on container start. This is used to benchmark bootstrap performance.
   static final String CLEAN_LOGGED_STOREDIRS_ON_START = STORE_PREFIX + "%s.clean.on.container.start";
@@ -240,6 +246,17 @@ public class StorageConfig extends MapConfig {
     return Optional.ofNullable(get(String.format(SIDE_INPUTS_PROCESSOR_SERIALIZED_INSTANCE, storeName)));
   }
 
+  /**
+   * Gets the number of entries returned by the side inputs processor of the {@code storeName} that are buffered and
+   * written to the store in bulk while its side inputs are catching up.
+   *
+   * @param storeName name of the store
+   * @return the write batch size for the side inputs of the store
+   */
+  public int getSideInputsWriteBatchSize(String storeName) {
+    return getInt(String.format(SIDE_INPUTS_WRITE_BATCH_SIZE, storeName), DEFAULT_SIDE_INPUTS_WRITE_BATCH_SIZE);
+  }
+
   public long getChangeLogDeleteRetentionInMs(String storeName) {
     return getLong(String.format(CHANGELOG_DELETE_RETENTION_MS, storeName), DEFAULT_CHANGELOG_DELETE_RETENTION_MS);
   }
@@ -274,6 +291,29 @@ public class StorageConfig extends MapConfig {
     return getLong(DEFAULT_ROCKSDB_MAX_MANIFEST_FILE_SIZE, DEFAULT_ROCKSDB_MAX_MANIFEST_FILE_SIZE_IN_BYTES);
   }
 
+  /**
+   * Size of the block cache shared by all the RocksDB stores of a container, or 0 if each store has its own.
+   */
+  public long getRocksDbSharedCacheSizeBytes() {
+    return getLong(ROCKSDB_SHARED_CACHE_SIZE, 0L);
+  }
+
+  /**
+   * Memtable budget of all the RocksDB stores of a container, which is charged to the shared block cache.
+   * Defaults to half of {@link #getRocksDbSharedCacheSizeBytes()}.
+   */
+  public long getRocksDbSharedWriteBufferSizeBytes() {
+    return getLong(ROCKSDB_SHARED_WRITE_BUFFER_SIZE, getRocksDbSharedCacheSizeBytes() / 2);
+  }
+
+  /**
+   * Whether the shared block cache fails inserts, and therefore reads, instead of growing past its size when all of
+   * its memory is pinned. Defaults to false, in which case the size is a soft limit.
+   */
+  public boolean getRocksDbSharedCacheStrictCapacityLimit() {
+    return getBoolean(ROCKSDB_SHARED_CACHE_STRICT_CAPACITY_LIMIT, false);
+  }
+
   /**
    * Helper method to check if there is any stores configured w/ a changelog
    */
@@ -121,6 +121,14 @@ public class TaskConfig extends MapConfig {
    */
   public static final String POLL_INTERVAL_MS = "task.poll.interval.ms";
   public static final int DEFAULT_POLL_INTERVAL_MS = 50;
+  /**
+   * Number of threads used to deserialize incoming messages as soon as they are polled from the system consumers,
+   * instead of deserializing them on the run loop thread right before they are handed to the message chooser.
+   * Messages of a SystemStreamPartition are always deserialized in order. Defaults to 0, which disables the
+   * parallel deserialization stage.
+   */
+  public static final String DESERIALIZATION_THREAD_POOL_SIZE = "task.deserialization.thread.pool.size";
+  static final int DEFAULT_DESERIALIZATION_THREAD_POOL_SIZE = 0;
   // broadcast streams consumed by all tasks. e.g. kafka.foo#1
   public static final String BROADCAST_INPUT_STREAMS = "task.broadcast.inputs";
   private static final String BROADCAST_STREAM_PATTERN = "^[\\d]+$";
@@ -155,6 +163,27 @@ public class TaskConfig extends MapConfig {
   public static final String WATERMARK_QUORUM_SIZE_PERCENTAGE = "task.watermark.quorum.size,percentage";
   public static final double DEFAULT_WATERMARK_QUORUM_SIZE_PERCENTAGE = 0.5;
 
+  /**
+   * Keeps the timers of a task in a hierarchical timing wheel driven by a single scheduled future, instead of
+   * scheduling a future per timer key. Required for {@link #TIMER_STORE}.
+   */
+  public static final String TIMER_WHEEL_ENABLED = "task.timer.wheel.enabled";
+  static final boolean DEFAULT_TIMER_WHEEL_ENABLED = false;
+  // resolution of the timing wheel; timers fire at most this late
+  public static final String TIMER_WHEEL_TICK_MS = "task.timer.wheel.tick.ms";
+  static final long DEFAULT_TIMER_WHEEL_TICK_MS = 10L;
+  // number of buckets of each level of the timing wheel
+  public static final String TIMER_WHEEL_SIZE = "task.timer.wheel.size";
+  static final int DEFAULT_TIMER_WHEEL_SIZE = 512;
+  /**
+   * Name of a changelogged key-value store with byte serdes in which the timers of high level API operators are
+   * persisted, so that they survive restarts and failovers of the task.
+   */
+  public static final String TIMER_STORE = "task.timer.store";
+  // serde of the keys of persisted timers
+  public static final String TIMER_KEY_SERDE = "task.timer.key.serde";
+  static final String DEFAULT_TIMER_KEY_SERDE = "serializable";
+
   public TaskConfig(Config config) {
     super(config);
   }
@@ -218,6 +247,10 @@ public class TaskConfig extends MapConfig {
     return getInt(POLL_INTERVAL_MS, DEFAULT_POLL_INTERVAL_MS);
   }
 
+  public int getDeserializationThreadPoolSize() {
+    return getInt(DESERIALIZATION_THREAD_POOL_SIZE, DEFAULT_DESERIALIZATION_THREAD_POOL_SIZE);
+  }
+
   public Optional<String> getIgnoredExceptions() {
     return Optional.ofNullable(get(IGNORED_EXCEPTIONS));
   }
@@ -418,4 +451,24 @@ public class TaskConfig extends MapConfig {
   public double getWatermarkQuorumSizePercentage() {
     return getDouble(WATERMARK_QUORUM_SIZE_PERCENTAGE, DEFAULT_WATERMARK_QUORUM_SIZE_PERCENTAGE);
   }
+
+  public boolean getTimerWheelEnabled() {
+    return getBoolean(TIMER_WHEEL_ENABLED, DEFAULT_TIMER_WHEEL_ENABLED);
+  }
+
+  public long getTimerWheelTickMs() {
+    return getLong(TIMER_WHEEL_TICK_MS, DEFAULT_TIMER_WHEEL_TICK_MS);
+  }
+
+  public int getTimerWheelSize() {
+    return getInt(TIMER_WHEEL_SIZE, DEFAULT_TIMER_WHEEL_SIZE);
+  }
+
+  public Optional<String> getTimerStore() {
+    return Optional.ofNullable(get(TIMER_STORE));
+  }
+
+  public String getTimerKeySerde() {
+    return get(TIMER_KEY_SERDE, DEFAULT_TIMER_KEY_SERDE);
+  }
 }
@@ -27,15 +27,20 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import org.apache.samza.SamzaException;
 import org.apache.samza.config.RunLoopConfig;
+import org.apache.samza.metrics.Gauge;
 import org.apache.samza.system.DrainMessage;
 import org.apache.samza.system.IncomingMessageEnvelope;
 import org.apache.samza.system.MessageType;
@@ -65,11 +70,27 @@ import org.slf4j.LoggerFactory;
  *      If job.container.thread.pool.size &lt; 1 (single-threaded), operations for all tasks are multiplexed onto one execution thread.
  *    </p>.
  *    Note: In both models, process/processAsync for all tasks is invoked on the run loop thread.
+ *    <p>
+ *      Task workers are dispatched from a ready queue. A worker enqueues itself whenever its {@link AsyncTaskState}
+ *      changes (an envelope is inserted, a callback completes, a window/commit/scheduler timer fires or completes, or
+ *      a commit is requested), so the cost of each run loop iteration is proportional to the number of tasks with
+ *      work instead of the number of tasks in the container.
+ *    </p>
+ *    <p>
+ *      Tasks that are not ready to process messages when the run loop is created, e.g. because their stores are still
+ *      being restored, can be passed as pending tasks. Their partitions stay paused in the {@link SystemConsumers} and
+ *      they are neither run nor routed any envelopes until they are added with {@link #addTask(TaskName)}.
+ *    </p>
  */
 public class RunLoop implements Runnable, Throttleable {
   private static final Logger log = LoggerFactory.getLogger(RunLoop.class);
 
   private final List<AsyncTaskWorker> taskWorkers;
+  private final Map<TaskName, AsyncTaskWorker> taskWorkersByName;
+  private final Queue<AsyncTaskWorker> readyTaskWorkers = new ConcurrentLinkedQueue<>();
+  // tasks that are not run until they are added, and the tasks that have been added but are not run yet
+  private final Map<TaskName, RunLoopTask> pendingTasks;
+  private final Queue<TaskName> addedTasks = new ConcurrentLinkedQueue<>();
   private final SystemConsumers consumerMultiplexer;
   private final Map<SystemStreamPartition, List<AsyncTaskWorker>> sspToTaskWorkerMapping;
   private final ExecutorService threadPool;
@@ -96,6 +117,16 @@ public class RunLoop implements Runnable, Throttleable {
   private final String runId;
   private final boolean isHighLevelApiJob;
   private boolean isDraining = false;
+  private final long createdNs;
+
+  public RunLoop(Map<TaskName, RunLoopTask> runLoopTasks,
+      ExecutorService threadPool,
+      SystemConsumers consumerMultiplexer,
+      SamzaContainerMetrics containerMetrics,
+      HighResolutionClock clock,
+      RunLoopConfig config) {
+    this(runLoopTasks, Collections.emptySet(), threadPool, consumerMultiplexer, containerMetrics, clock, config);
+  }
 
   /*
    * Order of initialization
@@ -104,6 +135,7 @@ public class RunLoop implements Runnable, Throttleable {
    *  3. Initialize fields that are derived and constructed using the arguments passed to the constructor
    */
   public RunLoop(Map<TaskName, RunLoopTask> runLoopTasks,
+      Set<TaskName> pendingTaskNames,
       ExecutorService threadPool,
       SystemConsumers consumerMultiplexer,
       SamzaContainerMetrics containerMetrics,
@@ -136,6 +168,7 @@ public class RunLoop implements Runnable, Throttleable {
     log.info("Got max idle in milliseconds: {}.", maxIdleMs);
 
     this.clock = clock;
+    this.createdNs = clock.nanoTime();
     // assign runId before creating workers. As the inner AsyncTaskWorker class is not static, it relies on
     // the outer class fields to be init first
     this.runId = config.getRunId();
@@ -159,15 +192,32 @@ public class RunLoop implements Runnable, Throttleable {
 
     this.callbackTimer = (messageCallbackTimeoutMs > 0) ? Executors.newSingleThreadScheduledExecutor() : null;
     this.callbackExecutor = new ThrottlingScheduler(config.getMaxThrottlingDelayMs());
+    // pending tasks take part in shutdown consensus like the other tasks of the container
     this.coordinatorRequests = new CoordinatorRequests(runLoopTasks.keySet());
 
+    Map<TaskName, RunLoopTask> tasksToRun = new HashMap<>(runLoopTasks);
+    this.pendingTasks = new ConcurrentHashMap<>();
+    for (TaskName taskName : pendingTaskNames) {
+      RunLoopTask task = tasksToRun.remove(taskName);
+      if (task == null) {
+        throw new SamzaException("Pending task " + taskName + " is not one of the tasks of the run loop.");
+      }
+      pendingTasks.put(taskName, task);
+      consumerMultiplexer.pause(task.systemStreamPartitions());
+    }
+    if (!pendingTasks.isEmpty()) {
+      log.info("Got pending tasks: {}.", pendingTasks.keySet());
+    }
+
     Map<TaskName, AsyncTaskWorker>  workers = new HashMap<>();
-    for (RunLoopTask task : runLoopTasks.values()) {
+    for (RunLoopTask task : tasksToRun.values()) {
       workers.put(task.taskName(), new AsyncTaskWorker(task));
     }
-    // Partions and tasks assigned to the container will not change during the run loop life time
-    this.sspToTaskWorkerMapping = Collections.unmodifiableMap(getSspToAsyncTaskWorkerMap(runLoopTasks, workers));
+    // Partions and tasks assigned to the container will not change during the run loop life time. Only the workers of
+    // pending tasks are added to the maps later on, on the run loop thread.
+    this.sspToTaskWorkerMapping = new ConcurrentHashMap<>(getSspToAsyncTaskWorkerMap(tasksToRun, workers));
     this.taskWorkers = Collections.unmodifiableList(new ArrayList<>(workers.values()));
+    this.taskWorkersByName = new ConcurrentHashMap<>(workers);
   }
 
   /**
@@ -206,6 +256,8 @@ public class RunLoop implements Runnable, Throttleable {
     try {
       for (AsyncTaskWorker taskWorker : taskWorkers) {
         taskWorker.init();
+        // every task is evaluated once up front, e.g. to detect tasks whose partitions are already at end of stream
+        schedule(taskWorker);
       }
 
       long prevNs = clock.nanoTime();
@@ -213,6 +265,8 @@ public class RunLoop implements Runnable, Throttleable {
       while (!shutdownNow && throwable == null) {
         long startNs = clock.nanoTime();
 
+        runAddedTasks();
+
         IncomingMessageEnvelope envelope = chooseEnvelope();
 
         long chooseNs = clock.nanoTime();
@@ -268,6 +322,65 @@ public class RunLoop implements Runnable, Throttleable {
     resume();
   }
 
+  /**
+   * Adds a pending task to the run loop once it is ready to process messages. The task is started on the run loop
+   * thread, after which its partitions that are not consumed by other pending tasks are resumed.
+   * This method is thread safe.
+   *
+   * @param taskName name of the pending task to add
+   */
+  public void addTask(TaskName taskName) {
+    if (!pendingTasks.containsKey(taskName)) {
+      throw new SamzaException("Task " + taskName + " is not a pending task of the run loop.");
+    }
+    log.info("Adding task {} to the run loop.", taskName);
+    addedTasks.add(taskName);
+    resume();
+  }
+
+  /**
+   * Creates and starts the workers of the tasks added since the last iteration, and resumes the partitions which are
+   * no longer consumed by any pending task. Runs on the run loop thread, since the SystemConsumers are not thread safe.
+   */
+  private void runAddedTasks() {
+    TaskName taskName;
+    while ((taskName = addedTasks.poll()) != null) {
+      RunLoopTask task = pendingTasks.remove(taskName);
+      if (task == null) {
+        // the task was added more than once
+        continue;
+      }
+
+      AsyncTaskWorker worker = new AsyncTaskWorker(task);
+      for (SystemStreamPartition ssp : task.systemStreamPartitions()) {
+        // replace the list instead of modifying it, since it may be read outside the run loop thread
+        List<AsyncTaskWorker> workers = new ArrayList<>();
+        workers.addAll(sspToTaskWorkerMapping.getOrDefault(ssp, Collections.emptyList()));
+        workers.add(worker);
+        sspToTaskWorkerMapping.put(ssp, Collections.unmodifiableList(workers));
+      }
+      taskWorkersByName.put(taskName, worker);
+      worker.init();
+      schedule(worker);
+
+      Set<SystemStreamPartition> sspsToResume = new HashSet<>();
+      for (SystemStreamPartition ssp : task.systemStreamPartitions()) {
+        // with elasticity, other tasks may consume other key buckets of the same partition
+        SystemStreamPartition partition = new SystemStreamPartition(ssp.getSystemStream(), ssp.getPartition());
+        boolean consumedByPendingTask = pendingTasks.values().stream()
+            .flatMap(pendingTask -> pendingTask.systemStreamPartitions().stream())
+            .anyMatch(pendingSsp -> pendingSsp.getSystemStream().equals(partition.getSystemStream())
+                && pendingSsp.getPartition().equals(partition.getPartition()));
+        if (!consumedByPendingTask) {
+          sspsToResume.add(partition);
+        }
+      }
+      consumerMultiplexer.resume(sspsToResume);
+      log.info("Started task {} in the run loop. Resumed partitions: {}. Remaining pending tasks: {}.",
+          taskName, sspsToResume, pendingTasks.size());
+    }
+  }
+
   /**
    * Chooses an envelope from messageChooser without updating it. This enables flow control
    * on the SSP level, meaning the task will not get further messages for the SSP if it cannot
@@ -290,7 +403,7 @@ public class RunLoop implements Runnable, Throttleable {
   }
 
   /**
-   * Insert the envelope into the task pending queues and run all the tasks
+   * Insert the envelope into the task pending queues and run the tasks in the ready queue
    */
   private void runTasks(IncomingMessageEnvelope envelope) {
     if (!shutdownNow) {
@@ -303,6 +416,7 @@ public class RunLoop implements Runnable, Throttleable {
         if (listOfWorkersForEnvelope != null) {
           for (AsyncTaskWorker worker : listOfWorkersForEnvelope) {
             worker.state.insertEnvelope(pendingEnvelope);
+            schedule(worker);
           }
         } else if (elasticityFactor > 1) {
           // is listOfWorkersForEnvelope is null and elascity factor > 1 (aka enabled), then
@@ -321,8 +435,51 @@ public class RunLoop implements Runnable, Throttleable {
         }
       }
 
-      for (AsyncTaskWorker worker: taskWorkers) {
-        worker.run();
+      // Only the workers that were ready when this iteration started are run, so a worker that keeps itself ready
+      // (e.g. task.max.concurrency > 1 with a backlog of pending envelopes) cannot starve the chooser.
+      int readyWorkers = readyTaskWorkers.size();
+      containerMetrics.readyTasks().set((long) readyWorkers);
+      for (int i = 0; i < readyWorkers; i++) {
+        AsyncTaskWorker worker = readyTaskWorkers.poll();
+        if (worker == null) {
+          break;
+        }
+        worker.scheduled.set(false);
+        WorkerOp op = worker.run();
+        containerMetrics.dispatchedTasks().inc();
+
+        // window, commit and scheduler reschedule the worker when they complete. A process call only does so once its
+        // callback completes, so keep the worker queued while it may be able to take further pending envelopes.
+        if (op == WorkerOp.PROCESS && worker.state.hasPendingEnvelopes()) {
+          schedule(worker);
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds the worker to the ready queue unless it is already queued. Callers running off the run loop thread
+   * must {@link #resume()} the run loop afterwards so that a blocked run loop notices the worker.
+   */
+  private void schedule(AsyncTaskWorker worker) {
+    if (worker.scheduled.compareAndSet(false, true)) {
+      readyTaskWorkers.add(worker);
+    }
+  }
+
+  /**
+   * Updates the coordinator requests and schedules the workers of the tasks that have a pending commit request,
+   * since a commit request may target tasks other than the one owning the coordinator.
+   */
+  private void updateCoordinatorRequests(ReadableCoordinator coordinator) {
+    coordinatorRequests.update(coordinator);
+    for (TaskName taskName : coordinatorRequests.commitRequests()) {
+      AsyncTaskWorker worker = taskWorkersByName.get(taskName);
+      if (worker != null) {
+        schedule(worker);
+      } else if (pendingTasks.containsKey(taskName)) {
+        // a task that has not been started has nothing to commit
+        coordinatorRequests.commitRequests().remove(taskName);
       }
     }
   }
@@ -385,7 +542,7 @@ public class RunLoop implements Runnable, Throttleable {
       // is used to ensure we don't delay if there may already be a task ready to dequeue a previously chosen/pending
       // message. It is better to occasionally make one additional loop when there is no work to do then delay the
       // runloop when there is work that could be started immediately.
-      if ((envelope == null) && !runLoopResumedSinceLastChecked) {
+      if ((envelope == null) && !runLoopResumedSinceLastChecked && readyTaskWorkers.isEmpty()) {
         try {
           log.trace("Start no work wait");
           latch.wait(maxIdleMs);
@@ -396,12 +553,19 @@ public class RunLoop implements Runnable, Throttleable {
       }
       runLoopResumedSinceLastChecked = false;
 
-      // Next check to see if we should block if all the tasks are busy.
+      // Without a chosen envelope there is nothing to block on. Return so that the consumers are polled again, since
+      // messages that arrive in the meantime do not resume the run loop.
+      if (envelope == null) {
+        return;
+      }
+
+      // Next check to see if we should block if all the tasks are busy. A task that is not in the ready queue can
+      // only become ready through an event that schedules it and resumes the run loop, so the tasks outside the
+      // ready queue only need to be checked when they are the target of the chosen envelope. Tasks that have been added
+      // are started on the next iteration.
       while (!shutdownNow && throwable == null) {
-        for (AsyncTaskWorker worker : taskWorkers) {
-          if (worker.state.isReady()) {
-            return;
-          }
+        if (!readyTaskWorkers.isEmpty() || !addedTasks.isEmpty() || canDispatch(envelope)) {
+          return;
         }
 
         try {
@@ -414,6 +578,23 @@ public class RunLoop implements Runnable, Throttleable {
     }
   }
 
+  /**
+   * Returns true if the envelope can be handed off without waiting, i.e. one of the tasks consuming it is ready
+   * or no task in this container consumes it.
+   */
+  private boolean canDispatch(IncomingMessageEnvelope envelope) {
+    List<AsyncTaskWorker> workers = getWorkersForEnvelope(envelope);
+    if (workers == null) {
+      return true;
+    }
+    for (AsyncTaskWorker worker : workers) {
+      if (worker.state.isReady()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   /**
    * Resume the runloop thread. This API is triggered in the following scenarios:
    * A. A task becomes ready to process a message.
@@ -493,7 +674,11 @@ public class RunLoop implements Runnable, Throttleable {
   private class AsyncTaskWorker implements TaskCallbackListener {
     private final RunLoopTask task;
     private final TaskCallbackManager callbackManager;
+    // true while this worker is in the ready queue
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
     private volatile AsyncTaskState state;
+    // only accessed on the run loop thread
+    private boolean processedFirstEnvelope = false;
 
     AsyncTaskWorker(RunLoopTask task) {
       this.task = task;
@@ -511,6 +696,7 @@ public class RunLoop implements Runnable, Throttleable {
           public void run() {
             log.trace("Task {} need window", task.taskName());
             state.needWindow();
+            schedule(AsyncTaskWorker.this);
             resume();
           }
         }, windowMs, windowMs, TimeUnit.MILLISECONDS);
@@ -522,6 +708,7 @@ public class RunLoop implements Runnable, Throttleable {
           public void run() {
             log.trace("Task {} need commit", task.taskName());
             state.needCommit();
+            schedule(AsyncTaskWorker.this);
             resume();
           }
         }, commitMs, commitMs, TimeUnit.MILLISECONDS);
@@ -531,6 +718,7 @@ public class RunLoop implements Runnable, Throttleable {
       if (epochTimeScheduler != null) {
         epochTimeScheduler.registerListener(() -> {
           state.needScheduler();
+          schedule(this);
         });
       }
     }
@@ -553,9 +741,11 @@ public class RunLoop implements Runnable, Throttleable {
 
     /**
      * Invoke next task operation based on its state
+     * @return the operation that was invoked
      */
-    private void run() {
-      switch (state.nextOp()) {
+    private WorkerOp run() {
+      WorkerOp op = state.nextOp();
+      switch (op) {
         case PROCESS:
           process();
           break;
@@ -578,6 +768,7 @@ public class RunLoop implements Runnable, Throttleable {
           //no op
           break;
       }
+      return op;
     }
 
     /**
@@ -593,7 +784,7 @@ public class RunLoop implements Runnable, Throttleable {
 
         // issue a shutdown request for the task
         coordinator.shutdown(TaskCoordinator.RequestScope.CURRENT_TASK);
-        coordinatorRequests.update(coordinator);
+        updateCoordinatorRequests(coordinator);
 
         // issue a commit explicitly before we shutdown the task
         // Adding commit to coordinator will not work as the state is marked complete and NO_OP will always be the
@@ -613,7 +804,7 @@ public class RunLoop implements Runnable, Throttleable {
 
         // issue a request for shutdown of the task
         coordinator.shutdown(TaskCoordinator.RequestScope.CURRENT_TASK);
-        coordinatorRequests.update(coordinator);
+        updateCoordinatorRequests(coordinator);
 
         // invoke commit on the task - if the endOfStream callback had requested a final commit.
         boolean needFinalCommit = coordinatorRequests.commitRequests().remove(task.taskName());
@@ -632,6 +823,14 @@ public class RunLoop implements Runnable, Throttleable {
       final IncomingMessageEnvelope envelope = state.fetchEnvelope();
       log.trace("Process ssp {} offset {}", envelope.getSystemStreamPartition(elasticityFactor), envelope.getOffset());
 
+      if (!processedFirstEnvelope) {
+        processedFirstEnvelope = true;
+        Gauge timeToFirstMessage = containerMetrics.taskTimeToFirstMessageMetrics().get(task.taskName());
+        if (timeToFirstMessage != null) {
+          timeToFirstMessage.set(TimeUnit.NANOSECONDS.toMillis(clock.nanoTime() - createdNs));
+        }
+      }
+
       final ReadableCoordinator coordinator = new ReadableCoordinator(task.taskName());
       TaskCallbackFactory callbackFactory = new TaskCallbackFactory() {
         @Override
@@ -693,7 +892,7 @@ public class RunLoop implements Runnable, Throttleable {
                   new Object[]{averageWindowMs, windowMs, averageWindowMs});
             }
 
-            coordinatorRequests.update(coordinator);
+            updateCoordinatorRequests(coordinator);
 
             state.doneWindow();
           } catch (Throwable t) {
@@ -701,6 +900,7 @@ public class RunLoop implements Runnable, Throttleable {
             abort(t);
           } finally {
             log.trace("Task {} window completed", task.taskName());
+            schedule(AsyncTaskWorker.this);
             resume();
           }
         }
@@ -736,6 +936,7 @@ public class RunLoop implements Runnable, Throttleable {
             abort(t);
           } finally {
             log.trace("Task {} commit completed", task.taskName());
+            schedule(AsyncTaskWorker.this);
             resume();
           }
         }
@@ -765,13 +966,14 @@ public class RunLoop implements Runnable, Throttleable {
             task.scheduler(coordinator);
             containerMetrics.timerNs().update(clock.nanoTime() - startTime);
 
-            coordinatorRequests.update(coordinator);
+            updateCoordinatorRequests(coordinator);
             state.doneScheduler();
           } catch (Throwable t) {
             log.error("Task {} scheduler failed", task.taskName(), t);
             abort(t);
           } finally {
             log.trace("Task {} scheduler completed", task.taskName());
+            schedule(AsyncTaskWorker.this);
             resume();
           }
         }
@@ -817,12 +1019,13 @@ public class RunLoop implements Runnable, Throttleable {
               }
 
               // update coordinator
-              coordinatorRequests.update(callbackToUpdate.getCoordinator());
+              updateCoordinatorRequests(callbackToUpdate.getCoordinator());
             }
           } catch (Throwable t) {
             log.error("Error marking process as complete.", t);
             abort(t);
           } finally {
+            schedule(AsyncTaskWorker.this);
             resume();
           }
         }
@@ -847,6 +1050,7 @@ public class RunLoop implements Runnable, Throttleable {
       } catch (Throwable e) {
         log.error("Error marking process as failed.", e);
       } finally {
+        schedule(this);
         resume();
       }
     }
@@ -1019,6 +1223,10 @@ public class RunLoop implements Runnable, Throttleable {
       return WorkerOp.NO_OP;
     }
 
+    private boolean hasPendingEnvelopes() {
+      return !pendingEnvelopeQueue.isEmpty();
+    }
+
     private void needWindow() {
       needWindow = true;
     }
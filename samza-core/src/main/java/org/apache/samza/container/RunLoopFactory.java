@@ -20,12 +20,16 @@
 package org.apache.samza.container;
 
 import org.apache.samza.config.Config;
+import org.apache.samza.config.JobConfig;
 import org.apache.samza.config.RunLoopConfig;
 import org.apache.samza.system.SystemConsumers;
 import org.apache.samza.util.HighResolutionClock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import scala.collection.JavaConverters;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 
 /**
@@ -44,8 +48,17 @@ public class RunLoopFactory {
 
     log.info("Run loop in asynchronous mode.");
 
+    Map<TaskName, RunLoopTask> runLoopTasks = JavaConverters.mapAsJavaMapConverter(taskInstances).asJava();
+    // with progressive startup, each task is added to the run loop by the container once its stores are ready
+    Set<TaskName> pendingTaskNames = new JobConfig(config).getContainerProgressiveStartupEnabled()
+        ? runLoopTasks.keySet() : Collections.emptySet();
+    if (!pendingTaskNames.isEmpty()) {
+      log.info("Progressive container startup is enabled.");
+    }
+
     return new RunLoop(
-      JavaConverters.mapAsJavaMapConverter(taskInstances).asJava(),
+      runLoopTasks,
+      pendingTaskNames,
       threadPool,
       consumerMultiplexer,
       containerMetrics,
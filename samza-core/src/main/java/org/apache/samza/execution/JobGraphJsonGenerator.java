@@ -195,7 +195,12 @@ import org.apache.samza.table.descriptors.TableDescriptor;
     }
 
     if (spec instanceof JoinOperatorSpec) {
-      map.put("ttlMs", ((JoinOperatorSpec) spec).getTtlMs());
+      JoinOperatorSpec joinOpSpec = (JoinOperatorSpec) spec;
+      map.put("ttlMs", joinOpSpec.getTtlMs());
+      if (joinOpSpec.isIntervalJoin()) {
+        map.put("beforeMs", joinOpSpec.getBeforeMs());
+        map.put("afterMs", joinOpSpec.getAfterMs());
+      }
     }
 
     return map;
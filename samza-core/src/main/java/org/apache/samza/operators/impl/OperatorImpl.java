@@ -42,6 +42,7 @@ import org.apache.samza.operators.functions.ScheduledFunction;
 import org.apache.samza.operators.functions.WatermarkFunction;
 import org.apache.samza.operators.spec.OperatorSpec;
 import org.apache.samza.scheduler.CallbackScheduler;
+import org.apache.samza.scheduler.DurableCallbackScheduler;
 import org.apache.samza.system.DrainMessage;
 import org.apache.samza.system.EndOfStreamMessage;
 import org.apache.samza.system.SystemStream;
@@ -599,28 +600,30 @@ public abstract class OperatorImpl<M, RM> {
    * @return an instance of {@link Scheduler}
    */
   <K> Scheduler<K> createOperatorScheduler() {
+    if (callbackScheduler instanceof DurableCallbackScheduler) {
+      // timers are set under the operator id, so that they can be fired for this operator after a restart
+      final DurableCallbackScheduler durableScheduler = (DurableCallbackScheduler) callbackScheduler;
+      final String callbackId = getOpImplId();
+      durableScheduler.<K>registerCallback(callbackId,
+          (timerKey, collector, coordinator) -> onTimer(timerKey.getKey(), timerKey.getTime(), collector, coordinator));
+      return new Scheduler<K>() {
+        @Override
+        public void schedule(K key, long time) {
+          durableScheduler.scheduleCallback(callbackId, key, time);
+        }
+
+        @Override
+        public void delete(K key) {
+          durableScheduler.deleteCallback(callbackId, key);
+        }
+      };
+    }
+
     return new Scheduler<K>() {
       @Override
       public void schedule(K key, long time) {
-        callbackScheduler.scheduleCallback(key, time, (k, collector, coordinator) -> {
-          final ScheduledFunction<K, RM> scheduledFn = getOperatorSpec().getScheduledFn();
-          if (scheduledFn != null) {
-            final Collection<RM> output = scheduledFn.onCallback(key, time);
-
-            if (!output.isEmpty()) {
-              CompletableFuture<Void> timerFuture = CompletableFuture.allOf(output.stream()
-                  .flatMap(r -> registeredOperators.stream()
-                      .map(op -> op.onMessageAsync(r, collector, coordinator)))
-                  .toArray(CompletableFuture[]::new));
-
-              timerFuture.join();
-            }
-          } else {
-            throw new SamzaException(
-                String.format("Operator %s id %s (created at %s) must implement ScheduledFunction to use system timer.",
-                    getOperatorSpec().getOpCode().name(), getOpImplId(), getOperatorSpec().getSourceLocation()));
-          }
-        });
+        callbackScheduler.scheduleCallback(key, time,
+            (k, collector, coordinator) -> onTimer(key, time, collector, coordinator));
       }
 
       @Override
@@ -630,6 +633,26 @@ public abstract class OperatorImpl<M, RM> {
     };
   }
 
+  private <K> void onTimer(K key, long time, MessageCollector collector, TaskCoordinator coordinator) {
+    final ScheduledFunction<K, RM> scheduledFn = getOperatorSpec().getScheduledFn();
+    if (scheduledFn != null) {
+      final Collection<RM> output = scheduledFn.onCallback(key, time);
+
+      if (!output.isEmpty()) {
+        CompletableFuture<Void> timerFuture = CompletableFuture.allOf(output.stream()
+            .flatMap(r -> registeredOperators.stream()
+                .map(op -> op.onMessageAsync(r, collector, coordinator)))
+            .toArray(CompletableFuture[]::new));
+
+        timerFuture.join();
+      }
+    } else {
+      throw new SamzaException(
+          String.format("Operator %s id %s (created at %s) must implement ScheduledFunction to use system timer.",
+              getOperatorSpec().getOpCode().name(), getOpImplId(), getOperatorSpec().getSourceLocation()));
+    }
+  }
+
   public void close() {
     if (closed) {
       throw new IllegalStateException(
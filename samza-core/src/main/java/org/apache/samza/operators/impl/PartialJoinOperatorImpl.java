@@ -24,19 +24,38 @@ import org.apache.samza.SamzaException;
 import org.apache.samza.context.Context;
 import org.apache.samza.operators.functions.PartialJoinFunction;
 import org.apache.samza.operators.spec.JoinOperatorSpec;
+import org.apache.samza.operators.impl.store.TimeSeriesKey;
+import org.apache.samza.operators.impl.store.TimeSeriesStore;
+import org.apache.samza.operators.impl.store.TimeSeriesStoreImpl;
 import org.apache.samza.operators.spec.OperatorSpec;
+import org.apache.samza.storage.kv.ClosableIterator;
 import org.apache.samza.storage.kv.KeyValueStore;
 import org.apache.samza.task.MessageCollector;
 import org.apache.samza.task.TaskCoordinator;
 import org.apache.samza.util.Clock;
 import org.apache.samza.util.TimestampedValue;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 /**
  * Implementation of one side of a {@link JoinOperatorSpec} that buffers and joins its input messages of
  * type {@code M} with buffered input messages of type {@code OM} in the paired {@link PartialJoinOperatorImpl}.
+ * <p>
+ * By default only the latest message for each key is buffered. For an interval join, every message is buffered in a
+ * {@link TimeSeriesStore} keyed by (join key, arrival time, sequence number), and each incoming message is joined
+ * with all messages in the other store that arrived within the join interval using a range scan. Messages that can no
+ * longer match are removed from both stores whenever their key is accessed. Keys that are not accessed again are
+ * expired on the timer of the task, using an in-memory index of the keys of this side by their latest arrival time, so
+ * that the expired keys are found without scanning the store. The index is rebuilt from the store on init.
  *
  * @param <K> the type of join key
  * @param <M> the type of input messages on this side of the join
@@ -52,6 +71,15 @@ class PartialJoinOperatorImpl<K, M, OM, JM> extends OperatorImpl<M, JM> {
   private final long ttlMs;
   private final Clock clock;
 
+  // interval join state, only used if joinOpSpec.isIntervalJoin()
+  private final long thisRetentionMs; // how long messages on this side can match later messages on the other side
+  private final long otherRetentionMs; // how long messages on the other side can match later messages on this side
+  private TimeSeriesStore<K, M> thisIntervalState;
+  private TimeSeriesStore<K, OM> otherIntervalState;
+  // the keys of this side by their latest arrival time, and the latest arrival time of each key. Guarded by itself.
+  private final TreeMap<Long, Set<K>> keysByLatestArrival = new TreeMap<>();
+  private final Map<K, Long> latestArrivals = new HashMap<>();
+
   PartialJoinOperatorImpl(JoinOperatorSpec<K, M, OM, JM> joinOpSpec, boolean isLeftSide,
       PartialJoinFunction<K, M, OM, JM> thisPartialJoinFn,
       PartialJoinFunction<K, OM, M, JM> otherPartialJoinFn,
@@ -62,16 +90,40 @@ class PartialJoinOperatorImpl<K, M, OM, JM> extends OperatorImpl<M, JM> {
     this.otherPartialJoinFn = otherPartialJoinFn;
     this.ttlMs = joinOpSpec.getTtlMs();
     this.clock = clock;
+    this.thisRetentionMs = isLeftSide ? joinOpSpec.getAfterMs() : joinOpSpec.getBeforeMs();
+    this.otherRetentionMs = isLeftSide ? joinOpSpec.getBeforeMs() : joinOpSpec.getAfterMs();
   }
 
   @Override
   protected void handleInit(Context context) {
     this.thisPartialJoinFn.init(context);
+
+    if (joinOpSpec.isIntervalJoin()) {
+      String otherStoreName = isLeftSide ? joinOpSpec.getRightOpId() : joinOpSpec.getLeftOpId();
+      this.thisIntervalState = new TimeSeriesStoreImpl<>(
+          (KeyValueStore<TimeSeriesKey<K>, M>) context.getTaskContext().getStore(getOpImplId()), true);
+      this.otherIntervalState = new TimeSeriesStoreImpl<>(
+          (KeyValueStore<TimeSeriesKey<K>, OM>) context.getTaskContext().getStore(otherStoreName), true);
+
+      ClosableIterator<TimestampedValue<K>> keys = thisIntervalState.keys();
+      try {
+        while (keys.hasNext()) {
+          TimestampedValue<K> key = keys.next();
+          updateLatestArrival(key.getValue(), key.getTimestamp());
+        }
+      } finally {
+        keys.close();
+      }
+    }
   }
 
   @Override
   protected CompletionStage<Collection<JM>> handleMessageAsync(M message, MessageCollector collector,
       TaskCoordinator coordinator) {
+    if (joinOpSpec.isIntervalJoin()) {
+      return CompletableFuture.completedFuture(handleIntervalJoin(message));
+    }
+
     Collection<JM> output = Collections.emptyList();
 
     try {
@@ -94,6 +146,75 @@ class PartialJoinOperatorImpl<K, M, OM, JM> extends OperatorImpl<M, JM> {
     return CompletableFuture.completedFuture(output);
   }
 
+  private Collection<JM> handleIntervalJoin(M message) {
+    try {
+      K key = thisPartialJoinFn.getKey(message);
+      long now = clock.currentTimeMillis();
+
+      // expire messages for this key that can no longer match, on both sides
+      long thisExpiryMs = Math.max(0, now - thisRetentionMs);
+      long otherExpiryMs = Math.max(0, now - otherRetentionMs);
+      thisIntervalState.remove(key, 0, thisExpiryMs);
+      otherIntervalState.remove(key, 0, otherExpiryMs);
+
+      thisIntervalState.put(key, message, now);
+      updateLatestArrival(key, now);
+
+      List<JM> output = new ArrayList<>();
+      ClosableIterator<TimestampedValue<OM>> otherMessages = otherIntervalState.get(key, otherExpiryMs, now + 1);
+      try {
+        while (otherMessages.hasNext()) {
+          output.add(thisPartialJoinFn.apply(message, otherMessages.next().getValue()));
+        }
+      } finally {
+        otherMessages.close();
+      }
+      return output;
+    } catch (Exception e) {
+      throw new SamzaException("Error handling message in PartialJoinOperatorImpl " + getOpImplId(), e);
+    }
+  }
+
+  /**
+   * Removes the messages of the keys of this side whose latest message can no longer match, i.e. the keys that were
+   * not accessed since all of their messages expired.
+   */
+  @Override
+  protected Collection<JM> handleTimer(MessageCollector collector, TaskCoordinator coordinator) {
+    if (joinOpSpec.isIntervalJoin()) {
+      long thisExpiryMs = Math.max(0, clock.currentTimeMillis() - thisRetentionMs);
+      synchronized (keysByLatestArrival) {
+        SortedMap<Long, Set<K>> expired = keysByLatestArrival.headMap(thisExpiryMs);
+        for (Set<K> keys : expired.values()) {
+          for (K key : keys) {
+            thisIntervalState.remove(key, 0, thisExpiryMs);
+            latestArrivals.remove(key);
+          }
+        }
+        expired.clear();
+      }
+    }
+    return Collections.emptyList();
+  }
+
+  private void updateLatestArrival(K key, long arrivalMs) {
+    synchronized (keysByLatestArrival) {
+      Long previousArrivalMs = latestArrivals.get(key);
+      if (previousArrivalMs != null) {
+        if (previousArrivalMs >= arrivalMs) {
+          return;
+        }
+        Set<K> keys = keysByLatestArrival.get(previousArrivalMs);
+        keys.remove(key);
+        if (keys.isEmpty()) {
+          keysByLatestArrival.remove(previousArrivalMs);
+        }
+      }
+      latestArrivals.put(key, arrivalMs);
+      keysByLatestArrival.computeIfAbsent(arrivalMs, t -> new HashSet<>()).add(key);
+    }
+  }
+
   @Override
   protected void handleClose() {
     this.thisPartialJoinFn.close();
@@ -19,9 +19,9 @@
 
 package org.apache.samza.operators.impl;
 
-import java.util.Queue;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.Map;
 import org.apache.samza.operators.triggers.Cancellable;
+import org.apache.samza.scheduler.HierarchicalTimingWheel;
 import org.apache.samza.util.Clock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,16 +31,21 @@ import java.util.List;
 
 /**
  * Allows to schedule and cancel callbacks for triggers.
+ *
+ * The pending callbacks are kept in a {@link HierarchicalTimingWheel} with a tick of a millisecond, so that scheduling
+ * and canceling a callback take constant time regardless of the number of windows.
  */
 public class TriggerScheduler<WK> {
 
   private static final Logger LOG = LoggerFactory.getLogger(TriggerScheduler.class);
+  private static final long TICK_MS = 1;
+  private static final int WHEEL_SIZE = 1024;
 
-  private final Queue<TriggerCallbackState<WK>> pendingCallbacks;
+  private final HierarchicalTimingWheel<TriggerCallbackState> pendingCallbacks;
   private final Clock clock;
 
   public TriggerScheduler(Clock clock) {
-    this.pendingCallbacks = new PriorityBlockingQueue<>();
+    this.pendingCallbacks = new HierarchicalTimingWheel<>(TICK_MS, WHEEL_SIZE, clock.currentTimeMillis());
     this.clock = clock;
   }
 
@@ -52,8 +57,10 @@ public class TriggerScheduler<WK> {
    * @return a {@link Cancellable} that can be used to cancel the execution of this runnable.
    */
   public Cancellable scheduleCallback(Runnable runnable, long scheduledTimeMs, TriggerKey<WK> triggerKey) {
-    TriggerCallbackState<WK> timerState = new TriggerCallbackState(triggerKey, runnable, scheduledTimeMs);
-    pendingCallbacks.add(timerState);
+    TriggerCallbackState timerState = new TriggerCallbackState(triggerKey, runnable, scheduledTimeMs);
+    synchronized (pendingCallbacks) {
+      pendingCallbacks.add(timerState, scheduledTimeMs);
+    }
     LOG.trace("Scheduled a new callback: {} at {} for triggerKey {}", new Object[] {runnable, scheduledTimeMs, triggerKey});
     return timerState;
   }
@@ -65,23 +72,34 @@ public class TriggerScheduler<WK> {
    * @return the list of {@link TriggerKey}s corresponding to the callbacks that were run.
    */
   public List<TriggerKey<WK>> runPendingCallbacks() {
-    TriggerCallbackState<WK> state;
-    List<TriggerKey<WK>> keys = new ArrayList<>();
+    List<Map.Entry<TriggerCallbackState, Long>> readyCallbacks;
     long now = clock.currentTimeMillis();
+    synchronized (pendingCallbacks) {
+      readyCallbacks = pendingCallbacks.poll(now);
+    }
 
-    while ((state = pendingCallbacks.peek()) != null && state.getScheduledTimeMs() <= now) {
-      pendingCallbacks.remove();
+    List<TriggerKey<WK>> keys = new ArrayList<>(readyCallbacks.size());
+    for (Map.Entry<TriggerCallbackState, Long> readyCallback : readyCallbacks) {
+      TriggerCallbackState state = readyCallback.getKey();
       state.getCallback().run();
-      TriggerKey<WK> key = state.getTriggerKey();
-      keys.add(key);
+      keys.add(state.getTriggerKey());
     }
     return keys;
   }
 
+  /**
+   * Returns the number of pending callbacks.
+   */
+  int getNumPendingCallbacks() {
+    synchronized (pendingCallbacks) {
+      return pendingCallbacks.size();
+    }
+  }
+
   /**
    * State corresponding to pending timer callbacks scheduled by various triggers.
    */
-  private class TriggerCallbackState<WK> implements Comparable<TriggerCallbackState<WK>>, Cancellable {
+  private class TriggerCallbackState implements Cancellable {
 
     private final TriggerKey<WK> triggerKey;
     private final Runnable callback;
@@ -99,23 +117,16 @@ public class TriggerScheduler<WK> {
       return callback;
     }
 
-    private long getScheduledTimeMs() {
-      return scheduledTimeMs;
-    }
-
     private TriggerKey<WK> getTriggerKey() {
       return triggerKey;
     }
 
-    @Override
-    public int compareTo(TriggerCallbackState<WK> other) {
-      return Long.compare(this.scheduledTimeMs, other.scheduledTimeMs);
-    }
-
     @Override
     public boolean cancel() {
       LOG.trace("Cancelled a callback: {} at {} for triggerKey {}", new Object[] {callback, scheduledTimeMs, triggerKey});
-      return pendingCallbacks.remove(this);
+      synchronized (pendingCallbacks) {
+        return pendingCallbacks.remove(this);
+      }
     }
   }
 }
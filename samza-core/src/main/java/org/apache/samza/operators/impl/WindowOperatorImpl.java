@@ -25,6 +25,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
 import org.apache.samza.context.Context;
+import org.apache.samza.operators.functions.CombineFunction;
 import org.apache.samza.operators.functions.FoldLeftFunction;
 import org.apache.samza.operators.functions.MapFunction;
 import org.apache.samza.operators.functions.SupplierFunction;
@@ -56,7 +57,10 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -82,6 +86,12 @@ import java.util.stream.Collectors;
  *
  * The {@link WindowOperatorImpl} checks if the trigger fired and returns the result of the firing.
  *
+ * <p> The windows in the store are the durable state of the pending triggers. On init, the triggers of the windows
+ * restored from the changelog are re-created and restored with {@link TriggerImpl#onRestore(TriggerScheduler)}, so
+ * that the windows fire after a re-start even if no more messages arrive for them. The slides of a paned sliding
+ * window are shared with windows that may have fired already, so the store also holds the timestamp of the newest
+ * fired window of each key whose later windows are pending, and only the windows after it are restored.
+ *
  * @param <M> the type of the incoming message
  * @param <K> the type of the key in the incoming message
  *
@@ -89,14 +99,23 @@ import java.util.stream.Collectors;
 public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Object>> {
   // Object == Collection<M> || WV
   private static final Logger LOG = LoggerFactory.getLogger(WindowOperatorImpl.class);
+  // the newest fired window of a key of a paned sliding window is stored at this offset from its timestamp, which is
+  // beyond the timestamps of the slides and so is not part of the state of any window
+  private static final long FIRED_WINDOW_TIMESTAMP_OFFSET = Long.MAX_VALUE / 2;
 
   private final WindowOperatorSpec<M, K, Object> windowOpSpec;
   private final Clock clock;
   private final WindowInternal<M, K, Object> window;
   private final FoldLeftFunction<M, Object> foldLeftFn;
+  private final CombineFunction<Object> combineFn;
   private final SupplierFunction<Object> initializer;
   private final MapFunction<M, K> keyFn;
 
+  // for sliding windows, the state is kept per slide unless the values of the slides can not be combined
+  private final boolean isPaned;
+  private final long sizeMs;
+  private final long slideMs;
+
   private final TriggerScheduler<K> triggerScheduler;
   private final Map<TriggerKey<K>, TriggerImplHandler> triggers = new ConcurrentHashMap<>();
   private TimeSeriesStore<K, Object> timeSeriesStore;
@@ -106,8 +125,12 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
     this.clock = clock;
     this.window = windowOpSpec.getWindow();
     this.foldLeftFn = window.getFoldLeftFunction();
+    this.combineFn = window.getCombineFunction();
     this.initializer = window.getInitializer();
     this.keyFn = window.getKeyExtractor();
+    this.isPaned = window.getWindowType() == WindowType.SLIDING && (foldLeftFn == null || combineFn != null);
+    this.sizeMs = window.getWindowType() == WindowType.SLIDING ? window.getSize().toMillis() : 0;
+    this.slideMs = window.getWindowType() == WindowType.SLIDING ? window.getSlide().toMillis() : 0;
     this.triggerScheduler= new TriggerScheduler(clock);
   }
 
@@ -125,6 +148,10 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
       keyFn.init(context);
     }
 
+    if (combineFn != null) {
+      combineFn.init(context);
+    }
+
     // For aggregating windows, we use the store in over-write mode since we only retain the aggregated
     // value. Else, we use the store in append-mode.
     if (foldLeftFn != null) {
@@ -133,6 +160,62 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
     } else {
       timeSeriesStore = new TimeSeriesStoreImpl(store, true);
     }
+
+    restoreTriggers();
+  }
+
+  /**
+   * Re-creates the triggers of the windows in the store, which outlive the triggers since the store is changelogged.
+   * For paned sliding windows, these are the windows of each slide in the store that are after the newest fired
+   * window of the key, see {@link #onTriggerFired}.
+   */
+  private void restoreTriggers() {
+    Map<K, List<Long>> timestampsByKey = new LinkedHashMap<>();
+    Map<K, Long> newestFiredWindows = new HashMap<>();
+    ClosableIterator<TimestampedValue<K>> entries = timeSeriesStore.keys();
+    try {
+      while (entries.hasNext()) {
+        TimestampedValue<K> entry = entries.next();
+        if (entry.getTimestamp() >= FIRED_WINDOW_TIMESTAMP_OFFSET) {
+          newestFiredWindows.put(entry.getValue(), entry.getTimestamp() - FIRED_WINDOW_TIMESTAMP_OFFSET);
+        } else {
+          timestampsByKey.computeIfAbsent(entry.getValue(), k -> new ArrayList<>()).add(entry.getTimestamp());
+        }
+      }
+    } finally {
+      entries.close();
+    }
+
+    int numWindows = 0;
+    for (Map.Entry<K, List<Long>> keyTimestamps : timestampsByKey.entrySet()) {
+      K key = keyTimestamps.getKey();
+      Set<Long> windowTimestamps = new LinkedHashSet<>();
+      if (isPaned) {
+        long newestFiredWindow = newestFiredWindows.getOrDefault(key, -1L);
+        for (long slideTimestamp : keyTimestamps.getValue()) {
+          getWindowTimestamps(slideTimestamp).stream()
+              .filter(timestamp -> timestamp > newestFiredWindow)
+              .forEach(windowTimestamps::add);
+        }
+      } else {
+        windowTimestamps.addAll(keyTimestamps.getValue());
+      }
+
+      for (long timestamp : windowTimestamps) {
+        if (window.getEarlyTrigger() != null) {
+          TriggerKey<K> triggerKey = new TriggerKey<>(FiringType.EARLY, key, timestamp);
+          getOrCreateTriggerImplHandler(triggerKey, window.getEarlyTrigger()).onRestore();
+        }
+        if (window.getDefaultTrigger() != null) {
+          TriggerKey<K> triggerKey = new TriggerKey<>(FiringType.DEFAULT, key, timestamp);
+          getOrCreateTriggerImplHandler(triggerKey, window.getDefaultTrigger()).onRestore();
+        }
+      }
+      numWindows += windowTimestamps.size();
+    }
+    if (numWindows > 0) {
+      LOG.info("Restored the triggers of {} windows for operator {}", numWindows, windowOpSpec.getOpId());
+    }
   }
 
   @Override
@@ -143,7 +226,43 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
 
     K key = (keyFn != null) ? keyFn.apply(message) : null;
     long timestamp = getWindowTimestamp(message);
+    List<Long> windowTimestamps = getWindowTimestamps(timestamp);
+
+    // The state of a paned sliding window is kept for the slide of the message only, so that the message is folded
+    // once. The state of the other windows is kept for each window of the message.
+    if (isPaned) {
+      addToState(key, message, timestamp);
+    } else {
+      for (long windowTimestamp : windowTimestamps) {
+        addToState(key, message, windowTimestamp);
+      }
+    }
+
+    for (long windowTimestamp : windowTimestamps) {
+      if (window.getEarlyTrigger() != null) {
+        TriggerKey<K> triggerKey = new TriggerKey<>(FiringType.EARLY, key, windowTimestamp);
+        TriggerImplHandler triggerImplHandler = getOrCreateTriggerImplHandler(triggerKey, window.getEarlyTrigger());
+        Optional<WindowPane<K, Object>> maybeTriggeredPane =
+            triggerImplHandler.onMessage(triggerKey, message, collector, coordinator);
+        maybeTriggeredPane.ifPresent(results::add);
+      }
+
+      if (window.getDefaultTrigger() != null) {
+        TriggerKey<K> triggerKey = new TriggerKey<>(FiringType.DEFAULT, key, windowTimestamp);
+        TriggerImplHandler triggerImplHandler = getOrCreateTriggerImplHandler(triggerKey, window.getDefaultTrigger());
+        Optional<WindowPane<K, Object>> maybeTriggeredPane =
+            triggerImplHandler.onMessage(triggerKey, message, collector, coordinator);
+        maybeTriggeredPane.ifPresent(results::add);
+      }
+    }
+
+    return CompletableFuture.completedFuture(results);
+  }
 
+  /**
+   * Adds the message to the state of the window, or slide, with the timestamp.
+   */
+  private void addToState(K key, M message, long timestamp) {
     // For aggregating windows, we only store the aggregated window value.
     // For non-aggregating windows, we store all messages in the window.
     if (foldLeftFn == null) {
@@ -162,31 +281,16 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
 
       timeSeriesStore.put(key, aggregatedValue, timestamp); // store is in over-write mode
     }
-
-    if (window.getEarlyTrigger() != null) {
-      TriggerKey<K> triggerKey = new TriggerKey<>(FiringType.EARLY, key, timestamp);
-      TriggerImplHandler triggerImplHandler = getOrCreateTriggerImplHandler(triggerKey, window.getEarlyTrigger());
-      Optional<WindowPane<K, Object>> maybeTriggeredPane =
-          triggerImplHandler.onMessage(triggerKey, message, collector, coordinator);
-      maybeTriggeredPane.ifPresent(results::add);
-    }
-
-    if (window.getDefaultTrigger() != null) {
-      TriggerKey<K> triggerKey = new TriggerKey<>(FiringType.DEFAULT, key, timestamp);
-      TriggerImplHandler triggerImplHandler = getOrCreateTriggerImplHandler(triggerKey, window.getDefaultTrigger());
-      Optional<WindowPane<K, Object>> maybeTriggeredPane =
-          triggerImplHandler.onMessage(triggerKey, message, collector, coordinator);
-      maybeTriggeredPane.ifPresent(results::add);
-    }
-
-    return CompletableFuture.completedFuture(results);
   }
 
   @Override
   public Collection<WindowPane<K, Object>> handleTimer(MessageCollector collector, TaskCoordinator coordinator) {
     LOG.trace("Processing time triggers");
     List<WindowPane<K, Object>> results = new ArrayList<>();
-    List<TriggerKey<K>> keys = triggerScheduler.runPendingCallbacks();
+    // a trigger may have run several callbacks, e.g. with an AnyTrigger, but is checked once. Earlier windows first,
+    // since the windows of a sliding window share the state of their slides.
+    List<TriggerKey<K>> keys = new ArrayList<>(new LinkedHashSet<>(triggerScheduler.runPendingCallbacks()));
+    keys.sort(Comparator.comparingLong(TriggerKey::getTimestamp));
 
     for (TriggerKey<K> key : keys) {
       TriggerImplHandler triggerImplHandler = triggers.get(key);
@@ -207,7 +311,9 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
   @Override
   protected Collection<WindowPane<K, Object>> handleEndOfStream(MessageCollector collector, TaskCoordinator coordinator) {
     List<WindowPane<K, Object>> results = new ArrayList<>();
-    Set<TriggerKey<K>> triggerKeys = new HashSet<>(triggers.keySet());
+    // earlier windows first, since the windows of a sliding window share the state of their slides
+    List<TriggerKey<K>> triggerKeys = new ArrayList<>(triggers.keySet());
+    triggerKeys.sort(Comparator.comparingLong(TriggerKey::getTimestamp));
     for(TriggerKey<K> triggerKey : triggerKeys) {
       Optional<WindowPane<K, Object>> triggerResult = onTriggerFired(triggerKey, collector, coordinator);
       triggerResult.ifPresent(results::add);
@@ -229,6 +335,9 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
     if (keyFn != null) {
       keyFn.close();
     }
+    if (combineFn != null) {
+      combineFn.close();
+    }
   }
 
   private TriggerImplHandler getOrCreateTriggerImplHandler(TriggerKey<K> triggerKey, Trigger<M> trigger) {
@@ -257,19 +366,28 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
     TriggerImplHandler wrapper = triggers.get(triggerKey);
     long timestamp = triggerKey.getTimestamp();
     K key = triggerKey.getKey();
-    List<Object> existingState = getValues(key, timestamp);
+    List<Object> existingState = isPaned ? getValues(key, timestamp, timestamp + sizeMs) : getValues(key, timestamp);
 
     if (existingState == null || existingState.size() == 0) {
       LOG.trace("No state found for triggerKey: {}", triggerKey);
       return Optional.empty();
     }
 
-    Object windowVal = window.getFoldLeftFunction() == null ? existingState : existingState.get(0);
+    Object windowVal;
+    if (window.getFoldLeftFunction() == null) {
+      windowVal = existingState;
+    } else if (isPaned) {
+      // combine the values of the slides of the window
+      windowVal = existingState.stream().reduce(combineFn::apply).get();
+    } else {
+      windowVal = existingState.get(0);
+    }
 
     WindowPane<K, Object> paneOutput = computePaneOutput(triggerKey, windowVal);
 
-    // Handle different accumulation modes.
-    if (window.getAccumulationMode() == AccumulationMode.DISCARDING) {
+    // Handle different accumulation modes. The slides of a paned sliding window are shared with the other windows,
+    // and removed only when no more windows need them.
+    if (window.getAccumulationMode() == AccumulationMode.DISCARDING && !isPaned) {
       LOG.trace("Clearing state for trigger key: {}", triggerKey);
       timeSeriesStore.remove(key, timestamp);
     }
@@ -282,7 +400,11 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
 
       cancelTrigger(triggerKey, true);
       cancelTrigger(new TriggerKey(FiringType.EARLY, triggerKey.getKey(), triggerKey.getTimestamp()), true);
+      // for a paned sliding window, this is the first slide of the window, which later windows don't contain
       timeSeriesStore.remove(key, timestamp);
+      if (isPaned) {
+        updateNewestFiredWindow(key, timestamp, existingState.get(0));
+      }
     }
 
     // Cancel non-repeating early triggers. All early triggers should be removed from the "triggers" map only after the
@@ -297,6 +419,20 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
     return Optional.of(paneOutput);
   }
 
+  /**
+   * Stores the timestamp of the newest fired window of a key of a paned sliding window while the key has slides for
+   * later windows, which also belong to this and earlier windows, so that only the later windows are restored. The
+   * entry holds an arbitrary value of the window, since the store only holds window values.
+   */
+  private void updateNewestFiredWindow(K key, long timestamp, Object value) {
+    timeSeriesStore.remove(key, FIRED_WINDOW_TIMESTAMP_OFFSET, Long.MAX_VALUE);
+    ClosableIterator<TimestampedValue<Object>> laterSlides =
+        timeSeriesStore.get(key, timestamp + slideMs, FIRED_WINDOW_TIMESTAMP_OFFSET, 1);
+    if (!toList(laterSlides).isEmpty()) {
+      timeSeriesStore.put(key, value, FIRED_WINDOW_TIMESTAMP_OFFSET + timestamp);
+    }
+  }
+
   /**
    * Computes the pane output corresponding to a {@link TriggerKey} that fired.
    */
@@ -332,6 +468,9 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
    * For instance, if the session gap is 10 seconds, and the first message in the window arrives at "1002" seconds,
    * all messages (that arrive within 10 seconds of their previous message) are assigned a timestamp "1002".
    *
+   * In the case of sliding windows, timestamp is defined as the start timestamp of the slide of the message, which is
+   * the timestamp of the latest window the message belongs to. See {@link #getWindowTimestamps(long)}.
+   *
    * @param message the input message
    * @return the timestamp of the window this message should belong to
    */
@@ -342,6 +481,9 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
       // assign timestamp to be the start timestamp of the window boundary
       long timestamp = now - now % triggerDurationMs;
       return timestamp;
+    } else if (window.getWindowType() == WindowType.SLIDING) {
+      final long now = clock.currentTimeMillis();
+      return now - now % slideMs;
     } else {
       K key = keyFn.apply(message);
       // get the value with the earliest timestamp for the provided key.
@@ -356,6 +498,26 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
     }
   }
 
+  /**
+   * Returns the timestamps of the windows a message with the window timestamp belongs to, from the latest. A message
+   * of a sliding window belongs to the windows that started in the {@code size} up to its slide, while a message of
+   * other windows belongs to one window.
+   *
+   * @param timestamp the timestamp of the window, or slide of a sliding window, of a message
+   * @return the timestamps of the windows of the message
+   */
+  private List<Long> getWindowTimestamps(long timestamp) {
+    if (window.getWindowType() != WindowType.SLIDING) {
+      return Collections.singletonList(timestamp);
+    }
+    List<Long> timestamps = new ArrayList<>((int) (sizeMs / slideMs));
+    for (long windowTimestamp = timestamp; windowTimestamp > timestamp - sizeMs && windowTimestamp >= 0;
+        windowTimestamp -= slideMs) {
+      timestamps.add(windowTimestamp);
+    }
+    return timestamps;
+  }
+
   /**
    * Return a list of values in the store for the provided key and timestamp
    *
@@ -364,11 +526,23 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
    * @return the list of values for the provided key
    */
   private List<Object> getValues(K key, long timestamp) {
-    ClosableIterator<TimestampedValue<Object>> iterator = timeSeriesStore.get(key, timestamp);
+    return getValues(key, timestamp, timestamp + 1);
+  }
+
+  /**
+   * Return a list of values in the store for the provided key and time range
+   *
+   * @param key the key to look up in the store
+   * @param startTimestamp the start timestamp of the range, inclusive
+   * @param endTimestamp the end timestamp of the range, exclusive
+   * @return the list of values for the provided key
+   */
+  private List<Object> getValues(K key, long startTimestamp, long endTimestamp) {
+    ClosableIterator<TimestampedValue<Object>> iterator = timeSeriesStore.get(key, startTimestamp, endTimestamp);
     List<TimestampedValue<Object>> timestampedValues = toList(iterator);
     List<Object> values = timestampedValues.stream().map(element -> element.getValue()).collect(Collectors.toList());
 
-    LOG.trace("Returning {} for key {} and timestamp {}", new Object[] {values, key, timestamp});
+    LOG.trace("Returning {} for key {} and timestamps {} to {}", new Object[] {values, key, startTimestamp, endTimestamp});
     return values;
   }
 
@@ -438,6 +612,12 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
       return Optional.empty();
     }
 
+    public void onRestore() {
+      if (!isCancelled) {
+        impl.onRestore(triggerScheduler);
+      }
+    }
+
     public void cancel() {
       impl.cancel();
       isCancelled = true;
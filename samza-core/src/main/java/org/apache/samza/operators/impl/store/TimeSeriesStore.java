@@ -105,6 +105,16 @@ public interface TimeSeriesStore<K, V> {
    */
   void remove(K key, long timestamp);
 
+  /**
+   * Returns an iterator over the distinct keys in the store, with their timestamps, in the order of the store.
+   * Each key and timestamp is returned once, regardless of the number of values for them.
+   *
+   * The iterator must be closed after use by calling {@link ClosableIterator#close}. Not doing so will result in memory leaks.
+   *
+   * @return an iterator over the keys and timestamps in the store
+   */
+  ClosableIterator<TimestampedValue<K>> keys();
+
   /**
    * Flushes this time series store, if applicable.
    */
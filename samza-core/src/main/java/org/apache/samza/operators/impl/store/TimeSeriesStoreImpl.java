@@ -30,6 +30,7 @@ import org.slf4j.LoggerFactory;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -169,6 +170,11 @@ public class TimeSeriesStoreImpl<K, V> implements TimeSeriesStore<K, V> {
     remove(key, timestamp, timestamp + 1);
   }
 
+  @Override
+  public ClosableIterator<TimestampedValue<K>> keys() {
+    return new TimeSeriesKeyIterator<>(kvStore.all());
+  }
+
   @Override
   public void flush() {
     kvStore.flush();
@@ -222,6 +228,46 @@ public class TimeSeriesStoreImpl<K, V> implements TimeSeriesStore<K, V> {
     }
   }
 
+  /**
+   * Returns each key and timestamp of a {@link KeyValueIterator} once. Since the sequence number is the last part of a
+   * {@link TimeSeriesKey}, the values for the same key and timestamp are adjacent.
+   */
+  private static class TimeSeriesKeyIterator<K, V> implements ClosableIterator<TimestampedValue<K>> {
+    private final KeyValueIterator<TimeSeriesKey<K>, V> wrappedIterator;
+    private TimeSeriesKey<K> next;
+    private TimeSeriesKey<K> last;
+
+    public TimeSeriesKeyIterator(KeyValueIterator<TimeSeriesKey<K>, V> wrappedIterator) {
+      this.wrappedIterator = wrappedIterator;
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (next == null && wrappedIterator.hasNext()) {
+        TimeSeriesKey<K> key = wrappedIterator.next().getKey();
+        if (last == null || last.getTimestamp() != key.getTimestamp() || !Objects.equals(last.getKey(), key.getKey())) {
+          next = key;
+        }
+      }
+      return next != null;
+    }
+
+    @Override
+    public TimestampedValue<K> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      last = next;
+      next = null;
+      return new TimestampedValue<>(last.getKey(), last.getTimestamp());
+    }
+
+    @Override
+    public void close() {
+      wrappedIterator.close();
+    }
+  }
+
   /**
    * Wraps a {@link ClosableIterator} to only return the specified number of values
    *
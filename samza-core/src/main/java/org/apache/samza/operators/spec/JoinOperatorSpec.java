@@ -22,8 +22,8 @@ import com.google.common.collect.ImmutableMap;
 import org.apache.samza.operators.functions.JoinFunction;
 import org.apache.samza.operators.functions.ScheduledFunction;
 import org.apache.samza.operators.functions.WatermarkFunction;
+import org.apache.samza.operators.impl.store.TimeSeriesKeySerde;
 import org.apache.samza.operators.impl.store.TimestampedValueSerde;
-import org.apache.samza.util.TimestampedValue;
 import org.apache.samza.serializers.Serde;
 
 import java.util.Arrays;
@@ -44,6 +44,9 @@ public class JoinOperatorSpec<K, M, OM, JM> extends OperatorSpec<Object, JM> imp
 
   private final JoinFunction<K, M, OM, JM> joinFn;
   private final long ttlMs;
+  private final boolean isIntervalJoin;
+  private final long beforeMs;
+  private final long afterMs;
 
   private final OperatorSpec<?, M> leftInputOpSpec;
   private final OperatorSpec<?, OM> rightInputOpSpec;
@@ -53,8 +56,8 @@ public class JoinOperatorSpec<K, M, OM, JM> extends OperatorSpec<Object, JM> imp
    * deserialized once during startup in SamzaContainer. They don't need to be deserialized here on a per-task basis
    */
   private transient final Serde<K> keySerde;
-  private transient final Serde<TimestampedValue<M>> messageSerde;
-  private transient final Serde<TimestampedValue<OM>> otherMessageSerde;
+  private transient final Serde<M> messageSerde;
+  private transient final Serde<OM> otherMessageSerde;
 
   /**
    * Default constructor for a {@link JoinOperatorSpec}.
@@ -68,14 +71,47 @@ public class JoinOperatorSpec<K, M, OM, JM> extends OperatorSpec<Object, JM> imp
   JoinOperatorSpec(OperatorSpec<?, M> leftInputOpSpec, OperatorSpec<?, OM> rightInputOpSpec,
       JoinFunction<K, M, OM, JM> joinFn, Serde<K> keySerde, Serde<M> messageSerde, Serde<OM> otherMessageSerde,
       long ttlMs, String opId) {
+    this(leftInputOpSpec, rightInputOpSpec, joinFn, keySerde, messageSerde, otherMessageSerde, false, ttlMs, ttlMs,
+        opId);
+  }
+
+  /**
+   * Constructor for an interval {@link JoinOperatorSpec}, which retains every message in each stream and joins a
+   * message in the left stream with every message with the same key in the right stream that arrived within
+   * {@code [-beforeMs, +afterMs]} of it.
+   *
+   * @param leftInputOpSpec  the operator spec for the stream on the left side of the join
+   * @param rightInputOpSpec  the operator spec for the stream on the right side of the join
+   * @param joinFn  the user-defined join function to get join keys and results
+   * @param beforeMs  how long in ms before a left message a matching right message may arrive
+   * @param afterMs  how long in ms after a left message a matching right message may arrive
+   * @param opId  the unique ID for this operator
+   */
+  JoinOperatorSpec(OperatorSpec<?, M> leftInputOpSpec, OperatorSpec<?, OM> rightInputOpSpec,
+      JoinFunction<K, M, OM, JM> joinFn, Serde<K> keySerde, Serde<M> messageSerde, Serde<OM> otherMessageSerde,
+      long beforeMs, long afterMs, String opId) {
+    this(leftInputOpSpec, rightInputOpSpec, joinFn, keySerde, messageSerde, otherMessageSerde, true, beforeMs, afterMs,
+        opId);
+  }
+
+  private JoinOperatorSpec(OperatorSpec<?, M> leftInputOpSpec, OperatorSpec<?, OM> rightInputOpSpec,
+      JoinFunction<K, M, OM, JM> joinFn, Serde<K> keySerde, Serde<M> messageSerde, Serde<OM> otherMessageSerde,
+      boolean isIntervalJoin, long beforeMs, long afterMs, String opId) {
     super(OpCode.JOIN, opId);
+    if (isIntervalJoin && (beforeMs < 0 || afterMs < 0)) {
+      throw new IllegalArgumentException(
+          String.format("Join interval must not be negative. Before: %d ms, after: %d ms", beforeMs, afterMs));
+    }
     this.leftInputOpSpec = leftInputOpSpec;
     this.rightInputOpSpec = rightInputOpSpec;
     this.joinFn = joinFn;
     this.keySerde = keySerde;
-    this.messageSerde = new TimestampedValueSerde<>(messageSerde);
-    this.otherMessageSerde = new TimestampedValueSerde<>(otherMessageSerde);
-    this.ttlMs = ttlMs;
+    this.messageSerde = messageSerde;
+    this.otherMessageSerde = otherMessageSerde;
+    this.isIntervalJoin = isIntervalJoin;
+    this.beforeMs = beforeMs;
+    this.afterMs = afterMs;
+    this.ttlMs = Math.max(beforeMs, afterMs);
   }
 
   @Override
@@ -92,11 +128,22 @@ public class JoinOperatorSpec<K, M, OM, JM> extends OperatorSpec<Object, JM> imp
         String.format("stores.%s.changelog.kafka.cleanup.policy", rightStoreName), "delete",
         String.format("stores.%s.changelog.kafka.retention.ms", rightStoreName), Long.toString(ttlMs));
 
+    if (isIntervalJoin) {
+      // interval join state is a time series of every message per key. Expired messages are removed when their key
+      // is next accessed, or on the task timer for keys that are not accessed again, with RocksDB ttl as a backstop.
+      TimeSeriesKeySerde<K> timeSeriesKeySerde = new TimeSeriesKeySerde<>(this.keySerde);
+      return Arrays.asList(
+          new StoreDescriptor(leftStoreName, rocksDBStoreFactory, timeSeriesKeySerde, this.messageSerde,
+              leftStoreName, leftStoreCustomProps),
+          new StoreDescriptor(rightStoreName, rocksDBStoreFactory, timeSeriesKeySerde, this.otherMessageSerde,
+              rightStoreName, rightStoreCustomProps));
+    }
+
     return Arrays.asList(
-        new StoreDescriptor(leftStoreName, rocksDBStoreFactory, this.keySerde, this.messageSerde,
-            leftStoreName, leftStoreCustomProps),
-        new StoreDescriptor(rightStoreName, rocksDBStoreFactory, this.keySerde, this.otherMessageSerde,
-            rightStoreName, rightStoreCustomProps));
+        new StoreDescriptor(leftStoreName, rocksDBStoreFactory, this.keySerde,
+            new TimestampedValueSerde<>(this.messageSerde), leftStoreName, leftStoreCustomProps),
+        new StoreDescriptor(rightStoreName, rocksDBStoreFactory, this.keySerde,
+            new TimestampedValueSerde<>(this.otherMessageSerde), rightStoreName, rightStoreCustomProps));
   }
 
   @Override
@@ -133,4 +180,22 @@ public class JoinOperatorSpec<K, M, OM, JM> extends OperatorSpec<Object, JM> imp
     return ttlMs;
   }
 
+  public boolean isIntervalJoin() {
+    return isIntervalJoin;
+  }
+
+  /**
+   * @return  how long in ms before a left message a matching right message may arrive, in an interval join
+   */
+  public long getBeforeMs() {
+    return beforeMs;
+  }
+
+  /**
+   * @return  how long in ms after a left message a matching right message may arrive, in an interval join
+   */
+  public long getAfterMs() {
+    return afterMs;
+  }
+
 }
@@ -193,6 +193,33 @@ public class OperatorSpecs {
         keySerde, messageSerde, otherMessageSerde, ttlMs, opId);
   }
 
+  /**
+   * Creates a {@link JoinOperatorSpec} that joins every message in the left stream with every message with the
+   * same key in the right stream that arrived within {@code [-beforeMs, +afterMs]} of it.
+   *
+   * @param leftInputOpSpec  the operator spec for the stream on the left side of the join
+   * @param rightInputOpSpec  the operator spec for the stream on the right side of the join
+   * @param joinFn  the user-defined join function to get join keys and results
+   * @param keySerde  the serde for the join key
+   * @param messageSerde  the serde for messages in the stream on the left side of the join
+   * @param otherMessageSerde  the serde for messages in the stream on the right side of the join
+   * @param beforeMs  how long in ms before a left message a matching right message may arrive
+   * @param afterMs  how long in ms after a left message a matching right message may arrive
+   * @param opId  the unique ID of the operator
+   * @param <K>  the type of join key
+   * @param <M>  the type of input message
+   * @param <OM>  the type of message in the other stream
+   * @param <JM>  the type of join result
+   * @return  the {@link JoinOperatorSpec}
+   */
+  public static <K, M, OM, JM> JoinOperatorSpec<K, M, OM, JM> createIntervalJoinOperatorSpec(
+      OperatorSpec<?, M> leftInputOpSpec, OperatorSpec<?, OM> rightInputOpSpec, JoinFunction<K, M, OM, JM> joinFn,
+      Serde<K> keySerde, Serde<M> messageSerde, Serde<OM> otherMessageSerde, long beforeMs, long afterMs,
+      String opId) {
+    return new JoinOperatorSpec<>(leftInputOpSpec, rightInputOpSpec, joinFn,
+        keySerde, messageSerde, otherMessageSerde, beforeMs, afterMs, opId);
+  }
+
   /**
    * Creates a {@link StreamOperatorSpec} with a merger function.
    *
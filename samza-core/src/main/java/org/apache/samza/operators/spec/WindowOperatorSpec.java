@@ -30,6 +30,7 @@ import org.apache.samza.operators.triggers.Trigger;
 import org.apache.samza.util.MathUtil;
 import org.apache.samza.operators.windows.WindowPane;
 import org.apache.samza.operators.windows.internal.WindowInternal;
+import org.apache.samza.operators.windows.internal.WindowType;
 import org.apache.samza.serializers.Serde;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -83,7 +84,7 @@ public class WindowOperatorSpec<M, WK, WV> extends OperatorSpec<M, WindowPane<WK
    * Get the default triggering interval for this {@link WindowOperatorSpec}
    *
    * This is defined as the GCD of all triggering intervals across all {@link TimeBasedTrigger}s configured for
-   * this {@link WindowOperatorSpec}.
+   * this {@link WindowOperatorSpec}, and of the slide of a sliding window.
    *
    * @return the default triggering interval
    */
@@ -105,6 +106,10 @@ public class WindowOperatorSpec<M, WK, WV> extends OperatorSpec<M, WindowPane<WK
     List<Long> candidateDurations = timeBasedTriggers.stream()
         .map(timeBasedTrigger -> timeBasedTrigger.getDuration().toMillis())
         .collect(Collectors.toList());
+    // a sliding window fires every slide
+    if (window.getWindowType() == WindowType.SLIDING) {
+      candidateDurations.add(window.getSlide().toMillis());
+    }
 
     return MathUtil.gcd(candidateDurations);
   }
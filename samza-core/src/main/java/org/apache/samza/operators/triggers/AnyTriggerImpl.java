@@ -59,6 +59,13 @@ public class AnyTriggerImpl<M, WK> implements TriggerImpl<M, WK> {
     }
   }
 
+  @Override
+  public void onRestore(TriggerScheduler<WK> context) {
+    for (TriggerImpl<M, WK> impl : triggerImpls) {
+      impl.onRestore(context);
+    }
+  }
+
   public void cancel() {
     for (Iterator<TriggerImpl<M, WK>> it = triggerImpls.iterator(); it.hasNext(); ) {
       TriggerImpl<M, WK> impl = it.next();
@@ -49,6 +49,12 @@ public class CountTriggerImpl<M, WK> implements TriggerImpl<M, WK> {
     }
   }
 
+  @Override
+  public void onRestore(TriggerScheduler<WK> context) {
+    // the count is not durable, so it restarts with the messages that arrive after the restore and the window
+    // fires once triggerCount more messages have arrived, including the messages already in the window
+  }
+
   @Override
   public void cancel() {
     //no-op
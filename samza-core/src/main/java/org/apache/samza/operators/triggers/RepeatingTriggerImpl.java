@@ -49,6 +49,11 @@ public class RepeatingTriggerImpl<M, WK> implements TriggerImpl<M, WK> {
     currentTriggerImpl.onMessage(message, context);
   }
 
+  @Override
+  public void onRestore(TriggerScheduler<WK> context) {
+    currentTriggerImpl.onRestore(context);
+  }
+
   @Override
   public void cancel() {
     currentTriggerImpl.cancel();
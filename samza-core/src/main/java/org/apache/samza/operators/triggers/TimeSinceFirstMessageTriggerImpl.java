@@ -57,6 +57,18 @@ public class TimeSinceFirstMessageTriggerImpl<M, WK> implements TriggerImpl<M, W
     }
   }
 
+  @Override
+  public void onRestore(TriggerScheduler<WK> context) {
+    // the timestamp of a window is no later than its first message
+    if (cancellable == null && !shouldFire) {
+      long callbackTime = triggerKey.getTimestamp() + trigger.getDuration().toMillis();
+      cancellable = context.scheduleCallback(() -> {
+        LOG.trace("Time since first message trigger fired");
+        shouldFire = true;
+      }, callbackTime, triggerKey);
+    }
+  }
+
   @Override
   public void cancel() {
     if (cancellable != null) {
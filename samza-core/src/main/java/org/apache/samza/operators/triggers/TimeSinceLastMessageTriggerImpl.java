@@ -65,6 +65,12 @@ public class TimeSinceLastMessageTriggerImpl<M, WK> implements TriggerImpl<M, WK
     }
   }
 
+  @Override
+  public void onRestore(TriggerScheduler<WK> context) {
+    // the time of the last message is not known, so the restore counts as one
+    onMessage(null, context);
+  }
+
   @Override
   public void cancel() {
     if (cancellable != null) {
@@ -46,8 +46,7 @@ public class TimeTriggerImpl<M, WK> implements TriggerImpl<M, WK> {
 
   public void onMessage(M message, TriggerScheduler<WK> context) {
     final long now = clock.currentTimeMillis();
-    long triggerDurationMs = trigger.getDuration().toMillis();
-    Long callbackTime = (now - now % triggerDurationMs) + triggerDurationMs;
+    long callbackTime = getCallbackTime(now);
 
     if (cancellable == null) {
       cancellable = context.scheduleCallback(() -> {
@@ -57,6 +56,32 @@ public class TimeTriggerImpl<M, WK> implements TriggerImpl<M, WK> {
     }
   }
 
+  @Override
+  public void onRestore(TriggerScheduler<WK> context) {
+    // the window fires at the end of its interval, which may have passed during the re-start
+    long callbackTime = getCallbackTime(triggerKey.getTimestamp());
+
+    if (cancellable == null) {
+      cancellable = context.scheduleCallback(() -> {
+        LOG.trace("Time trigger fired");
+        shouldFire = true;
+      }, callbackTime, triggerKey);
+    }
+  }
+
+  /**
+   * Returns the end of the interval of the trigger duration that contains {@code time}. The default trigger of a
+   * window fires at the end of the window instead, which starts at its timestamp. These are the same for tumbling
+   * windows, but not for sliding windows whose slide is shorter than the window.
+   */
+  private long getCallbackTime(long time) {
+    long triggerDurationMs = trigger.getDuration().toMillis();
+    if (triggerKey.getType() == FiringType.DEFAULT) {
+      return triggerKey.getTimestamp() + triggerDurationMs;
+    }
+    return (time - time % triggerDurationMs) + triggerDurationMs;
+  }
+
   @Override
   public void cancel() {
     if (cancellable != null) {
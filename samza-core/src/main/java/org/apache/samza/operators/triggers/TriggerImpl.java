@@ -36,7 +36,8 @@ import org.apache.samza.operators.impl.TriggerScheduler;
  * of time-based triggers).
  *
  * <p> State management: The state maintained by {@link TriggerImpl}s is not durable across re-starts and is transient.
- * New instances of {@link TriggerImpl} are created on a re-start.
+ * New instances of {@link TriggerImpl} are created on a re-start for the windows restored from the store, and
+ * {@link #onRestore(TriggerScheduler)} is invoked on them instead of {@link #onMessage(Object, TriggerScheduler)}.
  *
  */
 public interface TriggerImpl<M, WK> {
@@ -48,6 +49,14 @@ public interface TriggerImpl<M, WK> {
    */
   void onMessage(M message, TriggerScheduler<WK> context);
 
+  /**
+   * Invoked when the window corresponding to this {@link TriggerImpl} is restored from the store after a re-start.
+   * Time based triggers schedule their callbacks again, using the timestamp of the window where the original time of
+   * the messages is not known. Count based triggers start counting from zero again, so they fire late.
+   * @param context the {@link TriggerScheduler} to schedule and cancel callbacks
+   */
+  void onRestore(TriggerScheduler<WK> context);
+
   /**
    * Returns {@code true} if the current state of the trigger indicates that its condition
    * is satisfied and it is ready to fire.
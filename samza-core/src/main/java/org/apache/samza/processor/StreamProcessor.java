@@ -401,7 +401,7 @@ public class StreamProcessor {
      * with the reporters. Therefore, don't reuse the StreamProcessor.metricsRegistry, because SamzaContainer also
      * registers the registry, and that will result in unnecessary duplicate metrics.
      */
-    MetricsRegistryMap metricsRegistryMap = new MetricsRegistryMap();
+    MetricsRegistryMap metricsRegistryMap = MetricsRegistryMap.fromConfig(config);
 
     DrainMonitor drainMonitor = null;
     JobConfig jobConfig = new JobConfig(config);
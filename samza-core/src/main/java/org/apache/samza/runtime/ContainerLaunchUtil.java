@@ -140,7 +140,7 @@ public class ContainerLaunchUtil {
       Optional<DiagnosticsManager> diagnosticsManager =
           DiagnosticsUtil.buildDiagnosticsManager(jobName, jobId, jobModel, containerId, executionEnvContainerId,
               samzaEpochId, config);
-      MetricsRegistryMap metricsRegistryMap = new MetricsRegistryMap();
+      MetricsRegistryMap metricsRegistryMap = MetricsRegistryMap.fromConfig(config);
 
       DrainMonitor drainMonitor = null;
       JobConfig jobConfig = new JobConfig(config);
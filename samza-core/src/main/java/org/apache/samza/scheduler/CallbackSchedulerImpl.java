@@ -22,7 +22,7 @@ package org.apache.samza.scheduler;
  * Delegates to {@link EpochTimeScheduler}. This is useful because it provides a write-only interface for user-facing
  * purposes.
  */
-public class CallbackSchedulerImpl implements CallbackScheduler {
+public class CallbackSchedulerImpl implements DurableCallbackScheduler {
   private final EpochTimeScheduler epochTimeScheduler;
 
   public CallbackSchedulerImpl(EpochTimeScheduler epochTimeScheduler) {
@@ -38,4 +38,19 @@ public class CallbackSchedulerImpl implements CallbackScheduler {
   public <K> void deleteCallback(K key) {
     this.epochTimeScheduler.deleteTimer(key);
   }
+
+  @Override
+  public <K> void registerCallback(String callbackId, ScheduledCallback<EpochTimeScheduler.TimerKey<K>> callback) {
+    this.epochTimeScheduler.registerCallback(callbackId, callback);
+  }
+
+  @Override
+  public <K> void scheduleCallback(String callbackId, K key, long timestamp) {
+    this.epochTimeScheduler.setTimer(callbackId, key, timestamp);
+  }
+
+  @Override
+  public <K> void deleteCallback(String callbackId, K key) {
+    this.epochTimeScheduler.deleteTimer(callbackId, key);
+  }
 }
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.scheduler;
+
+/**
+ * A {@link CallbackScheduler} whose callbacks are registered once under an id, so that the timers set for them can be
+ * kept by the {@link EpochTimeScheduler} of the task beyond the lifetime of the callback instance, e.g. across a
+ * restart of the task.
+ */
+public interface DurableCallbackScheduler extends CallbackScheduler {
+
+  /**
+   * Registers the callback for the timers scheduled with {@code callbackId}.
+   *
+   * @param callbackId id of the callback, which must be stable across restarts of the task
+   * @param callback callback to invoke with the key and time of a timer when it fires
+   * @param <K> type of the timer key
+   */
+  <K> void registerCallback(String callbackId, ScheduledCallback<EpochTimeScheduler.TimerKey<K>> callback);
+
+  /**
+   * Schedules the callback registered with {@code callbackId} for the key at the timestamp.
+   *
+   * @param callbackId id of a registered callback
+   * @param key timer key
+   * @param timestamp epoch time when the callback for the key will be invoked, in milliseconds
+   * @param <K> type of the timer key
+   */
+  <K> void scheduleCallback(String callbackId, K key, long timestamp);
+
+  /**
+   * Deletes the callback scheduled with {@code callbackId} for the key.
+   *
+   * @param callbackId id of a registered callback
+   * @param key timer key
+   * @param <K> type of the timer key
+   */
+  <K> void deleteCallback(String callbackId, K key);
+}
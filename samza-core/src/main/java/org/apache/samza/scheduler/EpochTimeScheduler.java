@@ -26,6 +26,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import org.apache.samza.SamzaException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,6 +36,9 @@ import org.slf4j.LoggerFactory;
  * 1) schedules the timer on the {@link ScheduledExecutorService}.
  * 2) keeps track of the timers created and timers that are ready.
  * 3) triggers listener whenever a timer fires.
+ *
+ * Timers set with a callback id, see {@link #registerCallback(String, ScheduledCallback)}, are kept in memory like
+ * any other timer. {@link TimingWheelEpochTimeScheduler} can persist them instead.
  */
 public class EpochTimeScheduler {
   private static final Logger LOG = LoggerFactory.getLogger(EpochTimeScheduler.class);
@@ -48,13 +52,14 @@ public class EpochTimeScheduler {
   private final ScheduledExecutorService executor;
   private final Map<Object, ScheduledFuture> scheduledFutures = new ConcurrentHashMap<>();
   private final Map<TimerKey<?>, ScheduledCallback> readyTimers = new ConcurrentHashMap<>();
+  private final Map<String, ScheduledCallback<?>> registeredCallbacks = new ConcurrentHashMap<>();
   private volatile TimerListener timerListener;
 
   public static EpochTimeScheduler create(ScheduledExecutorService executor) {
     return new EpochTimeScheduler(executor);
   }
 
-  private EpochTimeScheduler(ScheduledExecutorService executor) {
+  protected EpochTimeScheduler(ScheduledExecutorService executor) {
     this.executor = executor;
   }
 
@@ -89,11 +94,7 @@ public class EpochTimeScheduler {
     final long delay = timestamp - System.currentTimeMillis();
     final ScheduledFuture<?> scheduledFuture = executor.schedule(() -> {
       scheduledFutures.remove(key);
-      readyTimers.put(TimerKey.of(key, timestamp), callback);
-
-      if (timerListener != null) {
-        timerListener.onTimer();
-      }
+      onTimerExpired(key, timestamp, callback);
     }, delay > 0 ? delay : 0, TimeUnit.MILLISECONDS);
     scheduledFutures.put(key, scheduledFuture);
   }
@@ -105,6 +106,64 @@ public class EpochTimeScheduler {
     }
   }
 
+  /**
+   * Registers the callback for the timers set with {@link #setTimer(String, Object, long)} for {@code callbackId}.
+   * The callback id must identify the same callback across restarts of the task, e.g. by naming the operator that
+   * owns the timers, so that timers that outlive the task can be attached to it again.
+   *
+   * @param callbackId id of the callback
+   * @param callback callback to invoke with the key and time of a timer for the callback id when it fires
+   * @param <K> type of the timer key
+   */
+  public <K> void registerCallback(String callbackId, ScheduledCallback<TimerKey<K>> callback) {
+    registeredCallbacks.put(callbackId, callback);
+  }
+
+  /**
+   * Sets a timer for the callback registered with {@code callbackId}.
+   *
+   * @param callbackId id of a registered callback
+   * @param key timer key
+   * @param timestamp epoch time when the timer fires, in milliseconds
+   * @param <K> type of the timer key
+   */
+  public <K> void setTimer(String callbackId, K key, long timestamp) {
+    ScheduledCallback<TimerKey<K>> callback = getRegisteredCallback(callbackId);
+    setTimer(key, timestamp, (k, collector, coordinator) -> callback.onCallback(TimerKey.of(k, timestamp), collector,
+        coordinator));
+  }
+
+  /**
+   * Deletes the timer for the key set with {@link #setTimer(String, Object, long)}.
+   *
+   * @param callbackId id of a registered callback
+   * @param key timer key
+   * @param <K> type of the timer key
+   */
+  public <K> void deleteTimer(String callbackId, K key) {
+    deleteTimer(key);
+  }
+
+  @SuppressWarnings("unchecked")
+  protected <K> ScheduledCallback<TimerKey<K>> getRegisteredCallback(String callbackId) {
+    ScheduledCallback<TimerKey<K>> callback = (ScheduledCallback<TimerKey<K>>) registeredCallbacks.get(callbackId);
+    if (callback == null) {
+      throw new SamzaException("No callback registered for callback id: " + callbackId);
+    }
+    return callback;
+  }
+
+  /**
+   * Makes the callback of an expired timer ready to be invoked by the run loop, and notifies the listener.
+   */
+  protected <K> void onTimerExpired(K key, long timestamp, ScheduledCallback<K> callback) {
+    readyTimers.put(TimerKey.of(key, timestamp), callback);
+
+    if (timerListener != null) {
+      timerListener.onTimer();
+    }
+  }
+
   public void registerListener(TimerListener listener) {
     timerListener = listener;
 
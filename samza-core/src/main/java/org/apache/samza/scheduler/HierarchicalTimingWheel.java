@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.scheduler;
+
+import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+
+/**
+ * A hierarchical timing wheel for keyed timers, as described in "Hashed and Hierarchical Timing Wheels" by Varghese
+ * and Lauck. Adding and removing a timer are O(1), independent of the number of timers, which makes it suitable for
+ * millions of timers.
+ *
+ * The lowest level has {@code wheelSize} buckets of {@code tickMs} each. Timers that expire beyond the range of a
+ * level are kept in the next level, whose buckets are {@code wheelSize} times as wide, and move down a level when
+ * their bucket comes due. Only non-empty buckets are tracked in a priority queue by their expiration, so the wheel
+ * can be advanced straight to the next due bucket without visiting the empty ones in between.
+ *
+ * A timer is never returned before its expiration, and is returned at most {@code tickMs} after it, provided that
+ * {@link #poll(long)} is called at {@link #nextExpirationMs()}.
+ *
+ * This class is not thread-safe.
+ *
+ * @param <K> type of the timer key
+ */
+public class HierarchicalTimingWheel<K> {
+  private final int wheelSize;
+  private final Level lowestLevel;
+  private final PriorityQueue<Bucket<K>> dueBuckets = new PriorityQueue<>((b1, b2) -> Long.compare(b1.expiration, b2.expiration));
+  /**
+   * Timers whose bucket came due, but which expire later within the current tick. Timers with the same expiration are
+   * ordered by when they were added.
+   */
+  private final PriorityQueue<TimerEntry<K>> dueTimers = new PriorityQueue<>((t1, t2) ->
+      t1.expiration != t2.expiration ? Long.compare(t1.expiration, t2.expiration) : Long.compare(t1.seqNum, t2.seqNum));
+  private final Map<K, TimerEntry<K>> timers = new HashMap<>();
+  private long nextSeqNum = 0;
+
+  public HierarchicalTimingWheel(long tickMs, int wheelSize, long startMs) {
+    Preconditions.checkArgument(tickMs > 0, "tickMs must be positive");
+    Preconditions.checkArgument(wheelSize > 1, "wheelSize must be greater than 1");
+    this.wheelSize = wheelSize;
+    this.lowestLevel = new Level(tickMs, startMs);
+  }
+
+  /**
+   * Adds a timer for the key, replacing any existing timer for it.
+   *
+   * @param key timer key
+   * @param expirationMs time at which the timer expires
+   */
+  public void add(K key, long expirationMs) {
+    remove(key);
+    TimerEntry<K> entry = new TimerEntry<>(key, expirationMs, nextSeqNum++);
+    timers.put(key, entry);
+    insert(entry);
+  }
+
+  /**
+   * Removes the timer for the key.
+   *
+   * @param key timer key
+   * @return true if there was a timer for the key
+   */
+  public boolean remove(K key) {
+    TimerEntry<K> entry = timers.remove(key);
+    if (entry == null) {
+      return false;
+    }
+    if (entry.bucket != null) {
+      entry.bucket.entries.remove(entry);
+      entry.bucket = null;
+    } else {
+      dueTimers.remove(entry);
+    }
+    return true;
+  }
+
+  /**
+   * Returns the expiration time of the timer for the key, or null if there is none.
+   */
+  public Long getExpiration(K key) {
+    TimerEntry<K> entry = timers.get(key);
+    return entry == null ? null : entry.expiration;
+  }
+
+  public int size() {
+    return timers.size();
+  }
+
+  /**
+   * Returns the earliest time at which {@link #poll(long)} may return timers, or {@link Long#MAX_VALUE} if there are
+   * no timers.
+   */
+  public long nextExpirationMs() {
+    long next = Long.MAX_VALUE;
+    if (!dueTimers.isEmpty()) {
+      next = dueTimers.peek().expiration;
+    }
+    // buckets may be empty, since removed timers are not tracked in the queue
+    while (!dueBuckets.isEmpty() && dueBuckets.peek().entries.isEmpty()) {
+      dueBuckets.poll().expiration = -1;
+    }
+    if (!dueBuckets.isEmpty()) {
+      next = Math.min(next, dueBuckets.peek().expiration);
+    }
+    return next;
+  }
+
+  /**
+   * Advances the wheel to {@code nowMs}, and removes and returns the timers that expired by then, in the order of
+   * their expiration, and of when they were added for the same expiration.
+   *
+   * @param nowMs current time
+   * @return the expired timers, as key and expiration time
+   */
+  public List<Map.Entry<K, Long>> poll(long nowMs) {
+    Bucket<K> bucket;
+    while ((bucket = dueBuckets.peek()) != null && bucket.expiration <= nowMs) {
+      dueBuckets.poll();
+      lowestLevel.advanceTo(bucket.expiration);
+      List<TimerEntry<K>> entries = new ArrayList<>(bucket.entries);
+      bucket.entries.clear();
+      bucket.expiration = -1;
+      // timers move down to a lower level, or become due
+      for (TimerEntry<K> entry : entries) {
+        entry.bucket = null;
+        insert(entry);
+      }
+    }
+    lowestLevel.advanceTo(nowMs);
+
+    List<Map.Entry<K, Long>> expired = new ArrayList<>();
+    while (!dueTimers.isEmpty() && dueTimers.peek().expiration <= nowMs) {
+      TimerEntry<K> entry = dueTimers.poll();
+      timers.remove(entry.key);
+      expired.add(new HashMap.SimpleImmutableEntry<>(entry.key, entry.expiration));
+    }
+    return expired;
+  }
+
+  private void insert(TimerEntry<K> entry) {
+    if (!lowestLevel.add(entry)) {
+      dueTimers.add(entry);
+    }
+  }
+
+  private final class Level {
+    private final long tickMs;
+    private final long intervalMs;
+    private final List<Bucket<K>> buckets;
+    private long currentTimeMs;
+    private Level overflow = null;
+
+    Level(long tickMs, long startMs) {
+      this.tickMs = tickMs;
+      this.intervalMs = tickMs * wheelSize;
+      this.buckets = new ArrayList<>(wheelSize);
+      for (int i = 0; i < wheelSize; i++) {
+        buckets.add(new Bucket<>());
+      }
+      this.currentTimeMs = startMs - (startMs % tickMs);
+    }
+
+    /**
+     * Adds the timer to this level or a higher one, returning false if it expires within the current tick.
+     */
+    boolean add(TimerEntry<K> entry) {
+      if (entry.expiration < currentTimeMs + tickMs) {
+        return false;
+      } else if (entry.expiration < currentTimeMs + intervalMs) {
+        long virtualId = entry.expiration / tickMs;
+        Bucket<K> bucket = buckets.get((int) (virtualId % wheelSize));
+        bucket.entries.add(entry);
+        entry.bucket = bucket;
+        long bucketExpiration = virtualId * tickMs;
+        if (bucket.expiration != bucketExpiration) {
+          bucket.expiration = bucketExpiration;
+          dueBuckets.add(bucket);
+        }
+        return true;
+      } else {
+        if (overflow == null) {
+          overflow = new Level(intervalMs, currentTimeMs);
+        }
+        return overflow.add(entry);
+      }
+    }
+
+    void advanceTo(long timeMs) {
+      if (timeMs >= currentTimeMs + tickMs) {
+        currentTimeMs = timeMs - (timeMs % tickMs);
+        if (overflow != null) {
+          overflow.advanceTo(currentTimeMs);
+        }
+      }
+    }
+  }
+
+  private static final class Bucket<K> {
+    private final Set<TimerEntry<K>> entries = new LinkedHashSet<>();
+    private long expiration = -1;
+  }
+
+  private static final class TimerEntry<K> {
+    private final K key;
+    private final long expiration;
+    private final long seqNum;
+    private Bucket<K> bucket;
+
+    TimerEntry(K key, long expiration, long seqNum) {
+      this.key = key;
+      this.expiration = expiration;
+      this.seqNum = seqNum;
+    }
+  }
+}
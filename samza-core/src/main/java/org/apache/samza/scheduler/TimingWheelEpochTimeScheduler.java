@@ -0,0 +1,307 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.scheduler;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.primitives.Longs;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.apache.samza.SamzaException;
+import org.apache.samza.config.Config;
+import org.apache.samza.config.SerializerConfig;
+import org.apache.samza.config.TaskConfig;
+import org.apache.samza.serializers.Serde;
+import org.apache.samza.serializers.SerdeFactory;
+import org.apache.samza.storage.kv.Entry;
+import org.apache.samza.storage.kv.KeyValueIterator;
+import org.apache.samza.storage.kv.KeyValueStore;
+import org.apache.samza.util.Clock;
+import org.apache.samza.util.ReflectionUtil;
+import org.apache.samza.util.SystemClock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * An {@link EpochTimeScheduler} that keeps the timers of a task in a {@link HierarchicalTimingWheel}, and wakes up
+ * at the next due bucket of the wheel with a single future on the executor, instead of scheduling a future per timer.
+ *
+ * Timers set for a registered callback, as the high level API operators do, are also written to the key-value store
+ * configured with {@link TaskConfig#TIMER_STORE}, keyed by the callback id and the serialized timer key. Since the
+ * store is changelogged, the timers survive restarts of the task: they are added back to the wheel when their
+ * callback is registered again, and fire right away if they expired in the meantime. A persisted timer is deleted
+ * right before its callback is invoked.
+ */
+public class TimingWheelEpochTimeScheduler extends EpochTimeScheduler {
+  private static final Logger LOG = LoggerFactory.getLogger(TimingWheelEpochTimeScheduler.class);
+
+  private final ScheduledExecutorService executor;
+  private final Clock clock;
+  private final HierarchicalTimingWheel<TimerId> wheel;
+  // callbacks of the timers in the wheel; guarded by the wheel
+  private final Map<TimerId, ScheduledCallback<?>> timerCallbacks = new HashMap<>();
+  private final String timerStoreName;
+  private final Function<String, KeyValueStore<?, ?>> storeSupplier;
+  private final Serde<Object> keySerde;
+
+  private KeyValueStore<byte[], byte[]> timerStore = null;
+  // persisted timers that have not been attached to their callback yet, by callback id
+  private Map<String, List<Entry<byte[], Long>>> recoveredTimers = null;
+  private ScheduledFuture<?> wakeup = null;
+  private long wakeupMs = Long.MAX_VALUE;
+
+  public static TimingWheelEpochTimeScheduler create(ScheduledExecutorService executor, Config config,
+      Function<String, KeyValueStore<?, ?>> storeSupplier) {
+    return new TimingWheelEpochTimeScheduler(executor, config, storeSupplier, SystemClock.instance());
+  }
+
+  @VisibleForTesting
+  TimingWheelEpochTimeScheduler(ScheduledExecutorService executor, Config config,
+      Function<String, KeyValueStore<?, ?>> storeSupplier, Clock clock) {
+    super(executor);
+    TaskConfig taskConfig = new TaskConfig(config);
+    this.executor = executor;
+    this.clock = clock;
+    this.wheel = new HierarchicalTimingWheel<>(taskConfig.getTimerWheelTickMs(), taskConfig.getTimerWheelSize(),
+        clock.currentTimeMillis());
+    this.timerStoreName = taskConfig.getTimerStore().orElse(null);
+    this.storeSupplier = storeSupplier;
+    this.keySerde = timerStoreName == null ? null : getSerde(config, taskConfig.getTimerKeySerde());
+  }
+
+  @Override
+  public <K> void setTimer(K key, long timestamp, ScheduledCallback<K> callback) {
+    addTimer(new TimerId(null, key), timestamp, callback);
+  }
+
+  @Override
+  public <K> void deleteTimer(K key) {
+    removeTimer(new TimerId(null, key));
+  }
+
+  @Override
+  public <K> void registerCallback(String callbackId, ScheduledCallback<TimerKey<K>> callback) {
+    super.registerCallback(callbackId, callback);
+    if (timerStoreName == null) {
+      return;
+    }
+
+    List<Entry<byte[], Long>> timers = getRecoveredTimers().remove(callbackId);
+    if (timers != null) {
+      LOG.info("Recovered {} timers for callback id: {}", timers.size(), callbackId);
+      for (Entry<byte[], Long> timer : timers) {
+        addTimer(new TimerId(callbackId, keySerde.fromBytes(timer.getKey())), timer.getValue(), callback);
+      }
+    }
+  }
+
+  @Override
+  public <K> void setTimer(String callbackId, K key, long timestamp) {
+    ScheduledCallback<TimerKey<K>> callback = getRegisteredCallback(callbackId);
+    if (timerStoreName != null) {
+      getTimerStore().put(toStoreKey(callbackId, keySerde.toBytes(key)), Longs.toByteArray(timestamp));
+    }
+    addTimer(new TimerId(callbackId, key), timestamp, callback);
+  }
+
+  @Override
+  public <K> void deleteTimer(String callbackId, K key) {
+    if (timerStoreName != null) {
+      getTimerStore().delete(toStoreKey(callbackId, keySerde.toBytes(key)));
+    }
+    removeTimer(new TimerId(callbackId, key));
+  }
+
+  @VisibleForTesting
+  int getNumTimers() {
+    synchronized (wheel) {
+      return wheel.size();
+    }
+  }
+
+  private void addTimer(TimerId timerId, long timestamp, ScheduledCallback<?> callback) {
+    synchronized (wheel) {
+      timerCallbacks.put(timerId, callback);
+      wheel.add(timerId, timestamp);
+      scheduleWakeup();
+    }
+  }
+
+  private void removeTimer(TimerId timerId) {
+    synchronized (wheel) {
+      timerCallbacks.remove(timerId);
+      wheel.remove(timerId);
+    }
+  }
+
+  /**
+   * Makes sure that the wheel is polled by the time its next bucket is due. Must be called while holding the wheel.
+   */
+  private void scheduleWakeup() {
+    long nextExpirationMs = wheel.nextExpirationMs();
+    if (nextExpirationMs == Long.MAX_VALUE || (wakeup != null && wakeupMs <= nextExpirationMs)) {
+      return;
+    }
+    if (wakeup != null) {
+      wakeup.cancel(false);
+    }
+    long delay = nextExpirationMs - clock.currentTimeMillis();
+    wakeupMs = nextExpirationMs;
+    wakeup = executor.schedule(this::expireTimers, delay > 0 ? delay : 0, TimeUnit.MILLISECONDS);
+  }
+
+  @VisibleForTesting
+  void expireTimers() {
+    List<Map.Entry<TimerId, ScheduledCallback<?>>> expired = new ArrayList<>();
+    List<Long> timestamps = new ArrayList<>();
+    synchronized (wheel) {
+      wakeup = null;
+      wakeupMs = Long.MAX_VALUE;
+      for (Map.Entry<TimerId, Long> timer : wheel.poll(clock.currentTimeMillis())) {
+        expired.add(new HashMap.SimpleImmutableEntry<>(timer.getKey(), timerCallbacks.remove(timer.getKey())));
+        timestamps.add(timer.getValue());
+      }
+      scheduleWakeup();
+    }
+
+    for (int i = 0; i < expired.size(); i++) {
+      TimerId timerId = expired.get(i).getKey();
+      long timestamp = timestamps.get(i);
+      @SuppressWarnings("unchecked")
+      ScheduledCallback<Object> callback = (ScheduledCallback<Object>) expired.get(i).getValue();
+      if (timerId.callbackId == null) {
+        onTimerExpired(timerId.key, timestamp, callback);
+      } else {
+        // keyed by the timer id, since different callbacks may use the same key
+        onTimerExpired(timerId, timestamp, (ignored, collector, coordinator) -> {
+          deletePersistedTimer(timerId, timestamp);
+          callback.onCallback(TimerKey.of(timerId.key, timestamp), collector, coordinator);
+        });
+      }
+    }
+  }
+
+  /**
+   * Deletes a fired timer from the store, unless it was set again for a different time.
+   */
+  private void deletePersistedTimer(TimerId timerId, long timestamp) {
+    if (timerStoreName == null) {
+      return;
+    }
+    byte[] storeKey = toStoreKey(timerId.callbackId, keySerde.toBytes(timerId.key));
+    byte[] persisted = getTimerStore().get(storeKey);
+    if (persisted != null && Longs.fromByteArray(persisted) == timestamp) {
+      getTimerStore().delete(storeKey);
+    }
+  }
+
+  private synchronized Map<String, List<Entry<byte[], Long>>> getRecoveredTimers() {
+    if (recoveredTimers == null) {
+      recoveredTimers = new HashMap<>();
+      int count = 0;
+      KeyValueIterator<byte[], byte[]> iterator = getTimerStore().all();
+      try {
+        while (iterator.hasNext()) {
+          Entry<byte[], byte[]> entry = iterator.next();
+          ByteBuffer storeKey = ByteBuffer.wrap(entry.getKey());
+          byte[] callbackId = new byte[storeKey.getInt()];
+          storeKey.get(callbackId);
+          byte[] key = Arrays.copyOfRange(entry.getKey(), storeKey.position(), entry.getKey().length);
+          recoveredTimers.computeIfAbsent(new String(callbackId, StandardCharsets.UTF_8), id -> new ArrayList<>())
+              .add(new Entry<>(key, Longs.fromByteArray(entry.getValue())));
+          count++;
+        }
+      } finally {
+        iterator.close();
+      }
+      LOG.info("Read {} persisted timers from store: {}", count, timerStoreName);
+    }
+    return recoveredTimers;
+  }
+
+  @SuppressWarnings("unchecked")
+  private synchronized KeyValueStore<byte[], byte[]> getTimerStore() {
+    if (timerStore == null) {
+      timerStore = (KeyValueStore<byte[], byte[]>) storeSupplier.apply(timerStoreName);
+      if (timerStore == null) {
+        throw new SamzaException(String.format("Timer store: %s configured with %s does not exist.",
+            timerStoreName, TaskConfig.TIMER_STORE));
+      }
+    }
+    return timerStore;
+  }
+
+  private static byte[] toStoreKey(String callbackId, byte[] key) {
+    byte[] id = callbackId.getBytes(StandardCharsets.UTF_8);
+    return ByteBuffer.allocate(Integer.BYTES + id.length + key.length).putInt(id.length).put(id).put(key).array();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Serde<Object> getSerde(Config config, String serdeName) {
+    SerializerConfig serializerConfig = new SerializerConfig(config);
+    String serdeFactoryClass = serializerConfig.getSerdeFactoryClass(serdeName)
+        .orElseGet(() -> SerializerConfig.getPredefinedSerdeFactoryName(serdeName));
+    return ReflectionUtil.getObj(serdeFactoryClass, SerdeFactory.class).getSerde(serdeName, serializerConfig);
+  }
+
+  /**
+   * Identifies a timer by its key and, for timers of a registered callback, the callback id.
+   */
+  static final class TimerId {
+    private final String callbackId;
+    private final Object key;
+
+    TimerId(String callbackId, Object key) {
+      this.callbackId = callbackId;
+      this.key = key;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      TimerId timerId = (TimerId) o;
+      return Objects.equals(callbackId, timerId.callbackId) && key.equals(timerId.key);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(callbackId, key);
+    }
+
+    @Override
+    public String toString() {
+      return callbackId == null ? String.valueOf(key) : callbackId + ":" + key;
+    }
+  }
+}
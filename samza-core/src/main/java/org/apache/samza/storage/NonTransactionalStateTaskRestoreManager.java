@@ -32,6 +32,7 @@ import org.apache.samza.Partition;
 import org.apache.samza.SamzaException;
 import org.apache.samza.checkpoint.Checkpoint;
 import org.apache.samza.config.Config;
+import org.apache.samza.config.JobConfig;
 import org.apache.samza.config.StorageConfig;
 import org.apache.samza.context.ContainerContext;
 import org.apache.samza.context.JobContext;
@@ -82,6 +83,8 @@ class NonTransactionalStateTaskRestoreManager implements TaskRestoreManager {
   private final Config config;
   private final StorageManagerUtil storageManagerUtil;
   private final ExecutorService restoreExecutor;
+  private final boolean restoreParallelStores;
+  private final int restorePrefetchMaxMessages;
 
   NonTransactionalStateTaskRestoreManager(
       Set<String> storeNames,
@@ -116,6 +119,9 @@ class NonTransactionalStateTaskRestoreManager implements TaskRestoreManager {
     this.maxChangeLogStreamPartitions = maxChangeLogStreamPartitions;
     this.config = config;
     this.storageManagerUtil = new StorageManagerUtil();
+    JobConfig jobConfig = new JobConfig(config);
+    this.restoreParallelStores = jobConfig.getRestoreParallelStoresEnabled();
+    this.restorePrefetchMaxMessages = jobConfig.getRestorePrefetchMaxMessages();
     this.taskStores = createStoreEngines(storeNames, jobContext, containerContext,
         storageEngineFactories, serdes, metricsRegistry, messageCollector, inMemoryStores);
     this.taskStoresToRestore = this.taskStores.entrySet().stream()
@@ -354,28 +360,45 @@ class NonTransactionalStateTaskRestoreManager implements TaskRestoreManager {
   }
 
   /**
-   * Restore each store in taskStoresToRestore sequentially
+   * Restore each store in taskStoresToRestore, sequentially or, if parallel store restore is enabled, concurrently
+   * on the restore executor.
    */
   @Override
   public CompletableFuture<Void> restore() {
-    return CompletableFuture.runAsync(() -> {
-      for (String storeName : taskStoresToRestore) {
-        LOG.info("Restoring store: {} for task: {}", storeName, taskModel.getTaskName());
-        SystemConsumer systemConsumer = storeConsumers.get(storeName);
-        SystemStream systemStream = storeChangelogs.get(storeName);
-        SystemAdmin systemAdmin = systemAdmins.getSystemAdmin(systemStream.getSystem());
-        ChangelogSSPIterator changelogSSPIterator = new ChangelogSSPIterator(systemConsumer,
-            new SystemStreamPartition(systemStream, taskModel.getChangelogPartition()), null, systemAdmin, false);
-
-        try {
-          taskStores.get(storeName).restore(changelogSSPIterator);
-        } catch (InterruptedException e) {
-          String msg = String.format("Interrupted while restoring store: %s for task: %s",
-              storeName, taskModel.getTaskName().getTaskName());
-          throw new SamzaException(msg, e); // wrap in unchecked exception to throw from lambda
-        }
+    if (restoreParallelStores) {
+      return CompletableFuture.allOf(taskStoresToRestore.stream()
+          .map(storeName -> CompletableFuture.runAsync(() -> restoreStore(storeName), restoreExecutor))
+          .toArray(CompletableFuture[]::new));
+    }
+    return CompletableFuture.runAsync(() -> taskStoresToRestore.forEach(this::restoreStore), restoreExecutor);
+  }
+
+  private void restoreStore(String storeName) {
+    LOG.info("Restoring store: {} for task: {}", storeName, taskModel.getTaskName());
+    SystemConsumer systemConsumer = storeConsumers.get(storeName);
+    SystemStream systemStream = storeChangelogs.get(storeName);
+    SystemAdmin systemAdmin = systemAdmins.getSystemAdmin(systemStream.getSystem());
+    SystemStreamPartition changelogSSP = new SystemStreamPartition(systemStream, taskModel.getChangelogPartition());
+    ChangelogSSPIterator changelogSSPIterator =
+        new ChangelogSSPIterator(systemConsumer, changelogSSP, null, systemAdmin, false);
+    PrefetchingChangelogSSPIterator prefetchingIterator = null;
+    if (restorePrefetchMaxMessages > 0) {
+      prefetchingIterator = new PrefetchingChangelogSSPIterator(changelogSSPIterator, changelogSSP,
+          restorePrefetchMaxMessages, taskModel.getTaskName().getTaskName() + "-" + storeName);
+      changelogSSPIterator = prefetchingIterator;
+    }
+
+    try {
+      taskStores.get(storeName).restore(changelogSSPIterator);
+    } catch (InterruptedException e) {
+      String msg = String.format("Interrupted while restoring store: %s for task: %s",
+          storeName, taskModel.getTaskName().getTaskName());
+      throw new SamzaException(msg, e); // wrap in unchecked exception to throw from lambda
+    } finally {
+      if (prefetchingIterator != null) {
+        prefetchingIterator.close();
       }
-    }, restoreExecutor);
+    }
   }
 
   /**
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.storage;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.samza.SamzaException;
+import org.apache.samza.system.ChangelogSSPIterator;
+import org.apache.samza.system.IncomingMessageEnvelope;
+import org.apache.samza.system.SystemStreamPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * A {@link ChangelogSSPIterator} that reads ahead from another {@link ChangelogSSPIterator} on a dedicated thread, so
+ * that fetching changelog messages from the {@link org.apache.samza.system.SystemConsumer} overlaps with applying
+ * them to the store.
+ *
+ * At most {@code maxPrefetchedMessages} messages are buffered. The {@link ChangelogSSPIterator.Mode} of this iterator
+ * changes at the same message as the mode of the underlying iterator, so RESTORE/TRIM semantics are unchanged.
+ *
+ * This iterator must be used by a single thread and must be closed once it is no longer used.
+ */
+class PrefetchingChangelogSSPIterator extends ChangelogSSPIterator implements AutoCloseable {
+  private static final Logger LOG = LoggerFactory.getLogger(PrefetchingChangelogSSPIterator.class);
+  private static final String PREFETCH_THREAD_NAME_FORMAT = "Samza Changelog Prefetch Thread-%s";
+  private static final long OFFER_TIMEOUT_MS = 100;
+
+  /** marks the end of the underlying iterator, or an error in the prefetch thread */
+  private static final IncomingMessageEnvelope END_OF_ITERATOR = new IncomingMessageEnvelope(null, null, null, null);
+
+  private final ChangelogSSPIterator iterator;
+  private final SystemStreamPartition changelogSSP;
+  private final BlockingQueue<IncomingMessageEnvelope> prefetched;
+  private final Thread prefetchThread;
+
+  /** the first message that the underlying iterator returned in TRIM mode, set before it is prefetched */
+  private volatile IncomingMessageEnvelope firstTrimmedEnvelope = null;
+  private volatile Throwable prefetchError = null;
+  private volatile boolean closed = false;
+
+  private IncomingMessageEnvelope peeked = null;
+  private Mode mode;
+
+  PrefetchingChangelogSSPIterator(ChangelogSSPIterator iterator, SystemStreamPartition changelogSSP,
+      int maxPrefetchedMessages, String threadNameSuffix) {
+    // the superclass is only used for its type; all reads go through the underlying iterator
+    super(null, changelogSSP, null, null, false);
+    this.iterator = iterator;
+    this.changelogSSP = changelogSSP;
+    this.prefetched = new ArrayBlockingQueue<>(maxPrefetchedMessages);
+    this.mode = iterator.getMode();
+    this.prefetchThread = new Thread(this::prefetch, String.format(PREFETCH_THREAD_NAME_FORMAT, threadNameSuffix));
+    this.prefetchThread.setDaemon(true);
+    this.prefetchThread.start();
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (peeked == null) {
+      try {
+        peeked = prefetched.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new SamzaException(e);
+      }
+    }
+    if (peeked == END_OF_ITERATOR && prefetchError != null) {
+      throw new SamzaException("Error reading changelog SSP: " + changelogSSP, prefetchError);
+    }
+    return peeked != END_OF_ITERATOR;
+  }
+
+  @Override
+  public IncomingMessageEnvelope next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    IncomingMessageEnvelope envelope = peeked;
+    peeked = null;
+    if (envelope == firstTrimmedEnvelope) {
+      mode = Mode.TRIM;
+    }
+    return envelope;
+  }
+
+  @Override
+  public Mode getMode() {
+    return mode;
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    prefetchThread.interrupt();
+    prefetched.clear();
+  }
+
+  private void prefetch() {
+    try {
+      while (!closed && iterator.hasNext()) {
+        IncomingMessageEnvelope envelope = iterator.next();
+        if (firstTrimmedEnvelope == null && iterator.getMode() == Mode.TRIM) {
+          firstTrimmedEnvelope = envelope;
+        }
+        enqueue(envelope);
+      }
+    } catch (Throwable t) {
+      if (!closed) {
+        LOG.error("Error prefetching from changelog SSP: {}", changelogSSP, t);
+        prefetchError = t;
+      }
+    }
+    try {
+      enqueue(END_OF_ITERATOR);
+    } catch (InterruptedException e) {
+      // closed while waiting for the restoring thread to catch up
+    }
+  }
+
+  private void enqueue(IncomingMessageEnvelope envelope) throws InterruptedException {
+    while (!closed && !prefetched.offer(envelope, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+      // wait for the restoring thread to catch up
+    }
+  }
+}
@@ -20,6 +20,7 @@ package org.apache.samza.storage;
 
 import java.util.Collections;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import org.apache.samza.checkpoint.OffsetManager;
 import org.apache.samza.container.RunLoopTask;
 import org.apache.samza.container.TaskInstanceMetrics;
@@ -46,6 +47,8 @@ public class SideInputTask implements RunLoopTask {
   private final TaskSideInputHandler taskSideInputHandler;
   private final TaskInstanceMetrics metrics;
   private final long commitMs;
+  // if set, envelopes are processed on this executor so that side inputs of different tasks are processed concurrently
+  private final ExecutorService executor;
   private volatile boolean loggedManualCommitWarning = false;
 
   public SideInputTask(
@@ -54,11 +57,22 @@ public class SideInputTask implements RunLoopTask {
       TaskSideInputHandler taskSideInputHandler,
       TaskInstanceMetrics metrics,
       long commitMs) {
+    this(taskName, taskSSPs, taskSideInputHandler, metrics, commitMs, null);
+  }
+
+  public SideInputTask(
+      TaskName taskName,
+      Set<SystemStreamPartition> taskSSPs,
+      TaskSideInputHandler taskSideInputHandler,
+      TaskInstanceMetrics metrics,
+      long commitMs,
+      ExecutorService executor) {
     this.taskName = taskName;
     this.taskSSPs = taskSSPs;
     this.taskSideInputHandler = taskSideInputHandler;
     this.metrics = metrics;
     this.commitMs = commitMs;
+    this.executor = executor;
   }
 
   @Override
@@ -67,9 +81,18 @@ public class SideInputTask implements RunLoopTask {
   }
 
   @Override
-  synchronized public void process(IncomingMessageEnvelope envelope, ReadableCoordinator coordinator,
+  public void process(IncomingMessageEnvelope envelope, ReadableCoordinator coordinator,
       TaskCallbackFactory callbackFactory) {
     TaskCallback callback = callbackFactory.createCallback();
+    if (executor != null) {
+      executor.submit(() -> process(envelope, coordinator, callback));
+    } else {
+      process(envelope, coordinator, callback);
+    }
+  }
+
+  synchronized private void process(IncomingMessageEnvelope envelope, ReadableCoordinator coordinator,
+      TaskCallback callback) {
     this.metrics.processes().inc();
     try {
       this.taskSideInputHandler.process(envelope);
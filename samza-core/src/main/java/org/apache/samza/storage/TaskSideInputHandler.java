@@ -22,21 +22,29 @@ package org.apache.samza.storage;
 
 import com.google.common.annotations.VisibleForTesting;
 import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.stream.Collectors;
 import org.apache.samza.Partition;
 import org.apache.samza.SamzaException;
+import org.apache.samza.checkpoint.CheckpointId;
 import org.apache.samza.container.TaskName;
 import org.apache.samza.job.model.TaskMode;
 import org.apache.samza.storage.kv.Entry;
+import org.apache.samza.storage.kv.KeyValueIterator;
+import org.apache.samza.storage.kv.KeyValueSnapshot;
 import org.apache.samza.storage.kv.KeyValueStore;
+import org.apache.samza.storage.kv.SeekableKeyValueIterator;
 import org.apache.samza.system.IncomingMessageEnvelope;
 import org.apache.samza.system.StreamMetadataCache;
 import org.apache.samza.system.SystemAdmin;
@@ -58,11 +66,16 @@ public class TaskSideInputHandler {
 
   private final StorageManagerUtil storageManagerUtil = new StorageManagerUtil();
   private final Map<SystemStreamPartition, String> lastProcessedOffsets = new ConcurrentHashMap<>();
+  private final Set<SystemStreamPartition> caughtUpSSPs = ConcurrentHashMap.newKeySet();
 
   private final TaskName taskName;
   private final TaskSideInputStorageManager taskSideInputStorageManager;
   private final Map<SystemStreamPartition, Set<String>> sspToStores;
   private final Map<String, SideInputsProcessor> storeToProcessor;
+  // number of entries to buffer per store before writing them, while the store's side inputs are catching up
+  private final Map<String, Integer> storeToWriteBatchSize;
+  // entries returned by the side inputs processors that are yet to be written to the store, in processing order
+  private final Map<String, List<Entry<Object, Object>>> storeToPendingWrites = new HashMap<>();
   private final SystemAdmins systemAdmins;
   private final StreamMetadataCache streamMetadataCache;
   // indicates to ContainerStorageManager that all side input ssps in this task are caught up
@@ -75,12 +88,22 @@ public class TaskSideInputHandler {
       Map<String, StorageEngine> storeToStorageEngines, Map<String, Set<SystemStreamPartition>> storeToSSPs,
       Map<String, SideInputsProcessor> storeToProcessor, SystemAdmins systemAdmins,
       StreamMetadataCache streamMetadataCache, CountDownLatch taskCaughtUpLatch, Clock clock) {
+    this(taskName, taskMode, storeBaseDir, storeToStorageEngines, storeToSSPs, storeToProcessor,
+        Collections.emptyMap(), systemAdmins, streamMetadataCache, taskCaughtUpLatch, clock);
+  }
+
+  public TaskSideInputHandler(TaskName taskName, TaskMode taskMode, File storeBaseDir,
+      Map<String, StorageEngine> storeToStorageEngines, Map<String, Set<SystemStreamPartition>> storeToSSPs,
+      Map<String, SideInputsProcessor> storeToProcessor, Map<String, Integer> storeToWriteBatchSize,
+      SystemAdmins systemAdmins, StreamMetadataCache streamMetadataCache, CountDownLatch taskCaughtUpLatch,
+      Clock clock) {
     validateProcessorConfiguration(storeToSSPs.keySet(), storeToProcessor);
 
     this.taskName = taskName;
     this.systemAdmins = systemAdmins;
     this.streamMetadataCache = streamMetadataCache;
     this.storeToProcessor = storeToProcessor;
+    this.storeToWriteBatchSize = storeToWriteBatchSize;
     this.taskCaughtUpLatch = taskCaughtUpLatch;
 
     this.sspToStores = new HashMap<>();
@@ -155,28 +178,36 @@ public class TaskSideInputHandler {
    * Processes the incoming side input message envelope and updates the last processed offset for its SSP.
    * Synchronized inorder to be exclusive with flush().
    *
+   * While the SSP is catching up, the entries returned by the {@link SideInputsProcessor} of a store are buffered
+   * until the configured write batch size is reached, and are then written with bulk {@link KeyValueStore#putAll}
+   * and {@link KeyValueStore#deleteAll} calls. Pending entries are always written before the SSP is reported as
+   * caught up and before the store is flushed. The processor is given a view of the store that writes the pending
+   * entries before it is accessed, so that the entries returned for earlier envelopes are visible to the processor.
+   *
    * @param envelope incoming envelope to be processed
    */
   public synchronized void process(IncomingMessageEnvelope envelope) {
     SystemStreamPartition envelopeSSP = envelope.getSystemStreamPartition();
     String envelopeOffset = envelope.getOffset();
+    boolean isCaughtUp = this.caughtUpSSPs.contains(envelopeSSP);
 
     for (String store: this.sspToStores.get(envelopeSSP)) {
       SideInputsProcessor storeProcessor = this.storeToProcessor.get(store);
-      KeyValueStore keyValueStore = (KeyValueStore) this.taskSideInputStorageManager.getStore(store);
+      KeyValueStore keyValueStore = new PendingWritesFlushingStore(store);
       Collection<Entry<?, ?>> entriesToBeWritten = storeProcessor.process(envelope, keyValueStore);
 
-      // TODO: SAMZA-2255: optimize writes to side input stores
+      List<Entry<Object, Object>> pendingWrites =
+          this.storeToPendingWrites.computeIfAbsent(store, key -> new ArrayList<>());
       for (Entry entry : entriesToBeWritten) {
         // If the key is null we ignore, if the value is null, we issue a delete, else we issue a put
         if (entry.getKey() != null) {
-          if (entry.getValue() != null) {
-            keyValueStore.put(entry.getKey(), entry.getValue());
-          } else {
-            keyValueStore.delete(entry.getKey());
-          }
+          pendingWrites.add(entry);
         }
       }
+
+      if (isCaughtUp || pendingWrites.size() >= this.storeToWriteBatchSize.getOrDefault(store, 1)) {
+        writePendingEntries(store);
+      }
     }
 
     this.lastProcessedOffsets.put(envelopeSSP, envelopeOffset);
@@ -188,9 +219,21 @@ public class TaskSideInputHandler {
    * Synchronized inorder to be exclusive with process()
    */
   public synchronized void flush() {
+    writePendingEntries();
     this.taskSideInputStorageManager.flush(this.lastProcessedOffsets);
   }
 
+  /**
+   * Checks whether the given side input {@link SystemStreamPartition} has caught up to the offset that was the newest
+   * when this handler was initialized.
+   *
+   * @param ssp side input system stream partition to check
+   * @return true if the ssp has caught up, false otherwise
+   */
+  public boolean isCaughtUp(SystemStreamPartition ssp) {
+    return this.caughtUpSSPs.contains(ssp);
+  }
+
   /**
    * Gets the starting offset for the given side input {@link SystemStreamPartition}.
    *
@@ -220,9 +263,53 @@ public class TaskSideInputHandler {
    * of {@link #process} and {@link #flush} are assumed to have completed or ceased prior to calling this method.
    */
   public void stop() {
+    writePendingEntries();
     this.taskSideInputStorageManager.stop(this.lastProcessedOffsets);
   }
 
+  private void writePendingEntries() {
+    this.storeToPendingWrites.keySet().forEach(this::writePendingEntries);
+  }
+
+  /**
+   * Writes the pending entries of the store in order, issuing a single {@link KeyValueStore#putAll} or
+   * {@link KeyValueStore#deleteAll} for each run of consecutive puts or deletes.
+   */
+  private void writePendingEntries(String store) {
+    List<Entry<Object, Object>> pendingWrites = this.storeToPendingWrites.get(store);
+    if (pendingWrites == null || pendingWrites.isEmpty()) {
+      return;
+    }
+
+    KeyValueStore<Object, Object> keyValueStore =
+        (KeyValueStore<Object, Object>) this.taskSideInputStorageManager.getStore(store);
+    List<Entry<Object, Object>> puts = new ArrayList<>();
+    List<Object> deletes = new ArrayList<>();
+    for (Entry<Object, Object> entry : pendingWrites) {
+      if (entry.getValue() != null) {
+        if (!deletes.isEmpty()) {
+          keyValueStore.deleteAll(deletes);
+          deletes = new ArrayList<>();
+        }
+        puts.add(entry);
+      } else {
+        if (!puts.isEmpty()) {
+          keyValueStore.putAll(puts);
+          puts = new ArrayList<>();
+        }
+        deletes.add(entry.getKey());
+      }
+    }
+
+    if (!puts.isEmpty()) {
+      keyValueStore.putAll(puts);
+    }
+    if (!deletes.isEmpty()) {
+      keyValueStore.deleteAll(deletes);
+    }
+    pendingWrites.clear();
+  }
+
   /**
    * Gets the starting offsets for the {@link SystemStreamPartition}s belonging to all the side input stores. See doc
    * of {@link StorageManagerUtil#getStartingOffset} for how file offsets and oldest offsets for each SSP are
@@ -317,6 +404,9 @@ public class TaskSideInputHandler {
     // latest offset.
     if (comparatorResult != null && comparatorResult.intValue() >= 0) {
       LOG.info("Side input ssp {} has caught up to offset {}.", ssp, offsetToCheck);
+      // make the entries processed so far visible before reporting the ssp as caught up
+      this.sspToStores.get(ssp).forEach(this::writePendingEntries);
+      this.caughtUpSSPs.add(ssp);
       // if its caught up, we remove the ssp from the map
       this.initialSideInputSSPMetadata.remove(ssp);
       if (this.initialSideInputSSPMetadata.isEmpty()) {
@@ -338,4 +428,98 @@ public class TaskSideInputHandler {
       }
     });
   }
+
+  /**
+   * A view of a side input store, given to its {@link SideInputsProcessor}, which writes the pending entries of the
+   * store before delegating any access to it. Processors that do not access the store keep their writes batched.
+   */
+  private class PendingWritesFlushingStore implements KeyValueStore<Object, Object> {
+    private final String storeName;
+    private final KeyValueStore<Object, Object> store;
+
+    PendingWritesFlushingStore(String storeName) {
+      this.storeName = storeName;
+      this.store = (KeyValueStore<Object, Object>) taskSideInputStorageManager.getStore(storeName);
+    }
+
+    private KeyValueStore<Object, Object> store() {
+      writePendingEntries(this.storeName);
+      return this.store;
+    }
+
+    @Override
+    public Object get(Object key) {
+      return store().get(key);
+    }
+
+    @Override
+    public Map<Object, Object> getAll(List<Object> keys) {
+      return store().getAll(keys);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+      store().put(key, value);
+    }
+
+    @Override
+    public void putAll(List<Entry<Object, Object>> entries) {
+      store().putAll(entries);
+    }
+
+    @Override
+    public void delete(Object key) {
+      store().delete(key);
+    }
+
+    @Override
+    public void deleteAll(List<Object> keys) {
+      store().deleteAll(keys);
+    }
+
+    @Override
+    public void merge(Object key, Object delta) {
+      store().merge(key, delta);
+    }
+
+    @Override
+    public KeyValueIterator<Object, Object> range(Object from, Object to) {
+      return store().range(from, to);
+    }
+
+    @Override
+    public KeyValueSnapshot<Object, Object> snapshot(Object from, Object to) {
+      return store().snapshot(from, to);
+    }
+
+    @Override
+    public KeyValueIterator<Object, Object> prefixScan(Object prefix) {
+      return store().prefixScan(prefix);
+    }
+
+    @Override
+    public SeekableKeyValueIterator<Object, Object> seekableIterator() {
+      return store().seekableIterator();
+    }
+
+    @Override
+    public KeyValueIterator<Object, Object> all() {
+      return store().all();
+    }
+
+    @Override
+    public void close() {
+      store().close();
+    }
+
+    @Override
+    public void flush() {
+      store().flush();
+    }
+
+    @Override
+    public Optional<Path> checkpoint(CheckpointId id) {
+      return store().checkpoint(id);
+    }
+  }
 }
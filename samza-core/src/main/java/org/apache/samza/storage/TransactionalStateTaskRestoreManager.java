@@ -43,6 +43,7 @@ import org.apache.samza.checkpoint.CheckpointV2;
 import org.apache.samza.checkpoint.kafka.KafkaChangelogSSPOffset;
 import org.apache.samza.checkpoint.kafka.KafkaStateCheckpointMarker;
 import org.apache.samza.config.Config;
+import org.apache.samza.config.JobConfig;
 import org.apache.samza.config.StorageConfig;
 import org.apache.samza.config.TaskConfig;
 import org.apache.samza.container.TaskName;
@@ -85,6 +86,8 @@ public class TransactionalStateTaskRestoreManager implements TaskRestoreManager
   private final StorageManagerUtil storageManagerUtil;
   private final FileUtil fileUtil;
   private final ExecutorService restoreExecutor;
+  private final boolean restoreParallelStores;
+  private final int restorePrefetchMaxMessages;
 
   private StoreActions storeActions; // available after init
   private Map<SystemStreamPartition, SystemStreamPartitionMetadata> currentChangelogOffsets;
@@ -122,6 +125,9 @@ public class TransactionalStateTaskRestoreManager implements TaskRestoreManager
     this.clock = clock;
     this.storageManagerUtil = new StorageManagerUtil();
     this.fileUtil = new FileUtil();
+    JobConfig jobConfig = new JobConfig(config);
+    this.restoreParallelStores = jobConfig.getRestoreParallelStoresEnabled();
+    this.restorePrefetchMaxMessages = jobConfig.getRestorePrefetchMaxMessages();
     this.storeEngines = createStoreEngines(storeNames, jobContext, containerContext,
         storageEngineFactories, serdes, metricsRegistry, messageCollector, inMemoryStores);
   }
@@ -141,36 +147,57 @@ public class TransactionalStateTaskRestoreManager implements TaskRestoreManager
         currentChangelogOffsets);
   }
 
+  /**
+   * Restore each store in storesToRestore, sequentially or, if parallel store restore is enabled, concurrently
+   * on the restore executor.
+   */
   @Override
   public CompletableFuture<Void> restore() {
+    Map<String, RestoreOffsets> storesToRestore = storeActions.storesToRestore;
+    if (restoreParallelStores) {
+      return CompletableFuture.allOf(storesToRestore.entrySet().stream()
+          .map(entry -> CompletableFuture.runAsync(
+              () -> restoreStore(entry.getKey(), entry.getValue().endingOffset), restoreExecutor))
+          .toArray(CompletableFuture[]::new));
+    }
     return CompletableFuture.runAsync(() -> {
-      Map<String, RestoreOffsets> storesToRestore = storeActions.storesToRestore;
-
       for (Map.Entry<String, RestoreOffsets> entry : storesToRestore.entrySet()) {
-        String storeName = entry.getKey();
-        String endOffset = entry.getValue().endingOffset;
-        SystemStream systemStream = storeChangelogs.get(storeName);
-        SystemAdmin systemAdmin = systemAdmins.getSystemAdmin(systemStream.getSystem());
-        SystemConsumer systemConsumer = storeConsumers.get(storeName);
-        SystemStreamPartition changelogSSP = new SystemStreamPartition(systemStream, taskModel.getChangelogPartition());
-
-        ChangelogSSPIterator changelogSSPIterator =
-            new ChangelogSSPIterator(systemConsumer, changelogSSP, endOffset, systemAdmin, true,
-                currentChangelogOffsets.get(changelogSSP).getNewestOffset());
-        StorageEngine taskStore = storeEngines.get(storeName);
-
-        LOG.info("Restoring store: {} for task: {}", storeName, taskModel.getTaskName());
-        try {
-          taskStore.restore(changelogSSPIterator);
-        } catch (InterruptedException e) {
-          String msg = String.format("Interrupted while restoring store: %s for task: %s",
-              storeName, taskModel.getTaskName().getTaskName());
-          throw new SamzaException(msg, e); // wrap in unchecked exception to throw from lambda
-        }
+        restoreStore(entry.getKey(), entry.getValue().endingOffset);
       }
     }, restoreExecutor);
   }
 
+  private void restoreStore(String storeName, String endOffset) {
+    SystemStream systemStream = storeChangelogs.get(storeName);
+    SystemAdmin systemAdmin = systemAdmins.getSystemAdmin(systemStream.getSystem());
+    SystemConsumer systemConsumer = storeConsumers.get(storeName);
+    SystemStreamPartition changelogSSP = new SystemStreamPartition(systemStream, taskModel.getChangelogPartition());
+
+    ChangelogSSPIterator changelogSSPIterator =
+        new ChangelogSSPIterator(systemConsumer, changelogSSP, endOffset, systemAdmin, true,
+            currentChangelogOffsets.get(changelogSSP).getNewestOffset());
+    PrefetchingChangelogSSPIterator prefetchingIterator = null;
+    if (restorePrefetchMaxMessages > 0) {
+      prefetchingIterator = new PrefetchingChangelogSSPIterator(changelogSSPIterator, changelogSSP,
+          restorePrefetchMaxMessages, taskModel.getTaskName().getTaskName() + "-" + storeName);
+      changelogSSPIterator = prefetchingIterator;
+    }
+    StorageEngine taskStore = storeEngines.get(storeName);
+
+    LOG.info("Restoring store: {} for task: {}", storeName, taskModel.getTaskName());
+    try {
+      taskStore.restore(changelogSSPIterator);
+    } catch (InterruptedException e) {
+      String msg = String.format("Interrupted while restoring store: %s for task: %s",
+          storeName, taskModel.getTaskName().getTaskName());
+      throw new SamzaException(msg, e); // wrap in unchecked exception to throw from lambda
+    } finally {
+      if (prefetchingIterator != null) {
+        prefetchingIterator.close();
+      }
+    }
+  }
+
   /**
    * Stop only persistent stores. In case of certain stores and store mode (such as RocksDB), this
    * can invoke compaction. Persisted stores are recreated in read-write mode in {@link ContainerStorageManager}.
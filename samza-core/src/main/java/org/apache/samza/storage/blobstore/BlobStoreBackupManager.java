@@ -168,6 +168,8 @@ public class BlobStoreBackupManager implements TaskBackupManager {
     metrics.bytesRemaining.getValue().set(0L);
     metrics.filesToRetain.getValue().set(0L);
     metrics.bytesToRetain.getValue().set(0L);
+    metrics.filesDeduplicated.getValue().set(0L);
+    metrics.bytesDeduplicated.getValue().set(0L);
 
     // This map is used to atomically replace the prevStoreSnapshotIndexesFuture map at the end of the task commit
     Map<String, CompletableFuture<Pair<String, SnapshotIndex>>>
@@ -208,6 +210,14 @@ public class BlobStoreBackupManager implements TaskBackupManager {
         long dirDiffStartTime = System.nanoTime();
         // get the diff between previous and current store directories
         DirDiff dirDiff = DirDiffUtil.getDirDiff(checkpointDir, prevDirIndex, DirDiffUtil.areSameFile(false, true));
+        if (blobStoreConfig.getDedupEnabled()) {
+          // reference the blobs of identical files in the previous snapshot instead of uploading them again
+          DirDiff.Stats statsBeforeDedup = DirDiff.getStats(dirDiff);
+          dirDiff = DirDiffUtil.dedupDirDiff(dirDiff, prevDirIndex);
+          DirDiff.Stats statsAfterDedup = DirDiff.getStats(dirDiff);
+          metrics.filesDeduplicated.getValue().addAndGet(statsBeforeDedup.filesAdded - statsAfterDedup.filesAdded);
+          metrics.bytesDeduplicated.getValue().addAndGet(statsBeforeDedup.bytesAdded - statsAfterDedup.bytesAdded);
+        }
         metrics.storeDirDiffNs.get(storeName).update(System.nanoTime() - dirDiffStartTime);
 
         DirDiff.Stats stats = DirDiff.getStats(dirDiff);
@@ -35,23 +35,37 @@ public class FileBlob {
    * Offset of this blob in the file. A file can be uploaded multiple chunks, and can have
    * multiple blobs associated with it. Each blob then has its own ID and an offset in the file.
    */
-  private final int offset;
+  private final long offset;
+  /**
+   * Compression of the contents of this blob. Offset is the offset of the uncompressed contents in the file.
+   */
+  private final CompressionType compression;
+
+  public FileBlob(String blobId, long offset) {
+    this(blobId, offset, CompressionType.NONE);
+  }
 
-  public FileBlob(String blobId, int offset) {
+  public FileBlob(String blobId, long offset, CompressionType compression) {
     Preconditions.checkState(StringUtils.isNotBlank(blobId));
     Preconditions.checkState(offset >= 0);
     this.blobId = blobId;
     this.offset = offset;
+    // blobs in snapshots created before compression was supported are not compressed
+    this.compression = compression == null ? CompressionType.NONE : compression;
   }
 
   public String getBlobId() {
     return blobId;
   }
 
-  public int getOffset() {
+  public long getOffset() {
     return offset;
   }
 
+  public CompressionType getCompression() {
+    return compression;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -67,6 +81,7 @@ public class FileBlob {
     return new EqualsBuilder()
         .append(blobId, fileBlob.blobId)
         .append(offset, fileBlob.offset)
+        .append(compression, fileBlob.compression)
         .isEquals();
   }
 
@@ -75,11 +90,12 @@ public class FileBlob {
     return new HashCodeBuilder(17, 37)
         .append(blobId)
         .append(offset)
+        .append(compression)
         .toHashCode();
   }
 
   @Override
   public String toString() {
-    return "FileBlob{" + "blobId='" + blobId + '\'' + ", offset=" + offset + '}';
+    return "FileBlob{" + "blobId='" + blobId + '\'' + ", offset=" + offset + ", compression=" + compression + '}';
   }
 }
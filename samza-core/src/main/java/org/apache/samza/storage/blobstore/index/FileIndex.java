@@ -30,6 +30,17 @@ import org.apache.commons.lang3.builder.HashCodeBuilder;
  * Representation of a file in blob store
  */
 public class FileIndex {
+  /**
+   * Version of files indexed before the version was recorded. The checksum is a CRC32 checksum and blobs are
+   * not compressed.
+   */
+  public static final int VERSION_CRC32 = 0;
+  /**
+   * The checksum is a CRC32C checksum, and blobs may be compressed as described by {@link FileBlob#getCompression()}.
+   */
+  public static final int VERSION_CRC32C = 1;
+  public static final int LATEST_VERSION = VERSION_CRC32C;
+
   private final String fileName;
   /**
    * Chunks of file uploaded to blob store as {@link FileBlob}s
@@ -43,9 +54,17 @@ public class FileIndex {
    * Checksum of the file for verifying integrity.
    */
   private final long checksum;
-
+  /**
+   * Version of the index, which determines the checksum algorithm and whether blobs can be compressed.
+   * Snapshots created before the version was recorded have version {@link #VERSION_CRC32}.
+   */
+  private final int version;
 
   public FileIndex(String fileName, List<FileBlob> fileBlobs, FileMetadata fileMetadata, long checksum) {
+    this(fileName, fileBlobs, fileMetadata, checksum, VERSION_CRC32);
+  }
+
+  public FileIndex(String fileName, List<FileBlob> fileBlobs, FileMetadata fileMetadata, long checksum, int version) {
     Preconditions.checkState(StringUtils.isNotBlank(fileName));
     Preconditions.checkNotNull(fileBlobs);
     // fileBlobs can be empty list for a file of size 0 bytes.
@@ -54,6 +73,9 @@ public class FileIndex {
     this.fileBlobs = fileBlobs;
     this.fileMetadata = fileMetadata;
     this.checksum = checksum;
+    Preconditions.checkState(version >= VERSION_CRC32 && version <= LATEST_VERSION,
+        "Unsupported version: %s for file: %s", version, fileName);
+    this.version = version;
   }
 
   public String getFileName() {
@@ -72,6 +94,10 @@ public class FileIndex {
     return checksum;
   }
 
+  public int getVersion() {
+    return version;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -89,6 +115,7 @@ public class FileIndex {
         .append(getBlobs(), that.getBlobs())
         .append(fileMetadata, that.fileMetadata)
         .append(getChecksum(), that.getChecksum())
+        .append(getVersion(), that.getVersion())
         .isEquals();
   }
 
@@ -99,6 +126,7 @@ public class FileIndex {
         .append(getBlobs())
         .append(fileMetadata)
         .append(getChecksum())
+        .append(getVersion())
         .toHashCode();
   }
 
@@ -109,6 +137,7 @@ public class FileIndex {
         ", fileBlobs=" + fileBlobs +
         ", fileMetadata=" + fileMetadata +
         ", checksum='" + checksum + '\'' +
+        ", version=" + version +
         '}';
   }
 }
\ No newline at end of file
@@ -22,6 +22,7 @@ package org.apache.samza.storage.blobstore.index.serde;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.samza.storage.blobstore.index.CompressionType;
 
 
 /**
@@ -30,12 +31,16 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 @JsonIgnoreProperties(ignoreUnknown = true)
 public abstract class JsonFileBlobMixin {
   @JsonCreator
-  public JsonFileBlobMixin(@JsonProperty("blob-id") String blobId, @JsonProperty("offset") int offset) {
+  public JsonFileBlobMixin(@JsonProperty("blob-id") String blobId, @JsonProperty("offset") long offset,
+      @JsonProperty("compression") CompressionType compression) {
   }
 
   @JsonProperty("blob-id")
   abstract String getBlobId();
 
   @JsonProperty("offset")
-  abstract int getOffset();
+  abstract long getOffset();
+
+  @JsonProperty("compression")
+  abstract CompressionType getCompression();
 }
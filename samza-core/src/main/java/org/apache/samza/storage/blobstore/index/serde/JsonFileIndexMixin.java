@@ -35,7 +35,7 @@ public abstract class JsonFileIndexMixin {
   @JsonCreator
   public JsonFileIndexMixin(@JsonProperty("file-name") String fileName,
       @JsonProperty("blobs") List<FileBlob> blobs, @JsonProperty("file-metadata") FileMetadata fileMetadata,
-      @JsonProperty("checksum") long checksum) {
+      @JsonProperty("checksum") long checksum, @JsonProperty("version") int version) {
 
   }
 
@@ -50,4 +50,7 @@ public abstract class JsonFileIndexMixin {
 
   @JsonProperty("checksum")
   abstract long getChecksum();
+
+  @JsonProperty("version")
+  abstract int getVersion();
 }
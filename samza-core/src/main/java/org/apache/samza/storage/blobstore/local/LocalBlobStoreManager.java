@@ -0,0 +1,351 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.storage.blobstore.local;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteStreams;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.samza.SamzaException;
+import org.apache.samza.storage.blobstore.BlobStoreManager;
+import org.apache.samza.storage.blobstore.Metadata;
+import org.apache.samza.storage.blobstore.exceptions.DeletedException;
+import org.apache.samza.storage.blobstore.exceptions.RetriableException;
+import org.apache.samza.util.Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * A {@link BlobStoreManager} that keeps blobs as files in a local or network mounted (e.g. NFS) directory.
+ *
+ * Blobs are stored at {@code <base dir>/<job name>/<job id>/<task name>/<store name>/<uuid>}. The blob id is the path
+ * of the blob relative to the base dir, so that the directory may be mounted at different paths on different hosts.
+ *
+ * A PUT of a local file that is not transformed on its way to the blob store, i.e. one whose payload path is the
+ * absolute path of a file of the payload size, hard links the file into the blob store directory if both are on the
+ * same file system, and copies it with {@link FileChannel#transferTo} otherwise. The input stream is still read in its
+ * entirety, since callers may compute a checksum of the file while it is read. Hard links are safe for the files of
+ * store checkpoints, which are never modified after they are created. A GET into a {@link FileOutputStream} uses
+ * {@link FileChannel#transferTo} as well.
+ *
+ * TTLs are emulated with an {@code .expires} file next to the blob that contains the time the blob expires at. It is
+ * created on PUT and deleted when the TTL of the blob is removed. Deleted blobs are renamed with a {@code .deleted}
+ * suffix and expire after the TTL too, so that they may still be read with {@code getDeletedBlob} set until then.
+ * Expired blobs are treated as deleted, and are compacted during {@link #init()}.
+ */
+public class LocalBlobStoreManager implements BlobStoreManager {
+  private static final Logger LOG = LoggerFactory.getLogger(LocalBlobStoreManager.class);
+  static final String EXPIRES_SUFFIX = ".expires";
+  static final String DELETED_SUFFIX = ".deleted";
+  private static final String TMP_SUFFIX = ".tmp";
+
+  private final Path baseDir;
+  private final Path jobDir;
+  private final long ttlMs;
+  private final boolean hardLinksEnabled;
+  private final ExecutorService executor;
+  private final Clock clock;
+
+  public LocalBlobStoreManager(Path baseDir, String jobName, String jobId, long ttlMs, boolean hardLinksEnabled,
+      ExecutorService executor, Clock clock) {
+    Preconditions.checkArgument(ttlMs > 0, "TTL must be positive, was: %s", ttlMs);
+    this.baseDir = baseDir.toAbsolutePath().normalize();
+    this.jobDir = this.baseDir.resolve(jobName).resolve(jobId);
+    this.ttlMs = ttlMs;
+    this.hardLinksEnabled = hardLinksEnabled;
+    this.executor = executor;
+    this.clock = clock;
+  }
+
+  @Override
+  public void init() {
+    try {
+      Files.createDirectories(jobDir);
+    } catch (IOException e) {
+      throw new SamzaException(String.format("Error creating blob store dir: %s", jobDir), e);
+    }
+
+    try {
+      compactExpiredBlobs();
+    } catch (IOException | UncheckedIOException e) {
+      // expired blobs will be compacted during the next init.
+      LOG.warn("Error compacting expired blobs in blob store dir: {}", jobDir, e);
+    }
+  }
+
+  @Override
+  public CompletionStage<String> put(InputStream inputStream, Metadata metadata) {
+    return CompletableFuture.supplyAsync(() -> {
+      Path blobPath = jobDir.resolve(metadata.getTaskName()).resolve(metadata.getStoreName())
+          .resolve(UUID.randomUUID().toString());
+      Path tmpPath = withSuffix(blobPath, TMP_SUFFIX);
+      try {
+        Files.createDirectories(blobPath.getParent());
+        // set the TTL before the blob is created, so that the blob expires even if the put fails midway.
+        setExpiry(blobPath, clock.currentTimeMillis() + ttlMs);
+        if (!linkOrTransferPayloadFile(inputStream, metadata, tmpPath)) {
+          copy(inputStream, tmpPath);
+        }
+        Files.move(tmpPath, blobPath, StandardCopyOption.ATOMIC_MOVE);
+      } catch (IOException e) {
+        throw new RetriableException(String.format("Error putting blob for payload: %s", metadata.getPayloadPath()), e);
+      }
+
+      String blobId = baseDir.relativize(blobPath).toString();
+      LOG.debug("Put blob id: {} for payload: {}", blobId, metadata.getPayloadPath());
+      return blobId;
+    }, executor);
+  }
+
+  @Override
+  public CompletionStage<Void> get(String id, OutputStream outputStream, Metadata metadata, boolean getDeletedBlob) {
+    return CompletableFuture.runAsync(() -> {
+      Path blobPath = getBlobPath(id);
+      try {
+        Path pathToRead = blobPath;
+        if (!Files.exists(blobPath) || isExpired(blobPath, clock.currentTimeMillis())) {
+          if (!getDeletedBlob) {
+            throw new DeletedException(String.format("Blob id: %s is deleted. GetDeletedBlob was set to false.", id));
+          }
+          pathToRead = Files.exists(blobPath) ? blobPath : withSuffix(blobPath, DELETED_SUFFIX);
+        }
+
+        try (FileChannel source = FileChannel.open(pathToRead, StandardOpenOption.READ)) {
+          if (outputStream instanceof FileOutputStream) {
+            transfer(source, 0, source.size(), ((FileOutputStream) outputStream).getChannel());
+          } else {
+            ByteStreams.copy(Channels.newInputStream(source), outputStream);
+          }
+        }
+        outputStream.flush();
+      } catch (NoSuchFileException e) {
+        throw new DeletedException(String.format("Blob id: %s was not found.", id), e);
+      } catch (IOException e) {
+        throw new RetriableException(String.format("Error getting blob id: %s", id), e);
+      }
+    }, executor);
+  }
+
+  @Override
+  public CompletionStage<Void> delete(String id, Metadata metadata) {
+    return CompletableFuture.runAsync(() -> {
+      Path blobPath = getBlobPath(id);
+      try {
+        if (!Files.exists(blobPath)) {
+          throw new DeletedException(String.format("Blob id: %s is already deleted.", id));
+        }
+        // deleted blobs may be read with getDeletedBlob until they expire
+        setExpiry(blobPath, clock.currentTimeMillis() + ttlMs);
+        Files.move(blobPath, withSuffix(blobPath, DELETED_SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+        LOG.debug("Deleted blob id: {}", id);
+      } catch (NoSuchFileException e) {
+        throw new DeletedException(String.format("Blob id: %s is already deleted.", id), e);
+      } catch (IOException e) {
+        throw new RetriableException(String.format("Error deleting blob id: %s", id), e);
+      }
+    }, executor);
+  }
+
+  @Override
+  public CompletionStage<Void> removeTTL(String blobId, Metadata metadata) {
+    return CompletableFuture.runAsync(() -> {
+      Path blobPath = getBlobPath(blobId);
+      try {
+        if (!Files.exists(blobPath) || isExpired(blobPath, clock.currentTimeMillis())) {
+          throw new DeletedException(String.format("Blob id: %s is deleted.", blobId));
+        }
+        Files.deleteIfExists(withSuffix(blobPath, EXPIRES_SUFFIX));
+      } catch (IOException e) {
+        throw new RetriableException(String.format("Error removing TTL for blob id: %s", blobId), e);
+      }
+    }, executor);
+  }
+
+  @Override
+  public void close() {
+  }
+
+  @VisibleForTesting
+  Path getBlobPath(String id) {
+    Path blobPath;
+    try {
+      blobPath = baseDir.resolve(id).normalize();
+    } catch (InvalidPathException e) {
+      throw new IllegalArgumentException(String.format("Invalid blob id: %s", id), e);
+    }
+    Preconditions.checkArgument(blobPath.startsWith(baseDir) && !blobPath.equals(baseDir),
+        "Blob id: %s is not in blob store dir: %s", id, baseDir);
+    return blobPath;
+  }
+
+  /**
+   * Hard links or transfers the payload file to {@code tmpPath} if the input stream contains the payload file as is.
+   * @return true if the payload file was linked or transferred, false if the input stream needs to be copied instead.
+   */
+  private boolean linkOrTransferPayloadFile(InputStream inputStream, Metadata metadata, Path tmpPath)
+      throws IOException {
+    Path payloadPath = getPayloadFile(metadata);
+    if (payloadPath == null) {
+      return false;
+    }
+
+    // the caller may compute a checksum of the payload while the stream is read, so it must still be read entirely.
+    long bytesRead = ByteStreams.exhaust(inputStream);
+    if (bytesRead != metadata.getPayloadSize()) {
+      throw new IOException(String.format("Read %s bytes for payload: %s of size: %s",
+          bytesRead, payloadPath, metadata.getPayloadSize()));
+    }
+
+    try {
+      Files.createLink(tmpPath, payloadPath);
+      return true;
+    } catch (FileSystemException | UnsupportedOperationException e) {
+      LOG.debug("Could not hard link payload: {}. Transferring it instead.", payloadPath, e);
+    }
+
+    try (FileChannel source = FileChannel.open(payloadPath, StandardOpenOption.READ);
+        FileChannel target = FileChannel.open(tmpPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+      transfer(source, 0, source.size(), target);
+    }
+    return true;
+  }
+
+  /**
+   * Returns the local file the payload of the request is read from, if it may be linked or transferred directly.
+   */
+  private Path getPayloadFile(Metadata metadata) throws IOException {
+    if (!hardLinksEnabled || metadata.getPayloadSize() < 0) {
+      // payloads of unknown size, e.g. compressed files, differ from the file they are read from.
+      return null;
+    }
+
+    Path payloadPath;
+    try {
+      payloadPath = Paths.get(metadata.getPayloadPath());
+    } catch (InvalidPathException e) {
+      return null;
+    }
+
+    // chunks of a file have a smaller payload size than the file
+    if (payloadPath.isAbsolute() && Files.isRegularFile(payloadPath, LinkOption.NOFOLLOW_LINKS)
+        && Files.size(payloadPath) == metadata.getPayloadSize()) {
+      return payloadPath;
+    }
+    return null;
+  }
+
+  private static void copy(InputStream inputStream, Path target) throws IOException {
+    if (inputStream instanceof FileInputStream) {
+      FileChannel source = ((FileInputStream) inputStream).getChannel();
+      try (FileChannel targetChannel =
+          FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+        long position = source.position();
+        transfer(source, position, source.size() - position, targetChannel);
+        source.position(source.size());
+      }
+    } else {
+      Files.copy(inputStream, target);
+    }
+  }
+
+  private static void transfer(FileChannel source, long position, long count, WritableByteChannel target)
+      throws IOException {
+    long transferred = 0;
+    while (transferred < count) {
+      long bytes = source.transferTo(position + transferred, count - transferred, target);
+      if (bytes <= 0 && position + transferred >= source.size()) {
+        throw new EOFException(String.format("Expected %s bytes but only %s were available", count, transferred));
+      }
+      transferred += bytes;
+    }
+  }
+
+  private void compactExpiredBlobs() throws IOException {
+    List<Path> expiresFiles;
+    try (Stream<Path> paths = Files.walk(jobDir)) {
+      expiresFiles = paths.filter(path -> path.getFileName().toString().endsWith(EXPIRES_SUFFIX))
+          .collect(Collectors.toList());
+    }
+
+    long now = clock.currentTimeMillis();
+    int blobsCompacted = 0;
+    for (Path expiresFile: expiresFiles) {
+      String expiresFileName = expiresFile.getFileName().toString();
+      Path blobPath = expiresFile.resolveSibling(
+          expiresFileName.substring(0, expiresFileName.length() - EXPIRES_SUFFIX.length()));
+      if (isExpired(blobPath, now)) {
+        Files.deleteIfExists(blobPath);
+        Files.deleteIfExists(withSuffix(blobPath, DELETED_SUFFIX));
+        Files.deleteIfExists(withSuffix(blobPath, TMP_SUFFIX));
+        Files.deleteIfExists(expiresFile);
+        blobsCompacted++;
+      }
+    }
+    LOG.info("Compacted {} expired blobs in blob store dir: {}", blobsCompacted, jobDir);
+  }
+
+  private static boolean isExpired(Path blobPath, long now) throws IOException {
+    try {
+      byte[] expiry = Files.readAllBytes(withSuffix(blobPath, EXPIRES_SUFFIX));
+      return Long.parseLong(new String(expiry, StandardCharsets.UTF_8).trim()) <= now;
+    } catch (NoSuchFileException e) {
+      // the TTL of the blob was removed
+      return false;
+    }
+  }
+
+  private static void setExpiry(Path blobPath, long expiryMillis) throws IOException {
+    Path expiresPath = withSuffix(blobPath, EXPIRES_SUFFIX);
+    Path tmpPath = withSuffix(expiresPath, TMP_SUFFIX);
+    Files.write(tmpPath, Long.toString(expiryMillis).getBytes(StandardCharsets.UTF_8));
+    Files.move(tmpPath, expiresPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private static Path withSuffix(Path path, String suffix) {
+    return path.resolveSibling(path.getFileName().toString() + suffix);
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.storage.blobstore.local;
+
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import org.apache.samza.config.BlobStoreConfig;
+import org.apache.samza.config.Config;
+import org.apache.samza.config.JobConfig;
+import org.apache.samza.storage.blobstore.BlobStoreManager;
+import org.apache.samza.storage.blobstore.BlobStoreManagerFactory;
+import org.apache.samza.util.SystemClock;
+
+
+/**
+ * Factory for {@link LocalBlobStoreManager}s, which keep blobs in the directory configured with
+ * {@link BlobStoreConfig#LOCAL_BASE_DIR}.
+ */
+public class LocalBlobStoreManagerFactory implements BlobStoreManagerFactory {
+  @Override
+  public BlobStoreManager getBackupBlobStoreManager(Config config, ExecutorService backupExecutor) {
+    return createBlobStoreManager(config, backupExecutor);
+  }
+
+  @Override
+  public BlobStoreManager getRestoreBlobStoreManager(Config config, ExecutorService restoreExecutor) {
+    return createBlobStoreManager(config, restoreExecutor);
+  }
+
+  private static BlobStoreManager createBlobStoreManager(Config config, ExecutorService executor) {
+    BlobStoreConfig blobStoreConfig = new BlobStoreConfig(config);
+    JobConfig jobConfig = new JobConfig(config);
+    return new LocalBlobStoreManager(Paths.get(blobStoreConfig.getLocalBaseDir()), jobConfig.getName().get(),
+        jobConfig.getJobId(), blobStoreConfig.getLocalTtlMs(), blobStoreConfig.getLocalHardLinksEnabled(), executor,
+        SystemClock.instance());
+  }
+}
@@ -69,6 +69,14 @@ public class BlobStoreBackupManagerMetrics {
   public final Timer avgFileUploadNs; // avg time for each file uploaded
   public final Timer avgFileSizeBytes; // avg size of each file uploaded
 
+  // bytes not uploaded because of compression, and the time spent compressing each compressed blob
+  public final Gauge<AtomicLong> bytesSavedByCompression;
+  public final Timer avgBlobCompressionNs;
+
+  // files and bytes not uploaded because an identical file was already present in the previous snapshot
+  public final Gauge<AtomicLong> filesDeduplicated;
+  public final Gauge<AtomicLong> bytesDeduplicated;
+
   public BlobStoreBackupManagerMetrics(MetricsRegistry metricsRegistry) {
     this.metricsRegistry = metricsRegistry;
 
@@ -104,6 +112,12 @@ public class BlobStoreBackupManagerMetrics {
 
     this.avgFileUploadNs = metricsRegistry.newTimer(GROUP,  "avg-file-upload-ns");
     this.avgFileSizeBytes = metricsRegistry.newTimer(GROUP, "avg-file-size-bytes");
+
+    this.bytesSavedByCompression = metricsRegistry.newGauge(GROUP, "bytes-saved-by-compression", new AtomicLong(0L));
+    this.avgBlobCompressionNs = metricsRegistry.newTimer(GROUP, "avg-blob-compression-ns");
+
+    this.filesDeduplicated = metricsRegistry.newGauge(GROUP, "files-deduplicated", new AtomicLong(0L));
+    this.bytesDeduplicated = metricsRegistry.newGauge(GROUP, "bytes-deduplicated", new AtomicLong(0L));
   }
 
   public void initStoreMetrics(Collection<String> storeNames) {
@@ -22,6 +22,7 @@ package org.apache.samza.storage.blobstore.util;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
@@ -29,11 +30,14 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -46,7 +50,6 @@ import java.util.concurrent.ExecutorService;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
-import java.util.zip.CRC32;
 import java.util.zip.CheckedInputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
@@ -54,12 +57,14 @@ import org.apache.samza.SamzaException;
 import org.apache.samza.checkpoint.Checkpoint;
 import org.apache.samza.checkpoint.CheckpointV2;
 import org.apache.samza.config.BlobStoreConfig;
+import org.apache.samza.config.ConfigException;
 import org.apache.samza.storage.blobstore.BlobStoreManager;
 import org.apache.samza.storage.blobstore.BlobStoreStateBackendFactory;
 import org.apache.samza.storage.blobstore.Metadata;
 import org.apache.samza.storage.blobstore.diff.DirDiff;
 import org.apache.samza.storage.blobstore.exceptions.DeletedException;
 import org.apache.samza.storage.blobstore.exceptions.RetriableException;
+import org.apache.samza.storage.blobstore.index.CompressionType;
 import org.apache.samza.storage.blobstore.index.DirIndex;
 import org.apache.samza.storage.blobstore.index.FileBlob;
 import org.apache.samza.storage.blobstore.index.FileIndex;
@@ -69,6 +74,8 @@ import org.apache.samza.storage.blobstore.index.SnapshotMetadata;
 import org.apache.samza.storage.blobstore.index.serde.SnapshotIndexSerde;
 import org.apache.samza.storage.blobstore.metrics.BlobStoreBackupManagerMetrics;
 import org.apache.samza.storage.blobstore.metrics.BlobStoreRestoreManagerMetrics;
+import org.apache.samza.storage.blobstore.util.CompressionUtil.CompressingInputStream;
+import org.apache.samza.storage.blobstore.util.CompressionUtil.DecompressingOutputStream;
 import org.apache.samza.util.FutureUtil;
 import org.apache.samza.util.RetryPolicyConfig;
 import org.slf4j.Logger;
@@ -89,6 +96,9 @@ public class BlobStoreUtil {
   private final BlobStoreRestoreManagerMetrics restoreMetrics;
   private final SnapshotIndexSerde snapshotIndexSerde;
   private final RetryPolicyConfig retryPolicyConfig;
+  private final int fileIndexVersion;
+  private final CompressionType compressionType;
+  private final boolean compressSstFiles;
 
   public BlobStoreUtil(BlobStoreManager blobStoreManager, ExecutorService executor, BlobStoreConfig blobStoreConfig,
       BlobStoreBackupManagerMetrics backupMetrics, BlobStoreRestoreManagerMetrics restoreMetrics) {
@@ -99,6 +109,14 @@ public class BlobStoreUtil {
     this.restoreMetrics = restoreMetrics;
     this.snapshotIndexSerde = new SnapshotIndexSerde();
     this.retryPolicyConfig = this.blobStoreConfig.getRetryPolicyConfig();
+    this.fileIndexVersion =
+        blobStoreConfig.getChecksumCrc32cEnabled() ? FileIndex.VERSION_CRC32C : FileIndex.VERSION_CRC32;
+    this.compressionType = CompressionType.valueOf(blobStoreConfig.getCompressionType().toUpperCase());
+    this.compressSstFiles = blobStoreConfig.getCompressionSstFilesEnabled();
+    if (compressionType != CompressionType.NONE && fileIndexVersion == FileIndex.VERSION_CRC32) {
+      throw new ConfigException(String.format("%s requires %s to be enabled.", BlobStoreConfig.COMPRESSION_TYPE,
+          BlobStoreConfig.CHECKSUM_CRC32C_ENABLED));
+    }
   }
 
   /**
@@ -450,36 +468,37 @@ public class BlobStoreUtil {
         Files.delete(fileToRestore.toPath());
       }
 
-      outputStream = new FileOutputStream(fileToRestore);
-      final FileOutputStream finalOutputStream = outputStream;
-      // TODO HIGH shesharm add integration tests to ensure empty files and directories are handled correctly E2E.
-      fileToRestore.createNewFile(); // create file for 0 byte files (fileIndex entry but no fileBlobs).
-      // create a copy to ensure list being sorted is mutable.
-      List<FileBlob> fileBlobsCopy = new ArrayList<>(fileBlobs);
-      fileBlobsCopy.sort(Comparator.comparingInt(FileBlob::getOffset)); // sort by offset.
-
-      // chain the futures such that write to file for blobs is sequential.
-      // can be optimized to write concurrently to the file later.
-      CompletableFuture<Void> resultFuture = CompletableFuture.completedFuture(null);
-      for (FileBlob fileBlob : fileBlobsCopy) {
-        resultFuture = resultFuture.thenComposeAsync(v -> {
-          LOG.debug("Starting restore for file: {} with blob id: {} at offset: {} with getDeleted set to: {}",
-              fileToRestore, fileBlob.getBlobId(), fileBlob.getOffset(), getDeleted);
-          return blobStoreManager.get(fileBlob.getBlobId(), finalOutputStream, requestMetadata, getDeleted);
+      CompletableFuture<Void> resultFuture;
+      if (fileBlobs.size() > 1) {
+        // blobs of a chunked file are downloaded concurrently and written at their offsets in the file.
+        resultFuture = getFileChunks(fileBlobs, fileToRestore, requestMetadata, getDeleted);
+      } else {
+        outputStream = new FileOutputStream(fileToRestore);
+        final FileOutputStream finalOutputStream = outputStream;
+        // TODO HIGH shesharm add integration tests to ensure empty files and directories are handled correctly E2E.
+        fileToRestore.createNewFile(); // create file for 0 byte files (fileIndex entry but no fileBlobs).
+
+        resultFuture = CompletableFuture.completedFuture(null);
+        for (FileBlob fileBlob : fileBlobs) {
+          resultFuture = resultFuture.thenComposeAsync(v -> {
+            LOG.debug("Starting restore for file: {} with blob id: {} at offset: {} with getDeleted set to: {}",
+                fileToRestore, fileBlob.getBlobId(), fileBlob.getOffset(), getDeleted);
+            return getBlob(fileBlob, finalOutputStream, requestMetadata, getDeleted);
+          }, executor);
+        }
+
+        resultFuture = resultFuture.thenRunAsync(() -> {
+          LOG.debug("Finished restore for file: {}. Closing output stream.", fileToRestore);
+          try {
+            // flush the file contents to disk
+            finalOutputStream.getFD().sync();
+            finalOutputStream.close();
+          } catch (Exception e) {
+            throw new SamzaException(String.format("Error closing output stream for file: %s", fileToRestore.getAbsolutePath()), e);
+          }
         }, executor);
       }
 
-      resultFuture = resultFuture.thenRunAsync(() -> {
-        LOG.debug("Finished restore for file: {}. Closing output stream.", fileToRestore);
-        try {
-          // flush the file contents to disk
-          finalOutputStream.getFD().sync();
-          finalOutputStream.close();
-        } catch (Exception e) {
-          throw new SamzaException(String.format("Error closing output stream for file: %s", fileToRestore.getAbsolutePath()), e);
-        }
-      }, executor);
-
       resultFuture.whenComplete((res, ex) -> {
         if (restoreMetrics != null) {
           restoreMetrics.avgFileRestoreNs.update(System.nanoTime() - restoreFileStartTime);
@@ -507,6 +526,70 @@ public class BlobStoreUtil {
     }
   }
 
+  /**
+   * Downloads the blobs of a file that was uploaded in multiple chunks concurrently. Each blob is written to the file
+   * starting at its offset using positional writes, so chunks can be written in any order and a retried chunk download
+   * overwrites the same range of the file.
+   */
+  private CompletableFuture<Void> getFileChunks(List<FileBlob> fileBlobs, File fileToRestore, Metadata requestMetadata,
+      boolean getDeleted) throws IOException {
+    FileChannel fileChannel =
+        FileChannel.open(fileToRestore.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+
+    List<CompletableFuture<Void>> chunkFutures = new ArrayList<>();
+    for (FileBlob fileBlob : fileBlobs) {
+      String opName = "restoreFileChunk: " + fileToRestore.getAbsolutePath() + " blobId: " + fileBlob.getBlobId();
+      Supplier<CompletionStage<Void>> chunkRestoreAction = () -> {
+        LOG.debug("Starting restore for file: {} with blob id: {} at offset: {} with getDeleted set to: {}",
+            fileToRestore, fileBlob.getBlobId(), fileBlob.getOffset(), getDeleted);
+        return getBlob(fileBlob, new PositionalOutputStream(fileChannel, fileBlob.getOffset()), requestMetadata,
+            getDeleted);
+      };
+      chunkFutures.add(
+          FutureUtil.executeAsyncWithRetries(opName, chunkRestoreAction, isCauseNonRetriable(), executor, retryPolicyConfig));
+    }
+
+    return FutureUtil.allOf(chunkFutures).handleAsync((res, ex) -> {
+      LOG.debug("Finished restore for file: {}. Closing file channel.", fileToRestore);
+      try {
+        if (ex == null) {
+          // flush the file contents to disk
+          fileChannel.force(true);
+        }
+        fileChannel.close();
+      } catch (Exception e) {
+        throw new SamzaException(String.format("Error closing file channel for file: %s", fileToRestore.getAbsolutePath()), e);
+      }
+
+      if (ex != null) {
+        throw ex instanceof CompletionException ? (CompletionException) ex : new CompletionException(ex);
+      }
+      return null;
+    }, executor);
+  }
+
+  /**
+   * Downloads a blob to the output stream, decompressing its contents if the blob is compressed.
+   */
+  private CompletionStage<Void> getBlob(FileBlob fileBlob, OutputStream outputStream, Metadata requestMetadata,
+      boolean getDeleted) {
+    if (fileBlob.getCompression() == CompressionType.NONE) {
+      return blobStoreManager.get(fileBlob.getBlobId(), outputStream, requestMetadata, getDeleted);
+    }
+
+    DecompressingOutputStream decompressingOutputStream =
+        CompressionUtil.decompressingOutputStream(outputStream, fileBlob.getCompression());
+    return blobStoreManager.get(fileBlob.getBlobId(), decompressingOutputStream, requestMetadata, getDeleted)
+        .thenRun(() -> {
+          try {
+            decompressingOutputStream.finish();
+          } catch (IOException e) {
+            throw new SamzaException(String.format("Error decompressing blob id: %s for file: %s",
+                fileBlob.getBlobId(), requestMetadata.getPayloadPath()), e);
+          }
+        });
+  }
+
   /**
    * Upload a File to blob store.
    * @param file File to upload to blob store.
@@ -520,22 +603,51 @@ public class BlobStoreUtil {
     }
     long putFileStartTime = System.nanoTime();
 
+    CompletableFuture<FileIndex> fileIndexFuture;
+    long chunkSizeBytes = blobStoreConfig.getFileChunkSizeBytes();
+    if (chunkSizeBytes > 0 && file.length() > chunkSizeBytes) {
+      fileIndexFuture = putFileChunks(file, snapshotMetadata, chunkSizeBytes);
+    } else {
+      fileIndexFuture = putFileAsSingleBlob(file, snapshotMetadata);
+    }
+
+    return fileIndexFuture.whenComplete((res, ex) -> {
+      if (backupMetrics != null) {
+        backupMetrics.avgFileUploadNs.update(System.nanoTime() - putFileStartTime);
+
+        long fileSize = file.length();
+        backupMetrics.uploadRate.inc(fileSize);
+        backupMetrics.filesUploaded.getValue().addAndGet(1);
+        backupMetrics.bytesUploaded.getValue().addAndGet(fileSize);
+        backupMetrics.filesRemaining.getValue().addAndGet(-1);
+        backupMetrics.bytesRemaining.getValue().addAndGet(-1 * fileSize);
+      }
+    });
+  }
+
+  private CompletableFuture<FileIndex> putFileAsSingleBlob(File file, SnapshotMetadata snapshotMetadata) {
     String opName = "putFile: " + file.getAbsolutePath();
     Supplier<CompletionStage<FileIndex>> fileUploadAction = () -> {
       LOG.debug("Putting file: {} to blob store.", file.getPath());
       CompletableFuture<FileIndex> fileBlobFuture;
-      CheckedInputStream inputStream = null;
+      InputStream inputStream = null;
       try {
-        // TODO HIGH shesharm maybe use the more efficient CRC32C / PureJavaCRC32 impl
-        inputStream = new CheckedInputStream(new FileInputStream(file), new CRC32());
-        CheckedInputStream finalInputStream = inputStream;
+        CheckedInputStream checkedInputStream =
+            new CheckedInputStream(new FileInputStream(file), ChecksumUtil.newChecksum(fileIndexVersion));
+        CompressionType compression = getCompressionType(file);
+        inputStream = compression == CompressionType.NONE
+            ? checkedInputStream : CompressionUtil.compressingInputStream(checkedInputStream, compression);
+        InputStream finalInputStream = inputStream;
         FileMetadata fileMetadata = FileMetadata.fromFile(file);
         if (backupMetrics != null) {
           backupMetrics.avgFileSizeBytes.update(fileMetadata.getSize());
         }
 
+        // size of compressed blobs is not known in advance
+        Optional<Long> payloadSize =
+            compression == CompressionType.NONE ? Optional.of(fileMetadata.getSize()) : Optional.empty();
         Metadata metadata =
-            new Metadata(file.getAbsolutePath(), Optional.of(fileMetadata.getSize()), snapshotMetadata.getJobName(),
+            new Metadata(file.getAbsolutePath(), payloadSize, snapshotMetadata.getJobName(),
                 snapshotMetadata.getJobId(), snapshotMetadata.getTaskName(), snapshotMetadata.getStoreName());
 
         fileBlobFuture = blobStoreManager.put(inputStream, metadata)
@@ -547,13 +659,15 @@ public class BlobStoreUtil {
                 throw new SamzaException(String.format("Error closing input stream for file: %s",
                     file.getAbsolutePath()), e);
               }
+              updateCompressionMetrics(finalInputStream);
 
               LOG.trace("Returning new FileIndex for file: {}.", file.getPath());
               return new FileIndex(
                   file.getName(),
-                  Collections.singletonList(new FileBlob(id, 0)),
+                  Collections.singletonList(new FileBlob(id, 0, compression)),
                   fileMetadata,
-                  finalInputStream.getChecksum().getValue());
+                  checkedInputStream.getChecksum().getValue(),
+                  fileIndexVersion);
             }, executor).toCompletableFuture();
       } catch (Exception e) {
         try {
@@ -569,19 +683,125 @@ public class BlobStoreUtil {
       return fileBlobFuture;
     };
 
-    return FutureUtil.executeAsyncWithRetries(opName, fileUploadAction, isCauseNonRetriable(), executor, retryPolicyConfig)
-        .whenComplete((res, ex) -> {
-          if (backupMetrics != null) {
-            backupMetrics.avgFileUploadNs.update(System.nanoTime() - putFileStartTime);
-
-            long fileSize = file.length();
-            backupMetrics.uploadRate.inc(fileSize);
-            backupMetrics.filesUploaded.getValue().addAndGet(1);
-            backupMetrics.bytesUploaded.getValue().addAndGet(fileSize);
-            backupMetrics.filesRemaining.getValue().addAndGet(-1);
-            backupMetrics.bytesRemaining.getValue().addAndGet(-1 * fileSize);
-          }
-        });
+    return FutureUtil.executeAsyncWithRetries(opName, fileUploadAction, isCauseNonRetriable(), executor, retryPolicyConfig);
+  }
+
+  /**
+   * Uploads a file as multiple blobs of at most {@code chunkSizeBytes} each. Chunks are uploaded concurrently, and each
+   * chunk upload is retried independently. The checksum of the file is computed by combining the checksums of its
+   * chunks, so it is the same as if the file was uploaded as a single blob.
+   */
+  private CompletableFuture<FileIndex> putFileChunks(File file, SnapshotMetadata snapshotMetadata, long chunkSizeBytes) {
+    FileMetadata fileMetadata;
+    try {
+      fileMetadata = FileMetadata.fromFile(file);
+    } catch (IOException e) {
+      throw new SamzaException(String.format("Error reading attributes of file %s", file.getAbsolutePath()), e);
+    }
+    if (backupMetrics != null) {
+      backupMetrics.avgFileSizeBytes.update(fileMetadata.getSize());
+    }
+
+    long fileSize = fileMetadata.getSize();
+    LOG.debug("Putting file: {} of size: {} to blob store in chunks of size: {}.", file.getPath(), fileSize, chunkSizeBytes);
+    List<CompletableFuture<Pair<FileBlob, Long>>> chunkFutures = new ArrayList<>();
+    List<Long> chunkSizes = new ArrayList<>();
+    for (long offset = 0; offset < fileSize; offset += chunkSizeBytes) {
+      long chunkOffset = offset;
+      long chunkSize = Math.min(chunkSizeBytes, fileSize - offset);
+      String opName = "putFileChunk: " + file.getAbsolutePath() + " offset: " + chunkOffset;
+      Supplier<CompletionStage<Pair<FileBlob, Long>>> chunkUploadAction =
+          () -> putFileChunk(file, chunkOffset, chunkSize, snapshotMetadata);
+      chunkFutures.add(
+          FutureUtil.executeAsyncWithRetries(opName, chunkUploadAction, isCauseNonRetriable(), executor, retryPolicyConfig));
+      chunkSizes.add(chunkSize);
+    }
+
+    return FutureUtil.allOf(chunkFutures).thenApply(v -> {
+      List<FileBlob> fileBlobs = new ArrayList<>();
+      long checksum = ChecksumUtil.newChecksum(fileIndexVersion).getValue();
+      for (int i = 0; i < chunkFutures.size(); i++) {
+        Pair<FileBlob, Long> chunkBlobAndChecksum = chunkFutures.get(i).join();
+        fileBlobs.add(chunkBlobAndChecksum.getLeft());
+        checksum = ChecksumUtil.combine(fileIndexVersion, checksum, chunkBlobAndChecksum.getRight(), chunkSizes.get(i));
+      }
+
+      LOG.trace("Returning new FileIndex for file: {} with {} blobs.", file.getPath(), fileBlobs.size());
+      return new FileIndex(file.getName(), fileBlobs, fileMetadata, checksum, fileIndexVersion);
+    });
+  }
+
+  /**
+   * Uploads {@code length} bytes of the file starting at {@code offset} as a single blob.
+   * @return A future containing the {@link FileBlob} for the chunk and the checksum of its uncompressed contents.
+   */
+  private CompletionStage<Pair<FileBlob, Long>> putFileChunk(File file, long offset, long length,
+      SnapshotMetadata snapshotMetadata) {
+    LOG.debug("Putting chunk of file: {} at offset: {} with length: {} to blob store.", file.getPath(), offset, length);
+    InputStream inputStream = null;
+    try {
+      FileInputStream fileInputStream = new FileInputStream(file);
+      CheckedInputStream checkedInputStream =
+          new CheckedInputStream(ByteStreams.limit(fileInputStream, length), ChecksumUtil.newChecksum(fileIndexVersion));
+      inputStream = checkedInputStream;
+      fileInputStream.getChannel().position(offset);
+      CompressionType compression = getCompressionType(file);
+      if (compression != CompressionType.NONE) {
+        inputStream = CompressionUtil.compressingInputStream(checkedInputStream, compression);
+      }
+      InputStream finalInputStream = inputStream;
+
+      // size of compressed blobs is not known in advance
+      Optional<Long> payloadSize = compression == CompressionType.NONE ? Optional.of(length) : Optional.empty();
+      Metadata metadata =
+          new Metadata(file.getAbsolutePath(), payloadSize, snapshotMetadata.getJobName(),
+              snapshotMetadata.getJobId(), snapshotMetadata.getTaskName(), snapshotMetadata.getStoreName());
+
+      return blobStoreManager.put(inputStream, metadata)
+          .thenApplyAsync(id -> {
+            LOG.trace("Put complete. Received Blob ID {}. Closing input stream for chunk at offset: {} of file: {}.",
+                id, offset, file.getPath());
+            try {
+              finalInputStream.close();
+            } catch (Exception e) {
+              throw new SamzaException(String.format("Error closing input stream for file: %s",
+                  file.getAbsolutePath()), e);
+            }
+            updateCompressionMetrics(finalInputStream);
+            return Pair.of(new FileBlob(id, offset, compression), checkedInputStream.getChecksum().getValue());
+          }, executor);
+    } catch (Exception e) {
+      try {
+        if (inputStream != null) {
+          inputStream.close();
+        }
+      } catch (Exception err) {
+        LOG.error("Error closing input stream for file: {}", file.getName(), err);
+      }
+      LOG.error("Error putting chunk at offset: {} of file: {}", offset, file.getName(), e);
+      throw new SamzaException(String.format("Error putting chunk at offset %s of file %s", offset,
+          file.getAbsolutePath()), e);
+    }
+  }
+
+  /**
+   * Returns the compression to use for the blobs of the file. SST files are only compressed if enabled, since they
+   * are usually compressed by RocksDB already.
+   */
+  private CompressionType getCompressionType(File file) {
+    if (file.getName().endsWith(".sst") && !compressSstFiles) {
+      return CompressionType.NONE;
+    }
+    return compressionType;
+  }
+
+  private void updateCompressionMetrics(InputStream uploadedInputStream) {
+    if (backupMetrics != null && uploadedInputStream instanceof CompressingInputStream) {
+      CompressingInputStream compressingInputStream = (CompressingInputStream) uploadedInputStream;
+      backupMetrics.bytesSavedByCompression.getValue()
+          .addAndGet(compressingInputStream.getUncompressedBytes() - compressingInputStream.getCompressedBytes());
+      backupMetrics.avgBlobCompressionNs.update(compressingInputStream.getCompressionNs());
+    }
   }
 
   /**
@@ -688,4 +908,31 @@ public class BlobStoreUtil {
       return unwrapped != null && !RetriableException.class.isAssignableFrom(unwrapped.getClass());
     };
   }
-}
\ No newline at end of file
+
+  /**
+   * An {@link OutputStream} that writes to a {@link FileChannel} starting at a fixed position, without changing the
+   * position of the channel. Multiple streams can write to different ranges of the same channel concurrently.
+   */
+  private static class PositionalOutputStream extends OutputStream {
+    private final FileChannel fileChannel;
+    private long position;
+
+    PositionalOutputStream(FileChannel fileChannel, long position) {
+      this.fileChannel = fileChannel;
+      this.position = position;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+      while (buffer.hasRemaining()) {
+        position += fileChannel.write(buffer, position);
+      }
+    }
+  }
+}
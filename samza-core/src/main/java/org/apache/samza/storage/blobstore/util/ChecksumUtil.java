@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.storage.blobstore.util;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+import org.apache.samza.SamzaException;
+import org.apache.samza.storage.blobstore.index.FileIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Helper methods for the checksums of files uploaded to the blob store.
+ */
+public class ChecksumUtil {
+  private static final Logger LOG = LoggerFactory.getLogger(ChecksumUtil.class);
+
+  // reversed CRC-32 polynomial used by java.util.zip.CRC32
+  private static final long CRC32_POLYNOMIAL = 0xedb88320L;
+  // reversed CRC-32C (Castagnoli) polynomial
+  private static final int CRC32C_POLYNOMIAL = 0x82f63b78;
+
+  // constructor of java.util.zip.CRC32C, which is intrinsified to use CPU instructions. Only available in Java 9+.
+  private static final MethodHandle CRC32C_CONSTRUCTOR = findCrc32cConstructor();
+
+  private ChecksumUtil() {
+  }
+
+  /**
+   * Creates a new checksum of the type used by {@link FileIndex}es of the given version.
+   * @param fileIndexVersion version of the {@link FileIndex}
+   * @return a new {@link CRC32} for {@link FileIndex#VERSION_CRC32}, a new CRC32C checksum otherwise.
+   */
+  public static Checksum newChecksum(int fileIndexVersion) {
+    return fileIndexVersion == FileIndex.VERSION_CRC32 ? new CRC32() : newCrc32c();
+  }
+
+  /**
+   * Creates a new CRC32C checksum. Uses {@code java.util.zip.CRC32C} if the JVM provides it, and a pure Java
+   * implementation otherwise. Both compute the same checksum.
+   */
+  public static Checksum newCrc32c() {
+    if (CRC32C_CONSTRUCTOR != null) {
+      try {
+        return (Checksum) CRC32C_CONSTRUCTOR.invoke();
+      } catch (Throwable e) {
+        throw new SamzaException("Error creating java.util.zip.CRC32C checksum", e);
+      }
+    }
+    return new PureJavaCrc32C();
+  }
+
+  /**
+   * Combines the checksums of two consecutive byte ranges into the checksum of their concatenation, for the checksum
+   * type used by {@link FileIndex}es of the given version. See {@link #crc32Combine(long, long, long)}.
+   */
+  public static long combine(int fileIndexVersion, long checksum1, long checksum2, long length2) {
+    return fileIndexVersion == FileIndex.VERSION_CRC32
+        ? crc32Combine(checksum1, checksum2, length2)
+        : crc32cCombine(checksum1, checksum2, length2);
+  }
+
+  /**
+   * Combines the CRC-32 checksums of two consecutive byte ranges into the CRC-32 checksum of their concatenation,
+   * without reading the bytes again. Used to compute the checksum of a file from the checksums of its chunks, which
+   * are uploaded concurrently. Port of {@code crc32_combine} from zlib.
+   * @param crc1 {@link java.util.zip.CRC32} checksum of the first byte range
+   * @param crc2 {@link java.util.zip.CRC32} checksum of the second byte range
+   * @param length2 length of the second byte range
+   * @return the CRC-32 checksum of the first byte range followed by the second byte range
+   */
+  public static long crc32Combine(long crc1, long crc2, long length2) {
+    return crcCombine(CRC32_POLYNOMIAL, crc1, crc2, length2);
+  }
+
+  /**
+   * Same as {@link #crc32Combine(long, long, long)} for CRC32C checksums.
+   */
+  public static long crc32cCombine(long crc1, long crc2, long length2) {
+    return crcCombine(CRC32C_POLYNOMIAL & 0xffffffffL, crc1, crc2, length2);
+  }
+
+  private static long crcCombine(long polynomial, long crc1, long crc2, long length2) {
+    Preconditions.checkArgument(length2 >= 0, "Length must not be negative.");
+    if (length2 == 0) {
+      return crc1;
+    }
+
+    long[] even = new long[32]; // even-power-of-two zeros operator
+    long[] odd = new long[32]; // odd-power-of-two zeros operator
+
+    // put operator for one zero bit in odd
+    odd[0] = polynomial;
+    long row = 1;
+    for (int n = 1; n < 32; n++) {
+      odd[n] = row;
+      row <<= 1;
+    }
+
+    gf2MatrixSquare(even, odd); // put operator for two zero bits in even
+    gf2MatrixSquare(odd, even); // put operator for four zero bits in odd
+
+    // apply length2 zeros to crc1 (first square will put the operator for one zero byte, eight zero bits, in even)
+    do {
+      gf2MatrixSquare(even, odd);
+      if ((length2 & 1) != 0) {
+        crc1 = gf2MatrixTimes(even, crc1);
+      }
+      length2 >>>= 1;
+      if (length2 == 0) {
+        break;
+      }
+
+      gf2MatrixSquare(odd, even);
+      if ((length2 & 1) != 0) {
+        crc1 = gf2MatrixTimes(odd, crc1);
+      }
+      length2 >>>= 1;
+    } while (length2 != 0);
+
+    return crc1 ^ crc2;
+  }
+
+  private static long gf2MatrixTimes(long[] matrix, long vector) {
+    long sum = 0;
+    int i = 0;
+    while (vector != 0) {
+      if ((vector & 1) != 0) {
+        sum ^= matrix[i];
+      }
+      vector >>>= 1;
+      i++;
+    }
+    return sum;
+  }
+
+  private static void gf2MatrixSquare(long[] square, long[] matrix) {
+    for (int n = 0; n < 32; n++) {
+      square[n] = gf2MatrixTimes(matrix, matrix[n]);
+    }
+  }
+
+  private static MethodHandle findCrc32cConstructor() {
+    try {
+      Class<?> crc32cClass = Class.forName("java.util.zip.CRC32C");
+      return MethodHandles.publicLookup().findConstructor(crc32cClass, MethodType.methodType(void.class));
+    } catch (ReflectiveOperationException e) {
+      LOG.info("java.util.zip.CRC32C is not available. Using pure Java CRC32C implementation.");
+      return null;
+    }
+  }
+
+  /**
+   * CRC32C checksum computed with the slicing-by-8 algorithm, for JVMs without {@code java.util.zip.CRC32C}.
+   */
+  @VisibleForTesting
+  static class PureJavaCrc32C implements Checksum {
+    private static final int[][] TABLES = new int[8][256];
+
+    static {
+      for (int n = 0; n < 256; n++) {
+        int crc = n;
+        for (int k = 0; k < 8; k++) {
+          crc = (crc & 1) != 0 ? (crc >>> 1) ^ CRC32C_POLYNOMIAL : crc >>> 1;
+        }
+        TABLES[0][n] = crc;
+      }
+      for (int n = 0; n < 256; n++) {
+        int crc = TABLES[0][n];
+        for (int k = 1; k < 8; k++) {
+          crc = TABLES[0][crc & 0xff] ^ (crc >>> 8);
+          TABLES[k][n] = crc;
+        }
+      }
+    }
+
+    private int crc = 0xffffffff;
+
+    @Override
+    public void update(int b) {
+      crc = (crc >>> 8) ^ TABLES[0][(crc ^ b) & 0xff];
+    }
+
+    @Override
+    public void update(byte[] b, int off, int len) {
+      int localCrc = crc;
+      while (len >= 8) {
+        int low = localCrc
+            ^ ((b[off] & 0xff) | (b[off + 1] & 0xff) << 8 | (b[off + 2] & 0xff) << 16 | (b[off + 3] & 0xff) << 24);
+        int high =
+            (b[off + 4] & 0xff) | (b[off + 5] & 0xff) << 8 | (b[off + 6] & 0xff) << 16 | (b[off + 7] & 0xff) << 24;
+        localCrc = TABLES[7][low & 0xff] ^ TABLES[6][(low >>> 8) & 0xff] ^ TABLES[5][(low >>> 16) & 0xff]
+            ^ TABLES[4][low >>> 24] ^ TABLES[3][high & 0xff] ^ TABLES[2][(high >>> 8) & 0xff]
+            ^ TABLES[1][(high >>> 16) & 0xff] ^ TABLES[0][high >>> 24];
+        off += 8;
+        len -= 8;
+      }
+      while (len-- > 0) {
+        localCrc = (localCrc >>> 8) ^ TABLES[0][(localCrc ^ b[off++]) & 0xff];
+      }
+      crc = localCrc;
+    }
+
+    @Override
+    public long getValue() {
+      return ~crc & 0xffffffffL;
+    }
+
+    @Override
+    public void reset() {
+      crc = 0xffffffff;
+    }
+  }
+}
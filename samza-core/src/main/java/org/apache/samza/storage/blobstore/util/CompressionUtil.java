@@ -0,0 +1,359 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.storage.blobstore.util;
+
+import com.github.luben.zstd.Zstd;
+import com.google.common.base.Preconditions;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+import org.apache.samza.storage.blobstore.index.CompressionType;
+
+
+/**
+ * Helper methods to compress the contents of blobs uploaded to the blob store, and to decompress them on restore.
+ *
+ * Compressed blobs consist of independently compressed blocks of up to {@link #BLOCK_SIZE_BYTES} uncompressed bytes,
+ * so that files can be compressed and decompressed as they are streamed, with bounded memory. Each block has a header
+ * with a flag that indicates whether the block is compressed, the uncompressed length and the stored length of the
+ * block. Blocks that do not get smaller when compressed are stored uncompressed.
+ */
+public class CompressionUtil {
+  static final int BLOCK_SIZE_BYTES = 64 * 1024;
+
+  private static final int HEADER_SIZE_BYTES = 1 + 4 + 4;
+  private static final byte BLOCK_STORED = 0;
+  private static final byte BLOCK_COMPRESSED = 1;
+  private static final int ZSTD_COMPRESSION_LEVEL = 3;
+
+  private CompressionUtil() {
+  }
+
+  /**
+   * Returns an {@link InputStream} that reads the contents of {@code inputStream} compressed with the given
+   * compression type. Closing the returned stream closes {@code inputStream}.
+   */
+  public static CompressingInputStream compressingInputStream(InputStream inputStream, CompressionType compression) {
+    return new CompressingInputStream(inputStream, getCodec(compression));
+  }
+
+  /**
+   * Returns an {@link OutputStream} that decompresses bytes written to it that were compressed with the given
+   * compression type, and writes the decompressed bytes to {@code outputStream}.
+   */
+  public static DecompressingOutputStream decompressingOutputStream(OutputStream outputStream,
+      CompressionType compression) {
+    return new DecompressingOutputStream(outputStream, getCodec(compression));
+  }
+
+  private static BlockCodec getCodec(CompressionType compression) {
+    switch (compression) {
+      case LZ4:
+        return new Lz4BlockCodec();
+      case ZSTD:
+        return new ZstdBlockCodec();
+      default:
+        throw new IllegalArgumentException("Unsupported compression type: " + compression);
+    }
+  }
+
+  /**
+   * An {@link InputStream} that reads and compresses blocks of an underlying stream, and tracks the number of bytes
+   * it saved and the time spent compressing.
+   */
+  public static class CompressingInputStream extends InputStream {
+    private final InputStream inputStream;
+    private final BlockCodec codec;
+    private final byte[] uncompressedBlock = new byte[BLOCK_SIZE_BYTES];
+    private final byte[] storedBlock;
+    private int storedBlockPosition = 0;
+    private int storedBlockLimit = 0;
+
+    private long uncompressedBytes = 0;
+    private long compressedBytes = 0;
+    private long compressionNs = 0;
+
+    private CompressingInputStream(InputStream inputStream, BlockCodec codec) {
+      this.inputStream = inputStream;
+      this.codec = codec;
+      this.storedBlock =
+          new byte[HEADER_SIZE_BYTES + Math.max(codec.maxCompressedLength(BLOCK_SIZE_BYTES), BLOCK_SIZE_BYTES)];
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (storedBlockPosition == storedBlockLimit && !readBlock()) {
+        return -1;
+      }
+      return storedBlock[storedBlockPosition++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (storedBlockPosition == storedBlockLimit && !readBlock()) {
+        return -1;
+      }
+      int bytesRead = Math.min(len, storedBlockLimit - storedBlockPosition);
+      System.arraycopy(storedBlock, storedBlockPosition, b, off, bytesRead);
+      storedBlockPosition += bytesRead;
+      return bytesRead;
+    }
+
+    @Override
+    public int available() {
+      return storedBlockLimit - storedBlockPosition;
+    }
+
+    @Override
+    public void close() throws IOException {
+      inputStream.close();
+    }
+
+    /**
+     * @return number of bytes read from the underlying stream
+     */
+    public long getUncompressedBytes() {
+      return uncompressedBytes;
+    }
+
+    /**
+     * @return number of bytes returned by this stream, including block headers
+     */
+    public long getCompressedBytes() {
+      return compressedBytes;
+    }
+
+    /**
+     * @return total time spent compressing blocks, in nanoseconds
+     */
+    public long getCompressionNs() {
+      return compressionNs;
+    }
+
+    private boolean readBlock() throws IOException {
+      int length = 0;
+      while (length < BLOCK_SIZE_BYTES) {
+        int bytesRead = inputStream.read(uncompressedBlock, length, BLOCK_SIZE_BYTES - length);
+        if (bytesRead < 0) {
+          break;
+        }
+        length += bytesRead;
+      }
+      if (length == 0) {
+        return false;
+      }
+
+      long startTime = System.nanoTime();
+      int compressedLength = codec.compress(uncompressedBlock, length, storedBlock, HEADER_SIZE_BYTES,
+          storedBlock.length - HEADER_SIZE_BYTES);
+      compressionNs += System.nanoTime() - startTime;
+
+      byte flag = BLOCK_COMPRESSED;
+      int storedLength = compressedLength;
+      if (compressedLength >= length) {
+        // incompressible block, e.g. a block of an already compressed SST file. store it as is.
+        flag = BLOCK_STORED;
+        storedLength = length;
+        System.arraycopy(uncompressedBlock, 0, storedBlock, HEADER_SIZE_BYTES, length);
+      }
+      ByteBuffer.wrap(storedBlock, 0, HEADER_SIZE_BYTES).put(flag).putInt(length).putInt(storedLength);
+
+      storedBlockPosition = 0;
+      storedBlockLimit = HEADER_SIZE_BYTES + storedLength;
+      uncompressedBytes += length;
+      compressedBytes += storedBlockLimit;
+      return true;
+    }
+  }
+
+  /**
+   * An {@link OutputStream} that decompresses the blocks written to it and writes the decompressed bytes to the
+   * underlying stream.
+   */
+  public static class DecompressingOutputStream extends FilterOutputStream {
+    private final BlockCodec codec;
+    private final byte[] header = new byte[HEADER_SIZE_BYTES];
+    private final byte[] storedBlock;
+    private final byte[] uncompressedBlock = new byte[BLOCK_SIZE_BYTES];
+    private int headerPosition = 0;
+    private int storedBlockPosition = 0;
+    private byte flag;
+    private int uncompressedLength;
+    private int storedLength;
+
+    private DecompressingOutputStream(OutputStream outputStream, BlockCodec codec) {
+      super(outputStream);
+      this.codec = codec;
+      this.storedBlock = new byte[Math.max(codec.maxCompressedLength(BLOCK_SIZE_BYTES), BLOCK_SIZE_BYTES)];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      while (len > 0) {
+        int bytesCopied;
+        if (headerPosition < HEADER_SIZE_BYTES) {
+          bytesCopied = Math.min(len, HEADER_SIZE_BYTES - headerPosition);
+          System.arraycopy(b, off, header, headerPosition, bytesCopied);
+          headerPosition += bytesCopied;
+          if (headerPosition == HEADER_SIZE_BYTES) {
+            readHeader();
+          }
+        } else {
+          bytesCopied = Math.min(len, storedLength - storedBlockPosition);
+          System.arraycopy(b, off, storedBlock, storedBlockPosition, bytesCopied);
+          storedBlockPosition += bytesCopied;
+        }
+        off += bytesCopied;
+        len -= bytesCopied;
+
+        if (headerPosition == HEADER_SIZE_BYTES && storedBlockPosition == storedLength) {
+          writeBlock();
+        }
+      }
+    }
+
+    /**
+     * Verifies that all the blocks written to this stream were complete, without closing the underlying stream.
+     * @throws IOException if the last block written to this stream was incomplete
+     */
+    public void finish() throws IOException {
+      if (headerPosition != 0) {
+        throw new IOException("Compressed blob ended with an incomplete block.");
+      }
+      out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        finish();
+      } finally {
+        out.close();
+      }
+    }
+
+    private void readHeader() throws IOException {
+      ByteBuffer buffer = ByteBuffer.wrap(header);
+      flag = buffer.get();
+      uncompressedLength = buffer.getInt();
+      storedLength = buffer.getInt();
+      if ((flag != BLOCK_STORED && flag != BLOCK_COMPRESSED) || uncompressedLength <= 0
+          || uncompressedLength > BLOCK_SIZE_BYTES || storedLength <= 0 || storedLength > storedBlock.length) {
+        throw new IOException(String.format("Invalid compressed block header. Flag: %s uncompressed length: %s "
+            + "stored length: %s", flag, uncompressedLength, storedLength));
+      }
+      storedBlockPosition = 0;
+    }
+
+    private void writeBlock() throws IOException {
+      if (flag == BLOCK_STORED) {
+        out.write(storedBlock, 0, storedLength);
+      } else {
+        codec.decompress(storedBlock, storedLength, uncompressedBlock, uncompressedLength);
+        out.write(uncompressedBlock, 0, uncompressedLength);
+      }
+      headerPosition = 0;
+    }
+  }
+
+  /**
+   * Compresses and decompresses single blocks.
+   */
+  private interface BlockCodec {
+    int maxCompressedLength(int length);
+
+    /**
+     * @return the compressed length of the block. {@code maxDestLength} is at least {@link #maxCompressedLength(int)}.
+     */
+    int compress(byte[] src, int length, byte[] dest, int destOffset, int maxDestLength);
+
+    void decompress(byte[] src, int length, byte[] dest, int uncompressedLength) throws IOException;
+  }
+
+  private static class Lz4BlockCodec implements BlockCodec {
+    private final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+    private final LZ4SafeDecompressor decompressor = LZ4Factory.fastestInstance().safeDecompressor();
+
+    @Override
+    public int maxCompressedLength(int length) {
+      return compressor.maxCompressedLength(length);
+    }
+
+    @Override
+    public int compress(byte[] src, int length, byte[] dest, int destOffset, int maxDestLength) {
+      return compressor.compress(src, 0, length, dest, destOffset, maxDestLength);
+    }
+
+    @Override
+    public void decompress(byte[] src, int length, byte[] dest, int uncompressedLength) throws IOException {
+      int decompressedLength;
+      try {
+        decompressedLength = decompressor.decompress(src, 0, length, dest, 0, uncompressedLength);
+      } catch (Exception e) {
+        throw new IOException("Error decompressing LZ4 block.", e);
+      }
+      if (decompressedLength != uncompressedLength) {
+        throw new IOException(String.format("LZ4 block decompressed to %s bytes. Expected: %s bytes.",
+            decompressedLength, uncompressedLength));
+      }
+    }
+  }
+
+  private static class ZstdBlockCodec implements BlockCodec {
+    @Override
+    public int maxCompressedLength(int length) {
+      return (int) Zstd.compressBound(length);
+    }
+
+    @Override
+    public int compress(byte[] src, int length, byte[] dest, int destOffset, int maxDestLength) {
+      long compressedLength =
+          Zstd.compressByteArray(dest, destOffset, maxDestLength, src, 0, length, ZSTD_COMPRESSION_LEVEL);
+      Preconditions.checkState(!Zstd.isError(compressedLength), "Error compressing ZSTD block: %s",
+          Zstd.getErrorName(compressedLength));
+      return (int) compressedLength;
+    }
+
+    @Override
+    public void decompress(byte[] src, int length, byte[] dest, int uncompressedLength) throws IOException {
+      long decompressedLength = Zstd.decompressByteArray(dest, 0, uncompressedLength, src, 0, length);
+      if (Zstd.isError(decompressedLength)) {
+        throw new IOException("Error decompressing ZSTD block: " + Zstd.getErrorName(decompressedLength));
+      }
+      if (decompressedLength != uncompressedLength) {
+        throw new IOException(String.format("ZSTD block decompressed to %s bytes. Expected: %s bytes.",
+            decompressedLength, uncompressedLength));
+      }
+    }
+  }
+}
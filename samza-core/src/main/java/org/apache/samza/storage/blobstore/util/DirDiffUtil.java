@@ -38,14 +38,15 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.function.BiPredicate;
 import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.zip.CRC32;
 import java.util.zip.CheckedInputStream;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.samza.SamzaException;
 import org.apache.samza.storage.blobstore.diff.DirDiff;
 import org.apache.samza.storage.blobstore.index.DirIndex;
@@ -225,12 +226,8 @@ public class DirDiffUtil {
           return true;
         } else {
           try {
-            FileInputStream fis = new FileInputStream(localFile);
-            CheckedInputStream cis = new CheckedInputStream(fis, new CRC32());
-            byte[] buffer = new byte[8 * 1024]; // 8 KB
-            while (cis.read(buffer, 0, buffer.length) >= 0) { }
-            long localFileChecksum = cis.getChecksum().getValue();
-            cis.close();
+            // use the checksum algorithm the remote file was indexed with, so that snapshots of older versions verify.
+            long localFileChecksum = getChecksum(localFile, remoteFile.getVersion());
 
             boolean areSameChecksum = localFileChecksum == remoteFile.getChecksum();
             if (!areSameChecksum) {
@@ -352,6 +349,164 @@ public class DirDiffUtil {
         subDirsAdded, subDirsRetained, subDirsRemoved);
   }
 
+  /**
+   * Returns a copy of the provided {@link DirDiff} in which the local files added since the previous snapshot that are
+   * identical to a file present in the previous snapshot reference the blobs of that remote file instead of being
+   * uploaded again. A local and a remote file are identical if they have the same name, size and checksum, regardless
+   * of the sub-dir they are in. For RocksDB stores, the name of an SST file is its file number, which is unique within
+   * the store. This avoids re-uploading files that only differ in their attributes (e.g. owners after the job moved
+   * to new hosts), or that were moved to a different sub-dir.
+   *
+   * Blobs of removed files are deleted during the clean up after commit. Removed files whose blobs are still referenced
+   * by a file present in the new snapshot are hence dropped from the returned diff, so that a blob is only deleted once
+   * no file in the snapshot refers to it.
+   *
+   * @param dirDiff diff between the local snapshot directory and the previous remote snapshot directory
+   * @param prevDirIndex {@link DirIndex} representing the previous remote snapshot directory
+   * @return {@link DirDiff} with the files identical to a file in the previous remote snapshot retained
+   */
+  public static DirDiff dedupDirDiff(DirDiff dirDiff, DirIndex prevDirIndex) {
+    // blobs of files present in the previous snapshot are guaranteed to not be deleted before the next clean up
+    Map<Pair<String, Long>, List<FileIndex>> prevFilesByNameAndSize = new HashMap<>();
+    addFilesPresent(prevDirIndex, prevFilesByNameAndSize);
+
+    Map<File, FileIndex> identicalFiles = new HashMap<>();
+    Set<String> blobIdsPresent = new HashSet<>();
+    findIdenticalFiles(dirDiff, prevFilesByNameAndSize, identicalFiles, blobIdsPresent);
+    return dedupDirDiff(dirDiff, identicalFiles, blobIdsPresent);
+  }
+
+  private static void addFilesPresent(DirIndex dirIndex, Map<Pair<String, Long>, List<FileIndex>> filesByNameAndSize) {
+    for (FileIndex file: dirIndex.getFilesPresent()) {
+      filesByNameAndSize
+          .computeIfAbsent(Pair.of(file.getFileName(), file.getFileMetadata().getSize()), k -> new ArrayList<>())
+          .add(file);
+    }
+
+    for (DirIndex subDir: dirIndex.getSubDirsPresent()) {
+      addFilesPresent(subDir, filesByNameAndSize);
+    }
+  }
+
+  private static void findIdenticalFiles(DirDiff dirDiff, Map<Pair<String, Long>, List<FileIndex>> prevFilesByNameAndSize,
+      Map<File, FileIndex> identicalFiles, Set<String> blobIdsPresent) {
+    dirDiff.getFilesRetained().forEach(file -> addBlobIds(file, blobIdsPresent));
+
+    Map<String, FileIndex> filesRemoved = dirDiff.getFilesRemoved().stream()
+        .collect(Collectors.toMap(FileIndex::getFileName, Function.identity()));
+    for (File file: dirDiff.getFilesAdded()) {
+      List<FileIndex> candidates =
+          prevFilesByNameAndSize.getOrDefault(Pair.of(file.getName(), file.length()), Collections.emptyList());
+      FileIndex removedFile = filesRemoved.get(file.getName());
+      if (removedFile != null) {
+        // a file can not be both retained and removed. Only the blobs of the removed file with the same name may be
+        // reused, since the removed file will not be deleted then.
+        candidates = candidates.stream()
+            .filter(candidate -> candidate.getBlobs().equals(removedFile.getBlobs()))
+            .collect(Collectors.toList());
+      }
+
+      findIdenticalFile(file, candidates).ifPresent(identicalFile -> {
+        identicalFiles.put(file, identicalFile);
+        addBlobIds(identicalFile, blobIdsPresent);
+      });
+    }
+
+    for (DirDiff subDirAdded: dirDiff.getSubDirsAdded()) {
+      findIdenticalFiles(subDirAdded, prevFilesByNameAndSize, identicalFiles, blobIdsPresent);
+    }
+    for (DirDiff subDirRetained: dirDiff.getSubDirsRetained()) {
+      findIdenticalFiles(subDirRetained, prevFilesByNameAndSize, identicalFiles, blobIdsPresent);
+    }
+  }
+
+  private static Optional<FileIndex> findIdenticalFile(File localFile, List<FileIndex> remoteFiles) {
+    // checksum of the local file by FileIndex version, since the remote files may use different checksum algorithms
+    Map<Integer, Long> localFileChecksums = new HashMap<>();
+    try {
+      for (FileIndex remoteFile: remoteFiles) {
+        Long localFileChecksum = localFileChecksums.get(remoteFile.getVersion());
+        if (localFileChecksum == null) {
+          localFileChecksum = getChecksum(localFile, remoteFile.getVersion());
+          localFileChecksums.put(remoteFile.getVersion(), localFileChecksum);
+        }
+
+        if (localFileChecksum == remoteFile.getChecksum()) {
+          LOG.debug("Local file: {} is identical to remote file: {}. Reusing blobs: {}",
+              localFile.getAbsolutePath(), remoteFile.getFileName(), remoteFile.getBlobs());
+          return Optional.of(new FileIndex(localFile.getName(), remoteFile.getBlobs(), FileMetadata.fromFile(localFile),
+              remoteFile.getChecksum(), remoteFile.getVersion()));
+        }
+      }
+    } catch (IOException e) {
+      throw new SamzaException("Error calculating checksum for local file: " + localFile.getAbsolutePath(), e);
+    }
+    return Optional.empty();
+  }
+
+  private static DirDiff dedupDirDiff(DirDiff dirDiff, Map<File, FileIndex> identicalFiles, Set<String> blobIdsPresent) {
+    List<File> filesAdded = new ArrayList<>();
+    List<FileIndex> filesRetained = new ArrayList<>(dirDiff.getFilesRetained());
+    for (File file: dirDiff.getFilesAdded()) {
+      if (identicalFiles.containsKey(file)) {
+        filesRetained.add(identicalFiles.get(file));
+      } else {
+        filesAdded.add(file);
+      }
+    }
+
+    List<DirDiff> subDirsAdded = dirDiff.getSubDirsAdded().stream()
+        .map(subDir -> dedupDirDiff(subDir, identicalFiles, blobIdsPresent))
+        .collect(Collectors.toList());
+    List<DirDiff> subDirsRetained = dirDiff.getSubDirsRetained().stream()
+        .map(subDir -> dedupDirDiff(subDir, identicalFiles, blobIdsPresent))
+        .collect(Collectors.toList());
+    List<DirIndex> subDirsRemoved = dirDiff.getSubDirsRemoved().stream()
+        .map(subDir -> removeFilesPresent(subDir, blobIdsPresent))
+        .collect(Collectors.toList());
+
+    return new DirDiff(dirDiff.getDirName(), filesAdded, filesRetained,
+        removeFilesPresent(dirDiff.getFilesRemoved(), blobIdsPresent), subDirsAdded, subDirsRetained, subDirsRemoved);
+  }
+
+  /**
+   * Returns a copy of a removed {@link DirIndex} without the files whose blobs are present in the new snapshot.
+   */
+  private static DirIndex removeFilesPresent(DirIndex dirIndex, Set<String> blobIdsPresent) {
+    List<DirIndex> subDirsPresent = dirIndex.getSubDirsPresent().stream()
+        .map(subDir -> removeFilesPresent(subDir, blobIdsPresent))
+        .collect(Collectors.toList());
+    return new DirIndex(dirIndex.getDirName(),
+        removeFilesPresent(dirIndex.getFilesPresent(), blobIdsPresent),
+        removeFilesPresent(dirIndex.getFilesRemoved(), blobIdsPresent),
+        subDirsPresent, dirIndex.getSubDirsRemoved());
+  }
+
+  private static List<FileIndex> removeFilesPresent(List<FileIndex> files, Set<String> blobIdsPresent) {
+    return files.stream()
+        .filter(file -> {
+          boolean isPresent = file.getBlobs().stream().anyMatch(blob -> blobIdsPresent.contains(blob.getBlobId()));
+          if (isPresent) {
+            LOG.debug("Not removing file: {} since its blobs are present in the new snapshot.", file.getFileName());
+          }
+          return !isPresent;
+        })
+        .collect(Collectors.toList());
+  }
+
+  private static void addBlobIds(FileIndex file, Set<String> blobIds) {
+    file.getBlobs().forEach(blob -> blobIds.add(blob.getBlobId()));
+  }
+
+  private static long getChecksum(File file, int fileIndexVersion) throws IOException {
+    try (CheckedInputStream cis =
+        new CheckedInputStream(new FileInputStream(file), ChecksumUtil.newChecksum(fileIndexVersion))) {
+      byte[] buffer = new byte[64 * 1024]; // 64 KB
+      while (cis.read(buffer, 0, buffer.length) >= 0) { }
+      return cis.getChecksum().getValue();
+    }
+  }
+
   /**
    * Builds a {@link DirDiff} from a new local directory that is not already present in the remote snapshot.
    * @param localSubDir File representing the local directory to create the new {@link DirDiff} for.
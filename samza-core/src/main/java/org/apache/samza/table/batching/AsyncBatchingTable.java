@@ -26,6 +26,7 @@ import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledExecutorService;
 import org.apache.samza.SamzaException;
+import org.apache.samza.config.TaskConfig;
 import org.apache.samza.context.Context;
 import org.apache.samza.storage.kv.Entry;
 import org.apache.samza.table.AsyncReadWriteUpdateTable;
@@ -61,6 +62,7 @@ public class AsyncBatchingTable<K, V, U> implements AsyncReadWriteUpdateTable<K,
   private final BatchProvider<K, V, U> batchProvider;
   private final ScheduledExecutorService batchTimerExecutorService;
   private BatchProcessor<K, V, U> batchProcessor;
+  private int maxOutstandingOperations = Integer.MAX_VALUE;
 
   /**
    * @param tableId The id of the table.
@@ -154,6 +156,10 @@ public class AsyncBatchingTable<K, V, U> implements AsyncReadWriteUpdateTable<K,
   public void init(Context context) {
     table.init(context);
     final TableMetricsUtil metricsUtil = new TableMetricsUtil(context, this, tableId);
+    if (batchProvider.isAdaptiveBatching()) {
+      // Each message of a task waits for its table operations, so at most task.max.concurrency can be outstanding
+      maxOutstandingOperations = new TaskConfig(context.getJobContext().getConfig()).getMaxConcurrency();
+    }
 
     createBatchProcessor(TableMetricsUtil.mayCreateHighResolutionClock(context.getJobContext().getConfig()),
         new BatchMetrics(metricsUtil));
@@ -178,7 +184,7 @@ public class AsyncBatchingTable<K, V, U> implements AsyncReadWriteUpdateTable<K,
   @VisibleForTesting
   void createBatchProcessor(HighResolutionClock clock, BatchMetrics batchMetrics) {
     batchProcessor = new BatchProcessor<>(batchMetrics, new TableBatchHandler<>(table),
-        batchProvider, clock, batchTimerExecutorService);
+        batchProvider, clock, batchTimerExecutorService, maxOutstandingOperations);
   }
 
   @VisibleForTesting
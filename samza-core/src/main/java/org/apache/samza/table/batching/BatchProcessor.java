@@ -27,6 +27,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 import org.apache.samza.util.HighResolutionClock;
 
@@ -36,6 +37,12 @@ import org.apache.samza.util.HighResolutionClock;
  * operations, it will handled by a {@link BatchHandler}. Meanwhile, a new {@link Batch} will be
  * created and a timer will be set for it.
  *
+ * With adaptive batching (see {@link BatchProvider#withAdaptiveBatching()}), a batch is also handled
+ * as soon as it holds all operations that can be outstanding, i.e. the operations in the batch and
+ * in the batches still being handled reach the max number of outstanding operations, since no more
+ * operations can arrive until some of them complete. The batch timer is further bounded by the
+ * recent latency of handling a batch, and a new batch is only created when the next operation arrives.
+ *
  * @param <K> The type of the key associated with the {@link Operation}
  * @param <V> The type of the value associated with the {@link Operation}
  */
@@ -46,7 +53,14 @@ public class BatchProcessor<K, V, U> {
   private final BatchProvider<K, V, U> batchProvider;
   private final BatchMetrics batchMetrics;
   private final HighResolutionClock clock;
+  private final boolean isAdaptive;
+  private final int maxOutstandingOperations;
+  // The number of operations in batches that are being handled
+  private final AtomicInteger numOutstandingOperations = new AtomicInteger();
+  // Moving average of the time taken to handle a batch, -1 until the first batch completes
+  private volatile long batchLatencyNs = -1;
   private Batch<K, V, U> batch;
+  private int numOperationsInBatch;
   private ScheduledFuture<?> scheduledFuture;
   private long batchOpenTimestamp;
 
@@ -59,6 +73,21 @@ public class BatchProcessor<K, V, U> {
    */
   public BatchProcessor(BatchMetrics batchMetrics, BatchHandler<K, V, U> batchHandler,
       BatchProvider<K, V, U> batchProvider, HighResolutionClock clock, ScheduledExecutorService scheduledExecutorService) {
+    this(batchMetrics, batchHandler, batchProvider, clock, scheduledExecutorService, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @param batchMetrics Batch metrics.
+   * @param batchHandler Defines how each batch will be processed.
+   * @param batchProvider The batch provider to create a batch instance.
+   * @param clock A clock used to get the timestamp.
+   * @param scheduledExecutorService A scheduled executor service to set timers for the managed batches.
+   * @param maxOutstandingOperations The max number of operations that can be outstanding at the same time,
+   *                                 used for adaptive batching.
+   */
+  public BatchProcessor(BatchMetrics batchMetrics, BatchHandler<K, V, U> batchHandler,
+      BatchProvider<K, V, U> batchProvider, HighResolutionClock clock, ScheduledExecutorService scheduledExecutorService,
+      int maxOutstandingOperations) {
     Preconditions.checkNotNull(batchHandler);
     Preconditions.checkNotNull(batchProvider);
     Preconditions.checkNotNull(clock);
@@ -69,6 +98,8 @@ public class BatchProcessor<K, V, U> {
     this.scheduledExecutorService = scheduledExecutorService;
     this.batchMetrics = batchMetrics;
     this.clock = clock;
+    this.isAdaptive = batchProvider.isAdaptiveBatching();
+    this.maxOutstandingOperations = maxOutstandingOperations;
   }
 
   private CompletableFuture<Void> addOperation(Operation<K, V, U> operation) {
@@ -76,12 +107,17 @@ public class BatchProcessor<K, V, U> {
       startNewBatch();
     }
     final CompletableFuture<Void> res = batch.addOperation(operation);
-    if (batch.isClosed()) {
+    numOperationsInBatch++;
+    if (batch.isClosed() || isMaxOutstanding()) {
       processBatch(true);
     }
     return res;
   }
 
+  private boolean isMaxOutstanding() {
+    return isAdaptive && numOperationsInBatch + numOutstandingOperations.get() >= maxOutstandingOperations;
+  }
+
   /**
    * @param operation The query operation to be added to the batch.
    * @return A {@link CompletableFuture} to indicate whether the operation is finished.
@@ -121,12 +157,31 @@ public class BatchProcessor<K, V, U> {
   private void processBatch(boolean cancelTimer) {
     mayCancelTimer(cancelTimer);
     closeBatch();
-    batchHandler.handle(batch);
-    startNewBatch();
+    final CompletableFuture<Void> batchFuture = batchHandler.handle(batch);
+    if (isAdaptive) {
+      trackOutstandingOperations(batchFuture, numOperationsInBatch);
+      batch = null;
+      numOperationsInBatch = 0;
+    } else {
+      startNewBatch();
+    }
+  }
+
+  private void trackOutstandingOperations(CompletableFuture<Void> batchFuture, int numOperations) {
+    final long startNs = clock.nanoTime();
+    numOutstandingOperations.addAndGet(numOperations);
+    batchFuture.whenComplete((val, throwable) -> {
+      numOutstandingOperations.addAndGet(-numOperations);
+      if (throwable == null && numOperations > 0) {
+        final long latencyNs = clock.nanoTime() - startNs;
+        batchLatencyNs = batchLatencyNs < 0 ? latencyNs : (batchLatencyNs * 4 + latencyNs) / 5;
+      }
+    });
   }
 
   private void startNewBatch() {
     batch = batchProvider.getBatch();
+    numOperationsInBatch = 0;
     batchOpenTimestamp = clock.nanoTime();
     batchMetrics.incBatchCount();
     setBatchTimer(batch);
@@ -149,14 +204,21 @@ public class BatchProcessor<K, V, U> {
   private void setBatchTimer(Batch<K, V, U> batch) {
     final long maxDelay = batch.getMaxBatchDelay().toMillis();
     if (maxDelay != Integer.MAX_VALUE) {
+      long delayNs = TimeUnit.MILLISECONDS.toNanos(maxDelay);
+      if (isAdaptive && batchLatencyNs >= 0) {
+        delayNs = Math.min(delayNs, batchLatencyNs);
+      }
       scheduledFuture = scheduledExecutorService.schedule(() -> {
         lock.lock();
         try {
-          processBatch(false);
+          // The batch may already have been handled because it was full
+          if (this.batch == batch) {
+            processBatch(false);
+          }
         } finally {
           lock.unlock();
         }
-      }, maxDelay, TimeUnit.MILLISECONDS);
+      }, delayNs, TimeUnit.NANOSECONDS);
     }
   }
 
@@ -169,6 +231,14 @@ public class BatchProcessor<K, V, U> {
     }
   }
 
+  /**
+   * Get the current number of operations in batches that are being handled.
+   */
+  @VisibleForTesting
+  int getNumOutstandingOperations() {
+    return numOutstandingOperations.get();
+  }
+
   /**
    * Get the current number of operations received.
    */
@@ -19,7 +19,11 @@
 
 package org.apache.samza.table.caching;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.apache.samza.SamzaException;
 import org.apache.samza.context.Context;
 import org.apache.samza.storage.kv.Entry;
@@ -32,6 +36,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
@@ -59,25 +66,93 @@ import static org.apache.samza.table.utils.TableMetricsUtil.updateTimer;
  * for the data in table and cache to be temporarily out-of-sync. Moreover, unsynchronized
  * operations in {@link CachingTable} also deliver higher performance when there is contention.
  *
+ * Concurrent cache misses for the same key share a single in-flight read from the table,
+ * so that an expired hot key does not cause a burst of identical requests to the table.
+ * Reads with additional arguments are not coalesced since the arguments may change the result.
+ *
+ * Optionally, {@code null} results can be cached for a negative TTL, so that lookups of
+ * nonexistent keys are not repeated against the table, and cached entries can be refreshed
+ * ahead of expiry: a read that hits an entry older than the refresh interval returns the
+ * cached value and reloads it from the table in the background. Both hold a bounded number of
+ * keys, so that a stream of distinct keys does not grow the heap without limit; an evicted key
+ * is looked up in the table again, or refreshed on its next hit, respectively.
+ *
  * @param <K> type of the table key
  * @param <V> type of the table value
  */
 public class CachingTable<K, V, U> extends BaseReadWriteUpdateTable<K, V, U>
     implements ReadWriteUpdateTable<K, V, U> {
 
+  /**
+   * Default max number of keys for negative caching and for refresh-ahead, if not given
+   */
+  public static final long DEFAULT_MAX_KEYS = 10000;
+
   private final ReadWriteUpdateTable<K, V, U> table;
   private final ReadWriteUpdateTable<K, V, U> cache;
   private final boolean isWriteAround;
 
+  // In-flight reads from the table, used to coalesce concurrent misses for the same key
+  private final ConcurrentMap<K, CompletableFuture<V>> pendingGets = new ConcurrentHashMap<>();
+  // Keys known not to exist in the table, null if negative caching is disabled
+  private final Cache<K, Boolean> negativeCache;
+  // Keys loaded within the refresh interval, null if refresh-ahead is disabled
+  private final Cache<K, Boolean> freshKeys;
+
   // Common caching stats
   private AtomicLong hitCount = new AtomicLong();
   private AtomicLong missCount = new AtomicLong();
 
   public CachingTable(String tableId, ReadWriteUpdateTable<K, V, U> table, ReadWriteUpdateTable<K, V, U> cache, boolean isWriteAround) {
+    this(tableId, table, cache, isWriteAround, -1, -1);
+  }
+
+  /**
+   * @param tableId Id of the table
+   * @param table the actual table
+   * @param cache the cache for the table
+   * @param isWriteAround whether writes bypass the cache
+   * @param negativeTtlMs how long in ms to cache {@code null} results, or -1 to not cache them
+   * @param refreshAfterMs how long in ms after a load an entry is refreshed on access, or -1 to not refresh entries
+   */
+  public CachingTable(String tableId, ReadWriteUpdateTable<K, V, U> table, ReadWriteUpdateTable<K, V, U> cache,
+      boolean isWriteAround, long negativeTtlMs, long refreshAfterMs) {
+    this(tableId, table, cache, isWriteAround, negativeTtlMs, DEFAULT_MAX_KEYS, refreshAfterMs, DEFAULT_MAX_KEYS);
+  }
+
+  /**
+   * @param tableId Id of the table
+   * @param table the actual table
+   * @param cache the cache for the table
+   * @param isWriteAround whether writes bypass the cache
+   * @param negativeTtlMs how long in ms to cache {@code null} results, or -1 to not cache them
+   * @param negativeCacheSize max number of keys whose {@code null} results are cached
+   * @param refreshAfterMs how long in ms after a load an entry is refreshed on access, or -1 to not refresh entries
+   * @param refreshCacheSize max number of keys whose load time is tracked for refresh-ahead, which should be
+   *                         at least the size of the cache
+   */
+  public CachingTable(String tableId, ReadWriteUpdateTable<K, V, U> table, ReadWriteUpdateTable<K, V, U> cache,
+      boolean isWriteAround, long negativeTtlMs, long negativeCacheSize, long refreshAfterMs, long refreshCacheSize) {
+    this(tableId, table, cache, isWriteAround, negativeTtlMs, negativeCacheSize, refreshAfterMs, refreshCacheSize,
+        Ticker.systemTicker());
+  }
+
+  @VisibleForTesting
+  CachingTable(String tableId, ReadWriteUpdateTable<K, V, U> table, ReadWriteUpdateTable<K, V, U> cache,
+      boolean isWriteAround, long negativeTtlMs, long negativeCacheSize, long refreshAfterMs, long refreshCacheSize,
+      Ticker ticker) {
     super(tableId);
     this.table = table;
     this.cache = cache;
     this.isWriteAround = isWriteAround;
+    this.negativeCache = negativeTtlMs > 0
+        ? CacheBuilder.newBuilder().ticker(ticker).expireAfterWrite(negativeTtlMs, TimeUnit.MILLISECONDS)
+            .maximumSize(negativeCacheSize).build()
+        : null;
+    this.freshKeys = refreshAfterMs > 0
+        ? CacheBuilder.newBuilder().ticker(ticker).expireAfterWrite(refreshAfterMs, TimeUnit.MILLISECONDS)
+            .maximumSize(refreshCacheSize).build()
+        : null;
   }
 
   @Override
@@ -121,25 +196,111 @@ public class CachingTable<K, V, U> extends BaseReadWriteUpdateTable<K, V, U>
     V value = cache.get(key, args);
     if (value != null) {
       hitCount.incrementAndGet();
+      refreshIfStale(key, args);
       return CompletableFuture.completedFuture(value);
     }
 
+    if (negativeCache != null && negativeCache.getIfPresent(key) != null) {
+      hitCount.incrementAndGet();
+      incCounter(metrics.numNegativeCacheHits);
+      return CompletableFuture.completedFuture(null);
+    }
+
     long startNs = clock.nanoTime();
     missCount.incrementAndGet();
 
+    return getFromTable(key, args).thenApply(result -> {
+      updateTimer(metrics.getNs, clock.nanoTime() - startNs);
+      return result;
+    });
+  }
+
+  /**
+   * Read a record from the table, sharing the read with any in-flight read for the same key.
+   * The cache is updated before the read is completed, so that reads issued after the shared
+   * read has completed find the record in the cache.
+   */
+  private CompletableFuture<V> getFromTable(K key, Object ... args) {
+    if (args.length > 0) {
+      return loadFromTable(key, args);
+    }
+
+    CompletableFuture<V> future = new CompletableFuture<>();
+    CompletableFuture<V> pendingFuture = pendingGets.putIfAbsent(key, future);
+    if (pendingFuture != null) {
+      incCounter(metrics.numCoalescedGets);
+      return pendingFuture;
+    }
+
+    CompletableFuture<V> loadFuture;
+    try {
+      loadFuture = loadFromTable(key);
+    } catch (Exception e) {
+      // the table failed without returning a future, so reads of the key must not wait for the shared read
+      pendingGets.remove(key, future);
+      future.completeExceptionally(e);
+      return future;
+    }
+    loadFuture.whenComplete((result, e) -> {
+      pendingGets.remove(key, future);
+      if (e != null) {
+        future.completeExceptionally(e);
+      } else {
+        future.complete(result);
+      }
+    });
+    return future;
+  }
+
+  private CompletableFuture<V> loadFromTable(K key, Object ... args) {
     return table.getAsync(key, args).handle((result, e) -> {
       if (e != null) {
         throw new SamzaException("Failed to get the record for " + key, e);
       } else {
         if (result != null) {
           cache.put(key, result, args);
+          markFresh(key);
+        } else if (negativeCache != null) {
+          negativeCache.put(key, Boolean.TRUE);
         }
-        updateTimer(metrics.getNs, clock.nanoTime() - startNs);
         return result;
       }
     });
   }
 
+  /**
+   * Reload a cached record in the background if it was loaded longer than the refresh interval ago.
+   * Keys that were not loaded by this table, e.g. those in a durable cache, are considered stale.
+   */
+  private void refreshIfStale(K key, Object ... args) {
+    if (freshKeys == null || freshKeys.getIfPresent(key) != null) {
+      return;
+    }
+    // Mark the key before reloading it so that concurrent hits don't trigger more refreshes
+    markFresh(key);
+    incCounter(metrics.numRefreshes);
+    getFromTable(key, args).whenComplete((result, e) -> {
+      if (e != null) {
+        // Keep serving the cached record, it is reloaded again once it expires from the cache
+        freshKeys.invalidate(key);
+      } else if (result == null) {
+        cache.delete(key, args);
+      }
+    });
+  }
+
+  private void markFresh(K key) {
+    if (freshKeys != null) {
+      freshKeys.put(key, Boolean.TRUE);
+    }
+  }
+
+  private void invalidateNegative(K key) {
+    if (negativeCache != null) {
+      negativeCache.invalidate(key);
+    }
+  }
+
   @Override
   public Map<K, V> getAll(List<K> keys, Object ... args) {
     try {
@@ -155,6 +316,15 @@ public class CachingTable<K, V, U> extends BaseReadWriteUpdateTable<K, V, U>
     // Make a copy of entries which might be immutable
     Map<K, V> getAllResult = new HashMap<>();
     List<K> missingKeys = lookupCache(keys, getAllResult);
+    if (negativeCache != null) {
+      missingKeys.removeIf(k -> {
+        if (negativeCache.getIfPresent(k) == null) {
+          return false;
+        }
+        incCounter(metrics.numNegativeCacheHits);
+        return true;
+      });
+    }
 
     if (missingKeys.isEmpty()) {
       return CompletableFuture.completedFuture(getAllResult);
@@ -169,8 +339,14 @@ public class CachingTable<K, V, U> extends BaseReadWriteUpdateTable<K, V, U>
           cache.putAll(records.entrySet().stream()
               .map(r -> new Entry<>(r.getKey(), r.getValue()))
               .collect(Collectors.toList()), args);
+          records.keySet().forEach(this::markFresh);
           getAllResult.putAll(records);
         }
+        if (negativeCache != null) {
+          missingKeys.stream()
+              .filter(k -> records == null || !records.containsKey(k))
+              .forEach(k -> negativeCache.put(k, Boolean.TRUE));
+        }
         updateTimer(metrics.getAllNs, clock.nanoTime() - startNs);
         return getAllResult;
       }
@@ -195,11 +371,14 @@ public class CachingTable<K, V, U> extends BaseReadWriteUpdateTable<K, V, U>
     return table.putAsync(key, value, args).handle((result, e) -> {
       if (e != null) {
         throw new SamzaException("Failed to put a record, key=" + key + ", value=" + value, e);
-      } else if (!isWriteAround) {
+      }
+      invalidateNegative(key);
+      if (!isWriteAround) {
         if (value == null) {
           cache.delete(key, args);
         } else {
           cache.put(key, value, args);
+          markFresh(key);
         }
       }
       updateTimer(metrics.putNs, clock.nanoTime() - startNs);
@@ -224,8 +403,11 @@ public class CachingTable<K, V, U> extends BaseReadWriteUpdateTable<K, V, U>
     return table.putAllAsync(records, args).handle((result, e) -> {
       if (e != null) {
         throw new SamzaException("Failed to put records " + records, e);
-      } else if (!isWriteAround) {
+      }
+      records.forEach(r -> invalidateNegative(r.getKey()));
+      if (!isWriteAround) {
         cache.putAll(records, args);
+        records.forEach(r -> markFresh(r.getKey()));
       }
 
       updateTimer(metrics.putAllNs, clock.nanoTime() - startNs);
@@ -63,7 +63,15 @@ public class CachingTableProvider extends BaseTableProvider {
     }
 
     boolean isWriteAround = Boolean.parseBoolean(tableConfig.getForTable(tableId, CachingTableDescriptor.WRITE_AROUND));
-    CachingTable cachingTable = new CachingTable(tableId, table, cache, isWriteAround);
+    long negativeTtlMs = Long.parseLong(tableConfig.getForTable(tableId, CachingTableDescriptor.NEGATIVE_TTL_MS, "-1"));
+    long refreshAfterMs = Long.parseLong(tableConfig.getForTable(tableId, CachingTableDescriptor.REFRESH_AFTER_MS, "-1"));
+    // negative caching and refresh-ahead hold at most as many keys as the default cache, if its size is known
+    long cacheSize = Long.parseLong(tableConfig.getForTable(tableId, CachingTableDescriptor.CACHE_SIZE,
+        String.valueOf(CachingTable.DEFAULT_MAX_KEYS)));
+    long negativeCacheSize = Long.parseLong(tableConfig.getForTable(tableId,
+        CachingTableDescriptor.NEGATIVE_CACHE_SIZE, String.valueOf(cacheSize)));
+    CachingTable cachingTable = new CachingTable(tableId, table, cache, isWriteAround, negativeTtlMs,
+        negativeCacheSize, refreshAfterMs, cacheSize);
     cachingTable.init(this.context);
     return cachingTable;
   }
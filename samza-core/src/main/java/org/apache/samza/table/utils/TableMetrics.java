@@ -37,6 +37,9 @@ public class TableMetrics {
   public final Counter numGetAlls;
   public final Counter numReads;
   public final Counter numMissedLookups;
+  public final Counter numCoalescedGets;
+  public final Counter numNegativeCacheHits;
+  public final Counter numRefreshes;
   // Write metrics
   public final Counter numPuts;
   public final Timer putNs;
@@ -72,6 +75,9 @@ public class TableMetrics {
     numReads = tableMetricsUtil.newCounter("num-reads");
     readNs = tableMetricsUtil.newTimer("read-ns");
     numMissedLookups = tableMetricsUtil.newCounter("num-missed-lookups");
+    numCoalescedGets = tableMetricsUtil.newCounter("num-coalesced-gets");
+    numNegativeCacheHits = tableMetricsUtil.newCounter("num-negative-cache-hits");
+    numRefreshes = tableMetricsUtil.newCounter("num-refreshes");
     // Write metrics
     numPuts = tableMetricsUtil.newCounter("num-puts");
     putNs = tableMetricsUtil.newTimer("put-ns");
@@ -25,7 +25,7 @@ import java.net.{URL, UnknownHostException}
 import java.nio.file.Path
 import java.util
 import java.util.concurrent._
-import java.util.function.Consumer
+import java.util.function.{BiConsumer, Consumer}
 import java.util.{Base64, Optional}
 import com.google.common.util.concurrent.ThreadFactoryBuilder
 import org.apache.samza.SamzaException
@@ -424,6 +424,7 @@ object SamzaContainer extends Logging {
     val dropSerializationError = taskConfig.getDropSerializationErrors
 
     val pollIntervalMs = taskConfig.getPollIntervalMs
+    val deserializationThreadPoolSize = taskConfig.getDeserializationThreadPoolSize
 
     val appConfig = new ApplicationConfig(config)
 
@@ -437,7 +438,8 @@ object SamzaContainer extends Logging {
       pollIntervalMs = pollIntervalMs,
       clock = () => clock.nanoTime(),
       elasticityFactor = jobConfig.getElasticityFactor,
-      runId = appConfig.getRunId)
+      runId = appConfig.getRunId,
+      deserializationThreadPoolSize = deserializationThreadPoolSize)
 
     val producerMultiplexer = new SystemProducers(
       producers = producers,
@@ -623,6 +625,8 @@ object SamzaContainer extends Logging {
       (taskName, taskInstance)
     }).toMap
 
+    taskInstances.keys.foreach(samzaContainerMetrics.addTimeToFirstMessageGauge)
+
     val runLoop: Runnable = RunLoopFactory.createRunLoop(
       taskInstances,
       consumerMultiplexer,
@@ -720,6 +724,9 @@ class SamzaContainer(
   private val jobConfig = new JobConfig(config)
   private val taskConfig = new TaskConfig(config)
 
+  // the run loop created by RunLoopFactory waits for each task to be added when progressive startup is enabled
+  private val progressiveStartupEnabled = jobConfig.getContainerProgressiveStartupEnabled && taskInstances.size > 0
+
   val shutdownMs: Long = taskConfig.getLong(TaskConfig.TASK_SHUTDOWN_MS, 5000)
 
   var shutdownHookThread: Thread = null
@@ -732,6 +739,9 @@ class SamzaContainer(
   private var exceptionSeen: Throwable = null
   private var containerListener: SamzaContainerListener = null
 
+  @volatile private var storesStartupThread: Thread = null
+  @volatile private var storesStartupException: Throwable = null
+
   def getStatus(): SamzaContainerStatus = status
 
   def drain() {
@@ -771,12 +781,19 @@ class SamzaContainer(
       // TODO HIGH pmaheshw SAMZA-2338: since store restore needs to trim changelog messages,
       // need to start changelog producers before the stores, but stop them after stores.
       startProducers
-      val taskCheckpoints = startStores
-      startTableManager
-      startDiskSpaceMonitor
-      startHostStatisticsMonitor
-      startTask(taskCheckpoints)
-      startConsumers
+      if (progressiveStartupEnabled) {
+        startDiskSpaceMonitor
+        startHostStatisticsMonitor
+        startConsumers
+        startStoresProgressively
+      } else {
+        val taskCheckpoints = startStores
+        startTableManager
+        startDiskSpaceMonitor
+        startHostStatisticsMonitor
+        startTask(taskCheckpoints)
+        startConsumers
+      }
       startSecurityManger
 
       info("Entering run loop.")
@@ -789,6 +806,10 @@ class SamzaContainer(
         runLoop.run
       else
         standbyContainerShutdownLatch.await() // Standby containers do not spin runLoop, instead they wait on signal to invoke shutdown
+
+      if (storesStartupException != null) {
+        throw storesStartupException
+      }
     } catch {
       case e: InterruptedException =>
         /*
@@ -827,6 +848,7 @@ class SamzaContainer(
         jmxServer.stop
       }
 
+      shutdownStoresStartup
       shutdownConsumers
       shutdownTask
       shutdownDrainMonitor
@@ -984,6 +1006,49 @@ class SamzaContainer(
     containerStorageManager.start()
   }
 
+  /**
+   * Starts the stores on a separate thread while the run loop is already running. Each task is initialized and added
+   * to the run loop as soon as its own stores are ready, so tasks without state, or with little state to restore,
+   * start processing without waiting for the restore of the other tasks. The partitions of a task are consumed only
+   * once it has been added. A failure to start the stores shuts down the run loop and is rethrown from run.
+   */
+  def startStoresProgressively {
+    info("Starting container storage manager with progressive startup.")
+
+    storesStartupThread = new Thread(new Runnable {
+      override def run(): Unit = {
+        try {
+          containerStorageManager.start(new BiConsumer[TaskName, Checkpoint] {
+            override def accept(taskName: TaskName, checkpoint: Checkpoint): Unit = startTask(taskName, checkpoint)
+          })
+          info("Container storage manager started.")
+        } catch {
+          case e: InterruptedException =>
+            warn("Received an interrupt while starting the stores.", e)
+          case e: Throwable =>
+            error("Caught exception/error while starting the stores.", e)
+            storesStartupException = e
+            shutdownRunLoop()
+        }
+      }
+    }, "Samza Container Stores Startup Thread")
+    storesStartupThread.setDaemon(true)
+    storesStartupThread.start()
+  }
+
+  /**
+   * Init a task instance whose stores are ready, and add it to the run loop. Invoked from the restore threads.
+   */
+  def startTask(taskName: TaskName, checkpoint: Checkpoint) {
+    // the stores of standby tasks are started too, but standby tasks have no task instance
+    taskInstances.get(taskName).foreach(taskInstance => {
+      info("Initializing stream task %s with checkpoint %s." format (taskName, checkpoint))
+      taskInstance.startTableManager
+      taskInstance.initTask(Some(checkpoint))
+      runLoop.asInstanceOf[RunLoop].addTask(taskName)
+    })
+  }
+
   def startTableManager: Unit = {
     taskInstances.values.foreach(taskInstance => {
       info("Starting table manager in task instance %s" format taskInstance.taskName)
@@ -1053,6 +1118,14 @@ class SamzaContainer(
     }
   }
 
+  def shutdownStoresStartup {
+    if (storesStartupThread != null && storesStartupThread.isAlive) {
+      info("Interrupting the stores startup thread.")
+      storesStartupThread.interrupt()
+      storesStartupThread.join(shutdownMs)
+    }
+  }
+
   def shutdownConsumers {
     info("Shutting down consumer multiplexer.")
 
@@ -42,6 +42,9 @@ class SamzaContainerMetrics(
   val processNs = newTimer("process-ns")
   val commitNs = newTimer("commit-ns")
   val blockNs = newTimer("block-ns")
+  // number of task workers run by the run loop; divide by process-envelopes for the dispatch fan-out per envelope
+  val dispatchedTasks = newCounter("dispatched-tasks")
+  val readyTasks = newGauge("ready-tasks", 0L)
   val containerStartupTime = newGauge("container-startup-time", 0L)
   val utilization = newGauge("event-loop-utilization", 0.0F)
   val diskUsageBytes = newGauge("disk-usage-bytes", 0L)
@@ -60,5 +63,12 @@ class SamzaContainerMetrics(
     taskStoreRestorationMetrics.put(taskName, newGauge("%s-restore-time" format(taskName.toString), -1L))
   }
 
+  // time from the creation of the run loop until the task processes its first message, in milliseconds
+  val taskTimeToFirstMessageMetrics: util.Map[TaskName, Gauge[Long]] = new util.HashMap[TaskName, Gauge[Long]]()
+
+  def addTimeToFirstMessageGauge(taskName: TaskName) {
+    taskTimeToFirstMessageMetrics.put(taskName, newGauge("%s-time-to-first-message-ms" format(taskName.toString), -1L))
+  }
+
   override def getPrefix: String = prefix
 }
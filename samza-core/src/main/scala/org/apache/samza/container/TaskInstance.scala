@@ -28,7 +28,7 @@ import org.apache.samza.checkpoint.{Checkpoint, CheckpointId, CheckpointV1, Chec
 import org.apache.samza.config.{Config, JobConfig, StreamConfig, TaskConfig}
 import org.apache.samza.context._
 import org.apache.samza.job.model.{JobModel, TaskMode, TaskModel}
-import org.apache.samza.scheduler.{CallbackSchedulerImpl, EpochTimeScheduler, ScheduledCallback}
+import org.apache.samza.scheduler.{CallbackSchedulerImpl, EpochTimeScheduler, ScheduledCallback, TimingWheelEpochTimeScheduler}
 import org.apache.samza.storage.kv.KeyValueStore
 import org.apache.samza.storage.{ContainerStorageManager, TaskStorageCommitManager}
 import org.apache.samza.system._
@@ -78,8 +78,6 @@ class TaskInstance(
 
   override val isWindowableTask = task.isInstanceOf[WindowableTask]
 
-  override val epochTimeScheduler: EpochTimeScheduler = EpochTimeScheduler.create(timerExecutor)
-
   private val kvStoreSupplier = ScalaJavaUtil.toJavaFunction(
     (storeName: String) => {
       if (containerStorageManager != null) {
@@ -89,6 +87,14 @@ class TaskInstance(
         null
       }
     })
+
+  override val epochTimeScheduler: EpochTimeScheduler =
+    if (new TaskConfig(jobContext.getConfig).getTimerWheelEnabled) {
+      TimingWheelEpochTimeScheduler.create(timerExecutor, jobContext.getConfig, kvStoreSupplier)
+    } else {
+      EpochTimeScheduler.create(timerExecutor)
+    }
+
   private val taskContext = {
     val jobConfig = new JobConfig(jobContext.getConfig)
     val taskExecutorFactory = ReflectionUtil.getObj(jobConfig.getTaskExecutorFactory, classOf[TaskExecutorFactory])
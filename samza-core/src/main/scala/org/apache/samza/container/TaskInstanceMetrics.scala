@@ -53,5 +53,9 @@ class TaskInstanceMetrics(
     newGauge("%s-%s-%d-offset" format (systemStreamPartition.getSystem, systemStreamPartition.getStream, systemStreamPartition.getPartition.getPartitionId), getValue)
   }
 
+  def addCaughtUpGauge(systemStreamPartition: SystemStreamPartition, getValue: () => java.lang.Boolean) {
+    newGauge("%s-%s-%d-caught-up" format (systemStreamPartition.getSystem, systemStreamPartition.getStream, systemStreamPartition.getPartition.getPartitionId), getValue)
+  }
+
   override def getPrefix: String = prefix
 }
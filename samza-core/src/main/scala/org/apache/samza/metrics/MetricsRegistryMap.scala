@@ -19,14 +19,37 @@
 
 package org.apache.samza.metrics
 
+import org.apache.samza.config.{Config, MetricsConfig}
 import org.apache.samza.util.Logging
 import java.util.concurrent.ConcurrentHashMap
+import java.util.function.Supplier
+
+object MetricsRegistryMap {
+  /**
+   * Create a registry whose timers use the reservoir selected by
+   * metrics.timer.reservoir.
+   */
+  def fromConfig(config: Config) = {
+    new MetricsConfig(config).getMetricsTimerReservoir match {
+      case MetricsConfig.METRICS_TIMER_RESERVOIR_HDR_HISTOGRAM =>
+        new MetricsRegistryMap(new Supplier[Reservoir] {
+          override def get() = new HdrHistogramReservoir
+        })
+      case _ => new MetricsRegistryMap
+    }
+  }
+}
 
 /**
  * A class that holds all metrics registered with it. It can be registered
  * with one or more MetricReporters to flush metrics.
+ *
+ * @param timerReservoirSupplier supplies the reservoir for timers created by
+ *                               name, or null to use the Timer default
  */
-class MetricsRegistryMap extends ReadableMetricsRegistry with Logging {
+class MetricsRegistryMap(timerReservoirSupplier: Supplier[Reservoir]) extends ReadableMetricsRegistry with Logging {
+  def this() = this(null)
+
   var listeners = Set[ReadableMetricsRegistryListener]()
 
   /*
@@ -72,7 +95,8 @@ class MetricsRegistryMap extends ReadableMetricsRegistry with Logging {
 
   def newTimer(group: String, name: String) = {
     debug("Creating new timer %s %s." format (group, name))
-    newTimer(group, new Timer(name))
+    val timer = if (timerReservoirSupplier == null) new Timer(name) else new Timer(name, timerReservoirSupplier.get)
+    newTimer(group, timer)
   }
 
   private def putAndGetGroup(group: String) = {
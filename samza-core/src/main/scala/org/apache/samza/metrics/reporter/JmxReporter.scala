@@ -115,10 +115,16 @@ class JmxCounter(c: org.apache.samza.metrics.Counter, on: ObjectName) extends Jm
 
 trait JmxTimerMBean extends MetricMBean {
   def getAverageTime(): Double
+  def getMaxTime(): Long
+  def get50thPercentileTime(): Long
+  def get99thPercentileTime(): Long
 }
 
 class JmxTimer(t: org.apache.samza.metrics.Timer, on: ObjectName) extends JmxTimerMBean {
   def getAverageTime() = t.getSnapshot().getAverage()
+  def getMaxTime() = t.getSnapshot().getMax()
+  def get50thPercentileTime() = t.getSnapshot().getPercentile(50)
+  def get99thPercentileTime() = t.getSnapshot().getPercentile(99)
   def objectName = on
 }
 
@@ -22,14 +22,19 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.File;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 import org.apache.samza.SamzaException;
 import org.apache.samza.checkpoint.Checkpoint;
@@ -119,7 +124,9 @@ public class ContainerStorageManager {
   private final Set<String> sideInputStoreNames;
   private SideInputsManager sideInputsManager; // created in start() after restoreStores() for regular stores is complete.
 
-  private boolean isStarted = false;
+  private volatile boolean isStarted = false;
+  // tasks whose stores are available before #start() completes, see #start(BiConsumer)
+  private final Set<TaskName> readyTasks = ConcurrentHashMap.newKeySet();
 
   public ContainerStorageManager(
       CheckpointManager checkpointManager,
@@ -212,8 +219,22 @@ public class ContainerStorageManager {
    * checkpoint manager in case of a BlobStoreRestoreManager.
    */
   public Map<TaskName, Checkpoint> start() throws SamzaException, InterruptedException {
+    return start(null);
+  }
+
+  /**
+   * Starts all the task stores, like {@link #start()}, and invokes the taskStoresReadyListener (if not null) with the
+   * latest checkpoint of each task once the stores of that task can be accessed.
+   *
+   * If there are no side input stores, the stores of a task are created and handed to the listener as soon as the
+   * restore of that task completes, on the restore thread, without waiting for the restore of the other tasks.
+   * Otherwise, the listener is invoked for all the tasks once the initial side inputs restore is complete.
+   */
+  public Map<TaskName, Checkpoint> start(BiConsumer<TaskName, Checkpoint> taskStoresReadyListener)
+      throws SamzaException, InterruptedException {
     // Restores and recreates stores.
-    Map<TaskName, Checkpoint> taskCheckpoints = restoreStores();
+    Map<TaskName, Checkpoint> taskCheckpoints = restoreStores(
+        sideInputStoreNames.isEmpty() ? taskStoresReadyListener : null);
 
     // Shutdown restore executor since it will no longer be used
     try {
@@ -250,11 +271,19 @@ public class ContainerStorageManager {
     });
 
     isStarted = true;
+
+    if (taskStoresReadyListener != null) {
+      containerModel.getTasks().keySet().stream()
+          .filter(taskName -> !readyTasks.contains(taskName))
+          .forEach(taskName -> taskStoresReadyListener.accept(taskName, taskCheckpoints.get(taskName)));
+    }
     return taskCheckpoints;
   }
 
-  // Restoration of all stores, in parallel across tasks
-  private Map<TaskName, Checkpoint> restoreStores() throws InterruptedException {
+  // Restoration of all stores, in parallel across tasks. If taskRestoredListener is not null, the stores of each task
+  // are created as soon as its restore completes, and the listener is invoked for the task right after.
+  private Map<TaskName, Checkpoint> restoreStores(BiConsumer<TaskName, Checkpoint> taskRestoredListener)
+      throws InterruptedException {
     LOG.info("Store Restore started");
     Set<TaskName> activeTasks = ContainerStorageManagerUtil.getTasks(containerModel, TaskMode.Active).keySet();
     // Find all non-side input stores
@@ -308,12 +337,30 @@ public class ContainerStorageManager {
       taskBackendFactoryToStoreNames.put(taskName, backendFactoryToStoreNames);
     });
 
+    // Create the stores of each task as soon as its restore completes, if requested
+    Map<TaskName, CompletableFuture<Checkpoint>> taskRestoreFutures = new HashMap<>();
+    List<CompletableFuture<Void>> taskStoresReadyFutures = new ArrayList<>();
+    if (taskRestoredListener != null) {
+      this.taskStores = new ConcurrentHashMap<>();
+      containerModel.getTasks().forEach((taskName, taskModel) -> {
+        CompletableFuture<Checkpoint> taskRestoreFuture = new CompletableFuture<>();
+        taskRestoreFutures.put(taskName, taskRestoreFuture);
+        taskStoresReadyFutures.add(taskRestoreFuture.thenAccept(checkpoint -> {
+          taskStores.putAll(createTaskStores(nonSideInputStoreNames,
+              new ContainerModel(containerModel.getId(), Collections.singletonMap(taskName, taskModel))));
+          readyTasks.add(taskName);
+          LOG.info("Stores of task {} are ready", taskName);
+          taskRestoredListener.accept(taskName, checkpoint);
+        }));
+      });
+    }
+
     // Init all taskRestores and if successful, restores all the task stores concurrently
     LOG.debug("Pre init and restore checkpoints is: {}", taskCheckpoints);
     CompletableFuture<Map<TaskName, Checkpoint>> initRestoreAndNewCheckpointFuture =
         ContainerStorageManagerRestoreUtil.initAndRestoreTaskInstances(taskRestoreManagers, samzaContainerMetrics,
             checkpointManager, jobContext, containerModel, taskCheckpoints, taskBackendFactoryToStoreNames, config,
-            restoreExecutor, taskInstanceMetrics, loggedStoreBaseDirectory, storeConsumers);
+            restoreExecutor, taskInstanceMetrics, loggedStoreBaseDirectory, storeConsumers, taskRestoreFutures);
 
     // Update the task checkpoints map, if it was updated during the restore. Throw an exception if the restore or
     // creating a new checkpoint (in case of BlobStoreBackendFactory) failed.
@@ -321,6 +368,7 @@ public class ContainerStorageManager {
       Map<TaskName, Checkpoint> newTaskCheckpoints = initRestoreAndNewCheckpointFuture.get();
       taskCheckpoints.putAll(newTaskCheckpoints);
       LOG.debug("Post init and restore checkpoints is: {}. NewTaskCheckpoints are: {}", taskCheckpoints, newTaskCheckpoints);
+      CompletableFuture.allOf(taskStoresReadyFutures.toArray(new CompletableFuture[0])).get();
     } catch (InterruptedException e) {
       LOG.warn("Received an interrupt during store restoration. Interrupting the restore executor to exit "
           + "prematurely without restoring full state.");
@@ -334,27 +382,38 @@ public class ContainerStorageManager {
     // Stop each store consumer once
     this.storeConsumers.values().stream().distinct().forEach(SystemConsumer::stop);
 
-    // Now create persistent non-side-input stores in read-write mode, leave non-persistent and side-input stores as-is
+    if (taskRestoredListener == null) {
+      this.taskStores = createTaskStores(nonSideInputStoreNames, containerModel);
+    }
+
+    LOG.info("Store Restore complete");
+    return taskCheckpoints;
+  }
+
+  // Creates persistent non-side-input stores of the tasks in the model in read-write mode, and adds the non-persistent
+  // stores created in the constructor. Side-input stores are left as-is.
+  private Map<TaskName, Map<String, StorageEngine>> createTaskStores(Set<String> nonSideInputStoreNames,
+      ContainerModel model) {
     Set<String> inMemoryStoreNames =
         ContainerStorageManagerUtil.getInMemoryStoreNames(this.storageEngineFactories, this.config);
     Set<String> storesToCreate = nonSideInputStoreNames.stream()
         .filter(s -> !inMemoryStoreNames.contains(s)).collect(Collectors.toSet());
-    this.taskStores = ContainerStorageManagerUtil.createTaskStores(
+    Map<TaskName, Map<String, StorageEngine>> stores = ContainerStorageManagerUtil.createTaskStores(
         storesToCreate, this.storageEngineFactories, this.sideInputStoreNames,
-        this.activeTaskChangelogSystemStreams, this.containerModel, this.jobContext, this.containerContext,
+        this.activeTaskChangelogSystemStreams, model, this.jobContext, this.containerContext,
         this.serdes, this.taskInstanceMetrics, this.taskInstanceCollectors, this.storageManagerUtil,
         this.loggedStoreBaseDirectory, this.nonLoggedStoreBaseDirectory, this.config);
 
     // Add in memory stores
-    this.inMemoryStores.forEach((taskName, stores) -> {
-      if (!this.taskStores.containsKey(taskName)) {
-        taskStores.put(taskName, new HashMap<>());
+    this.inMemoryStores.forEach((taskName, inMemoryTaskStores) -> {
+      if (model.getTasks().containsKey(taskName)) {
+        if (!stores.containsKey(taskName)) {
+          stores.put(taskName, new HashMap<>());
+        }
+        stores.get(taskName).putAll(inMemoryTaskStores);
       }
-      taskStores.get(taskName).putAll(stores);
     });
-
-    LOG.info("Store Restore complete");
-    return taskCheckpoints;
+    return stores;
   }
 
   /**
@@ -364,7 +423,7 @@ public class ContainerStorageManager {
    * @return the task store.
    */
   public Optional<StorageEngine> getStore(TaskName taskName, String storeName) {
-    if (!isStarted) {
+    if (!isStarted && !readyTasks.contains(taskName)) {
       throw new SamzaException(String.format(
           "Attempting to access store %s for task %s before ContainerStorageManager is started.",
           storeName, taskName));
@@ -378,7 +437,7 @@ public class ContainerStorageManager {
    * @return map of stores used by the given task, indexed by storename
    */
   public Map<String, StorageEngine> getAllStores(TaskName taskName) {
-    if (!isStarted) {
+    if (!isStarted && !readyTasks.contains(taskName)) {
       throw new SamzaException(String.format(
           "Attempting to access stores for task %s before ContainerStorageManager is started.", taskName));
     }
@@ -402,13 +461,15 @@ public class ContainerStorageManager {
     // stop all non side input stores including persistent and non-persistent stores
     if (taskStores != null) {
       this.containerModel.getTasks()
-          .forEach((taskName, taskModel) -> taskStores.get(taskName)
+          .forEach((taskName, taskModel) -> taskStores.getOrDefault(taskName, Collections.emptyMap())
               .entrySet().stream()
               .filter(e -> !sideInputStoreNames.contains(e.getKey()))
               .forEach(e -> e.getValue().stop()));
     }
 
-    this.sideInputsManager.shutdown();
+    if (this.sideInputsManager != null) {
+      this.sideInputsManager.shutdown();
+    }
     LOG.info("Shutdown complete");
   }
 }
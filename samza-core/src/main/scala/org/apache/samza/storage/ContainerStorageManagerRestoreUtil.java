@@ -23,6 +23,7 @@ import com.google.common.collect.ImmutableMap;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -86,6 +87,22 @@ public class ContainerStorageManagerRestoreUtil {
       Map<TaskName, Checkpoint> taskCheckpoints, Map<TaskName, Map<String, Set<String>>> taskBackendFactoryToStoreNames,
       Config config, ExecutorService executor, Map<TaskName, TaskInstanceMetrics> taskInstanceMetrics,
       File loggerStoreDir, Map<String, SystemConsumer> storeConsumers) {
+    return initAndRestoreTaskInstances(taskRestoreManagers, samzaContainerMetrics, checkpointManager, jobContext,
+        containerModel, taskCheckpoints, taskBackendFactoryToStoreNames, config, executor, taskInstanceMetrics,
+        loggerStoreDir, storeConsumers, Collections.emptyMap());
+  }
+
+  /**
+   * Same as above, but additionally completes the future of a task in taskRestoreFutures with the latest checkpoint
+   * of the task as soon as all the stores of that task have been restored, without waiting for the other tasks.
+   */
+  public static CompletableFuture<Map<TaskName, Checkpoint>> initAndRestoreTaskInstances(
+      Map<TaskName, Map<String, TaskRestoreManager>> taskRestoreManagers, SamzaContainerMetrics samzaContainerMetrics,
+      CheckpointManager checkpointManager, JobContext jobContext, ContainerModel containerModel,
+      Map<TaskName, Checkpoint> taskCheckpoints, Map<TaskName, Map<String, Set<String>>> taskBackendFactoryToStoreNames,
+      Config config, ExecutorService executor, Map<TaskName, TaskInstanceMetrics> taskInstanceMetrics,
+      File loggerStoreDir, Map<String, SystemConsumer> storeConsumers,
+      Map<TaskName, CompletableFuture<Checkpoint>> taskRestoreFutures) {
 
     Set<String> forceRestoreTasks = new HashSet<>();
     // Initialize each TaskStorageManager.
@@ -118,7 +135,7 @@ public class ContainerStorageManagerRestoreUtil {
 
     return restoreAllTaskInstances(taskRestoreManagers, taskCheckpoints, taskBackendFactoryToStoreNames, jobContext,
         containerModel, samzaContainerMetrics, checkpointManager, config, taskInstanceMetrics, executor, loggerStoreDir,
-        forceRestoreTasks);
+        forceRestoreTasks, taskRestoreFutures);
   }
 
   /**
@@ -131,13 +148,15 @@ public class ContainerStorageManagerRestoreUtil {
       Map<TaskName, Map<String, Set<String>>> taskBackendFactoryToStoreNames, JobContext jobContext,
       ContainerModel containerModel, SamzaContainerMetrics samzaContainerMetrics, CheckpointManager checkpointManager,
       Config config, Map<TaskName, TaskInstanceMetrics> taskInstanceMetrics, ExecutorService executor,
-      File loggedStoreDir, Set<String> forceRestoreTask) {
+      File loggedStoreDir, Set<String> forceRestoreTask,
+      Map<TaskName, CompletableFuture<Checkpoint>> taskRestoreFutures) {
 
     Map<TaskName, Checkpoint> newTaskCheckpoints = new ConcurrentHashMap<>();
     List<Future<Void>> restoreAndCleanupFutures = new ArrayList<>();
 
     // Submit restore callable for each taskInstance
     taskRestoreManagers.forEach((taskInstanceName, restoreManagersMap) -> {
+      List<CompletableFuture<Void>> taskCleanUpFutures = new ArrayList<>();
       // Submit for each restore factory
       restoreManagersMap.forEach((factoryName, taskRestoreManager) -> {
         long startTime = System.currentTimeMillis();
@@ -176,8 +195,16 @@ public class ContainerStorageManagerRestoreUtil {
               (checkpoint, t) -> cleanUpResources(checkpoint, t, startTime, samzaContainerMetrics, taskInstanceName,
                   taskRestoreManager, newTaskCheckpoints));
 
-        restoreAndCleanupFutures.add(cleanUpFuture);
+        taskCleanUpFutures.add(cleanUpFuture);
       });
+
+      CompletableFuture<Void> taskRestoreFuture =
+          CompletableFuture.allOf(taskCleanUpFutures.toArray(new CompletableFuture[0]));
+      if (taskRestoreFutures.containsKey(taskInstanceName)) {
+        taskRestoreFuture.thenRun(() -> taskRestoreFutures.get(taskInstanceName).complete(
+            newTaskCheckpoints.getOrDefault(taskInstanceName, taskCheckpoints.get(taskInstanceName))));
+      }
+      restoreAndCleanupFutures.add(taskRestoreFuture);
     });
 
     return CompletableFuture.allOf(restoreAndCleanupFutures.toArray(new CompletableFuture[0]))
@@ -83,6 +83,7 @@ public class SideInputsManager {
   private static final Logger LOG = LoggerFactory.getLogger(SideInputsManager.class);
 
   private static final String SIDE_INPUTS_THREAD_NAME = "SideInputs Thread";
+  private static final String SIDE_INPUTS_PROCESS_THREAD_NAME = "SideInputs Process Thread-%d";
   // We use a prefix to differentiate the SystemConsumersMetrics for sideInputs from the ones in SamzaContainer
   private static final String SIDE_INPUTS_METRICS_PREFIX = "side-inputs-";
 
@@ -108,6 +109,8 @@ public class SideInputsManager {
   private final Map<TaskName, CountDownLatch> sideInputTaskLatches;
   private final ExecutorService sideInputsExecutor = Executors.newSingleThreadExecutor(
       new ThreadFactoryBuilder().setDaemon(true).setNameFormat(SIDE_INPUTS_THREAD_NAME).build());
+  // null if side inputs of all tasks are processed on the sideInputsExecutor thread
+  private final ExecutorService sideInputsProcessExecutor;
   private RunLoop sideInputRunLoop; // created in start()
 
   private volatile boolean shouldShutdown = false;
@@ -154,6 +157,17 @@ public class SideInputsManager {
         loggedStoreBaseDirectory, nonLoggedStoreBaseDirectory, config, clock
     );
 
+    // process the side inputs of different tasks concurrently, bounded by the number of tasks with side inputs
+    int sideInputsThreadPoolSize =
+        Math.min(new JobConfig(config).getSideInputsThreadPoolSize(), sideInputTaskLatches.size());
+    if (sideInputsThreadPoolSize > 0) {
+      LOG.info("Processing side inputs on a thread pool of size {}", sideInputsThreadPoolSize);
+      this.sideInputsProcessExecutor = Executors.newFixedThreadPool(sideInputsThreadPoolSize,
+          new ThreadFactoryBuilder().setDaemon(true).setNameFormat(SIDE_INPUTS_PROCESS_THREAD_NAME).build());
+    } else {
+      this.sideInputsProcessExecutor = null;
+    }
+
     // create SystemConsumers for consuming from taskSideInputSSPs, if sideInputs are being used
     if (this.hasSideInputs) {
       Set<SystemStream> containerSideInputSystemStreams = this.taskSideInputStoreSSPs.values().stream()
@@ -189,7 +203,8 @@ public class SideInputsManager {
               sideInputSystemConsumersMetrics, SystemConsumers.DEFAULT_NO_NEW_MESSAGES_TIMEOUT(),
               SystemConsumers.DEFAULT_DROP_SERIALIZATION_ERROR(),
               TaskConfig.DEFAULT_POLL_INTERVAL_MS, ScalaJavaUtil.toScalaFunction(() -> System.nanoTime()),
-              JobConfig.DEFAULT_JOB_ELASTICITY_FACTOR, applicationConfig.getRunId());
+              JobConfig.DEFAULT_JOB_ELASTICITY_FACTOR, applicationConfig.getRunId(),
+              SystemConsumers.DEFAULT_DESERIALIZATION_THREAD_POOL_SIZE());
     }
   }
 
@@ -220,7 +235,7 @@ public class SideInputsManager {
 
           RunLoopTask sideInputTask = new SideInputTask(taskName, taskSSPs,
               taskSideInputHandlers.get(taskName), sideInputTaskMetrics.get(taskName),
-              new TaskConfig(config).getCommitMs());
+              new TaskConfig(config).getCommitMs(), this.sideInputsProcessExecutor);
           sideInputTasks.put(taskName, sideInputTask);
         }
       });
@@ -240,6 +255,8 @@ public class SideInputsManager {
             ssp, ScalaJavaUtil.toScalaFunction(() -> this.sspSideInputHandlers.get(ssp).getLastProcessedOffset(ssp)));
         sideInputTaskMetrics.get(this.sspSideInputHandlers.get(ssp).getTaskName()).addOffsetGauge(
             ssp, ScalaJavaUtil.toScalaFunction(() -> this.sspSideInputHandlers.get(ssp).getLastProcessedOffset(ssp)));
+        sideInputTaskMetrics.get(this.sspSideInputHandlers.get(ssp).getTaskName()).addCaughtUpGauge(
+            ssp, ScalaJavaUtil.toScalaFunction(() -> this.sspSideInputHandlers.get(ssp).isCaughtUp(ssp)));
       }
 
       // start the systemConsumers for consuming input
@@ -254,7 +271,7 @@ public class SideInputsManager {
 
       SideInputRunLoopConfig runLoopConfig = new SideInputRunLoopConfig(config);
       this.sideInputRunLoop = new RunLoop(sideInputTasks,
-          null, // all operations are executed in the main runloop thread
+          this.sideInputsProcessExecutor, // if null, all operations are executed in the main runloop thread
           this.sideInputSystemConsumers,
           sideInputContainerMetrics,
           System::nanoTime,
@@ -273,7 +290,7 @@ public class SideInputsManager {
         // Make the main thread wait until all sideInputs have been caughtup or an exception was thrown
         while (!shouldShutdown && sideInputException == null &&
             !awaitSideInputTasks(sideInputTaskLatches)) {
-          LOG.debug("Waiting for SideInput bootstrap to complete");
+          logSideInputsProgress();
         }
 
         if (sideInputException != null) { // Throw exception if there was an exception in catching-up sideInputs
@@ -309,6 +326,10 @@ public class SideInputsManager {
       this.sideInputsExecutor.shutdown();
       try {
         this.sideInputsExecutor.awaitTermination(SIDE_INPUT_SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        if (this.sideInputsProcessExecutor != null) {
+          this.sideInputsProcessExecutor.shutdown();
+          this.sideInputsProcessExecutor.awaitTermination(SIDE_INPUT_SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
       } catch (InterruptedException e) {
         throw new SamzaException("Exception while shutting down sideInputs", e);
       }
@@ -365,10 +386,11 @@ public class SideInputsManager {
       ContainerModel containerModel, StreamMetadataCache streamMetadataCache, SystemAdmins systemAdmins,
       Map<String, Serde<Object>> serdes, File loggedStoreBaseDirectory, File nonLoggedStoreBaseDirectory,
       Config config, Clock clock) {
+    StorageConfig storageConfig = new StorageConfig(config);
     // creating sideInput store processors, one per store per task
     Map<TaskName, Map<String, SideInputsProcessor>> taskSideInputProcessors =
         createSideInputProcessors(taskInstanceMetrics, taskSideInputStoreSSPs,
-            containerModel, serdes, new StorageConfig(config));
+            containerModel, serdes, storageConfig);
 
     Map<SystemStreamPartition, TaskSideInputHandler> handlers = new HashMap<>();
 
@@ -388,12 +410,16 @@ public class SideInputsManager {
           CountDownLatch taskCountDownLatch = new CountDownLatch(1);
           sideInputTaskLatches.put(taskName, taskCountDownLatch);
 
+          Map<String, Integer> sideInputStoresToWriteBatchSize = sideInputStoresToSSPs.keySet().stream()
+              .collect(Collectors.toMap(Function.identity(), storageConfig::getSideInputsWriteBatchSize));
+
           TaskSideInputHandler taskSideInputHandler = new TaskSideInputHandler(taskName,
               taskModel.getTaskMode(),
               loggedStoreBaseDirectory,
               taskSideInputStores,
               sideInputStoresToSSPs,
               taskSideInputProcessors.get(taskName),
+              sideInputStoresToWriteBatchSize,
               systemAdmins,
               streamMetadataCache,
               taskCountDownLatch,
@@ -494,6 +520,21 @@ public class SideInputsManager {
     return true;
   }
 
+  /**
+   * Logs the side input SSPs that are yet to catch up along with their last processed offsets.
+   */
+  private void logSideInputsProgress() {
+    Map<SystemStreamPartition, String> laggingSSPs = new HashMap<>();
+    this.sspSideInputHandlers.forEach((ssp, handler) -> {
+      if (!handler.isCaughtUp(ssp)) {
+        laggingSSPs.put(ssp, handler.getLastProcessedOffset(ssp));
+      }
+    });
+    LOG.info("Waiting for SideInput bootstrap to complete. {} of {} side input SSPs have caught up. "
+            + "Last processed offsets of the remaining SSPs: {}", this.sspSideInputHandlers.size() - laggingSSPs.size(),
+        this.sspSideInputHandlers.size(), laggingSSPs);
+  }
+
   /**
    * Decorated {@link RunLoopConfig} used for side inputs flow in samza. The properties of {@link RunLoop} for side
    * input use case is as follows
@@ -22,7 +22,7 @@ package org.apache.samza.system
 
 import java.util
 import java.util.ArrayDeque
-import java.util.concurrent.TimeUnit
+import java.util.concurrent.{ExecutorService, Executors, LinkedBlockingQueue, TimeUnit}
 import java.util.Collections
 import java.util.HashMap
 import java.util.HashSet
@@ -31,6 +31,7 @@ import java.util.Set
 import java.util.function.{Consumer}
 import java.util.stream.Collectors
 import scala.collection.JavaConverters._
+import com.google.common.util.concurrent.ThreadFactoryBuilder
 import org.apache.samza.serializers.SerdeManager
 import org.apache.samza.util.{Logging, TimerUtil}
 import org.apache.samza.system.chooser.MessageChooser
@@ -41,6 +42,7 @@ import org.apache.samza.config.TaskConfig
 object SystemConsumers {
   val DEFAULT_NO_NEW_MESSAGES_TIMEOUT = 10
   val DEFAULT_DROP_SERIALIZATION_ERROR = false
+  val DEFAULT_DESERIALIZATION_THREAD_POOL_SIZE = 0
 }
 
 /**
@@ -121,7 +123,18 @@ class SystemConsumers (
   /**
    * Identifier of the current deployment.
    * */
-  val runId: String = null) extends Logging with TimerUtil {
+  val runId: String = null,
+
+  /**
+   * Number of threads used to deserialize incoming messages as soon as they
+   * are polled from the SystemConsumers. The messages polled for a
+   * SystemStreamPartition are deserialized in order as one batch, and the
+   * SystemStreamPartition is not polled again until its batch completes, so
+   * the MessageChooser only ever sees deserialized messages in offset order.
+   * Setting it to 0 deserializes each message on the caller's thread right
+   * before it is handed to the MessageChooser.
+   */
+  val deserializationThreadPoolSize: Int = SystemConsumers.DEFAULT_DESERIALIZATION_THREAD_POOL_SIZE) extends Logging with TimerUtil {
 
   /**
    * Mapping from the {@see SystemStreamPartition} to the registered offsets.
@@ -150,6 +163,13 @@ class SystemConsumers (
    */
   private val endOfStreamSSPs = new HashSet[SystemStreamPartition]()
 
+  /**
+   * Set of SSPs whose messages are not handed to the MessageChooser until
+   * they are resumed. Messages already polled for a paused SSP stay buffered
+   * in unprocessedMessagesBySSP, and the SSP is not polled again until then.
+   */
+  private val pausedSSPs = new HashSet[SystemStreamPartition]()
+
   /**
    * A set of SystemStreamPartitions grouped by systemName. This is used as a
    * cache to figure out which SystemStreamPartitions we need to poll from the
@@ -167,6 +187,29 @@ class SystemConsumers (
   @volatile
   private var isDraining = false
 
+  /**
+   * Thread pool for the parallel deserialization stage. Null if the stage is disabled.
+   */
+  private var deserializationExecutor: ExecutorService = null
+
+  /**
+   * Batches that have been deserialized by the deserializationExecutor but not
+   * yet handed to the MessageChooser.
+   */
+  private val deserializedBatches = new LinkedBlockingQueue[DeserializedBatch]()
+
+  /**
+   * SystemStreamPartitions with a batch that is still being deserialized.
+   */
+  private val sspsBeingDeserialized = new HashSet[SystemStreamPartition]()
+
+  /**
+   * Deserialization failures from the parallel deserialization stage. They are
+   * thrown once all messages preceding the failed message have been handed to
+   * the MessageChooser, the same as when deserializing on the caller's thread.
+   */
+  private val deserializationFailures = new HashMap[SystemStreamPartition, SystemConsumersException]()
+
   /**
    * Default timeout to noNewMessagesTimeout. Every time SystemConsumers
    * receives incoming messages, it sets timeout to 0. Every time
@@ -192,6 +235,7 @@ class SystemConsumers (
   metrics.setTimeout(() => timeout)
   metrics.setNeededByChooser(() => emptySystemStreamPartitionsBySystem.size)
   metrics.setUnprocessedMessages(() => totalUnprocessedMessages)
+  metrics.setDeserializationsInFlight(() => sspsBeingDeserialized.size)
 
   def start {
     for ((systemStreamPartition, offset) <- sspToRegisteredOffsets.asScala) {
@@ -219,6 +263,12 @@ class SystemConsumers (
 
     chooser.start
 
+    if (deserializationThreadPoolSize > 0) {
+      info("Deserializing incoming messages on %d threads." format deserializationThreadPoolSize)
+      deserializationExecutor = Executors.newFixedThreadPool(deserializationThreadPoolSize,
+        new ThreadFactoryBuilder().setNameFormat("Samza SystemConsumers Deserialization Thread-%d").setDaemon(true).build())
+    }
+
     // SystemConsumers could be set to drain mode prior to start if a drain message was encountered on container start
     if (isDraining) {
       writeDrainControlMessageToSspQueue()
@@ -237,6 +287,11 @@ class SystemConsumers (
 
       chooser.stop
 
+      if (deserializationExecutor != null) {
+        deserializationExecutor.shutdownNow
+        deserializationExecutor = null
+      }
+
       started = false
     } else {
       debug("Ignoring the consumers stop request since it never started.")
@@ -291,12 +346,49 @@ class SystemConsumers (
     intermediateSystems.add(ssp.getSystem)
   }
 
+  /**
+   * Stops handing the messages of the SSPs to the MessageChooser until they
+   * are resumed, e.g. while the tasks consuming them are not ready to process
+   * messages yet. Must be called before start, or from the thread calling
+   * choose.
+   */
+  def pause(ssps: util.Collection[SystemStreamPartition]) {
+    ssps.asScala.map(removeKeyBucket).foreach(ssp => {
+      debug("Pausing stream: %s" format ssp)
+      pausedSSPs.add(ssp)
+    })
+  }
+
+  /**
+   * Resumes handing the messages of the paused SSPs to the MessageChooser.
+   * Must be called from the thread calling choose.
+   */
+  def resume(ssps: util.Collection[SystemStreamPartition]) {
+    ssps.asScala.map(removeKeyBucket).foreach(ssp => {
+      if (pausedSSPs.remove(ssp)) {
+        debug("Resuming stream: %s" format ssp)
+        if (started && unprocessedMessagesBySSP.containsKey(ssp)) {
+          tryUpdate(ssp)
+        }
+      }
+    })
+  }
+
   def isEndOfStream(systemStreamPartition: SystemStreamPartition) = {
     endOfStreamSSPs.contains(removeKeyBucket(systemStreamPartition))
   }
 
   def choose(updateChooser: Boolean = true): IncomingMessageEnvelope = {
-    val envelopeFromChooser = chooser.choose
+    collectDeserializedBatches(0)
+
+    var envelopeFromChooser = chooser.choose
+
+    if (envelopeFromChooser == null && !sspsBeingDeserialized.isEmpty) {
+      // The chooser is starved while polled messages are still being deserialized. Wait for a batch to complete
+      // rather than reporting that no messages are available.
+      collectDeserializedBatches(noNewMessagesTimeout)
+      envelopeFromChooser = chooser.choose
+    }
 
     updateTimer(metrics.deserializationNs) {
       if (envelopeFromChooser == null) {
@@ -393,11 +485,17 @@ class SystemConsumers (
         totalUnprocessedMessages += numEnvelopes
 
         if (numEnvelopes > 0) {
-          unprocessedMessagesBySSP.put(systemStreamPartition, envelopes)
+          if (deserializationExecutor != null) {
+            // The chooser is updated once the batch is deserialized, see collectDeserializedBatches.
+            emptySystemStreamPartitionsBySystem.get(systemStreamPartition.getSystem).remove(systemStreamPartition)
+            deserializeAsync(systemStreamPartition, envelopes)
+          } else {
+            unprocessedMessagesBySSP.put(systemStreamPartition, envelopes)
 
-          // Update the chooser if it needs a message for this SSP.
-          if (emptySystemStreamPartitionsBySystem.get(systemStreamPartition.getSystem).remove(systemStreamPartition)) {
-            tryUpdate(systemStreamPartition)
+            // Update the chooser if it needs a message for this SSP.
+            if (emptySystemStreamPartitionsBySystem.get(systemStreamPartition.getSystem).remove(systemStreamPartition)) {
+              tryUpdate(systemStreamPartition)
+            }
           }
         }
       }
@@ -408,6 +506,16 @@ class SystemConsumers (
 
   def tryUpdate(ssp: SystemStreamPartition) {
     val systemStreamPartition = removeKeyBucket(ssp)
+    if (sspsBeingDeserialized.contains(systemStreamPartition)) {
+      // The chooser will be updated once the batch in flight for this SSP has been deserialized.
+      trace("Skipping update for %s since its messages are being deserialized." format systemStreamPartition)
+      return
+    }
+    if (pausedSSPs.contains(systemStreamPartition)) {
+      // The chooser will be updated once the SSP is resumed. Until then the SSP is not polled for more messages.
+      trace("Skipping update for %s since it is paused." format systemStreamPartition)
+      return
+    }
     var updated = false
     try {
       updated = update(systemStreamPartition)
@@ -456,12 +564,10 @@ class SystemConsumers (
         // Add watermark ControlMessage only if there are intermediate SSPs as low-level API task doesn't process
         // WatermarkMessages
         if (!intermediateSSPs.isEmpty) {
-          envelopes.add(IncomingMessageEnvelope.buildWatermarkEnvelope(ssp, Long.MaxValue))
-          totalUnprocessedMessages += 1
+          addControlMessage(envelopes, IncomingMessageEnvelope.buildWatermarkEnvelope(ssp, Long.MaxValue))
         }
         // Add Drain ControlMessage
-        envelopes.add(IncomingMessageEnvelope.buildDrainMessage(ssp, runId))
-        totalUnprocessedMessages += 1
+        addControlMessage(envelopes, IncomingMessageEnvelope.buildDrainMessage(ssp, runId))
         unprocessedMessagesBySSP.put(ssp, envelopes)
 
         // update the chooser with the messages
@@ -470,6 +576,23 @@ class SystemConsumers (
     })
   }
 
+  /**
+   * Queues a control message generated by the SystemConsumers. With the
+   * parallel deserialization stage enabled, the queues only hold deserialized
+   * messages, so the control message is deserialized right away.
+   */
+  private def addControlMessage(envelopes: Queue[IncomingMessageEnvelope], envelope: IncomingMessageEnvelope) {
+    if (deserializationExecutor == null) {
+      envelopes.add(envelope)
+      totalUnprocessedMessages += 1
+    } else {
+      deserialize(envelope.getSystemStreamPartition, envelope).foreach(deserializedEnvelope => {
+        envelopes.add(deserializedEnvelope)
+        totalUnprocessedMessages += 1
+      })
+    }
+  }
+
   /**
    * Tries to update the message chooser with an envelope from the supplied
    * SystemStreamPartition if an envelope is available.
@@ -479,19 +602,12 @@ class SystemConsumers (
     val q = unprocessedMessagesBySSP.get(systemStreamPartition)
 
     while (q.size > 0 && !updated) {
-      val rawEnvelope = q.remove
-      val deserializedEnvelope = try {
-        Some(serdeManager.fromBytes(rawEnvelope))
-      } catch {
-        case e: Throwable if !dropDeserializationError =>
-          throw new SystemConsumersException(
-            "Cannot deserialize an incoming message for %s"
-              .format(systemStreamPartition.getSystemStream.toString), e)
-        case ex: Throwable =>
-          debug("Cannot deserialize an incoming message for %s. Dropping the error message."
-                .format(systemStreamPartition.getSystemStream.toString), ex)
-          metrics.deserializationError.inc
-          None
+      val envelope = q.remove
+      val deserializedEnvelope = if (deserializationExecutor == null) {
+        deserialize(systemStreamPartition, envelope)
+      } else {
+        // already deserialized by the parallel deserialization stage
+        Some(envelope)
       }
 
       if (deserializedEnvelope.isDefined) {
@@ -502,14 +618,113 @@ class SystemConsumers (
       totalUnprocessedMessages -= 1
     }
 
+    if (!updated && deserializationFailures.containsKey(systemStreamPartition)) {
+      throw deserializationFailures.remove(systemStreamPartition)
+    }
+
     updated
   }
 
+  /**
+   * Deserializes a raw envelope. Returns None if the envelope can't be
+   * deserialized and dropDeserializationError is set. Safe to call from the
+   * deserialization threads.
+   */
+  private def deserialize(systemStreamPartition: SystemStreamPartition, rawEnvelope: IncomingMessageEnvelope) = {
+    try {
+      Some(serdeManager.fromBytes(rawEnvelope))
+    } catch {
+      case e: Throwable if !dropDeserializationError =>
+        throw new SystemConsumersException(
+          "Cannot deserialize an incoming message for %s"
+            .format(systemStreamPartition.getSystemStream.toString), e)
+      case ex: Throwable =>
+        debug("Cannot deserialize an incoming message for %s. Dropping the error message."
+              .format(systemStreamPartition.getSystemStream.toString), ex)
+        metrics.deserializationError.inc
+        None
+    }
+  }
+
+  /**
+   * Deserializes a polled batch of raw envelopes on the deserializationExecutor.
+   * The SSP is not polled or updated until the batch has been collected by
+   * collectDeserializedBatches, which keeps the messages of an SSP in order.
+   */
+  private def deserializeAsync(systemStreamPartition: SystemStreamPartition, rawEnvelopes: Queue[IncomingMessageEnvelope]) {
+    sspsBeingDeserialized.add(systemStreamPartition)
+    metrics.parallelDeserializationBatches.inc
+    val numRawEnvelopes = rawEnvelopes.size
+
+    deserializationExecutor.execute(new Runnable {
+      override def run(): Unit = {
+        val envelopes = new ArrayDeque[IncomingMessageEnvelope](numRawEnvelopes)
+        var failure: SystemConsumersException = null
+
+        updateTimer(metrics.parallelDeserializationNs) {
+          while (failure == null && !rawEnvelopes.isEmpty) {
+            try {
+              deserialize(systemStreamPartition, rawEnvelopes.remove).foreach(envelopes.add)
+            } catch {
+              case e: SystemConsumersException => failure = e
+            }
+          }
+        }
+
+        deserializedBatches.add(new DeserializedBatch(systemStreamPartition, envelopes, numRawEnvelopes, failure))
+      }
+    })
+  }
+
+  /**
+   * Hands the deserialized batches to the unprocessed message buffers and
+   * updates the chooser for their SSPs. Waits up to waitMs for the first batch
+   * if none has completed yet.
+   */
+  private def collectDeserializedBatches(waitMs: Long) {
+    if (sspsBeingDeserialized.isEmpty) {
+      return
+    }
+
+    var batch = if (waitMs > 0) deserializedBatches.poll(waitMs, TimeUnit.MILLISECONDS) else deserializedBatches.poll
+
+    while (batch != null) {
+      val systemStreamPartition = batch.systemStreamPartition
+      sspsBeingDeserialized.remove(systemStreamPartition)
+      // the raw envelopes were counted when they were polled; uncount the ones that were dropped
+      totalUnprocessedMessages -= batch.numRawEnvelopes - batch.envelopes.size
+
+      if (batch.failure != null) {
+        deserializationFailures.put(systemStreamPartition, batch.failure)
+      }
+
+      // messages queued while the batch was in flight (e.g. drain control messages) go after the batch
+      batch.envelopes.addAll(unprocessedMessagesBySSP.get(systemStreamPartition))
+      unprocessedMessagesBySSP.put(systemStreamPartition, batch.envelopes)
+      trace("Deserialized %d of %d polled messages for %s."
+        format (batch.envelopes.size, batch.numRawEnvelopes, systemStreamPartition))
+
+      tryUpdate(systemStreamPartition)
+
+      batch = deserializedBatches.poll
+    }
+  }
+
   private def removeKeyBucket(sspWithKeyBucket: SystemStreamPartition): SystemStreamPartition = {
     new SystemStreamPartition(sspWithKeyBucket.getSystem, sspWithKeyBucket.getStream, sspWithKeyBucket.getPartition)
   }
 }
 
+/**
+ * A batch of polled messages of one SystemStreamPartition deserialized by
+ * the parallel deserialization stage of the SystemConsumers.
+ */
+private class DeserializedBatch(
+  val systemStreamPartition: SystemStreamPartition,
+  val envelopes: ArrayDeque[IncomingMessageEnvelope],
+  val numRawEnvelopes: Int,
+  val failure: SystemConsumersException)
+
 /**
  * When SystemConsumer registers consumers, there are situations where system can not recover
  * from. Such as a failed consumer is used in task.input and changelogs.
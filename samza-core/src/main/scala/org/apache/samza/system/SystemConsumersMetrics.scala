@@ -35,6 +35,8 @@ class SystemConsumersMetrics(val registry: ReadableMetricsRegistry = new Metrics
   val systemStreamMessagesChosen = scala.collection.mutable.Map[SystemStreamPartition, Counter]()
   val pollNs = newTimer("poll-ns")
   val deserializationNs = newTimer("deserialization-ns")
+  val parallelDeserializationNs = newTimer("parallel-deserialization-ns")
+  val parallelDeserializationBatches = newCounter("parallel-deserialization-batches")
 
   def setNeededByChooser(getValue: () => Int) {
     newGauge("ssps-needed-by-chooser", getValue)
@@ -48,6 +50,10 @@ class SystemConsumersMetrics(val registry: ReadableMetricsRegistry = new Metrics
     newGauge("unprocessed-messages", getValue)
   }
 
+  def setDeserializationsInFlight(getValue: () => Int) {
+    newGauge("deserializations-in-flight", getValue)
+  }
+
   def registerSystem(systemName: String) {
     if (!systemPolls.contains(systemName)) {
       systemPolls += systemName -> newCounter("%s-polls" format systemName)
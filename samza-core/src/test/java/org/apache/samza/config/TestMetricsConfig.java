@@ -113,4 +113,21 @@ public class TestMetricsConfig {
 
     assertFalse(new MetricsConfig(new MapConfig()).getMetricsTimerDebugEnabled());
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testGetMetricsTimerReservoir() {
+    assertEquals(MetricsConfig.METRICS_TIMER_RESERVOIR_SLIDING_WINDOW,
+        new MetricsConfig(new MapConfig()).getMetricsTimerReservoir());
+
+    Config config = new MapConfig(ImmutableMap.of(MetricsConfig.METRICS_TIMER_RESERVOIR,
+        MetricsConfig.METRICS_TIMER_RESERVOIR_HDR_HISTOGRAM));
+    assertEquals(MetricsConfig.METRICS_TIMER_RESERVOIR_HDR_HISTOGRAM,
+        new MetricsConfig(config).getMetricsTimerReservoir());
+  }
+
+  @Test(expected = ConfigException.class)
+  public void testGetMetricsTimerReservoirInvalid() {
+    Config config = new MapConfig(ImmutableMap.of(MetricsConfig.METRICS_TIMER_RESERVOIR, "reservoir"));
+    new MetricsConfig(config).getMetricsTimerReservoir();
+  }
+}
@@ -601,4 +601,26 @@ public class TestStorageConfig {
         new MapConfig(ImmutableMap.of(String.format(DEFAULT_ROCKSDB_MAX_MANIFEST_FILE_SIZE), "1024")));
     assertEquals(1024, storageConfig.getDefaultMaxManifestFileSizeBytes());
   }
+
+  @Test
+  public void testGetRocksDbSharedCacheSize() {
+    StorageConfig storageConfig = new StorageConfig(new MapConfig());
+    assertEquals(0, storageConfig.getRocksDbSharedCacheSizeBytes());
+    assertEquals(0, storageConfig.getRocksDbSharedWriteBufferSizeBytes());
+
+    storageConfig = new StorageConfig(new MapConfig(ImmutableMap.of(ROCKSDB_SHARED_CACHE_SIZE, "1024")));
+    assertEquals(1024, storageConfig.getRocksDbSharedCacheSizeBytes());
+    assertEquals(512, storageConfig.getRocksDbSharedWriteBufferSizeBytes());
+
+    storageConfig = new StorageConfig(new MapConfig(ImmutableMap.of(ROCKSDB_SHARED_CACHE_SIZE, "1024",
+        ROCKSDB_SHARED_WRITE_BUFFER_SIZE, "256")));
+    assertEquals(256, storageConfig.getRocksDbSharedWriteBufferSizeBytes());
+  }
+
+  @Test
+  public void testGetRocksDbSharedCacheStrictCapacityLimit() {
+    assertFalse(new StorageConfig(new MapConfig()).getRocksDbSharedCacheStrictCapacityLimit());
+    assertTrue(new StorageConfig(new MapConfig(ImmutableMap.of(ROCKSDB_SHARED_CACHE_STRICT_CAPACITY_LIMIT, "true")))
+        .getRocksDbSharedCacheStrictCapacityLimit());
+  }
 }
@@ -21,8 +21,10 @@ package org.apache.samza.container;
 
 import com.google.common.collect.ImmutableMap;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
@@ -137,6 +139,190 @@ public class TestRunLoop {
     assertEquals(4L, containerMetrics.envelopes().getCount());
   }
 
+  @Test
+  public void testIdleLoopPicksUpEnvelopeThatArrivesLater() {
+    SystemConsumers consumerMultiplexer = mock(SystemConsumers.class);
+
+    RunLoopTask task0 = getMockRunLoopTask(taskName0, sspA0);
+
+    Map<TaskName, RunLoopTask> tasks = new HashMap<>();
+    tasks.put(taskName0, task0);
+
+    // no commit or window timer is configured, so nothing but the loop itself polls the consumers again
+    RunLoop runLoop = new RunLoop(tasks, executor, consumerMultiplexer, containerMetrics, () -> 0L, mockRunLoopConfig);
+    when(consumerMultiplexer.choose(false))
+        .thenReturn(null)
+        .thenReturn(null)
+        .thenReturn(null)
+        .thenReturn(envelopeA00)
+        .thenReturn(sspA0EndOfStream)
+        .thenReturn(null);
+    runLoop.run();
+
+    verify(task0).process(eq(envelopeA00), any(), any());
+    verify(task0).endOfStream(any());
+    verify(task0, never()).commit();
+    verify(task0, never()).window(any());
+  }
+
+  @Test
+  public void testPendingTaskIsRunOnceAdded() {
+    SystemConsumers consumerMultiplexer = mock(SystemConsumers.class);
+
+    RunLoopTask task0 = getMockRunLoopTask(taskName0, sspA0);
+    RunLoopTask task1 = getMockRunLoopTask(taskName1, sspA1);
+
+    Map<TaskName, RunLoopTask> tasks = new HashMap<>();
+    tasks.put(taskName0, task0);
+    tasks.put(taskName1, task1);
+    containerMetrics.addTimeToFirstMessageGauge(taskName1);
+
+    RunLoop runLoop = new RunLoop(tasks, Collections.singleton(taskName1), executor, consumerMultiplexer,
+        containerMetrics, () -> 0L, mockRunLoopConfig);
+    verify(consumerMultiplexer).pause(eq(Collections.singleton(sspA1)));
+
+    when(consumerMultiplexer.choose(false))
+        .thenReturn(envelopeA00)
+        .thenAnswer(invocation -> {
+          verify(task0).process(eq(envelopeA00), any(), any());
+          verify(consumerMultiplexer, never()).resume(any());
+          runLoop.addTask(taskName1);
+          return null;
+        })
+        .thenReturn(envelopeA11)
+        .thenReturn(sspA0EndOfStream)
+        .thenReturn(sspA1EndOfStream)
+        .thenReturn(null);
+    runLoop.run();
+
+    verify(consumerMultiplexer).resume(eq(Collections.singleton(sspA1)));
+    verify(task1).process(eq(envelopeA11), any(), any());
+    verify(task1).endOfStream(any());
+    assertEquals(0L, containerMetrics.taskTimeToFirstMessageMetrics().get(taskName1).getValue());
+  }
+
+  @Test
+  public void testEnvelopeOfTaskAddedWhileIdleIsProcessedWithoutTimers() throws Exception {
+    SystemConsumers consumerMultiplexer = mock(SystemConsumers.class);
+
+    RunLoopTask task0 = getMockRunLoopTask(taskName0, sspA0);
+    RunLoopTask task1 = getMockRunLoopTask(taskName1, sspA1);
+
+    Map<TaskName, RunLoopTask> tasks = new HashMap<>();
+    tasks.put(taskName0, task0);
+    tasks.put(taskName1, task1);
+
+    // no commit or window timer is configured, so nothing but the loop itself polls the consumers again
+    RunLoop runLoop = new RunLoop(tasks, Collections.singleton(taskName1), executor, consumerMultiplexer,
+        containerMetrics, () -> 0L, mockRunLoopConfig);
+
+    CountDownLatch resumed = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      resumed.countDown();
+      return null;
+    }).when(consumerMultiplexer).resume(any());
+
+    // the first envelope of the added task only arrives a few polls after its partition is resumed
+    Iterator<IncomingMessageEnvelope> envelopesAfterResume =
+        Arrays.asList(null, null, envelopeA11, sspA0EndOfStream, sspA1EndOfStream).iterator();
+    when(consumerMultiplexer.choose(false)).thenAnswer(invocation -> {
+      if (resumed.getCount() > 0) {
+        return null;
+      }
+      return envelopesAfterResume.hasNext() ? envelopesAfterResume.next() : null;
+    });
+
+    Thread addTaskThread = new Thread(() -> {
+      try {
+        // let the run loop go idle before adding the task
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        throw new SamzaException(e);
+      }
+      runLoop.addTask(taskName1);
+    });
+    addTaskThread.start();
+    runLoop.run();
+    addTaskThread.join();
+
+    verify(consumerMultiplexer).resume(eq(Collections.singleton(sspA1)));
+    verify(task1).process(eq(envelopeA11), any(), any());
+    verify(task1).endOfStream(any());
+    verify(task0, never()).commit();
+    verify(task1, never()).commit();
+  }
+
+  @Test
+  public void testPartitionIsResumedOnceAllPendingTasksConsumingItAreAdded() {
+    SystemConsumers consumerMultiplexer = mock(SystemConsumers.class);
+
+    RunLoopTask task0 = getMockRunLoopTask(taskName0, sspA0);
+    RunLoopTask task1 = getMockRunLoopTask(taskName1, sspA0, sspB1);
+
+    Map<TaskName, RunLoopTask> tasks = new HashMap<>();
+    tasks.put(taskName0, task0);
+    tasks.put(taskName1, task1);
+
+    RunLoop runLoop = new RunLoop(tasks, tasks.keySet(), executor, consumerMultiplexer, containerMetrics, () -> 0L,
+        mockRunLoopConfig);
+
+    when(consumerMultiplexer.choose(false))
+        .thenAnswer(invocation -> {
+          runLoop.addTask(taskName0);
+          return null;
+        })
+        .thenAnswer(invocation -> {
+          verify(consumerMultiplexer).resume(eq(Collections.emptySet()));
+          runLoop.addTask(taskName1);
+          return null;
+        })
+        .thenAnswer(invocation -> {
+          runLoop.shutdown();
+          return null;
+        });
+    runLoop.run();
+
+    verify(consumerMultiplexer).resume(eq(new HashSet<>(Arrays.asList(sspA0, sspB1))));
+  }
+
+  @Test
+  public void testDispatchOnlyTouchesReadyTasks() {
+    SystemConsumers consumerMultiplexer = mock(SystemConsumers.class);
+
+    RunLoopTask task0 = getMockRunLoopTask(taskName0, sspA0);
+    doAnswer(invocation -> {
+      TaskCallbackFactory callbackFactory = invocation.getArgumentAt(2, TaskCallbackFactory.class);
+      callbackFactory.createCallback().complete();
+      return null;
+    }).when(task0).process(eq(envelopeA00), any(), any());
+    doAnswer(invocation -> {
+      ReadableCoordinator coordinator = invocation.getArgumentAt(1, ReadableCoordinator.class);
+      TaskCallbackFactory callbackFactory = invocation.getArgumentAt(2, TaskCallbackFactory.class);
+      TaskCallback callback = callbackFactory.createCallback();
+      coordinator.shutdown(TaskCoordinator.RequestScope.ALL_TASKS_IN_CONTAINER);
+      callback.complete();
+      return null;
+    }).when(task0).process(eq(envelopeA01), any(), any());
+
+    Map<TaskName, RunLoopTask> tasks = new HashMap<>();
+    tasks.put(taskName0, task0);
+    int numIdleTasks = 100;
+    for (int i = 1; i <= numIdleTasks; i++) {
+      Partition partition = new Partition(i);
+      tasks.put(new TaskName(partition.toString()),
+          getMockRunLoopTask(new TaskName(partition.toString()), new SystemStreamPartition("testSystem", "testStreamA", partition)));
+    }
+
+    RunLoop runLoop = new RunLoop(tasks, executor, consumerMultiplexer, containerMetrics, () -> 0L, mockRunLoopConfig);
+    when(consumerMultiplexer.choose(false)).thenReturn(envelopeA00).thenReturn(null).thenReturn(envelopeA01).thenReturn(null);
+    runLoop.run();
+
+    verify(task0).process(eq(envelopeA00), any(), any());
+    verify(task0).process(eq(envelopeA01), any(), any());
+    // every task is dispatched once at startup; after that only task0 has work
+    assertTrue(containerMetrics.dispatchedTasks().getCount() < tasks.size() + 10);
+  }
+
   @Test
   public void testProcessInOrder() {
     SystemConsumers consumerMultiplexer = mock(SystemConsumers.class);
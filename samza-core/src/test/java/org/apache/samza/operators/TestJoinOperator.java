@@ -33,9 +33,12 @@ import org.apache.samza.job.model.TaskModel;
 import org.apache.samza.metrics.MetricsRegistryMap;
 import org.apache.samza.operators.functions.JoinFunction;
 import org.apache.samza.operators.impl.store.TestInMemoryStore;
+import org.apache.samza.operators.impl.store.TimeSeriesKeySerde;
 import org.apache.samza.operators.impl.store.TimestampedValueSerde;
 import org.apache.samza.serializers.IntegerSerde;
 import org.apache.samza.serializers.KVSerde;
+import org.apache.samza.storage.kv.KeyValueIterator;
+import org.apache.samza.storage.kv.KeyValueStore;
 import org.apache.samza.system.IncomingMessageEnvelope;
 import org.apache.samza.system.OutgoingMessageEnvelope;
 import org.apache.samza.system.SystemStream;
@@ -53,6 +56,7 @@ import org.junit.Test;
 import java.io.IOException;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -68,6 +72,8 @@ import static org.mockito.Mockito.*;
 
 public class TestJoinOperator {
   private static final Duration JOIN_TTL = Duration.ofMinutes(10);
+  private static final Duration JOIN_BEFORE = Duration.ofMinutes(1);
+  private static final Duration JOIN_AFTER = Duration.ofMinutes(5);
 
   private final TaskCoordinator taskCoordinator = mock(TaskCoordinator.class);
   private final TaskCallback taskCallback = mock(TaskCallback.class);
@@ -299,6 +305,99 @@ public class TestJoinOperator {
     assertTrue(output.isEmpty());
   }
 
+  @Test
+  public void intervalJoinEmitsAllMatches() throws Exception {
+    StreamApplicationDescriptorImpl streamAppDesc = this.getTestIntervalJoinStreamGraph(new TestJoinFunction());
+    StreamOperatorTask sot = createIntervalJoinStreamOperatorTask(SystemClock.instance(), streamAppDesc,
+        new HashMap<>());
+    List<Integer> output = new ArrayList<>();
+    MessageCollector messageCollector = envelope -> output.add((Integer) envelope.getMessage());
+
+    processSync(sot, new FirstStreamIME(1, 1), messageCollector, taskCoordinator, taskCallback);
+    processSync(sot, new FirstStreamIME(1, 2), messageCollector, taskCoordinator, taskCallback);
+    processSync(sot, new FirstStreamIME(2, 3), messageCollector, taskCoordinator, taskCallback);
+    processSync(sot, new SecondStreamIME(1, 10), messageCollector, taskCoordinator, taskCallback);
+    processSync(sot, new SecondStreamIME(1, 20), messageCollector, taskCoordinator, taskCallback);
+
+    // every message for key 1 in the first stream joins with every message for key 1 in the second stream
+    assertEquals(Arrays.asList(11, 12, 21, 22), output);
+  }
+
+  @Test
+  public void intervalJoinOnlyMatchesMessagesWithinInterval() throws Exception {
+    TestClock testClock = new TestClock();
+    StreamApplicationDescriptorImpl streamAppDesc = this.getTestIntervalJoinStreamGraph(new TestJoinFunction());
+    StreamOperatorTask sot = createIntervalJoinStreamOperatorTask(testClock, streamAppDesc, new HashMap<>());
+    List<Integer> output = new ArrayList<>();
+    MessageCollector messageCollector = envelope -> output.add((Integer) envelope.getMessage());
+
+    processSync(sot, new FirstStreamIME(1, 1), messageCollector, taskCoordinator, taskCallback);
+
+    // within JOIN_AFTER of the first stream message
+    testClock.advanceTime(Duration.ofMinutes(3));
+    processSync(sot, new SecondStreamIME(1, 10), messageCollector, taskCoordinator, taskCallback);
+    assertEquals(Arrays.asList(11), output);
+
+    // more than JOIN_AFTER after the first stream message
+    testClock.advanceTime(Duration.ofMinutes(3));
+    processSync(sot, new SecondStreamIME(1, 20), messageCollector, taskCoordinator, taskCallback);
+    assertEquals(Arrays.asList(11), output);
+
+    // only the second stream message from less than JOIN_BEFORE ago matches
+    testClock.advanceTime(Duration.ofSeconds(30));
+    processSync(sot, new FirstStreamIME(1, 2), messageCollector, taskCoordinator, taskCallback);
+    assertEquals(Arrays.asList(11, 22), output);
+  }
+
+  @Test
+  public void intervalJoinRemovesExpiredMessages() throws Exception {
+    TestClock testClock = new TestClock();
+    StreamApplicationDescriptorImpl streamAppDesc = this.getTestIntervalJoinStreamGraph(new TestJoinFunction());
+    Map<String, KeyValueStore> stores = new HashMap<>();
+    StreamOperatorTask sot = createIntervalJoinStreamOperatorTask(testClock, streamAppDesc, stores);
+    List<Integer> output = new ArrayList<>();
+    MessageCollector messageCollector = envelope -> output.add((Integer) envelope.getMessage());
+
+    numbers.forEach(n -> processSync(sot, new FirstStreamIME(1, n), messageCollector, taskCoordinator, taskCallback));
+    processSync(sot, new SecondStreamIME(1, 100), messageCollector, taskCoordinator, taskCallback);
+    assertEquals(10, countEntries(stores.get("jobName-jobId-join-j1-L")));
+    assertEquals(1, countEntries(stores.get("jobName-jobId-join-j1-R")));
+
+    testClock.advanceTime(JOIN_AFTER.plus(Duration.ofMinutes(1)));
+    processSync(sot, new SecondStreamIME(1, 200), messageCollector, taskCoordinator, taskCallback);
+
+    // expired messages for the key are removed from both sides, and don't match the new message
+    assertEquals(0, countEntries(stores.get("jobName-jobId-join-j1-L")));
+    assertEquals(1, countEntries(stores.get("jobName-jobId-join-j1-R")));
+    assertEquals(10, output.size());
+  }
+
+  @Test
+  public void intervalJoinExpiresKeysThatAreNotAccessedAgainOnTimer() throws Exception {
+    TestClock testClock = new TestClock();
+    StreamApplicationDescriptorImpl streamAppDesc = this.getTestIntervalJoinStreamGraph(new TestJoinFunction());
+    Map<String, KeyValueStore> stores = new HashMap<>();
+    StreamOperatorTask sot = createIntervalJoinStreamOperatorTask(testClock, streamAppDesc, stores);
+    List<Integer> output = new ArrayList<>();
+    MessageCollector messageCollector = envelope -> output.add((Integer) envelope.getMessage());
+
+    // every key is only seen once
+    numbers.forEach(n -> processSync(sot, new FirstStreamIME(n, n), messageCollector, taskCoordinator, taskCallback));
+    processSync(sot, new SecondStreamIME(100, 100), messageCollector, taskCoordinator, taskCallback);
+
+    // messages that can still match are retained
+    testClock.advanceTime(JOIN_BEFORE);
+    sot.window(messageCollector, taskCoordinator);
+    assertEquals(10, countEntries(stores.get("jobName-jobId-join-j1-L")));
+    assertEquals(1, countEntries(stores.get("jobName-jobId-join-j1-R")));
+
+    testClock.advanceTime(JOIN_AFTER);
+    sot.window(messageCollector, taskCoordinator);
+    assertEquals(0, countEntries(stores.get("jobName-jobId-join-j1-L")));
+    assertEquals(0, countEntries(stores.get("jobName-jobId-join-j1-R")));
+    assertTrue(output.isEmpty());
+  }
+
   private StreamOperatorTask createStreamOperatorTask(Clock clock, StreamApplicationDescriptorImpl graphSpec)
       throws Exception {
     Map<String, String> mapConfig = new HashMap<>();
@@ -355,6 +454,76 @@ public class TestJoinOperator {
     }, config);
   }
 
+  private StreamOperatorTask createIntervalJoinStreamOperatorTask(Clock clock,
+      StreamApplicationDescriptorImpl graphSpec, Map<String, KeyValueStore> stores) throws Exception {
+    Map<String, String> mapConfig = new HashMap<>();
+    mapConfig.put("job.name", "jobName");
+    mapConfig.put("job.id", "jobId");
+    StreamTestUtils.addStreamConfigs(mapConfig, "inStream", "insystem", "instream");
+    StreamTestUtils.addStreamConfigs(mapConfig, "inStream2", "insystem", "instream2");
+    Context context = new MockContext(new MapConfig(mapConfig));
+    TaskModel taskModel = mock(TaskModel.class);
+    when(taskModel.getSystemStreamPartitions()).thenReturn(ImmutableSet
+        .of(new SystemStreamPartition("insystem", "instream", new Partition(0)),
+            new SystemStreamPartition("insystem", "instream2", new Partition(0))));
+    when(context.getTaskContext().getTaskModel()).thenReturn(taskModel);
+    when(context.getTaskContext().getTaskMetricsRegistry()).thenReturn(new MetricsRegistryMap());
+    when(context.getTaskContext().getOperatorExecutor()).thenReturn(Executors.newSingleThreadExecutor());
+    when(context.getContainerContext().getContainerMetricsRegistry()).thenReturn(new MetricsRegistryMap());
+    // interval join stores are keyed by time series keys and hold the messages themselves
+    IntegerSerde integerSerde = new IntegerSerde();
+    TimeSeriesKeySerde<Integer> timeSeriesKeySerde = new TimeSeriesKeySerde<>(integerSerde);
+    KVSerde<Integer, Integer> kvSerde = new KVSerde<>(integerSerde, integerSerde);
+    stores.put("jobName-jobId-join-j1-L", new TestInMemoryStore<>(timeSeriesKeySerde, kvSerde));
+    stores.put("jobName-jobId-join-j1-R", new TestInMemoryStore<>(timeSeriesKeySerde, kvSerde));
+    when(context.getTaskContext().getStore(eq("jobName-jobId-join-j1-L")))
+        .thenReturn(stores.get("jobName-jobId-join-j1-L"));
+    when(context.getTaskContext().getStore(eq("jobName-jobId-join-j1-R")))
+        .thenReturn(stores.get("jobName-jobId-join-j1-R"));
+
+    StreamOperatorTask sot = new StreamOperatorTask(graphSpec.getOperatorSpecGraph(), clock);
+    sot.init(context);
+    return sot;
+  }
+
+  private StreamApplicationDescriptorImpl getTestIntervalJoinStreamGraph(TestJoinFunction joinFn) throws IOException {
+    Map<String, String> mapConfig = new HashMap<>();
+    mapConfig.put("job.name", "jobName");
+    mapConfig.put("job.id", "jobId");
+    StreamTestUtils.addStreamConfigs(mapConfig, "inStream", "insystem", "instream");
+    StreamTestUtils.addStreamConfigs(mapConfig, "inStream2", "insystem", "instream2");
+    Config config = new MapConfig(mapConfig);
+
+    return new StreamApplicationDescriptorImpl(appDesc -> {
+      IntegerSerde integerSerde = new IntegerSerde();
+      KVSerde<Integer, Integer> kvSerde = KVSerde.of(integerSerde, integerSerde);
+      GenericSystemDescriptor sd = new GenericSystemDescriptor("insystem", "mockFactoryClassName");
+      GenericInputDescriptor<KV<Integer, Integer>> inputDescriptor1 = sd.getInputDescriptor("inStream", kvSerde);
+      GenericInputDescriptor<KV<Integer, Integer>> inputDescriptor2 = sd.getInputDescriptor("inStream2", kvSerde);
+
+      MessageStream<KV<Integer, Integer>> inStream = appDesc.getInputStream(inputDescriptor1);
+      MessageStream<KV<Integer, Integer>> inStream2 = appDesc.getInputStream(inputDescriptor2);
+
+      inStream
+          .join(inStream2, joinFn, integerSerde, kvSerde, kvSerde, JOIN_BEFORE, JOIN_AFTER, "j1")
+          .sink((message, messageCollector, taskCoordinator) -> {
+            SystemStream outputSystemStream = new SystemStream("outputSystem", "outputStream");
+            messageCollector.send(new OutgoingMessageEnvelope(outputSystemStream, message));
+          });
+    }, config);
+  }
+
+  private static int countEntries(KeyValueStore<?, ?> store) {
+    int count = 0;
+    KeyValueIterator<?, ?> iterator = store.all();
+    while (iterator.hasNext()) {
+      iterator.next();
+      count++;
+    }
+    iterator.close();
+    return count;
+  }
+
   private static class TestJoinFunction
       implements JoinFunction<Integer, KV<Integer, Integer>, KV<Integer, Integer>, Integer> {
 
@@ -57,6 +57,7 @@ import org.apache.samza.operators.windows.Windows;
 import org.apache.samza.serializers.IntegerSerde;
 import org.apache.samza.serializers.KVSerde;
 import org.apache.samza.serializers.Serde;
+import org.apache.samza.storage.kv.KeyValueStore;
 import org.apache.samza.system.IncomingMessageEnvelope;
 import org.apache.samza.system.OutgoingMessageEnvelope;
 import org.apache.samza.system.SystemStream;
@@ -140,6 +141,187 @@ public class TestWindowOperator {
     Assert.assertEquals((windowPanes.get(4).getMessage()).size(), 1);
   }
 
+  @Test
+  public void testTumblingWindowsRestoredAfterRestart() throws Exception {
+    List<WindowPane<Integer, Collection<IntegerEnvelope>>> windowPanes = new ArrayList<>();
+    MessageCollector messageCollector =
+      envelope -> windowPanes.add((WindowPane<Integer, Collection<IntegerEnvelope>>) envelope.getMessage());
+    TestClock testClock = new TestClock();
+
+    OperatorSpecGraph sgb = this.getKeyedTumblingWindowStreamGraph(AccumulationMode.DISCARDING,
+        Duration.ofSeconds(1), Triggers.repeat(Triggers.count(1000))).getOperatorSpecGraph();
+    StreamOperatorTask task = new StreamOperatorTask(sgb, testClock);
+    task.init(this.context);
+    integers.forEach(n -> processSync(task,  new IntegerEnvelope(n), messageCollector, taskCoordinator, taskCallback));
+
+    // the windows are restored from the store by a new task, which receives no more messages
+    OperatorSpecGraph restoredSgb = this.getKeyedTumblingWindowStreamGraph(AccumulationMode.DISCARDING,
+        Duration.ofSeconds(1), Triggers.repeat(Triggers.count(1000))).getOperatorSpecGraph();
+    StreamOperatorTask restoredTask = new StreamOperatorTask(restoredSgb, testClock);
+    restoredTask.init(this.context);
+    restoredTask.window(messageCollector, taskCoordinator);
+    Assert.assertEquals(windowPanes.size(), 0);
+
+    testClock.advanceTime(Duration.ofSeconds(1));
+    restoredTask.window(messageCollector, taskCoordinator);
+    Assert.assertEquals(windowPanes.size(), 3);
+    Assert.assertEquals(windowPanes.get(0).getKey().getKey(), new Integer(1));
+    Assert.assertEquals((windowPanes.get(0).getMessage()).size(), 4);
+    Assert.assertEquals(windowPanes.get(1).getKey().getKey(), new Integer(2));
+    Assert.assertEquals((windowPanes.get(1).getMessage()).size(), 4);
+    Assert.assertEquals(windowPanes.get(2).getKey().getKey(), new Integer(3));
+    Assert.assertEquals((windowPanes.get(2).getMessage()).size(), 1);
+  }
+
+  @Test
+  public void testCountTriggerRestartsCountingAfterRestart() throws Exception {
+    List<WindowPane<Integer, Collection<IntegerEnvelope>>> windowPanes = new ArrayList<>();
+    MessageCollector messageCollector =
+      envelope -> windowPanes.add((WindowPane<Integer, Collection<IntegerEnvelope>>) envelope.getMessage());
+    TestClock testClock = new TestClock();
+
+    StreamOperatorTask task = new StreamOperatorTask(this.getKeyedTumblingWindowStreamGraph(
+        AccumulationMode.DISCARDING, Duration.ofSeconds(1), Triggers.count(3)).getOperatorSpecGraph(), testClock);
+    task.init(this.context);
+    processSync(task, new IntegerEnvelope(1), messageCollector, taskCoordinator, taskCallback);
+    processSync(task, new IntegerEnvelope(1), messageCollector, taskCoordinator, taskCallback);
+
+    // the count of the restored window starts from zero, so it fires after 3 more messages rather than 1
+    StreamOperatorTask restoredTask = new StreamOperatorTask(this.getKeyedTumblingWindowStreamGraph(
+        AccumulationMode.DISCARDING, Duration.ofSeconds(1), Triggers.count(3)).getOperatorSpecGraph(), testClock);
+    restoredTask.init(this.context);
+    processSync(restoredTask, new IntegerEnvelope(1), messageCollector, taskCoordinator, taskCallback);
+    processSync(restoredTask, new IntegerEnvelope(1), messageCollector, taskCoordinator, taskCallback);
+    Assert.assertEquals(windowPanes.size(), 0);
+
+    processSync(restoredTask, new IntegerEnvelope(1), messageCollector, taskCoordinator, taskCallback);
+    Assert.assertEquals(windowPanes.size(), 1);
+    Assert.assertEquals(windowPanes.get(0).getKey().getKey(), new Integer(1));
+    Assert.assertEquals(windowPanes.get(0).getFiringType(), FiringType.EARLY);
+  }
+
+  @Test
+  public void testKeyedSlidingWindows() throws Exception {
+    OperatorSpecGraph sgb = this.getKeyedSlidingWindowStreamGraph(Duration.ofSeconds(3), Duration.ofSeconds(1))
+        .getOperatorSpecGraph();
+    List<WindowPane<Integer, Collection<IntegerEnvelope>>> windowPanes = new ArrayList<>();
+
+    TestClock testClock = new TestClock();
+    StreamOperatorTask task = new StreamOperatorTask(sgb, testClock);
+    task.init(this.context);
+    MessageCollector messageCollector =
+      envelope -> windowPanes.add((WindowPane<Integer, Collection<IntegerEnvelope>>) envelope.getMessage());
+
+    processSync(task, new IntegerEnvelope(1), messageCollector, taskCoordinator, taskCallback);
+    processSync(task, new IntegerEnvelope(1), messageCollector, taskCoordinator, taskCallback);
+    testClock.advanceTime(Duration.ofSeconds(1));
+    task.window(messageCollector, taskCoordinator);
+    processSync(task, new IntegerEnvelope(1), messageCollector, taskCoordinator, taskCallback);
+    testClock.advanceTime(Duration.ofSeconds(1));
+    processSync(task, new IntegerEnvelope(1), messageCollector, taskCoordinator, taskCallback);
+    task.window(messageCollector, taskCoordinator);
+    Assert.assertEquals(windowPanes.size(), 0);
+
+    // each window contains the messages of its three slides
+    testClock.advanceTime(Duration.ofSeconds(1));
+    task.window(messageCollector, taskCoordinator);
+    Assert.assertEquals(windowPanes.size(), 1);
+    Assert.assertEquals(windowPanes.get(0).getKey().getPaneId(), "0");
+    Assert.assertEquals((windowPanes.get(0).getMessage()).size(), 4);
+
+    testClock.advanceTime(Duration.ofSeconds(1));
+    task.window(messageCollector, taskCoordinator);
+    testClock.advanceTime(Duration.ofSeconds(1));
+    task.window(messageCollector, taskCoordinator);
+    Assert.assertEquals(windowPanes.size(), 3);
+    Assert.assertEquals(windowPanes.get(1).getKey().getPaneId(), "1000");
+    Assert.assertEquals((windowPanes.get(1).getMessage()).size(), 2);
+    Assert.assertEquals(windowPanes.get(2).getKey().getPaneId(), "2000");
+    Assert.assertEquals((windowPanes.get(2).getMessage()).size(), 1);
+  }
+
+  @Test
+  public void testKeyedSlidingWindowsRestoredAfterRestart() throws Exception {
+    OperatorSpecGraph sgb = this.getKeyedSlidingWindowStreamGraph(Duration.ofSeconds(3), Duration.ofSeconds(1))
+        .getOperatorSpecGraph();
+    List<WindowPane<Integer, Collection<IntegerEnvelope>>> windowPanes = new ArrayList<>();
+
+    TestClock testClock = new TestClock();
+    StreamOperatorTask task = new StreamOperatorTask(sgb, testClock);
+    task.init(this.context);
+    MessageCollector messageCollector =
+      envelope -> windowPanes.add((WindowPane<Integer, Collection<IntegerEnvelope>>) envelope.getMessage());
+
+    processSync(task, new IntegerEnvelope(1), messageCollector, taskCoordinator, taskCallback);
+    testClock.advanceTime(Duration.ofSeconds(2));
+    processSync(task, new IntegerEnvelope(1), messageCollector, taskCoordinator, taskCallback);
+    testClock.advanceTime(Duration.ofSeconds(1));
+    task.window(messageCollector, taskCoordinator);
+    Assert.assertEquals(windowPanes.size(), 1);
+    Assert.assertEquals(windowPanes.get(0).getKey().getPaneId(), "0");
+    Assert.assertEquals((windowPanes.get(0).getMessage()).size(), 2);
+
+    // the windows are restored from the store by a new task, which does not fire the window that already fired
+    OperatorSpecGraph restoredSgb = this.getKeyedSlidingWindowStreamGraph(Duration.ofSeconds(3),
+        Duration.ofSeconds(1)).getOperatorSpecGraph();
+    StreamOperatorTask restoredTask = new StreamOperatorTask(restoredSgb, testClock);
+    restoredTask.init(this.context);
+    restoredTask.window(messageCollector, taskCoordinator);
+    Assert.assertEquals(windowPanes.size(), 1);
+
+    testClock.advanceTime(Duration.ofSeconds(2));
+    restoredTask.window(messageCollector, taskCoordinator);
+    Assert.assertEquals(windowPanes.size(), 3);
+    Assert.assertEquals(windowPanes.get(1).getKey().getPaneId(), "1000");
+    Assert.assertEquals((windowPanes.get(1).getMessage()).size(), 1);
+    Assert.assertEquals(windowPanes.get(2).getKey().getPaneId(), "2000");
+    Assert.assertEquals((windowPanes.get(2).getMessage()).size(), 1);
+
+    // the newest fired window is not kept once the key has no more pending windows
+    Assert.assertFalse(((KeyValueStore<?, ?>) this.context.getTaskContext().getStore("jobName-jobId-window-w1"))
+        .all().hasNext());
+  }
+
+  @Test
+  public void testKeyedSlidingAggregatingWindows() throws Exception {
+    testKeyedSlidingAggregatingWindows(true);
+    testKeyedSlidingAggregatingWindows(false);
+  }
+
+  private void testKeyedSlidingAggregatingWindows(boolean combine) throws Exception {
+    when(this.context.getTaskContext().getStore("jobName-jobId-window-w1"))
+        .thenReturn(new TestInMemoryStore<>(new TimeSeriesKeySerde(new IntegerSerde()), new IntegerSerde()));
+    OperatorSpecGraph sgb = this.getKeyedSlidingAggregatingWindowStreamGraph(Duration.ofSeconds(2),
+        Duration.ofSeconds(1), combine).getOperatorSpecGraph();
+    List<WindowPane<Integer, Integer>> windowPanes = new ArrayList<>();
+
+    TestClock testClock = new TestClock();
+    StreamOperatorTask task = new StreamOperatorTask(sgb, testClock);
+    task.init(this.context);
+    MessageCollector messageCollector =
+      envelope -> windowPanes.add((WindowPane<Integer, Integer>) envelope.getMessage());
+
+    integers.forEach(n -> processSync(task, new IntegerEnvelope(n), messageCollector, taskCoordinator, taskCallback));
+    testClock.advanceTime(Duration.ofSeconds(1));
+    processSync(task, new IntegerEnvelope(1), messageCollector, taskCoordinator, taskCallback);
+    testClock.advanceTime(Duration.ofSeconds(1));
+    task.window(messageCollector, taskCoordinator);
+    testClock.advanceTime(Duration.ofSeconds(1));
+    task.window(messageCollector, taskCoordinator);
+
+    Assert.assertEquals(windowPanes.size(), 4);
+    Assert.assertEquals(windowPanes.get(0).getKey().getKey(), new Integer(1));
+    Assert.assertEquals(windowPanes.get(0).getKey().getPaneId(), "0");
+    Assert.assertEquals(windowPanes.get(0).getMessage(), new Integer(5));
+    Assert.assertEquals(windowPanes.get(1).getKey().getKey(), new Integer(2));
+    Assert.assertEquals(windowPanes.get(1).getMessage(), new Integer(4));
+    Assert.assertEquals(windowPanes.get(2).getKey().getKey(), new Integer(3));
+    Assert.assertEquals(windowPanes.get(2).getMessage(), new Integer(1));
+    Assert.assertEquals(windowPanes.get(3).getKey().getKey(), new Integer(1));
+    Assert.assertEquals(windowPanes.get(3).getKey().getPaneId(), "1000");
+    Assert.assertEquals(windowPanes.get(3).getMessage(), new Integer(1));
+  }
+
   @Test
   public void testNonKeyedTumblingWindowsDiscardingMode() throws Exception {
 
@@ -584,6 +766,45 @@ public class TestWindowOperator {
     return new StreamApplicationDescriptorImpl(userApp, config);
   }
 
+  private StreamApplicationDescriptorImpl getKeyedSlidingWindowStreamGraph(Duration size, Duration slide)
+      throws IOException {
+    StreamApplication userApp = appDesc -> {
+      KVSerde<Integer, Integer> kvSerde = KVSerde.of(new IntegerSerde(), new IntegerSerde());
+      GenericSystemDescriptor sd = new GenericSystemDescriptor("kafka", "mockFactoryClass");
+      GenericInputDescriptor<KV<Integer, Integer>> inputDescriptor = sd.getInputDescriptor("integers", kvSerde);
+      appDesc.getInputStream(inputDescriptor)
+          .window(Windows.keyedSlidingWindow(KV::getKey, size, slide, new IntegerSerde(), kvSerde)
+              .setAccumulationMode(AccumulationMode.DISCARDING), "w1")
+          .sink((message, messageCollector, taskCoordinator) -> {
+            SystemStream outputSystemStream = new SystemStream("outputSystem", "outputStream");
+            messageCollector.send(new OutgoingMessageEnvelope(outputSystemStream, message));
+          });
+    };
+
+    return new StreamApplicationDescriptorImpl(userApp, config);
+  }
+
+  private StreamApplicationDescriptorImpl getKeyedSlidingAggregatingWindowStreamGraph(Duration size, Duration slide,
+      boolean combine) throws IOException {
+    StreamApplication userApp = appDesc -> {
+      KVSerde<Integer, Integer> kvSerde = KVSerde.of(new IntegerSerde(), new IntegerSerde());
+      GenericSystemDescriptor sd = new GenericSystemDescriptor("kafka", "mockFactoryClass");
+      GenericInputDescriptor<KV<Integer, Integer>> inputDescriptor = sd.getInputDescriptor("integers", kvSerde);
+      MessageStream<KV<Integer, Integer>> integers = appDesc.getInputStream(inputDescriptor);
+
+      integers
+          .window(Windows.<KV<Integer, Integer>, Integer, Integer>keyedSlidingWindow(KV::getKey, size, slide, () -> 0,
+              (m, c) -> c + 1, combine ? Integer::sum : null, new IntegerSerde(), new IntegerSerde())
+              .setAccumulationMode(AccumulationMode.DISCARDING), "w1")
+          .sink((message, messageCollector, taskCoordinator) -> {
+            SystemStream outputSystemStream = new SystemStream("outputSystem", "outputStream");
+            messageCollector.send(new OutgoingMessageEnvelope(outputSystemStream, message));
+          });
+    };
+
+    return new StreamApplicationDescriptorImpl(userApp, config);
+  }
+
   private StreamApplicationDescriptorImpl getAggregateTumblingWindowStreamGraph(AccumulationMode mode, Duration timeDuration,
         Trigger<IntegerEnvelope> earlyTrigger) throws IOException {
     StreamApplication userApp = appDesc -> {
@@ -169,6 +169,27 @@ public class TestTimeSeriesStoreImpl {
     Assert.assertEquals(0, values.size());
   }
 
+  @Test
+  public void testKeys() {
+    TimeSeriesStore<String, byte[]> timeSeriesStore = newTimeSeriesStore(new StringSerde("UTF-8"), true);
+    timeSeriesStore.put("hello", "world-1".getBytes(), 1L);
+    timeSeriesStore.put("hello", "world-2".getBytes(), 1L);
+    timeSeriesStore.put("hello", "world-3".getBytes(), 2L);
+    timeSeriesStore.put("world", "hello-1".getBytes(), 1L);
+
+    List<TimestampedValue<String>> keys = new ArrayList<>();
+    ClosableIterator<TimestampedValue<String>> keysIterator = timeSeriesStore.keys();
+    while (keysIterator.hasNext()) {
+      keys.add(keysIterator.next());
+    }
+    keysIterator.close();
+
+    Assert.assertEquals(3, keys.size());
+    Assert.assertEquals(new TimestampedValue<>("hello", 1L), keys.get(0));
+    Assert.assertEquals(new TimestampedValue<>("hello", 2L), keys.get(1));
+    Assert.assertEquals(new TimestampedValue<>("world", 1L), keys.get(2));
+  }
+
   private static <K, V> List<TimestampedValue<V>> readStore(
       TimeSeriesStore<K, V> store, K key, long startTimestamp, long endTimestamp) {
     List<TimestampedValue<V>> list = new ArrayList<>();
@@ -90,6 +90,23 @@ public class TestWindowOperatorSpec {
     assertEquals(spec.getDefaultTriggerMs(), 150);
   }
 
+  @Test
+  public void testTriggerIntervalWithSlidingWindow() {
+    WindowInternal<Object, Object, Collection> window = new WindowInternal<Object, Object, Collection>(
+        Triggers.timeSinceFirstMessage(Duration.ofMillis(600)), supplierFunction, foldFn, (v1, v2) -> v1, keyFn,
+        null, WindowType.SLIDING, Duration.ofMillis(600), Duration.ofMillis(200), null, mock(Serde.class),
+        mock(Serde.class));
+    WindowOperatorSpec spec = new WindowOperatorSpec<>(window, "w0");
+    assertEquals(spec.getDefaultTriggerMs(), 200);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testIllegalSlidingWindowSize() {
+    new WindowInternal<Object, Object, Collection>(Triggers.timeSinceFirstMessage(Duration.ofMillis(500)),
+        supplierFunction, foldFn, null, keyFn, null, WindowType.SLIDING, Duration.ofMillis(500),
+        Duration.ofMillis(200), null, mock(Serde.class), mock(Serde.class));
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void testIllegalScheduledFunctionAsInitializer() {
     class TimedSupplierFunction implements SupplierFunction<Collection>, ScheduledFunction<Object, Collection> {
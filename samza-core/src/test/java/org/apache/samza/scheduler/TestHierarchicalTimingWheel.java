@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.scheduler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestHierarchicalTimingWheel {
+
+  private static List<String> keys(List<Map.Entry<String, Long>> timers) {
+    return timers.stream().map(Map.Entry::getKey).collect(Collectors.toList());
+  }
+
+  @Test
+  public void testPollReturnsExpiredTimersInOrder() {
+    HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(10, 8, 1000);
+    wheel.add("c", 1055);
+    wheel.add("a", 1012);
+    wheel.add("b", 1031);
+
+    assertEquals(3, wheel.size());
+    assertEquals(1010, wheel.nextExpirationMs());
+    assertTrue(wheel.poll(1011).isEmpty());
+    assertEquals(1012, wheel.nextExpirationMs());
+    assertEquals(Arrays.asList("a", "b"), keys(wheel.poll(1040)));
+    assertEquals(1, wheel.size());
+    List<Map.Entry<String, Long>> expired = wheel.poll(2000);
+    assertEquals("c", expired.get(0).getKey());
+    assertEquals(1055L, (long) expired.get(0).getValue());
+    assertEquals(0, wheel.size());
+    assertEquals(Long.MAX_VALUE, wheel.nextExpirationMs());
+  }
+
+  @Test
+  public void testTimersBeyondTheLowestLevel() {
+    HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(1, 4, 0);
+    // beyond the range of the first two levels
+    wheel.add("far", 100);
+    wheel.add("near", 3);
+
+    assertEquals(Long.valueOf(100), wheel.getExpiration("far"));
+    assertEquals(Collections.singletonList("near"), keys(wheel.poll(50)));
+    assertTrue(wheel.poll(99).isEmpty());
+    assertEquals(Collections.singletonList("far"), keys(wheel.poll(100)));
+  }
+
+  @Test
+  public void testTimerInThePastExpiresOnNextPoll() {
+    HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(10, 8, 1000);
+    wheel.add("late", 500);
+    assertEquals(500, wheel.nextExpirationMs());
+    assertEquals(Collections.singletonList("late"), keys(wheel.poll(1000)));
+  }
+
+  @Test
+  public void testAddReplacesAndRemoveDeletes() {
+    HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(10, 8, 0);
+    wheel.add("a", 20);
+    wheel.add("a", 500);
+    wheel.add("b", 30);
+
+    assertEquals(2, wheel.size());
+    assertTrue(wheel.remove("b"));
+    assertFalse(wheel.remove("b"));
+    assertNull(wheel.getExpiration("b"));
+    assertTrue(wheel.poll(100).isEmpty());
+    // the start of the bucket of the timer in the second level
+    assertEquals(480, wheel.nextExpirationMs());
+    assertTrue(wheel.poll(480).isEmpty());
+    assertEquals(500, wheel.nextExpirationMs());
+    assertEquals(Collections.singletonList("a"), keys(wheel.poll(500)));
+  }
+
+  @Test
+  public void testRandomTimersNeverFireEarly() {
+    Random random = new Random(42);
+    HierarchicalTimingWheel<Integer> wheel = new HierarchicalTimingWheel<>(5, 16, 0);
+    int numTimers = 10000;
+    for (int i = 0; i < numTimers; i++) {
+      wheel.add(i, random.nextInt(1000000));
+    }
+
+    List<Integer> fired = new ArrayList<>();
+    long now = 0;
+    while (wheel.size() > 0) {
+      now = Math.max(now, wheel.nextExpirationMs());
+      for (Map.Entry<Integer, Long> timer : wheel.poll(now)) {
+        assertTrue(timer.getValue() <= now);
+        fired.add(timer.getKey());
+      }
+      now += random.nextInt(20);
+    }
+    assertEquals(numTimers, fired.size());
+    assertEquals(numTimers, fired.stream().distinct().count());
+  }
+}
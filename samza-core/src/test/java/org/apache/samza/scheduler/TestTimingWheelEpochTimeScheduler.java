@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.scheduler;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.samza.config.Config;
+import org.apache.samza.config.MapConfig;
+import org.apache.samza.config.TaskConfig;
+import org.apache.samza.operators.impl.store.TestInMemoryStore;
+import org.apache.samza.serializers.ByteSerde;
+import org.apache.samza.storage.kv.KeyValueStore;
+import org.apache.samza.task.MessageCollector;
+import org.apache.samza.task.TaskCoordinator;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TestTimingWheelEpochTimeScheduler {
+  private static final Config CONFIG = new MapConfig(ImmutableMap.of(
+      TaskConfig.TIMER_WHEEL_ENABLED, "true",
+      TaskConfig.TIMER_WHEEL_TICK_MS, "10",
+      TaskConfig.TIMER_STORE, "timers",
+      TaskConfig.TIMER_KEY_SERDE, "string"));
+
+  private final AtomicLong now = new AtomicLong(1000);
+  private KeyValueStore<byte[], byte[]> store;
+  private ScheduledExecutorService executor;
+  private List<Long> wakeupDelays;
+
+  @Before
+  public void setup() {
+    store = new TestInMemoryStore<>(new ByteSerde(), new ByteSerde());
+    wakeupDelays = new ArrayList<>();
+    executor = mock(ScheduledExecutorService.class);
+    when(executor.schedule(any(Runnable.class), anyLong(), any(TimeUnit.class))).thenAnswer(invocation -> {
+      wakeupDelays.add((Long) invocation.getArguments()[1]);
+      return mock(ScheduledFuture.class);
+    });
+  }
+
+  private TimingWheelEpochTimeScheduler createScheduler(Config config) {
+    return new TimingWheelEpochTimeScheduler(executor, config, storeName -> "timers".equals(storeName) ? store : null,
+        now::get);
+  }
+
+  private static List<Object> fireTimers(EpochTimeScheduler scheduler) {
+    List<Object> keys = new ArrayList<>();
+    scheduler.removeReadyTimers().forEach((timerKey, callback) -> {
+      keys.add(timerKey.getKey());
+      callback.onCallback(timerKey.getKey(), mock(MessageCollector.class), mock(TaskCoordinator.class));
+    });
+    return keys;
+  }
+
+  @Test
+  public void testTimersFireWhenDue() {
+    TimingWheelEpochTimeScheduler scheduler = createScheduler(new MapConfig());
+    List<String> fired = new ArrayList<>();
+    ScheduledCallback<String> callback = (key, collector, coordinator) -> fired.add(key);
+    scheduler.setTimer("a", 1100L, callback);
+    scheduler.setTimer("b", 1050L, callback);
+    scheduler.setTimer("c", 1200L, callback);
+    scheduler.deleteTimer("c");
+
+    assertEquals(2, scheduler.getNumTimers());
+    // the wakeup is moved earlier for the earlier timer only
+    assertEquals(2, wakeupDelays.size());
+    assertEquals(50L, (long) wakeupDelays.get(1));
+
+    now.set(1049);
+    scheduler.expireTimers();
+    assertTrue(fireTimers(scheduler).isEmpty());
+
+    now.set(1100);
+    scheduler.expireTimers();
+    assertEquals(2, fireTimers(scheduler).size());
+    assertEquals(Arrays.asList("b", "a"), fired);
+    assertEquals(0, scheduler.getNumTimers());
+  }
+
+  @Test
+  public void testDurableTimersArePersisted() {
+    TimingWheelEpochTimeScheduler scheduler = createScheduler(CONFIG);
+    List<EpochTimeScheduler.TimerKey<String>> fired = new ArrayList<>();
+    scheduler.<String>registerCallback("op", (timerKey, collector, coordinator) -> fired.add(timerKey));
+    scheduler.setTimer("op", "a", 1100L);
+    scheduler.setTimer("op", "b", 1200L);
+    scheduler.deleteTimer("op", "b");
+    assertEquals(1, getNumPersistedTimers());
+
+    now.set(1100);
+    scheduler.expireTimers();
+    fireTimers(scheduler);
+    assertEquals(1, fired.size());
+    assertEquals("a", fired.get(0).getKey());
+    assertEquals(1100L, fired.get(0).getTime());
+    assertEquals(0, getNumPersistedTimers());
+  }
+
+  @Test
+  public void testDurableTimersAreRecovered() {
+    TimingWheelEpochTimeScheduler scheduler = createScheduler(CONFIG);
+    scheduler.<String>registerCallback("op1", (timerKey, collector, coordinator) -> { });
+    scheduler.<String>registerCallback("op2", (timerKey, collector, coordinator) -> { });
+    scheduler.setTimer("op1", "a", 1100L);
+    scheduler.setTimer("op2", "a", 5000L);
+
+    // restart after the first timer expired
+    now.set(2000);
+    TimingWheelEpochTimeScheduler recovered = createScheduler(CONFIG);
+    List<String> fired = new ArrayList<>();
+    recovered.<String>registerCallback("op1",
+        (timerKey, collector, coordinator) -> fired.add("op1:" + timerKey.getKey() + "@" + timerKey.getTime()));
+    assertEquals(1, recovered.getNumTimers());
+    recovered.expireTimers();
+    fireTimers(recovered);
+    assertEquals(Collections.singletonList("op1:a@1100"), fired);
+
+    recovered.<String>registerCallback("op2",
+        (timerKey, collector, coordinator) -> fired.add("op2:" + timerKey.getKey() + "@" + timerKey.getTime()));
+    now.set(5000);
+    recovered.expireTimers();
+    fireTimers(recovered);
+    assertEquals(Arrays.asList("op1:a@1100", "op2:a@5000"), fired);
+    assertEquals(0, getNumPersistedTimers());
+  }
+
+  @Test
+  public void testTimerSetAgainBeforeCallbackIsKept() {
+    TimingWheelEpochTimeScheduler scheduler = createScheduler(CONFIG);
+    scheduler.<String>registerCallback("op", (timerKey, collector, coordinator) -> { });
+    scheduler.setTimer("op", "a", 1100L);
+
+    now.set(1100);
+    scheduler.expireTimers();
+    // set again after the timer expired, but before the run loop invoked its callback
+    scheduler.setTimer("op", "a", 3000L);
+    fireTimers(scheduler);
+
+    assertEquals(1, getNumPersistedTimers());
+    assertEquals(1, scheduler.getNumTimers());
+    assertTrue(scheduler.removeReadyTimers().isEmpty());
+  }
+
+  private int getNumPersistedTimers() {
+    List<Object> entries = new ArrayList<>();
+    store.all().forEachRemaining(entries::add);
+    return entries.size();
+  }
+}
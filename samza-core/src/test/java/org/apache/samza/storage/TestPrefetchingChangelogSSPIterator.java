@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.samza.Partition;
+import org.apache.samza.SamzaException;
+import org.apache.samza.system.ChangelogSSPIterator;
+import org.apache.samza.system.IncomingMessageEnvelope;
+import org.apache.samza.system.SystemStreamPartition;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+
+public class TestPrefetchingChangelogSSPIterator {
+  private static final SystemStreamPartition SSP = new SystemStreamPartition("system", "stream", new Partition(0));
+
+  @Test
+  public void testPreservesOrderAndMode() {
+    // messages from offset 50 on are in TRIM mode
+    FakeChangelogSSPIterator underlying = new FakeChangelogSSPIterator(100, 50);
+    List<ChangelogSSPIterator.Mode> modes = new ArrayList<>();
+    try (PrefetchingChangelogSSPIterator iterator =
+        new PrefetchingChangelogSSPIterator(underlying, SSP, 8, "test")) {
+      assertEquals(ChangelogSSPIterator.Mode.RESTORE, iterator.getMode());
+      for (int i = 0; i < 100; i++) {
+        assertTrue(iterator.hasNext());
+        assertEquals(String.valueOf(i), iterator.next().getOffset());
+        modes.add(iterator.getMode());
+      }
+      assertFalse(iterator.hasNext());
+      try {
+        iterator.next();
+        fail("Expected NoSuchElementException at the end of the iterator");
+      } catch (NoSuchElementException e) {
+        // expected
+      }
+    }
+    for (int i = 0; i < 100; i++) {
+      assertEquals(i < 50 ? ChangelogSSPIterator.Mode.RESTORE : ChangelogSSPIterator.Mode.TRIM, modes.get(i));
+    }
+  }
+
+  @Test
+  public void testStartsInTrimMode() {
+    FakeChangelogSSPIterator underlying = new FakeChangelogSSPIterator(10, -1);
+    try (PrefetchingChangelogSSPIterator iterator =
+        new PrefetchingChangelogSSPIterator(underlying, SSP, 8, "test")) {
+      assertEquals(ChangelogSSPIterator.Mode.TRIM, iterator.getMode());
+      iterator.next();
+      assertEquals(ChangelogSSPIterator.Mode.TRIM, iterator.getMode());
+    }
+  }
+
+  @Test
+  public void testBoundedPrefetch() throws Exception {
+    FakeChangelogSSPIterator underlying = new FakeChangelogSSPIterator(1000, 1000);
+    try (PrefetchingChangelogSSPIterator iterator =
+        new PrefetchingChangelogSSPIterator(underlying, SSP, 8, "test")) {
+      Thread.sleep(200);
+      // 8 buffered, plus at most one waiting to be buffered
+      assertTrue(underlying.consumed.get() <= 9);
+      iterator.next();
+    }
+  }
+
+  @Test
+  public void testPropagatesErrors() {
+    FakeChangelogSSPIterator underlying = new FakeChangelogSSPIterator(10, 10);
+    underlying.failAt = 5;
+    try (PrefetchingChangelogSSPIterator iterator =
+        new PrefetchingChangelogSSPIterator(underlying, SSP, 8, "test")) {
+      for (int i = 0; i < 5; i++) {
+        iterator.next();
+      }
+      iterator.hasNext();
+      fail("Expected the prefetch error to be rethrown");
+    } catch (SamzaException e) {
+      assertEquals("failed", e.getCause().getMessage());
+    }
+  }
+
+  private static class FakeChangelogSSPIterator extends ChangelogSSPIterator {
+    private final int size;
+    private final int trimFrom;
+    private final AtomicInteger consumed = new AtomicInteger();
+    private volatile int failAt = -1;
+
+    FakeChangelogSSPIterator(int size, int trimFrom) {
+      super(null, SSP, null, null, false);
+      this.size = size;
+      this.trimFrom = trimFrom;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return consumed.get() < size;
+    }
+
+    @Override
+    public IncomingMessageEnvelope next() {
+      int offset = consumed.getAndIncrement();
+      if (offset == failAt) {
+        throw new IllegalStateException("failed");
+      }
+      return new IncomingMessageEnvelope(SSP, String.valueOf(offset), mock(Object.class), null);
+    }
+
+    @Override
+    public Mode getMode() {
+      return consumed.get() > trimFrom ? Mode.TRIM : Mode.RESTORE;
+    }
+  }
+}
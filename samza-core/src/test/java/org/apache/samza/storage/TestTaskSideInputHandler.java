@@ -18,9 +18,13 @@
  */
 package org.apache.samza.storage;
 
+import com.google.common.collect.ImmutableList;
 import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
@@ -30,6 +34,9 @@ import java.util.stream.IntStream;
 import org.apache.samza.Partition;
 import org.apache.samza.container.TaskName;
 import org.apache.samza.job.model.TaskMode;
+import org.apache.samza.storage.kv.Entry;
+import org.apache.samza.storage.kv.KeyValueStore;
+import org.apache.samza.system.IncomingMessageEnvelope;
 import org.apache.samza.system.StreamMetadataCache;
 import org.apache.samza.system.SystemAdmin;
 import org.apache.samza.system.SystemAdmins;
@@ -42,14 +49,17 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.anyBoolean;
+import static org.mockito.Mockito.anyList;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.withSettings;
 
 
 public class TestTaskSideInputHandler {
@@ -132,15 +142,156 @@ public class TestTaskSideInputHandler {
     });
   }
 
+  @Test
+  public void testWritesAreBatchedUntilCaughtUp() throws Exception {
+    SystemStreamPartition ssp = new SystemStreamPartition(TEST_SYSTEM, TEST_STREAM, new Partition(0));
+    List<String> writes = new ArrayList<>();
+    StorageEngine store = mockKeyValueStorageEngine(writes);
+
+    TaskSideInputHandler handler = new MockTaskSideInputHandlerBuilder("test-batched-writes-task", TaskMode.Active)
+        .addStreamMetadata(Collections.singletonMap(ssp.getSystemStream(), new SystemStreamMetadata(TEST_STREAM,
+            Collections.singletonMap(ssp.getPartition(), new SystemStreamMetadata.SystemStreamPartitionMetadata("0", "3", "4")))))
+        .addStore(TEST_STORE, Collections.singleton(ssp), store, 10)
+        .build();
+    handler.init();
+
+    handler.process(new IncomingMessageEnvelope(ssp, "0", null, null));
+    handler.process(new IncomingMessageEnvelope(ssp, "1", null, null));
+    handler.process(new IncomingMessageEnvelope(ssp, "2", null, null));
+    assertTrue("Entries should be buffered while the ssp is catching up", writes.isEmpty());
+    assertFalse(handler.isCaughtUp(ssp));
+
+    // processing the newest offset writes all pending entries in order before the ssp is reported as caught up
+    handler.process(new IncomingMessageEnvelope(ssp, "3", null, null));
+    assertTrue(handler.isCaughtUp(ssp));
+    assertEquals(ImmutableList.of("putAll [k0=v0, k1=v1]", "deleteAll [k0]", "putAll [k3=v3]"), writes);
+
+    // once caught up, entries are written as they are processed
+    handler.process(new IncomingMessageEnvelope(ssp, "4", null, null));
+    assertEquals("putAll [k4=v4]", writes.get(writes.size() - 1));
+  }
+
+  @Test
+  public void testWritesAreBatchedUpToBatchSize() throws Exception {
+    SystemStreamPartition ssp = new SystemStreamPartition(TEST_SYSTEM, TEST_STREAM, new Partition(0));
+    List<String> writes = new ArrayList<>();
+    StorageEngine store = mockKeyValueStorageEngine(writes);
+
+    TaskSideInputHandler handler = new MockTaskSideInputHandlerBuilder("test-batch-size-task", TaskMode.Active)
+        .addStreamMetadata(Collections.singletonMap(ssp.getSystemStream(), new SystemStreamMetadata(TEST_STREAM,
+            Collections.singletonMap(ssp.getPartition(), new SystemStreamMetadata.SystemStreamPartitionMetadata("0", "9", "10")))))
+        .addStore(TEST_STORE, Collections.singleton(ssp), store, 2)
+        .build();
+    handler.init();
+
+    handler.process(new IncomingMessageEnvelope(ssp, "0", null, null));
+    assertTrue(writes.isEmpty());
+    handler.process(new IncomingMessageEnvelope(ssp, "1", null, null));
+    assertEquals(ImmutableList.of("putAll [k0=v0, k1=v1]"), writes);
+  }
+
+  @Test
+  public void testPendingWritesAreWrittenOnFlush() throws Exception {
+    SystemStreamPartition ssp = new SystemStreamPartition(TEST_SYSTEM, TEST_STREAM, new Partition(0));
+    List<String> writes = new ArrayList<>();
+    StorageEngine store = mockKeyValueStorageEngine(writes);
+    doAnswer(invocation -> writes.add("flush")).when(store).flush();
+
+    TaskSideInputHandler handler = new MockTaskSideInputHandlerBuilder("test-flush-writes-task", TaskMode.Active)
+        .addStreamMetadata(Collections.singletonMap(ssp.getSystemStream(), new SystemStreamMetadata(TEST_STREAM,
+            Collections.singletonMap(ssp.getPartition(), new SystemStreamMetadata.SystemStreamPartitionMetadata("0", "9", "10")))))
+        .addStore(TEST_STORE, Collections.singleton(ssp), store, 10)
+        .build();
+    handler.init();
+
+    handler.process(new IncomingMessageEnvelope(ssp, "0", null, null));
+    handler.process(new IncomingMessageEnvelope(ssp, "1", null, null));
+    assertTrue(writes.isEmpty());
+
+    handler.flush();
+    assertEquals(ImmutableList.of("putAll [k0=v0, k1=v1]", "flush"), writes);
+    assertEquals("1", handler.getLastProcessedOffset(ssp));
+  }
+
+  @Test
+  public void testPendingWritesAreWrittenBeforeProcessorAccessesStore() throws Exception {
+    SystemStreamPartition ssp = new SystemStreamPartition(TEST_SYSTEM, TEST_STREAM, new Partition(0));
+    List<String> writes = new ArrayList<>();
+    StorageEngine store = mockKeyValueStorageEngine(writes);
+    doAnswer(invocation -> writes.add("get " + invocation.getArgumentAt(0, String.class)))
+        .when((KeyValueStore) store).get(any());
+    SideInputsProcessor entryPerOffsetProcessor = entryPerOffsetProcessor();
+    SideInputsProcessor readingProcessor = (message, kvStore) -> {
+      if ("3".equals(message.getOffset())) {
+        kvStore.get("k1");
+      }
+      return entryPerOffsetProcessor.process(message, kvStore);
+    };
+
+    TaskSideInputHandler handler = new MockTaskSideInputHandlerBuilder("test-read-writes-task", TaskMode.Active)
+        .addStreamMetadata(Collections.singletonMap(ssp.getSystemStream(), new SystemStreamMetadata(TEST_STREAM,
+            Collections.singletonMap(ssp.getPartition(), new SystemStreamMetadata.SystemStreamPartitionMetadata("0", "9", "10")))))
+        .addStore(TEST_STORE, Collections.singleton(ssp), store, 10, readingProcessor)
+        .build();
+    handler.init();
+
+    handler.process(new IncomingMessageEnvelope(ssp, "0", null, null));
+    handler.process(new IncomingMessageEnvelope(ssp, "1", null, null));
+    handler.process(new IncomingMessageEnvelope(ssp, "2", null, null));
+    assertTrue("Entries should be buffered while the processor does not access the store", writes.isEmpty());
+
+    // the processor sees the entries returned for earlier messages, and the entries after it are batched again
+    handler.process(new IncomingMessageEnvelope(ssp, "3", null, null));
+    handler.process(new IncomingMessageEnvelope(ssp, "4", null, null));
+    assertEquals(ImmutableList.of("putAll [k0=v0, k1=v1]", "deleteAll [k0]", "get k1"), writes);
+
+    handler.flush();
+    assertEquals(ImmutableList.of("putAll [k0=v0, k1=v1]", "deleteAll [k0]", "get k1", "putAll [k3=v3, k4=v4]"),
+        writes);
+  }
+
+  /**
+   * Mocks a non-persisted key value store which records its bulk writes in {@code writes}.
+   */
+  private static StorageEngine mockKeyValueStorageEngine(List<String> writes) {
+    StorageEngine store = mock(StorageEngine.class, withSettings().extraInterfaces(KeyValueStore.class));
+    doReturn(new StoreProperties.StorePropertiesBuilder().setPersistedToDisk(false).setLoggedStore(false).build())
+        .when(store).getStoreProperties();
+    doAnswer(invocation -> {
+      List<Entry<String, String>> entries = invocation.getArgumentAt(0, List.class);
+      writes.add("putAll " + entries.stream()
+          .map(entry -> entry.getKey() + "=" + entry.getValue())
+          .collect(Collectors.toList()));
+      return null;
+    }).when((KeyValueStore) store).putAll(anyList());
+    doAnswer(invocation -> writes.add("deleteAll " + invocation.getArgumentAt(0, List.class)))
+        .when((KeyValueStore) store).deleteAll(anyList());
+    return store;
+  }
+
+  /**
+   * Side inputs processor that emits an entry (k{offset}, v{offset}) for every message, except for offset 2 which
+   * deletes k0.
+   */
+  private static SideInputsProcessor entryPerOffsetProcessor() {
+    return (message, store) -> {
+      String offset = message.getOffset();
+      return "2".equals(offset)
+          ? Collections.singletonList(new Entry<>("k0", null))
+          : Collections.singletonList(new Entry<>("k" + offset, "v" + offset));
+    };
+  }
+
   private static final class MockTaskSideInputHandlerBuilder {
     final TaskName taskName;
     final TaskMode taskMode;
-    final File storeBaseDir;
+    File storeBaseDir;
 
     final Map<String, StorageEngine> stores = new HashMap<>();
     final Map<String, Set<SystemStreamPartition>> storeToSSPs = new HashMap<>();
     final Clock clock = mock(Clock.class);
     final Map<String, SideInputsProcessor> storeToProcessor = new HashMap<>();
+    final Map<String, Integer> storeToWriteBatchSize = new HashMap<>();
     final StreamMetadataCache streamMetadataCache = mock(StreamMetadataCache.class);
     final SystemAdmins systemAdmins = mock(SystemAdmins.class);
 
@@ -174,6 +325,24 @@ public class TestTaskSideInputHandler {
 
     MockTaskSideInputHandlerBuilder addStreamMetadata(Map<SystemStream, SystemStreamMetadata> streamMetadata) {
       doReturn(ScalaJavaUtil.toScalaMap(streamMetadata)).when(streamMetadataCache).getStreamMetadata(any(), anyBoolean());
+      streamMetadata.forEach((systemStream, metadata) ->
+          doReturn(metadata).when(streamMetadataCache).getSystemStreamMetadata(systemStream, false));
+      return this;
+    }
+
+    MockTaskSideInputHandlerBuilder addStore(String storeName, Set<SystemStreamPartition> storeSSPs,
+        StorageEngine store, int writeBatchSize) throws Exception {
+      return addStore(storeName, storeSSPs, store, writeBatchSize, entryPerOffsetProcessor());
+    }
+
+    MockTaskSideInputHandlerBuilder addStore(String storeName, Set<SystemStreamPartition> storeSSPs,
+        StorageEngine store, int writeBatchSize, SideInputsProcessor processor) throws Exception {
+      storeToSSPs.put(storeName, storeSSPs);
+      storeToProcessor.put(storeName, processor);
+      storeToWriteBatchSize.put(storeName, writeBatchSize);
+      stores.put(storeName, store);
+      storeBaseDir = Files.createTempDirectory("side-input-stores").toFile();
+      storeBaseDir.deleteOnExit();
       return this;
     }
 
@@ -190,6 +359,7 @@ public class TestTaskSideInputHandler {
           stores,
           storeToSSPs,
           storeToProcessor,
+          storeToWriteBatchSize,
           systemAdmins,
           streamMetadataCache,
           new CountDownLatch(1),
@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.storage.blobstore.local;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.samza.storage.blobstore.Metadata;
+import org.apache.samza.storage.blobstore.exceptions.DeletedException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+public class TestLocalBlobStoreManager {
+  private static final long TTL_MS = 1000L;
+  private static final byte[] CONTENTS = "blob contents".getBytes(StandardCharsets.UTF_8);
+
+  private final AtomicLong time = new AtomicLong(0L);
+  private Path tempDir;
+  private Path baseDir;
+  private LocalBlobStoreManager blobStoreManager;
+
+  @Before
+  public void setUp() throws Exception {
+    tempDir = Files.createTempDirectory("samza-local-blob-store-test-");
+    baseDir = tempDir.resolve("blobs");
+    blobStoreManager = createBlobStoreManager(true);
+    blobStoreManager.init();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    FileUtils.deleteDirectory(tempDir.toFile());
+  }
+
+  @Test
+  public void testPutAndGet() {
+    String blobId = put(Metadata.SNAPSHOT_INDEX_PAYLOAD_PATH, Optional.empty());
+
+    assertFalse(new File(blobId).isAbsolute());
+    assertTrue(blobStoreManager.getBlobPath(blobId).startsWith(baseDir.resolve("jobName").resolve("jobId")));
+    assertArrayEquals(CONTENTS, get(blobId, false));
+  }
+
+  @Test
+  public void testPutHardLinksPayloadFile() throws Exception {
+    Path file = tempDir.resolve("000001.sst");
+    Files.write(file, CONTENTS);
+
+    CheckedInputStream inputStream = new CheckedInputStream(new FileInputStream(file.toFile()), new CRC32());
+    String blobId = blobStoreManager.put(inputStream, metadata(file.toString(), Optional.of((long) CONTENTS.length)))
+        .toCompletableFuture().join();
+
+    assertTrue(Files.isSameFile(file, blobStoreManager.getBlobPath(blobId)));
+    // the input stream is still read, so that its checksum is computed
+    CRC32 expectedChecksum = new CRC32();
+    expectedChecksum.update(CONTENTS, 0, CONTENTS.length);
+    assertEquals(expectedChecksum.getValue(), inputStream.getChecksum().getValue());
+
+    // get into a file
+    File restoredFile = tempDir.resolve("restored.sst").toFile();
+    try (FileOutputStream outputStream = new FileOutputStream(restoredFile)) {
+      blobStoreManager.get(blobId, outputStream, metadata(restoredFile.getPath(), Optional.empty()), false)
+          .toCompletableFuture().join();
+    }
+    assertArrayEquals(CONTENTS, Files.readAllBytes(restoredFile.toPath()));
+  }
+
+  @Test
+  public void testPutCopiesPayloadFileIfHardLinksDisabled() throws Exception {
+    blobStoreManager = createBlobStoreManager(false);
+    Path file = tempDir.resolve("000001.sst");
+    Files.write(file, CONTENTS);
+
+    String blobId = blobStoreManager.put(new FileInputStream(file.toFile()),
+        metadata(file.toString(), Optional.of((long) CONTENTS.length))).toCompletableFuture().join();
+
+    assertFalse(Files.isSameFile(file, blobStoreManager.getBlobPath(blobId)));
+    assertArrayEquals(CONTENTS, get(blobId, false));
+  }
+
+  @Test
+  public void testDelete() {
+    String blobId = put("file", Optional.empty());
+    Metadata metadata = metadata("file", Optional.empty());
+    blobStoreManager.delete(blobId, metadata).toCompletableFuture().join();
+
+    assertDeleted(() -> get(blobId, false));
+    // deleted blobs can be read until they are compacted
+    assertArrayEquals(CONTENTS, get(blobId, true));
+    assertDeleted(() -> blobStoreManager.delete(blobId, metadata).toCompletableFuture().join());
+    assertDeleted(() -> blobStoreManager.removeTTL(blobId, metadata).toCompletableFuture().join());
+
+    time.set(TTL_MS);
+    blobStoreManager.init();
+    assertDeleted(() -> get(blobId, true));
+  }
+
+  @Test
+  public void testBlobsExpireUnlessTTLIsRemoved() {
+    String expiringBlobId = put("file1", Optional.empty());
+    String permanentBlobId = put("file2", Optional.empty());
+    blobStoreManager.removeTTL(permanentBlobId, metadata("file2", Optional.empty())).toCompletableFuture().join();
+
+    time.set(TTL_MS);
+    assertDeleted(() -> get(expiringBlobId, false));
+    assertArrayEquals(CONTENTS, get(expiringBlobId, true));
+    assertDeleted(() -> blobStoreManager.removeTTL(expiringBlobId, metadata("file1", Optional.empty()))
+        .toCompletableFuture().join());
+
+    // init compacts expired blobs
+    blobStoreManager.init();
+    assertFalse(Files.exists(blobStoreManager.getBlobPath(expiringBlobId)));
+    assertFalse(Files.exists(blobStoreManager.getBlobPath(expiringBlobId + LocalBlobStoreManager.EXPIRES_SUFFIX)));
+    assertDeleted(() -> get(expiringBlobId, true));
+    assertArrayEquals(CONTENTS, get(permanentBlobId, false));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBlobIdOutsideBaseDirIsRejected() {
+    blobStoreManager.getBlobPath("../outside");
+  }
+
+  private LocalBlobStoreManager createBlobStoreManager(boolean hardLinksEnabled) {
+    return new LocalBlobStoreManager(baseDir, "jobName", "jobId", TTL_MS, hardLinksEnabled,
+        MoreExecutors.newDirectExecutorService(), time::get);
+  }
+
+  private String put(String payloadPath, Optional<Long> payloadSize) {
+    return blobStoreManager.put(new ByteArrayInputStream(CONTENTS), metadata(payloadPath, payloadSize))
+        .toCompletableFuture().join();
+  }
+
+  private byte[] get(String blobId, boolean getDeletedBlob) {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    blobStoreManager.get(blobId, outputStream, metadata("file", Optional.empty()), getDeletedBlob)
+        .toCompletableFuture().join();
+    return outputStream.toByteArray();
+  }
+
+  private static Metadata metadata(String payloadPath, Optional<Long> payloadSize) {
+    return new Metadata(payloadPath, payloadSize, "jobName", "jobId", "taskName", "storeName");
+  }
+
+  private static void assertDeleted(Runnable action) {
+    try {
+      action.run();
+      fail("Expected a DeletedException");
+    } catch (CompletionException e) {
+      assertTrue(e.getCause() instanceof DeletedException);
+    }
+  }
+}
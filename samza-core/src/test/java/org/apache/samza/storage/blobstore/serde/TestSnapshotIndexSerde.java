@@ -19,7 +19,12 @@
 
 package org.apache.samza.storage.blobstore.serde;
 
+import com.google.common.collect.ImmutableList;
+import org.apache.samza.storage.blobstore.index.CompressionType;
 import org.apache.samza.storage.blobstore.index.DirIndex;
+import org.apache.samza.storage.blobstore.index.FileBlob;
+import org.apache.samza.storage.blobstore.index.FileIndex;
+import org.apache.samza.storage.blobstore.index.FileMetadata;
 import org.apache.samza.storage.blobstore.index.SnapshotIndex;
 import org.apache.samza.storage.blobstore.index.SnapshotMetadata;
 import org.apache.samza.storage.blobstore.index.serde.SnapshotIndexSerde;
@@ -53,4 +58,30 @@ public class TestSnapshotIndexSerde {
     Assert.assertNotNull(deserialized);
     Assert.assertEquals(deserialized, testRemoteSnapshot);
   }
+
+  @Test
+  public void testSnapshotIndexSerdeWithFileVersionsAndCompression() {
+    FileMetadata fileMetadata = new FileMetadata(1234L, 1243L, 26, "owner", "group", "rw-r--r--");
+    FileIndex compressedFile = new FileIndex("MANIFEST-000001",
+        ImmutableList.of(new FileBlob("blob1", 0, CompressionType.LZ4), new FileBlob("blob2", 3000000000L,
+            CompressionType.ZSTD)), fileMetadata, 1L, FileIndex.VERSION_CRC32C);
+    DirIndex dirIndex = new DirIndex(DirIndex.ROOT_DIR_NAME, ImmutableList.of(compressedFile), ImmutableList.of(),
+        ImmutableList.of(), ImmutableList.of());
+    SnapshotMetadata snapshotMetadata = new SnapshotMetadata(CheckpointId.create(), "job", "123", "task", "store");
+    SnapshotIndex snapshotIndex = new SnapshotIndex(System.currentTimeMillis(), snapshotMetadata, dirIndex, Optional.empty());
+
+    SnapshotIndexSerde snapshotIndexSerde = new SnapshotIndexSerde();
+    SnapshotIndex deserialized = snapshotIndexSerde.fromBytes(snapshotIndexSerde.toBytes(snapshotIndex));
+    Assert.assertEquals(snapshotIndex, deserialized);
+
+    // snapshots created before file versions and compression were added have CRC32 checksums and uncompressed blobs
+    String serializedWithoutVersions = new String(snapshotIndexSerde.toBytes(snapshotIndex))
+        .replaceAll(",?\"version\":1", "")
+        .replaceAll(",?\"compression\":\"[A-Z0-9]+\"", "");
+    FileIndex oldFileIndex =
+        snapshotIndexSerde.fromBytes(serializedWithoutVersions.getBytes()).getDirIndex().getFilesPresent().get(0);
+    Assert.assertEquals(FileIndex.VERSION_CRC32, oldFileIndex.getVersion());
+    Assert.assertEquals(ImmutableList.of(new FileBlob("blob1", 0), new FileBlob("blob2", 3000000000L)),
+        oldFileIndex.getBlobs());
+  }
 }
@@ -132,6 +132,11 @@ public class BlobStoreTestUtil {
       allRetained.add(prefix + fileRetained.getFileName());
     }
 
+    // added sub-dirs may have retained files if they were deduplicated
+    for (DirDiff dirAdded: dirDiff.getSubDirsAdded()) {
+      getAllRetainedInDiff(prefix + dirAdded.getDirName(), dirAdded, allRetained);
+    }
+
     for (DirDiff dirRetained: dirDiff.getSubDirsRetained()) {
       getAllRetainedInDiff(prefix + dirRetained.getDirName(), dirRetained, allRetained);
     }
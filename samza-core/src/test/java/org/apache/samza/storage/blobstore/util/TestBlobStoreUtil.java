@@ -35,6 +35,7 @@ import java.nio.file.attribute.FileTime;
 import java.nio.file.attribute.PosixFileAttributes;
 import java.nio.file.attribute.PosixFilePermissions;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -53,6 +54,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.zip.CRC32;
+import java.util.zip.Checksum;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.output.NullOutputStream;
@@ -64,18 +66,21 @@ import org.apache.samza.checkpoint.CheckpointId;
 import org.apache.samza.checkpoint.CheckpointV2;
 import org.apache.samza.config.BlobStoreConfig;
 import org.apache.samza.config.MapConfig;
+import org.apache.samza.metrics.MetricsRegistryMap;
 import org.apache.samza.storage.blobstore.BlobStoreManager;
 import org.apache.samza.storage.blobstore.BlobStoreStateBackendFactory;
 import org.apache.samza.storage.blobstore.Metadata;
 import org.apache.samza.storage.blobstore.diff.DirDiff;
 import org.apache.samza.storage.blobstore.exceptions.DeletedException;
 import org.apache.samza.storage.blobstore.exceptions.RetriableException;
+import org.apache.samza.storage.blobstore.index.CompressionType;
 import org.apache.samza.storage.blobstore.index.DirIndex;
 import org.apache.samza.storage.blobstore.index.FileBlob;
 import org.apache.samza.storage.blobstore.index.FileIndex;
 import org.apache.samza.storage.blobstore.index.FileMetadata;
 import org.apache.samza.storage.blobstore.index.SnapshotIndex;
 import org.apache.samza.storage.blobstore.index.SnapshotMetadata;
+import org.apache.samza.storage.blobstore.metrics.BlobStoreBackupManagerMetrics;
 import org.apache.samza.util.FileUtil;
 import org.apache.samza.util.FutureUtil;
 import org.junit.Ignore;
@@ -497,7 +502,7 @@ public class TestBlobStoreUtil {
     Path path = Files.createTempFile("samza-testPutFileChecksum-", ".tmp");
     FileUtil fileUtil = new FileUtil();
     fileUtil.writeToTextFile(path.toFile(), RandomStringUtils.random(1000), false);
-    long expectedChecksum = FileUtils.checksumCRC32(path.toFile());
+    long expectedChecksum = crc32c(Files.readAllBytes(path));
 
     BlobStoreManager blobStoreManager = mock(BlobStoreManager.class);
     ArgumentCaptor<Metadata> argumentCaptor = ArgumentCaptor.forClass(Metadata.class);
@@ -525,6 +530,159 @@ public class TestBlobStoreUtil {
     assertEquals(path.toAbsolutePath().toString(), metadata.getPayloadPath());
     assertEquals(path.toFile().length(), Long.valueOf(metadata.getPayloadSize()).longValue());
     assertEquals(expectedChecksum, fileIndex.getChecksum());
+    assertEquals(FileIndex.VERSION_CRC32C, fileIndex.getVersion());
+  }
+
+  @Test
+  public void testPutFileWithCrc32cDisabled() throws IOException {
+    SnapshotMetadata snapshotMetadata = new SnapshotMetadata(checkpointId, jobName, jobId, taskName, storeName);
+    Path path = Files.createTempFile("samza-testPutFileWithCrc32cDisabled-", ".tmp");
+    new FileUtil().writeToTextFile(path.toFile(), RandomStringUtils.random(1000), false);
+    long expectedChecksum = FileUtils.checksumCRC32(path.toFile());
+
+    BlobStoreManager blobStoreManager = mock(BlobStoreManager.class);
+    when(blobStoreManager.put(any(InputStream.class), any(Metadata.class))).thenAnswer(
+      (Answer<CompletionStage<String>>) invocation -> {
+        IOUtils.copy(invocation.getArgumentAt(0, InputStream.class), NullOutputStream.NULL_OUTPUT_STREAM);
+        return CompletableFuture.completedFuture("blobId");
+      });
+
+    BlobStoreConfig crc32BlobStoreConfig =
+        new BlobStoreConfig(new MapConfig(ImmutableMap.of(BlobStoreConfig.CHECKSUM_CRC32C_ENABLED, "false")));
+    BlobStoreUtil blobStoreUtil = new BlobStoreUtil(blobStoreManager, EXECUTOR, crc32BlobStoreConfig, null, null);
+    FileIndex fileIndex = blobStoreUtil.putFile(path.toFile(), snapshotMetadata).join();
+
+    assertEquals(expectedChecksum, fileIndex.getChecksum());
+    assertEquals(FileIndex.VERSION_CRC32, fileIndex.getVersion());
+    assertTrue(DirDiffUtil.areSameFile(false, true).test(path.toFile(), fileIndex));
+  }
+
+  @Test
+  public void testPutFileCompressesNonSstFiles() throws IOException {
+    SnapshotMetadata snapshotMetadata = new SnapshotMetadata(checkpointId, jobName, jobId, taskName, storeName);
+    Path dir = Files.createTempDirectory(BlobStoreTestUtil.TEMP_DIR_PREFIX);
+    StringBuilder contents = new StringBuilder();
+    for (int i = 0; i < 10000; i++) {
+      contents.append("compressible line ").append(i % 10).append('\n');
+    }
+    File manifestFile = Paths.get(dir.toString(), "MANIFEST-000001").toFile();
+    File sstFile = Paths.get(dir.toString(), "000001.sst").toFile();
+    Files.write(manifestFile.toPath(), contents.toString().getBytes());
+    Files.write(sstFile.toPath(), contents.toString().getBytes());
+
+    Map<String, byte[]> uploadedBlobs = new HashMap<>();
+    BlobStoreManager blobStoreManager = mock(BlobStoreManager.class);
+    when(blobStoreManager.put(any(InputStream.class), any(Metadata.class))).thenAnswer(
+      (Answer<CompletionStage<String>>) invocation -> {
+        String blobId = invocation.getArgumentAt(1, Metadata.class).getPayloadPath();
+        uploadedBlobs.put(blobId, IOUtils.toByteArray(invocation.getArgumentAt(0, InputStream.class)));
+        return CompletableFuture.completedFuture(blobId);
+      });
+    when(blobStoreManager.get(anyString(), any(OutputStream.class), any(Metadata.class), anyBoolean())).thenAnswer(
+      (Answer<CompletionStage<Void>>) invocation -> {
+        String blobId = invocation.getArgumentAt(0, String.class);
+        invocation.getArgumentAt(1, OutputStream.class).write(uploadedBlobs.get(blobId));
+        return CompletableFuture.completedFuture(null);
+      });
+
+    BlobStoreConfig compressingBlobStoreConfig =
+        new BlobStoreConfig(new MapConfig(ImmutableMap.of(BlobStoreConfig.COMPRESSION_TYPE, "lz4")));
+    BlobStoreBackupManagerMetrics backupMetrics = new BlobStoreBackupManagerMetrics(new MetricsRegistryMap());
+    BlobStoreUtil blobStoreUtil =
+        new BlobStoreUtil(blobStoreManager, EXECUTOR, compressingBlobStoreConfig, backupMetrics, null);
+
+    FileIndex manifestFileIndex = blobStoreUtil.putFile(manifestFile, snapshotMetadata).join();
+    FileIndex sstFileIndex = blobStoreUtil.putFile(sstFile, snapshotMetadata).join();
+
+    assertEquals(CompressionType.LZ4, manifestFileIndex.getBlobs().get(0).getCompression());
+    assertTrue(uploadedBlobs.get(manifestFile.getAbsolutePath()).length < manifestFile.length());
+    // sst files are not compressed unless enabled
+    assertEquals(CompressionType.NONE, sstFileIndex.getBlobs().get(0).getCompression());
+    assertEquals(sstFile.length(), uploadedBlobs.get(sstFile.getAbsolutePath()).length);
+    assertEquals(manifestFile.length() - uploadedBlobs.get(manifestFile.getAbsolutePath()).length,
+        backupMetrics.bytesSavedByCompression.getValue().get());
+    // checksum is the checksum of the uncompressed file
+    assertEquals(crc32c(Files.readAllBytes(manifestFile.toPath())), manifestFileIndex.getChecksum());
+
+    File restoredFile = Paths.get(dir.toString(), "MANIFEST-000001-restored").toFile();
+    Metadata requestMetadata = new Metadata(restoredFile.getAbsolutePath(), Optional.of(manifestFile.length()),
+        jobName, jobId, taskName, storeName);
+    blobStoreUtil.getFile(manifestFileIndex.getBlobs(), restoredFile, requestMetadata, false).join();
+    assertArrayEquals(Files.readAllBytes(manifestFile.toPath()), Files.readAllBytes(restoredFile.toPath()));
+  }
+
+  @Test
+  public void testPutFileInChunks() throws IOException {
+    SnapshotMetadata snapshotMetadata = new SnapshotMetadata(checkpointId, jobName, jobId, taskName, storeName);
+    Path path = Files.createTempFile("samza-testPutFileInChunks-", ".sst");
+    byte[] fileContents = new byte[1000];
+    new Random().nextBytes(fileContents);
+    Files.write(path, fileContents);
+    long expectedChecksum = crc32c(fileContents);
+
+    Map<String, byte[]> uploadedBlobs = new HashMap<>();
+    List<Long> uploadedSizes = new ArrayList<>();
+    BlobStoreManager blobStoreManager = mock(BlobStoreManager.class);
+    when(blobStoreManager.put(any(InputStream.class), any(Metadata.class))).thenAnswer(
+      (Answer<CompletionStage<String>>) invocation -> {
+        InputStream inputStream = invocation.getArgumentAt(0, InputStream.class);
+        Metadata metadata = invocation.getArgumentAt(1, Metadata.class);
+        assertEquals(path.toAbsolutePath().toString(), metadata.getPayloadPath());
+        uploadedSizes.add(metadata.getPayloadSize());
+        String blobId = "blob-" + uploadedBlobs.size();
+        uploadedBlobs.put(blobId, IOUtils.toByteArray(inputStream));
+        return CompletableFuture.completedFuture(blobId);
+      });
+
+    BlobStoreConfig chunkedBlobStoreConfig =
+        new BlobStoreConfig(new MapConfig(ImmutableMap.of(BlobStoreConfig.FILE_CHUNK_SIZE_BYTES, "300")));
+    BlobStoreUtil blobStoreUtil = new BlobStoreUtil(blobStoreManager, EXECUTOR, chunkedBlobStoreConfig, null, null);
+    FileIndex fileIndex = blobStoreUtil.putFile(path.toFile(), snapshotMetadata).join();
+
+    assertEquals(ImmutableList.of(300L, 300L, 300L, 100L), uploadedSizes);
+    assertEquals(4, fileIndex.getBlobs().size());
+    for (FileBlob fileBlob : fileIndex.getBlobs()) {
+      byte[] blobContents = uploadedBlobs.get(fileBlob.getBlobId());
+      int offset = (int) fileBlob.getOffset();
+      assertArrayEquals(Arrays.copyOfRange(fileContents, offset, offset + blobContents.length), blobContents);
+    }
+    // checksum of the chunked file is the same as the checksum of the whole file
+    assertEquals(expectedChecksum, fileIndex.getChecksum());
+  }
+
+  @Test
+  public void testGetFileWritesChunksAtTheirOffsets() throws IOException {
+    Path restoreDirBasePath = Files.createTempDirectory(BlobStoreTestUtil.TEMP_DIR_PREFIX);
+    File fileToRestore = Paths.get(restoreDirBasePath.toString(), "1.sst").toFile();
+    byte[] fileContents = new byte[1000];
+    new Random().nextBytes(fileContents);
+
+    // blobs are listed out of order, and the first download of chunk-300 fails after writing partial contents.
+    List<FileBlob> fileBlobs = ImmutableList.of(new FileBlob("chunk-900", 900), new FileBlob("chunk-300", 300),
+        new FileBlob("chunk-0", 0), new FileBlob("chunk-600", 600));
+    Set<String> failedBlobIds = new HashSet<>();
+    BlobStoreManager blobStoreManager = mock(BlobStoreManager.class);
+    when(blobStoreManager.get(anyString(), any(OutputStream.class), any(Metadata.class), anyBoolean())).thenAnswer(
+      (Answer<CompletionStage<Void>>) invocation -> {
+        String blobId = invocation.getArgumentAt(0, String.class);
+        OutputStream outputStream = invocation.getArgumentAt(1, OutputStream.class);
+        int offset = Integer.parseInt(blobId.substring("chunk-".length()));
+        int length = Math.min(300, fileContents.length - offset);
+        if (blobId.equals("chunk-300") && failedBlobIds.add(blobId)) {
+          outputStream.write(new byte[length / 2]);
+          return FutureUtil.failedFuture(new RetriableException());
+        }
+        outputStream.write(fileContents, offset, length);
+        return CompletableFuture.completedFuture(null);
+      });
+
+    Metadata requestMetadata = new Metadata(fileToRestore.getAbsolutePath(), Optional.of((long) fileContents.length),
+        jobName, jobId, taskName, storeName);
+    BlobStoreUtil blobStoreUtil = new BlobStoreUtil(blobStoreManager, EXECUTOR, blobStoreConfig, null, null);
+    blobStoreUtil.getFile(fileBlobs, fileToRestore, requestMetadata, false).join();
+
+    verify(blobStoreManager, times(5)).get(anyString(), any(OutputStream.class), any(Metadata.class), anyBoolean());
+    assertArrayEquals(fileContents, Files.readAllBytes(fileToRestore.toPath()));
   }
 
   @Test
@@ -597,10 +755,11 @@ public class TestBlobStoreUtil {
     StringBuilder fileContents = new StringBuilder();
     for (int i = 0; i < 26; i++) {
       FileBlob mockFileBlob = mock(FileBlob.class);
+      when(mockFileBlob.getCompression()).thenReturn(CompressionType.NONE);
       char c = (char) ('a' + i);
       fileContents.append(c); // blob contents == blobId
       when(mockFileBlob.getBlobId()).thenReturn(String.valueOf(c));
-      when(mockFileBlob.getOffset()).thenReturn(i);
+      when(mockFileBlob.getOffset()).thenReturn((long) i);
       mockFileBlobs.add(mockFileBlob);
     }
     when(mockFileIndex.getBlobs()).thenReturn(mockFileBlobs);
@@ -618,7 +777,7 @@ public class TestBlobStoreUtil {
         outputStream.write(blobId.getBytes());
 
         // force flush so that the checksum calculation later uses the full file contents.
-        ((FileOutputStream) outputStream).getFD().sync();
+        outputStream.flush();
         return CompletableFuture.completedFuture(null);
       });
 
@@ -652,8 +811,9 @@ public class TestBlobStoreUtil {
 
     List<FileBlob> mockFileBlobs = new ArrayList<>();
     FileBlob mockFileBlob = mock(FileBlob.class);
+    when(mockFileBlob.getCompression()).thenReturn(CompressionType.NONE);
     when(mockFileBlob.getBlobId()).thenReturn("fileBlobId");
-    when(mockFileBlob.getOffset()).thenReturn(0);
+    when(mockFileBlob.getOffset()).thenReturn(0L);
     mockFileBlobs.add(mockFileBlob);
     when(mockFileIndex.getBlobs()).thenReturn(mockFileBlobs);
 
@@ -710,8 +870,9 @@ public class TestBlobStoreUtil {
 
     List<FileBlob> mockFileBlobs = new ArrayList<>();
     FileBlob mockFileBlob = mock(FileBlob.class);
+    when(mockFileBlob.getCompression()).thenReturn(CompressionType.NONE);
     when(mockFileBlob.getBlobId()).thenReturn("fileBlobId");
-    when(mockFileBlob.getOffset()).thenReturn(0);
+    when(mockFileBlob.getOffset()).thenReturn(0L);
     mockFileBlobs.add(mockFileBlob);
     when(mockFileIndex.getBlobs()).thenReturn(mockFileBlobs);
 
@@ -768,10 +929,11 @@ public class TestBlobStoreUtil {
     StringBuilder fileContents = new StringBuilder();
     for (int i = 0; i < 26; i++) {
       FileBlob mockFileBlob = mock(FileBlob.class);
+      when(mockFileBlob.getCompression()).thenReturn(CompressionType.NONE);
       char c = (char) ('a' + i);
       fileContents.append(c); // blob contents == blobId
       when(mockFileBlob.getBlobId()).thenReturn(String.valueOf(c));
-      when(mockFileBlob.getOffset()).thenReturn(i);
+      when(mockFileBlob.getOffset()).thenReturn((long) i);
       mockFileBlobs.add(mockFileBlob);
     }
     when(mockFileIndex.getBlobs()).thenReturn(mockFileBlobs);
@@ -789,7 +951,7 @@ public class TestBlobStoreUtil {
         outputStream.write(blobId.getBytes());
 
         // force flush so that the checksum calculation later uses the full file contents.
-        ((FileOutputStream) outputStream).getFD().sync();
+        outputStream.flush();
         return CompletableFuture.completedFuture(null);
       });
 
@@ -1045,4 +1207,10 @@ public class TestBlobStoreUtil {
     factoryStoreSCMs.put(stateBackendFactory, storeSCMs);
     return new CheckpointV2(checkpointId, ImmutableMap.of(), factoryStoreSCMs);
   }
+
+  private static long crc32c(byte[] bytes) {
+    Checksum checksum = ChecksumUtil.newCrc32c();
+    checksum.update(bytes, 0, bytes.length);
+    return checksum.getValue();
+  }
 }
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.storage.blobstore.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+import org.apache.samza.storage.blobstore.index.FileIndex;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+public class TestChecksumUtil {
+  @Test
+  public void testCrc32cCheckValue() {
+    byte[] bytes = "123456789".getBytes(StandardCharsets.US_ASCII);
+    assertEquals(0xe3069283L, checksum(new ChecksumUtil.PureJavaCrc32C(), bytes, 0, bytes.length));
+    assertEquals(0xe3069283L, checksum(ChecksumUtil.newCrc32c(), bytes, 0, bytes.length));
+  }
+
+  @Test
+  public void testPureJavaCrc32cMatchesByteAtATime() {
+    byte[] bytes = new byte[1027];
+    new Random().nextBytes(bytes);
+
+    Checksum byteAtATime = new ChecksumUtil.PureJavaCrc32C();
+    for (byte b : bytes) {
+      byteAtATime.update(b);
+    }
+    assertEquals(byteAtATime.getValue(), checksum(new ChecksumUtil.PureJavaCrc32C(), bytes, 0, bytes.length));
+
+    Checksum reset = new ChecksumUtil.PureJavaCrc32C();
+    reset.update(bytes, 0, 100);
+    reset.reset();
+    reset.update(bytes, 0, bytes.length);
+    assertEquals(byteAtATime.getValue(), reset.getValue());
+  }
+
+  @Test
+  public void testCombine() {
+    byte[] bytes = new byte[1000];
+    new Random().nextBytes(bytes);
+
+    for (int version : new int[] {FileIndex.VERSION_CRC32, FileIndex.VERSION_CRC32C}) {
+      long expected = checksum(ChecksumUtil.newChecksum(version), bytes, 0, bytes.length);
+      for (int split : new int[] {0, 1, 7, 500, 999, 1000}) {
+        long checksum1 = checksum(ChecksumUtil.newChecksum(version), bytes, 0, split);
+        long checksum2 = checksum(ChecksumUtil.newChecksum(version), bytes, split, bytes.length - split);
+        assertEquals(expected, ChecksumUtil.combine(version, checksum1, checksum2, bytes.length - split));
+      }
+    }
+    assertTrue(ChecksumUtil.newChecksum(FileIndex.VERSION_CRC32) instanceof CRC32);
+  }
+
+  private static long checksum(Checksum checksum, byte[] bytes, int offset, int length) {
+    checksum.update(bytes, offset, length);
+    return checksum.getValue();
+  }
+}
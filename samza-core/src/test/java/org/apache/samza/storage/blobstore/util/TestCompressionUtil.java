@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.storage.blobstore.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import org.apache.commons.io.IOUtils;
+import org.apache.samza.storage.blobstore.index.CompressionType;
+import org.apache.samza.storage.blobstore.util.CompressionUtil.CompressingInputStream;
+import org.apache.samza.storage.blobstore.util.CompressionUtil.DecompressingOutputStream;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+public class TestCompressionUtil {
+  @Test
+  public void testRoundTripCompressibleData() throws IOException {
+    byte[] bytes = new byte[3 * CompressionUtil.BLOCK_SIZE_BYTES + 123];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) (i % 7);
+    }
+
+    for (CompressionType compression : new CompressionType[] {CompressionType.LZ4, CompressionType.ZSTD}) {
+      CompressingInputStream compressingInputStream =
+          CompressionUtil.compressingInputStream(new ByteArrayInputStream(bytes), compression);
+      byte[] compressed = IOUtils.toByteArray(compressingInputStream);
+
+      assertTrue(compressed.length < bytes.length / 10);
+      assertEquals(bytes.length, compressingInputStream.getUncompressedBytes());
+      assertEquals(compressed.length, compressingInputStream.getCompressedBytes());
+      assertArrayEquals(bytes, decompress(compressed, compression, 1000));
+    }
+  }
+
+  @Test
+  public void testRoundTripIncompressibleData() throws IOException {
+    byte[] bytes = new byte[2 * CompressionUtil.BLOCK_SIZE_BYTES + 1];
+    new Random().nextBytes(bytes);
+
+    for (CompressionType compression : new CompressionType[] {CompressionType.LZ4, CompressionType.ZSTD}) {
+      byte[] compressed =
+          IOUtils.toByteArray(CompressionUtil.compressingInputStream(new ByteArrayInputStream(bytes), compression));
+
+      // incompressible blocks are stored as is, with only the block headers added
+      assertTrue(compressed.length - bytes.length < 100);
+      // write in pieces that do not line up with block headers or blocks
+      assertArrayEquals(bytes, decompress(compressed, compression, 7));
+    }
+  }
+
+  @Test
+  public void testEmptyInput() throws IOException {
+    byte[] compressed = IOUtils.toByteArray(
+        CompressionUtil.compressingInputStream(new ByteArrayInputStream(new byte[0]), CompressionType.LZ4));
+    assertEquals(0, compressed.length);
+    assertEquals(0, decompress(compressed, CompressionType.LZ4, 1).length);
+  }
+
+  @Test(expected = IOException.class)
+  public void testFinishFailsForTruncatedBlob() throws IOException {
+    byte[] bytes = new byte[1000];
+    byte[] compressed =
+        IOUtils.toByteArray(CompressionUtil.compressingInputStream(new ByteArrayInputStream(bytes), CompressionType.LZ4));
+    decompress(Arrays.copyOf(compressed, compressed.length - 1), CompressionType.LZ4, 1000);
+  }
+
+  private static byte[] decompress(byte[] compressed, CompressionType compression, int writeSize) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    DecompressingOutputStream decompressingOutputStream =
+        CompressionUtil.decompressingOutputStream(outputStream, compression);
+    for (int offset = 0; offset < compressed.length; offset += writeSize) {
+      decompressingOutputStream.write(compressed, offset, Math.min(writeSize, compressed.length - offset));
+    }
+    decompressingOutputStream.finish();
+    return outputStream.toByteArray();
+  }
+}
@@ -19,10 +19,14 @@
 
 package org.apache.samza.storage.blobstore.util;
 
+import com.google.common.collect.ImmutableList;
 import org.apache.samza.storage.blobstore.diff.DirDiff;
 import org.apache.samza.storage.blobstore.index.DirIndex;
+import org.apache.samza.storage.blobstore.index.FileBlob;
+import org.apache.samza.storage.blobstore.index.FileIndex;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -68,4 +72,58 @@ public class TestDirDiffUtilMisc {
     assertEquals(expectedRetainedFiles, allRetained);
     assertEquals(expectedRemovedFiles, allRemoved);
   }
+
+  /**
+   * Test that added files identical to a file present in the remote snapshot, even in a different sub-dir, are
+   * retained with the blobs of the remote file, and that the removed files with those blobs are no longer removed.
+   */
+  @Test
+  public void testDedupDirDiffReusesBlobsOfIdenticalRemoteFiles() throws IOException {
+    Path localSnapshotDir = BlobStoreTestUtil.createLocalDir("[a, b, sub/c]");
+    // file contents are the same as the file names, so local files 'a' and 'sub/c' are identical to remote 'a' and 'c'
+    DirIndex remoteSnapshotDir = BlobStoreTestUtil.createDirIndex("[a, c, d]");
+    String basePath = localSnapshotDir.toAbsolutePath().toString();
+
+    // e.g. file owners changed after moving to a new host
+    DirDiff dirDiff = DirDiffUtil.getDirDiff(localSnapshotDir.toFile(), remoteSnapshotDir,
+      (localFile, remoteFile) -> false);
+    DirDiff dedupedDirDiff = DirDiffUtil.dedupDirDiff(dirDiff, remoteSnapshotDir);
+
+    SortedSet<String> allAdded = new TreeSet<>();
+    SortedSet<String> allRemoved = new TreeSet<>();
+    SortedSet<String> allRetained = new TreeSet<>();
+    BlobStoreTestUtil.getAllAddedInDiff(basePath, dedupedDirDiff, allAdded);
+    BlobStoreTestUtil.getAllRemovedInDiff("", dedupedDirDiff, allRemoved);
+    BlobStoreTestUtil.getAllRetainedInDiff("", dedupedDirDiff, allRetained);
+
+    assertEquals(BlobStoreTestUtil.getExpected("[b]"), allAdded);
+    assertEquals(BlobStoreTestUtil.getExpected("[a, sub/c]"), allRetained);
+    assertEquals(BlobStoreTestUtil.getExpected("[d]"), allRemoved);
+
+    FileIndex dedupedFile = dedupedDirDiff.getSubDirsAdded().get(0).getFilesRetained().get(0);
+    assertEquals("c", dedupedFile.getFileName());
+    assertEquals(ImmutableList.of(new FileBlob("c", 0)), dedupedFile.getBlobs());
+  }
+
+  /**
+   * Test that added files that only have the same name and size as a remote file are uploaded.
+   */
+  @Test
+  public void testDedupDirDiffUploadsModifiedFiles() throws IOException {
+    Path localSnapshotDir = BlobStoreTestUtil.createLocalDir("[a]");
+    DirIndex remoteSnapshotDir = BlobStoreTestUtil.createDirIndex("[a]");
+    String basePath = localSnapshotDir.toAbsolutePath().toString();
+    Files.write(localSnapshotDir.resolve("a"), "b".getBytes()); // same size, different contents
+
+    DirDiff dirDiff = DirDiffUtil.getDirDiff(localSnapshotDir.toFile(), remoteSnapshotDir,
+      (localFile, remoteFile) -> false);
+    DirDiff dedupedDirDiff = DirDiffUtil.dedupDirDiff(dirDiff, remoteSnapshotDir);
+
+    SortedSet<String> allAdded = new TreeSet<>();
+    SortedSet<String> allRemoved = new TreeSet<>();
+    BlobStoreTestUtil.getAllAddedInDiff(basePath, dedupedDirDiff, allAdded);
+    BlobStoreTestUtil.getAllRemovedInDiff("", dedupedDirDiff, allRemoved);
+    assertEquals(BlobStoreTestUtil.getExpected("[a]"), allAdded);
+    assertEquals(BlobStoreTestUtil.getExpected("[a]"), allRemoved);
+  }
 }
@@ -21,12 +21,17 @@ package org.apache.samza.table.batching;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 import org.apache.samza.table.ReadWriteUpdateTable;
+import org.apache.samza.util.HighResolutionClock;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -147,6 +152,73 @@ public class TestBatchProcessor {
     }
   }
 
+  public static class TestAdaptiveBatching {
+    @Test
+    public void testBatchOperationTriggeredByMaxOutstandingOperations() {
+      final CompletableFuture<Map<Integer, Integer>> getAllFuture = new CompletableFuture<>();
+      final ReadWriteUpdateTable<Integer, Integer, Integer> table = mock(ReadWriteUpdateTable.class);
+      when(table.getAllAsync(anyList())).thenReturn(getAllFuture);
+
+      final BatchProcessor<Integer, Integer, Integer> batchProcessor =
+          createAdaptiveBatchProcessor(table, 2, Integer.MAX_VALUE, 3, () -> 0);
+
+      // The first batch is handled when it is full
+      batchProcessor.processQueryOperation(new GetOperation<>(1));
+      batchProcessor.processQueryOperation(new GetOperation<>(2));
+      Assert.assertEquals(0, batchProcessor.size());
+      Assert.assertEquals(2, batchProcessor.getNumOutstandingOperations());
+
+      // The second batch is handled right away since no more operations can be outstanding
+      final CompletableFuture<Integer> future = batchProcessor.processQueryOperation(new GetOperation<>(3));
+      Assert.assertEquals(0, batchProcessor.size());
+      Assert.assertEquals(3, batchProcessor.getNumOutstandingOperations());
+
+      getAllFuture.complete(Collections.singletonMap(3, 30));
+      Assert.assertEquals(30, future.join().intValue());
+      Assert.assertEquals(0, batchProcessor.getNumOutstandingOperations());
+
+      // Once the operations complete, new operations are batched again
+      batchProcessor.processQueryOperation(new GetOperation<>(4));
+      Assert.assertEquals(1, batchProcessor.size());
+    }
+
+    @Test
+    public void testBatchDelayBoundedByLatency() throws Exception {
+      final AtomicLong nanoTime = new AtomicLong();
+      final CompletableFuture<Map<Integer, Integer>> getAllFuture = new CompletableFuture<>();
+      final ReadWriteUpdateTable<Integer, Integer, Integer> table = mock(ReadWriteUpdateTable.class);
+      when(table.getAllAsync(anyList())).thenReturn(getAllFuture);
+
+      final BatchProcessor<Integer, Integer, Integer> batchProcessor = createAdaptiveBatchProcessor(table,
+          Integer.MAX_VALUE, (int) TimeUnit.HOURS.toMillis(1), 2, nanoTime::get);
+
+      // The first batch is handled when all operations are outstanding, and takes 5ms
+      batchProcessor.processQueryOperation(new GetOperation<>(1));
+      batchProcessor.processQueryOperation(new GetOperation<>(2));
+      nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(5));
+      getAllFuture.complete(Collections.emptyMap());
+      Assert.assertEquals(0, batchProcessor.getNumOutstandingOperations());
+
+      // The next batch is handled after about 5ms instead of the max batch delay
+      when(table.getAllAsync(anyList())).thenReturn(CompletableFuture.completedFuture(Collections.emptyMap()));
+      batchProcessor.processQueryOperation(new GetOperation<>(3));
+      Assert.assertEquals(1, batchProcessor.size());
+      sleep(500);
+      Assert.assertEquals(0, batchProcessor.size());
+    }
+  }
+
+  private static BatchProcessor<Integer, Integer, Integer> createAdaptiveBatchProcessor(
+      ReadWriteUpdateTable<Integer, Integer, Integer> table,
+      int maxSize, int maxDelay, int maxOutstanding, HighResolutionClock clock) {
+    final BatchProvider<Integer, Integer, Integer> batchProvider = new CompactBatchProvider<Integer, Integer, Integer>()
+        .withMaxBatchDelay(Duration.ofMillis(maxDelay)).withMaxBatchSize(maxSize).withAdaptiveBatching();
+    final BatchHandler<Integer, Integer, Integer> batchHandler = new TableBatchHandler<>(table);
+    final BatchMetrics batchMetrics = mock(BatchMetrics.class);
+    return new BatchProcessor<>(batchMetrics, batchHandler, batchProvider, clock,
+        Executors.newSingleThreadScheduledExecutor(), maxOutstanding);
+  }
+
   private static BatchProcessor<Integer, Integer, Integer> createBatchProcessor(
       ReadWriteUpdateTable<Integer, Integer, Integer> table,
       int maxSize, int maxDelay) {
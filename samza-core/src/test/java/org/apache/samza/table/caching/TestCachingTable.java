@@ -19,6 +19,7 @@
 
 package org.apache.samza.table.caching;
 
+import com.google.common.base.Ticker;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import org.apache.commons.lang3.tuple.Pair;
@@ -56,6 +57,7 @@ import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
@@ -93,7 +95,10 @@ public class TestCachingTable {
       desc = new CachingTableDescriptor("1", table, cache);
     }
 
-    desc.withWriteAround();
+    desc.withWriteAround()
+        .withNegativeTtl(Duration.ofMinutes(1))
+        .withNegativeCacheSize(500)
+        .withRefreshAfter(Duration.ofMinutes(2));
 
     Map<String, String> tableConfig = desc.toConfig(new MapConfig());
 
@@ -107,6 +112,9 @@ public class TestCachingTable {
     }
 
     assertEquals("true", CachingTableDescriptor.WRITE_AROUND, "1", tableConfig);
+    assertEquals("60000", CachingTableDescriptor.NEGATIVE_TTL_MS, "1", tableConfig);
+    assertEquals("500", CachingTableDescriptor.NEGATIVE_CACHE_SIZE, "1", tableConfig);
+    assertEquals("120000", CachingTableDescriptor.REFRESH_AFTER_MS, "1", tableConfig);
   }
 
   private static Pair<ReadWriteUpdateTable<String, String, String>, Map<String, String>> getMockCache() {
@@ -269,6 +277,158 @@ public class TestCachingTable {
     verify(table, times(2)).getAsync(any());
   }
 
+  @Test
+  public void testConcurrentMissesAreCoalesced() throws Exception {
+    ReadWriteUpdateTable<String, String, String> table = mock(ReadWriteUpdateTable.class);
+    CompletableFuture<String> tableFuture = new CompletableFuture<>();
+    doReturn(tableFuture).when(table).getAsync(any());
+    ReadWriteUpdateTable<String, String, String> cache = getMockCache().getLeft();
+    CachingTable<String, String, String> cachingTable = new CachingTable<>("myTable", table, cache, false);
+    initTables(cachingTable);
+
+    CompletableFuture<String> future1 = cachingTable.getAsync("abc");
+    CompletableFuture<String> future2 = cachingTable.getAsync("abc");
+    verify(table, times(1)).getAsync(any());
+
+    tableFuture.complete("def");
+    Assert.assertEquals("def", future1.get());
+    Assert.assertEquals("def", future2.get());
+    verify(cache, times(1)).put(any(), any());
+
+    // once the read completes, later reads hit the cache
+    Assert.assertEquals("def", cachingTable.get("abc"));
+    verify(table, times(1)).getAsync(any());
+  }
+
+  @Test
+  public void testCoalescedMissesFailTogether() throws Exception {
+    ReadWriteUpdateTable<String, String, String> table = mock(ReadWriteUpdateTable.class);
+    CompletableFuture<String> tableFuture = new CompletableFuture<>();
+    doReturn(tableFuture).when(table).getAsync(any());
+    ReadWriteUpdateTable<String, String, String> cache = getMockCache().getLeft();
+    CachingTable<String, String, String> cachingTable = new CachingTable<>("myTable", table, cache, false);
+    initTables(cachingTable);
+
+    CompletableFuture<String> future1 = cachingTable.getAsync("abc");
+    CompletableFuture<String> future2 = cachingTable.getAsync("abc");
+    tableFuture.completeExceptionally(new RuntimeException("Test exception"));
+    Assert.assertTrue(future1.isCompletedExceptionally());
+    Assert.assertTrue(future2.isCompletedExceptionally());
+
+    // a failed read is not shared with later reads
+    doReturn(CompletableFuture.completedFuture("def")).when(table).getAsync(any());
+    Assert.assertEquals("def", cachingTable.get("abc"));
+    verify(table, times(2)).getAsync(any());
+  }
+
+  @Test
+  public void testMissIsNotSharedAfterTableThrows() throws Exception {
+    ReadWriteUpdateTable<String, String, String> table = mock(ReadWriteUpdateTable.class);
+    doThrow(new RuntimeException("Test exception")).when(table).getAsync(any());
+    ReadWriteUpdateTable<String, String, String> cache = getMockCache().getLeft();
+    CachingTable<String, String, String> cachingTable = new CachingTable<>("myTable", table, cache, false);
+    initTables(cachingTable);
+
+    CompletableFuture<String> future = cachingTable.getAsync("abc");
+    Assert.assertTrue(future.isCompletedExceptionally());
+
+    // a read that failed without returning a future is not shared with later reads
+    doReturn(CompletableFuture.completedFuture("def")).when(table).getAsync(any());
+    Assert.assertEquals("def", cachingTable.get("abc"));
+    verify(table, times(2)).getAsync(any());
+  }
+
+  @Test
+  public void testNegativeCaching() {
+    ReadWriteUpdateTable<String, String, String> table = mock(ReadWriteUpdateTable.class);
+    doReturn(CompletableFuture.completedFuture(null)).when(table).getAsync(any());
+    doReturn(CompletableFuture.completedFuture(null)).when(table).putAsync(any(), any());
+    doReturn(CompletableFuture.completedFuture(Collections.emptyMap())).when(table).getAllAsync(any());
+    ReadWriteUpdateTable<String, String, String> cache = getMockCache().getLeft();
+    TestTicker ticker = new TestTicker();
+    CachingTable<String, String, String> cachingTable =
+        new CachingTable<>("myTable", table, cache, true, 1000, 100, -1, 100, ticker);
+    initTables(cachingTable);
+
+    Assert.assertNull(cachingTable.get("abc"));
+    Assert.assertNull(cachingTable.get("abc"));
+    Assert.assertTrue(cachingTable.getAll(Arrays.asList("abc")).isEmpty());
+    verify(table, times(1)).getAsync(any());
+    verify(table, times(0)).getAllAsync(any());
+    verify(cache, times(0)).put(any(), any());
+
+    // negative entries expire after the negative ttl
+    ticker.advance(1001);
+    Assert.assertNull(cachingTable.get("abc"));
+    verify(table, times(2)).getAsync(any());
+
+    // writes invalidate negative entries, even if they bypass the cache
+    cachingTable.put("abc", "def");
+    doReturn(CompletableFuture.completedFuture("def")).when(table).getAsync(any());
+    Assert.assertEquals("def", cachingTable.get("abc"));
+    verify(table, times(3)).getAsync(any());
+  }
+
+  @Test
+  public void testNegativeCacheIsBounded() {
+    ReadWriteUpdateTable<String, String, String> table = mock(ReadWriteUpdateTable.class);
+    doReturn(CompletableFuture.completedFuture(null)).when(table).getAsync(any());
+    ReadWriteUpdateTable<String, String, String> cache = getMockCache().getLeft();
+    CachingTable<String, String, String> cachingTable =
+        new CachingTable<>("myTable", table, cache, false, 60000, 10, -1, 10, new TestTicker());
+    initTables(cachingTable);
+
+    // a stream of distinct missing keys within the negative ttl
+    for (int i = 0; i < 100; i++) {
+      Assert.assertNull(cachingTable.get("key" + i));
+    }
+    verify(table, times(100)).getAsync(any());
+
+    // only the most recent keys are still cached, the others are looked up in the table again
+    Assert.assertNull(cachingTable.get("key99"));
+    verify(table, times(100)).getAsync(any());
+    Assert.assertNull(cachingTable.get("key0"));
+    verify(table, times(101)).getAsync(any());
+  }
+
+  @Test
+  public void testRefreshAhead() {
+    ReadWriteUpdateTable<String, String, String> table = mock(ReadWriteUpdateTable.class);
+    doReturn(CompletableFuture.completedFuture("v1")).when(table).getAsync(any());
+    Pair<ReadWriteUpdateTable<String, String, String>, Map<String, String>> mockCache = getMockCache();
+    ReadWriteUpdateTable<String, String, String> cache = mockCache.getLeft();
+    TestTicker ticker = new TestTicker();
+    CachingTable<String, String, String> cachingTable =
+        new CachingTable<>("myTable", table, cache, false, -1, 100, 1000, 100, ticker);
+    initTables(cachingTable);
+
+    Assert.assertEquals("v1", cachingTable.get("abc"));
+    ticker.advance(500);
+    Assert.assertEquals("v1", cachingTable.get("abc"));
+    verify(table, times(1)).getAsync(any());
+
+    // a hit after the refresh interval returns the cached record and reloads it
+    ticker.advance(501);
+    CompletableFuture<String> refreshFuture = new CompletableFuture<>();
+    doReturn(refreshFuture).when(table).getAsync(any());
+    Assert.assertEquals("v1", cachingTable.get("abc"));
+    verify(table, times(2)).getAsync(any());
+    // the pending refresh is not repeated
+    Assert.assertEquals("v1", cachingTable.get("abc"));
+    verify(table, times(2)).getAsync(any());
+
+    refreshFuture.complete("v2");
+    Assert.assertEquals("v2", mockCache.getRight().get("abc"));
+    Assert.assertEquals("v2", cachingTable.get("abc"));
+    verify(table, times(2)).getAsync(any());
+
+    // records deleted from the table are removed from the cache on refresh
+    ticker.advance(1001);
+    doReturn(CompletableFuture.completedFuture(null)).when(table).getAsync(any());
+    Assert.assertEquals("v2", cachingTable.get("abc"));
+    Assert.assertNull(mockCache.getRight().get("abc"));
+  }
+
   /**
    * Testing caching in a more realistic scenario with Guava cache + remote table
    */
@@ -295,9 +455,9 @@ public class TestCachingTable {
 
     initTables(cachingTable, guavaTable, remoteTable);
 
-    // 4 per readable table (12)
+    // 7 per readable table (21)
     // 8 per read/write table (24)
-    verify(metricsRegistry, times(36)).newCounter(any(), anyString());
+    verify(metricsRegistry, times(45)).newCounter(any(), anyString());
 
     // 3 per readable table (9)
     // 8 per read/write table (24)
@@ -431,6 +591,19 @@ public class TestCachingTable {
     cachingTable.deleteAllAsync(Collections.emptyList());
   }
 
+  private static class TestTicker extends Ticker {
+    private long nanos = 0;
+
+    void advance(long millis) {
+      nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+  }
+
   private TableDescriptor createDummyTableDescriptor(String tableId) {
     BaseTableDescriptor tableDescriptor = mock(BaseTableDescriptor.class);
     when(tableDescriptor.getTableId()).thenReturn(tableId);
@@ -320,6 +320,23 @@ public class TestContainerStorageManager {
     Assert.assertEquals("systemConsumerStartCount count should be 1", 1, this.systemConsumerStartCount);
   }
 
+  @Test
+  public void testStartNotifiesEachTaskOnceItsStoresAreReady() throws InterruptedException {
+    // checkpoints may be null
+    Map<TaskName, Checkpoint> readyTasks = Collections.synchronizedMap(new HashMap<>());
+    Map<TaskName, Checkpoint> taskCheckpoints = this.containerStorageManager.start((taskName, checkpoint) -> {
+      // the stores of the task can be accessed before the container storage manager is started
+      Assert.assertTrue(this.containerStorageManager.getStore(taskName, STORE_NAME).isPresent());
+      Assert.assertFalse("Each task should be notified once", readyTasks.containsKey(taskName));
+      readyTasks.put(taskName, checkpoint);
+    });
+    this.containerStorageManager.shutdown();
+
+    Assert.assertEquals(this.tasks.keySet(), readyTasks.keySet());
+    Assert.assertEquals(taskCheckpoints, readyTasks);
+    Assert.assertEquals("Store restore count should be 2 because there are 2 tasks", 2, this.storeRestoreCallCount);
+  }
+
   @Test
   public void testNoConfiguredDurableStores() throws InterruptedException {
     taskRestoreMetricGauges = new HashMap<>();
@@ -302,6 +302,64 @@ class TestSystemConsumers {
 
   }
 
+  @Test
+  def testParallelDeserialization() {
+    val system = "test-system"
+    val systemStreamPartition = new SystemStreamPartition(system, "some-stream", new Partition(1))
+    val consumer = Map(system -> new SerializingConsumer)
+    val systemMessageSerdes = Map(system -> (new StringSerde("UTF-8")).asInstanceOf[Serde[Object]])
+    val serdeManager = new SerdeManager(systemMessageSerdes = systemMessageSerdes)
+    val systemAdmins = Mockito.mock(classOf[SystemAdmins])
+    Mockito.when(systemAdmins.getSystemAdmin(system)).thenReturn(Mockito.mock(classOf[SystemAdmin]))
+    val metrics = new SystemConsumersMetrics
+
+    // drop the message that can't be deserialized and hand the others to the chooser in order
+    val consumers = new SystemConsumers(new DefaultChooser, consumer, systemAdmins, serdeManager, metrics,
+      dropDeserializationError = true, deserializationThreadPoolSize = 2)
+    consumers.register(systemStreamPartition, "0")
+    consumers.start
+    consumer(system).putBytesMessage
+    consumer(system).putStringMessage
+    consumer(system).putBytesMessage
+
+    val first = chooseNonNull(consumers)
+    assertEquals("test", first.getMessage)
+    assertEquals("0", first.getKey)
+    val second = chooseNonNull(consumers)
+    assertEquals("test", second.getMessage)
+    assertEquals(1, metrics.deserializationError.getCount)
+    assertEquals(1, metrics.parallelDeserializationBatches.getCount)
+    consumers.stop
+
+    // throw when the chooser is updated with the message that can't be deserialized
+    val consumers2 = new SystemConsumers(new DefaultChooser, consumer, systemAdmins, serdeManager,
+      dropDeserializationError = false, deserializationThreadPoolSize = 2)
+    consumers2.register(systemStreamPartition, "0")
+    consumers2.start
+    consumer(system).putBytesMessage
+    consumer(system).putStringMessage
+
+    var caughtRightException = false
+    try {
+      chooseNonNull(consumers2)
+    } catch {
+      case e: SystemConsumersException => caughtRightException = true
+    }
+    assertTrue("suppose to throw SystemConsumersException", caughtRightException)
+    consumers2.stop
+  }
+
+  private def chooseNonNull(consumers: SystemConsumers): IncomingMessageEnvelope = {
+    var envelope: IncomingMessageEnvelope = null
+    var attempts = 0
+    while (envelope == null && attempts < 1000) {
+      envelope = consumers.choose()
+      attempts += 1
+    }
+    assertNotNull("No envelope was chosen", envelope)
+    envelope
+  }
+
   @Test
   def testSystemConsumersShouldNotPollEndOfStreamSSPs {
     val system = "test-system"
@@ -355,6 +413,48 @@ class TestSystemConsumers {
     assertTrue(consumer.lastPoll.contains(systemStreamPartition1))
   }
 
+  @Test
+  def testPausedSSPIsNotHandedToChooserUntilResumed {
+    val system = "test-system"
+    val stream = "some-stream"
+    val systemStreamPartition1 = new SystemStreamPartition(system, stream, new Partition(1))
+    val systemStreamPartition2 = new SystemStreamPartition(system, stream, new Partition(2))
+    val envelope1 = new IncomingMessageEnvelope(systemStreamPartition1, "1", "k", "v")
+    val envelope2 = new IncomingMessageEnvelope(systemStreamPartition2, "1", "k", "v")
+    val consumer = new CustomPollResponseSystemConsumer(envelope1)
+    val systemAdmins = Mockito.mock(classOf[SystemAdmins])
+    Mockito.when(systemAdmins.getSystemAdmin(system)).thenReturn(Mockito.mock(classOf[SystemAdmin]))
+    val consumers = new SystemConsumers(new MockMessageChooser, Map(system -> consumer),
+      systemAdmins, new SerdeManager, new SystemConsumersMetrics,
+      SystemConsumers.DEFAULT_NO_NEW_MESSAGES_TIMEOUT,
+      SystemConsumers.DEFAULT_DROP_SERIALIZATION_ERROR,
+      TaskConfig.DEFAULT_POLL_INTERVAL_MS, clock = () => 0)
+
+    consumers.register(systemStreamPartition1, "0")
+    consumers.register(systemStreamPartition2, "0")
+    consumers.pause(Collections.singleton(systemStreamPartition2))
+    consumers.start
+
+    // Paused SSPs are still polled until they have messages buffered.
+    assertEquals(1, consumer.polls)
+    assertEquals(2, consumer.lastPoll.size())
+
+    consumer.setNextResponse(Map[SystemStreamPartition, java.util.List[IncomingMessageEnvelope]](
+      systemStreamPartition1 -> Collections.singletonList(envelope1),
+      systemStreamPartition2 -> Collections.singletonList(envelope2)))
+    assertNull(consumers.choose())
+    consumer.setNextResponse(Map[SystemStreamPartition, java.util.List[IncomingMessageEnvelope]]())
+
+    assertEquals(envelope1, consumers.choose())
+    // The message of the paused SSP stays buffered, and the paused SSP is not polled again.
+    assertNull(consumers.choose())
+    assertEquals(3, consumer.polls)
+    assertEquals(Collections.singleton(systemStreamPartition1), consumer.lastPoll)
+
+    consumers.resume(Collections.singleton(systemStreamPartition2))
+    assertEquals(envelope2, consumers.choose())
+  }
+
   @Test
   def testSystemConsumersRegistration {
     val system = "test-system"
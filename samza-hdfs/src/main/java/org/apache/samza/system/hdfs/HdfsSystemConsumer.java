@@ -42,6 +42,7 @@ import org.apache.samza.system.SystemStreamPartition;
 import org.apache.samza.system.hdfs.reader.HdfsReaderFactory;
 import org.apache.samza.system.hdfs.reader.MultiFileHdfsReader;
 import org.apache.samza.util.BlockingEnvelopeMap;
+import org.apache.samza.util.RingBufferEnvelopeQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -89,6 +90,7 @@ public class HdfsSystemConsumer extends BlockingEnvelopeMap {
   private final HdfsReaderFactory.ReaderType readerType;
   private final String stagingDirectory; // directory that contains the partition description
   private final int bufferCapacity;
+  private final boolean ringBufferEnabled;
   private final int numMaxRetires;
   private ExecutorService executorService;
 
@@ -122,6 +124,7 @@ public class HdfsSystemConsumer extends BlockingEnvelopeMap {
     readerType = HdfsReaderFactory.getType(hdfsConfig.getFileReaderType(systemName));
     stagingDirectory = hdfsConfig.getStagingDirectory(systemName);
     bufferCapacity = hdfsConfig.getConsumerBufferCapacity(systemName);
+    ringBufferEnabled = hdfsConfig.getConsumerRingBufferEnabled(systemName);
     numMaxRetires = hdfsConfig.getConsumerNumMaxRetries(systemName);
     readers = new ConcurrentHashMap<>();
     readerRunnableStatus = new ConcurrentHashMap<>();
@@ -175,6 +178,10 @@ public class HdfsSystemConsumer extends BlockingEnvelopeMap {
 
   @Override
   protected BlockingQueue<IncomingMessageEnvelope> newBlockingQueue() {
+    // each partition is read by a single reader thread, so its messages can be handed off through a ring buffer
+    if (ringBufferEnabled) {
+      return new RingBufferEnvelopeQueue(bufferCapacity);
+    }
     return new LinkedBlockingQueue<>(bufferCapacity);
   }
 
@@ -59,6 +59,10 @@ object HdfsConfig {
   val CONSUMER_BUFFER_CAPACITY = "systems.%s.consumer.bufferCapacity"
   val CONSUMER_BUFFER_CAPACITY_DEFAULT = 10.toString
 
+  // whether the hdfs consumer buffer is a lock-free ring buffer instead of a blocking queue
+  val CONSUMER_RING_BUFFER_ENABLED = "systems.%s.consumer.ringBufferEnabled"
+  val CONSUMER_RING_BUFFER_ENABLED_DEFAULT = false.toString
+
   // number of max retries for the hdfs consumer readers per partition
   val CONSUMER_NUM_MAX_RETRIES = "system.%s.consumer.numMaxRetries"
   val CONSUMER_NUM_MAX_RETRIES_DEFAULT = 10.toString
@@ -158,6 +162,15 @@ class HdfsConfig(config: Config) extends ScalaMapConfig(config) {
     getOrElse(HdfsConfig.CONSUMER_BUFFER_CAPACITY format systemName, HdfsConfig.CONSUMER_BUFFER_CAPACITY_DEFAULT).toInt
   }
 
+  /**
+   * Whether the hdfs consumer buffers the messages of each partition in a ring buffer
+   * @param systemName name of the system
+   * @return true if the ring buffer is enabled
+   */
+  def getConsumerRingBufferEnabled(systemName: String): Boolean = {
+    getOrElse(HdfsConfig.CONSUMER_RING_BUFFER_ENABLED format systemName, HdfsConfig.CONSUMER_RING_BUFFER_ENABLED_DEFAULT).toBoolean
+  }
+
   /**
     * Get number of max retries for the hdfs consumer readers per partition
     */
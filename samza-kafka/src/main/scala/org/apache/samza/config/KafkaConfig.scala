@@ -77,6 +77,27 @@ object KafkaConfig {
 
   val DEFAULT_CHECKPOINT_SEGMENT_BYTES = 26214400
 
+  /**
+    * Defines how many Kafka producers are used by the system producer of a container. Sends are sharded across
+    * the producers by task or by destination topic, see [[PRODUCER_POOL_SHARDING]].
+    */
+  val PRODUCER_POOL_SIZE = SystemConfig.SYSTEM_ID_PREFIX + "samza.producer.pool.size"
+  val DEFAULT_PRODUCER_POOL_SIZE = 1
+
+  /**
+    * Defines how sends are sharded across the producers in the pool. Either "task" or "topic".
+    */
+  val PRODUCER_POOL_SHARDING = SystemConfig.SYSTEM_ID_PREFIX + "samza.producer.pool.sharding"
+  val PRODUCER_POOL_SHARDING_TASK = "task"
+  val PRODUCER_POOL_SHARDING_TOPIC = "topic"
+
+  /**
+    * Defines how long the partitions of a topic are cached by the system producer to compute the partition of
+    * messages with a partition key. If 0, the partitions are looked up on every send.
+    */
+  val PRODUCER_PARTITIONS_CACHE_TTL_MS = SystemConfig.SYSTEM_ID_PREFIX + "samza.producer.partitions.cache.ttl.ms"
+  val DEFAULT_PRODUCER_PARTITIONS_CACHE_TTL_MS = 0L
+
   /**
     * Defines how many bytes to use for the buffered prefetch messages for job as a whole.
     * The bytes for a single system/stream/partition are computed based on this.
@@ -209,6 +230,24 @@ class KafkaConfig(config: Config) extends ScalaMapConfig(config) {
 
   def isConsumerFetchThresholdBytesEnabled(name: String): Boolean = getConsumerFetchThresholdBytes(name).getOrElse("-1").toLong > 0
 
+  // custom producer config
+  def getProducerPoolSize(name: String): Int =
+    getOption(KafkaConfig.PRODUCER_POOL_SIZE format name).map(_.toInt).getOrElse(KafkaConfig.DEFAULT_PRODUCER_POOL_SIZE)
+
+  def getProducerPoolSharding(name: String): String = {
+    val sharding = getOrElse(KafkaConfig.PRODUCER_POOL_SHARDING format name, KafkaConfig.PRODUCER_POOL_SHARDING_TASK)
+    if (sharding != KafkaConfig.PRODUCER_POOL_SHARDING_TASK && sharding != KafkaConfig.PRODUCER_POOL_SHARDING_TOPIC) {
+      throw new SamzaException("Invalid value %s for %s. Must be one of %s or %s." format (sharding,
+        KafkaConfig.PRODUCER_POOL_SHARDING format name, KafkaConfig.PRODUCER_POOL_SHARDING_TASK,
+        KafkaConfig.PRODUCER_POOL_SHARDING_TOPIC))
+    }
+    sharding
+  }
+
+  def getProducerPartitionsCacheTtlMs(name: String): Long =
+    getOption(KafkaConfig.PRODUCER_PARTITIONS_CACHE_TTL_MS format name).map(_.toLong)
+      .getOrElse(KafkaConfig.DEFAULT_PRODUCER_PARTITIONS_CACHE_TTL_MS)
+
   /**
     * Returns a map of topic -> fetch.message.max.bytes value for all streams that
     * are defined with this property in the config.
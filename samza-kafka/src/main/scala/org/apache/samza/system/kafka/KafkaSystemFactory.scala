@@ -60,11 +60,25 @@ class KafkaSystemFactory extends SystemFactory with Logging {
 
   def getProducer(systemName: String, config: Config, registry: MetricsRegistry): SystemProducer = {
     val clientId = KafkaConsumerConfig.createClientId(KafkaSystemFactory.CLIENTID_PRODUCER_PREFIX, config);
+    val metrics = new KafkaSystemProducerMetrics(systemName, registry)
+    val poolSize = config.getProducerPoolSize(systemName)
+
+    if (poolSize > 1) {
+      // each producer in the pool needs its own client id
+      val producers = (0 until poolSize).map(index =>
+        createProducer(systemName, config, "%s-%d" format (clientId, index), metrics))
+      new KafkaSystemProducerPool(systemName, producers, config.getProducerPoolSharding(systemName))
+    } else {
+      createProducer(systemName, config, clientId, metrics)
+    }
+  }
+
+  private def createProducer(systemName: String, config: Config, clientId: String,
+    metrics: KafkaSystemProducerMetrics): KafkaSystemProducer = {
     val producerConfig = config.getKafkaSystemProducerConfig(systemName, clientId)
     val getProducer = () => {
       new KafkaProducer[Array[Byte], Array[Byte]](producerConfig.getProducerProperties)
     }
-    val metrics = new KafkaSystemProducerMetrics(systemName, registry)
 
     // Unlike consumer, no need to use encoders here, since they come for free
     // inside the producer configs. Kafka's producer will handle all of this
@@ -77,7 +91,8 @@ class KafkaSystemFactory extends SystemFactory with Logging {
       new ExponentialSleepStrategy(initialDelayMs = producerConfig.reconnectIntervalMs),
       getProducer,
       metrics,
-      dropProducerExceptions = taskConfig.getDropProducerErrors)
+      dropProducerExceptions = taskConfig.getDropProducerErrors,
+      partitionsCacheTtlMs = config.getProducerPartitionsCacheTtlMs(systemName))
   }
 
   def getAdmin(systemName: String, config: Config): SystemAdmin = {
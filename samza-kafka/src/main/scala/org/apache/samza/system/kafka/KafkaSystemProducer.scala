@@ -21,7 +21,7 @@ package org.apache.samza.system.kafka
 
 
 import java.util.concurrent.atomic.AtomicReference
-import java.util.concurrent.TimeUnit
+import java.util.concurrent.{ConcurrentHashMap, TimeUnit}
 
 import org.apache.kafka.clients.producer.Callback
 import org.apache.kafka.clients.producer.Producer
@@ -41,13 +41,16 @@ class KafkaSystemProducer(systemName: String,
                           getProducer: () => Producer[Array[Byte], Array[Byte]],
                           metrics: KafkaSystemProducerMetrics,
                           val clock: () => Long = () => System.nanoTime,
-                          val dropProducerExceptions: Boolean = false) extends SystemProducer with Logging with TimerUtil {
+                          val dropProducerExceptions: Boolean = false,
+                          val partitionsCacheTtlMs: Long = 0) extends SystemProducer with Logging with TimerUtil {
 
   // Represents a fatal error that caused the producer to close.
   val fatalException: AtomicReference[SystemProducerException] = new AtomicReference[SystemProducerException]()
   val producerRef: AtomicReference[Producer[Array[Byte], Array[Byte]]] = new AtomicReference[Producer[Array[Byte], Array[Byte]]]()
   val producerCreationLock: Object = new Object
   @volatile var stopped = false
+  // topic -> (lookup time in ns, partitions), only used if partitionsCacheTtlMs > 0
+  val partitionsCache = new ConcurrentHashMap[String, (Long, java.util.List[PartitionInfo])]()
 
   def start(): Unit = {
     producerRef.set(getProducer())
@@ -93,8 +96,11 @@ class KafkaSystemProducer(systemName: String,
 
     // Java-based Kafka producer API requires an "Integer" type partitionKey and does not allow custom overriding of Partitioners
     // Any kind of custom partitioning has to be done on the client-side
-    val partitions: java.util.List[PartitionInfo] = currentProducer.partitionsFor(topicName)
-    val partitionKey = if (envelope.getPartitionKey != null) KafkaUtil.getIntegerPartitionKey(envelope, partitions) else null
+    val partitionKey = if (envelope.getPartitionKey != null) {
+      KafkaUtil.getIntegerPartitionKey(envelope, getPartitions(currentProducer, topicName))
+    } else {
+      null
+    }
     val record = new ProducerRecord(envelope.getSystemStream.getStream,
                                     partitionKey,
                                     envelope.getKey.asInstanceOf[Array[Byte]],
@@ -163,6 +169,25 @@ class KafkaSystemProducer(systemName: String,
   }
 
 
+  /**
+    * Looks up the partitions of the topic, from the cache if they were looked up less than partitionsCacheTtlMs ago.
+    */
+  private def getPartitions(currentProducer: Producer[Array[Byte], Array[Byte]], topicName: String): java.util.List[PartitionInfo] = {
+    if (partitionsCacheTtlMs <= 0) {
+      return currentProducer.partitionsFor(topicName)
+    }
+
+    val now = clock()
+    val cached = partitionsCache.get(topicName)
+    if (cached != null && now - cached._1 < TimeUnit.MILLISECONDS.toNanos(partitionsCacheTtlMs)) {
+      cached._2
+    } else {
+      val partitions = currentProducer.partitionsFor(topicName)
+      partitionsCache.put(topicName, (now, partitions))
+      partitions
+    }
+  }
+
   /**
     * Handles a fatal exception by closing the producer and either recreating it or storing the exception
     * to rethrow later, depending on the value of dropProducerExceptions.
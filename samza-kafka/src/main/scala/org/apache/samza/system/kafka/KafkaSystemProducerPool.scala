@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.system.kafka
+
+import java.util.concurrent.ConcurrentHashMap
+
+import org.apache.samza.config.KafkaConfig
+import org.apache.samza.system.OutgoingMessageEnvelope
+import org.apache.samza.system.SystemProducer
+import org.apache.samza.util.Logging
+
+import scala.collection.JavaConverters._
+
+/**
+  * A [[SystemProducer]] that shards sends across a pool of [[KafkaSystemProducer]]s, each with its own Kafka producer
+  * and therefore its own buffer, I/O thread and error state.
+  *
+  * With [[KafkaConfig.PRODUCER_POOL_SHARDING_TASK]] sharding, all messages of a source are sent by the same producer,
+  * so a flush for the source only waits for the messages of the sources sharing its producer.
+  * With [[KafkaConfig.PRODUCER_POOL_SHARDING_TOPIC]] sharding, all messages to a topic are sent by the same producer,
+  * and a flush for the source only waits on the producers it sent to since its last flush.
+  *
+  * Messages of a source to a given topic are always sent by the same producer, so their ordering is preserved.
+  */
+class KafkaSystemProducerPool(systemName: String,
+                              val producers: Seq[KafkaSystemProducer],
+                              sharding: String = KafkaConfig.PRODUCER_POOL_SHARDING_TASK) extends SystemProducer with Logging {
+
+  private val shardByTopic = sharding == KafkaConfig.PRODUCER_POOL_SHARDING_TOPIC
+  // source -> indices of the producers the source sent to since its last flush, only used when sharding by topic
+  private val sourceToUnflushedProducers = new ConcurrentHashMap[String, java.util.Set[Integer]]()
+
+  def start(): Unit = {
+    info("Starting %d producers for system %s, sharded by %s." format (producers.size, systemName, sharding))
+    producers.foreach(_.start())
+  }
+
+  def stop(): Unit = {
+    producers.foreach(_.stop())
+  }
+
+  def register(source: String): Unit = {
+    producers.foreach(_.register(source))
+  }
+
+  def send(source: String, envelope: OutgoingMessageEnvelope): Unit = {
+    if (shardByTopic) {
+      val index = getProducerIndex(envelope.getSystemStream.getStream)
+      sourceToUnflushedProducers
+        .computeIfAbsent(source, _ => ConcurrentHashMap.newKeySet[Integer]())
+        .add(index)
+      producers(index).send(source, envelope)
+    } else {
+      producers(getProducerIndex(source)).send(source, envelope)
+    }
+  }
+
+  def flush(source: String): Unit = {
+    if (shardByTopic) {
+      val unflushedProducers = sourceToUnflushedProducers.get(source)
+      if (unflushedProducers != null) {
+        // sends after this point are flushed by the next flush for the source
+        unflushedProducers.asScala.toList.foreach(index => {
+          unflushedProducers.remove(index)
+          try {
+            producers(index).flush(source)
+          } catch {
+            case e: Exception =>
+              unflushedProducers.add(index)
+              throw e
+          }
+        })
+      }
+    } else {
+      producers(getProducerIndex(source)).flush(source)
+    }
+  }
+
+  private def getProducerIndex(key: String): Int = {
+    if (key == null) 0 else Math.floorMod(key.hashCode, producers.size)
+  }
+}
@@ -82,4 +82,20 @@ class TestKafkaSystemFactory {
     assertNotNull(producer)
     assertTrue(producer.isInstanceOf[KafkaSystemProducer])
   }
+
+  @Test
+  def testProducerPool {
+    val producerFactory = new KafkaSystemFactory
+    val config = new MapConfig(Map[String, String](
+      "job.name" -> "test",
+      "systems.test.producer.bootstrap.servers" -> "",
+      "systems.test.samza.producer.pool.size" -> "3",
+      "systems.test.samza.producer.pool.sharding" -> "topic").asJava)
+    val producer = producerFactory.getProducer(
+      "test",
+      config,
+      new MetricsRegistryMap)
+    assertTrue(producer.isInstanceOf[KafkaSystemProducerPool])
+    assertEquals(3, producer.asInstanceOf[KafkaSystemProducerPool].producers.size)
+  }
 }
@@ -19,9 +19,12 @@
 
 package org.apache.samza.system.kafka
 
+import java.util.concurrent.TimeUnit
+
 import org.apache.kafka.clients.producer._
 import org.apache.kafka.common.errors.{RecordTooLargeException, SerializationException, TimeoutException}
 import org.apache.kafka.test.MockSerializer
+import org.apache.samza.config.KafkaConfig
 import org.apache.samza.system.{OutgoingMessageEnvelope, SystemProducerException, SystemStream}
 import org.junit.Assert._
 import org.junit.Test
@@ -600,4 +603,95 @@ class TestKafkaSystemProducer {
     assertTrue(thrownNull.getMessage() == "Invalid system stream: " + omeStreamNameNull.getSystemStream)
     assertTrue(thrownEmpty.getMessage() == "Invalid system stream: " + omeStreamNameEmpty.getSystemStream)
   }
+
+  @Test
+  def testPartitionsAreCachedForTtl {
+    val partitionedSystemStream = new SystemStream("testSystem", "test")
+    var partitionLookups = 0
+    val mockProducer = new MockKafkaProducer(1, "test", 4) {
+      override def partitionsFor(topic: String) = {
+        partitionLookups += 1
+        super.partitionsFor(topic)
+      }
+    }
+    var now = 0L
+    val systemProducer = new KafkaSystemProducer(systemName = "test",
+                                                 getProducer = () => mockProducer,
+                                                 metrics = new KafkaSystemProducerMetrics,
+                                                 clock = () => now,
+                                                 partitionsCacheTtlMs = 1000)
+    systemProducer.register("test")
+    systemProducer.start()
+
+    // messages without a partition key do not need the partitions
+    systemProducer.send("test", new OutgoingMessageEnvelope(partitionedSystemStream, "a".getBytes))
+    assertEquals(0, partitionLookups)
+
+    systemProducer.send("test", new OutgoingMessageEnvelope(partitionedSystemStream, "key", null, "b".getBytes))
+    systemProducer.send("test", new OutgoingMessageEnvelope(partitionedSystemStream, "key", null, "c".getBytes))
+    assertEquals(1, partitionLookups)
+
+    now += TimeUnit.SECONDS.toNanos(1)
+    systemProducer.send("test", new OutgoingMessageEnvelope(partitionedSystemStream, "key", null, "d".getBytes))
+    assertEquals(2, partitionLookups)
+    assertEquals(4, mockProducer.getMsgsSent)
+    systemProducer.stop()
+  }
+
+  @Test
+  def testProducerPoolShardedByTask {
+    // "a".hashCode % 2 == 1 and "b".hashCode % 2 == 0
+    val mockProducers = Seq.fill(2)(new MockProducer(false, new MockSerializer, new MockSerializer))
+    val producerMetrics = new KafkaSystemProducerMetrics
+    val producerPool = new KafkaSystemProducerPool("test", mockProducers.map(mockProducer =>
+      new KafkaSystemProducer(systemName = "test", getProducer = () => mockProducer, metrics = producerMetrics)))
+    producerPool.register("a")
+    producerPool.register("b")
+    producerPool.start()
+
+    producerPool.send("a", someMessage)
+    producerPool.send("b", someMessage)
+    producerPool.send("b", someMessage)
+    assertEquals(1, mockProducers(1).history().size())
+    assertEquals(2, mockProducers(0).history().size())
+
+    // flushing a source only waits on its own producer
+    producerPool.flush("a")
+    assertTrue(mockProducers(1).flushed())
+    assertFalse(mockProducers(0).flushed())
+
+    producerPool.flush("b")
+    assertTrue(mockProducers(0).flushed())
+    assertEquals(3, producerMetrics.sends.getCount)
+    producerPool.stop()
+  }
+
+  @Test
+  def testProducerPoolShardedByTopic {
+    // "a".hashCode % 2 == 1 and "b".hashCode % 2 == 0
+    val topicA = new SystemStream("testSystem", "a")
+    val topicB = new SystemStream("testSystem", "b")
+    val mockProducers = Seq.fill(2)(new MockProducer(false, new MockSerializer, new MockSerializer))
+    val producerPool = new KafkaSystemProducerPool("test", mockProducers.map(mockProducer =>
+      new KafkaSystemProducer(systemName = "test", getProducer = () => mockProducer,
+        metrics = new KafkaSystemProducerMetrics)), KafkaConfig.PRODUCER_POOL_SHARDING_TOPIC)
+    producerPool.register("source1")
+    producerPool.register("source2")
+    producerPool.start()
+
+    producerPool.send("source1", new OutgoingMessageEnvelope(topicA, "a".getBytes))
+    producerPool.send("source2", new OutgoingMessageEnvelope(topicA, "b".getBytes))
+    producerPool.send("source2", new OutgoingMessageEnvelope(topicB, "c".getBytes))
+    assertEquals(2, mockProducers(1).history().size())
+    assertEquals(1, mockProducers(0).history().size())
+
+    // source1 only sent to topic a, so its flush does not wait on the producer of topic b
+    producerPool.flush("source1")
+    assertTrue(mockProducers(1).flushed())
+    assertFalse(mockProducers(0).flushed())
+
+    producerPool.flush("source2")
+    assertTrue(mockProducers(0).flushed())
+    producerPool.stop()
+  }
 }
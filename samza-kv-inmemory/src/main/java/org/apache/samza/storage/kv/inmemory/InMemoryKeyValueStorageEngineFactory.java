@@ -23,6 +23,7 @@ import org.apache.samza.context.ContainerContext;
 import org.apache.samza.context.JobContext;
 import org.apache.samza.metrics.MetricsRegistry;
 import org.apache.samza.storage.kv.BaseKeyValueStorageEngineFactory;
+import org.apache.samza.storage.kv.KeyValueMergeOperator;
 import org.apache.samza.storage.kv.KeyValueStore;
 import org.apache.samza.storage.kv.KeyValueStoreMetrics;
 
@@ -36,6 +37,8 @@ public class InMemoryKeyValueStorageEngineFactory<K, V> extends BaseKeyValueStor
       ContainerContext containerContext,
       StoreMode storeMode) {
     KeyValueStoreMetrics metrics = new KeyValueStoreMetrics(storeName, registry);
-    return new InMemoryKeyValueStore(metrics);
+    KeyValueMergeOperator mergeOperator = KeyValueMergeOperator.fromConfig(
+        jobContext.getConfig().subset("stores." + storeName + ".", true)).orElse(null);
+    return new InMemoryKeyValueStore(metrics, mergeOperator);
   }
 }
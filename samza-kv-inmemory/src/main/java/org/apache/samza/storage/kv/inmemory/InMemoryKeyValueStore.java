@@ -19,6 +19,7 @@
 package org.apache.samza.storage.kv.inmemory;
 
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -30,9 +31,11 @@ import com.google.common.primitives.UnsignedBytes;
 import org.apache.samza.checkpoint.CheckpointId;
 import org.apache.samza.storage.kv.Entry;
 import org.apache.samza.storage.kv.KeyValueIterator;
+import org.apache.samza.storage.kv.KeyValueMergeOperator;
 import org.apache.samza.storage.kv.KeyValueSnapshot;
 import org.apache.samza.storage.kv.KeyValueStore;
 import org.apache.samza.storage.kv.KeyValueStoreMetrics;
+import org.apache.samza.storage.kv.SeekableKeyValueIterator;
 
 
 /**
@@ -43,13 +46,24 @@ import org.apache.samza.storage.kv.KeyValueStoreMetrics;
 public class InMemoryKeyValueStore implements KeyValueStore<byte[], byte[]> {
   private final KeyValueStoreMetrics metrics;
   private final ConcurrentSkipListMap<byte[], byte[]> underlying;
+  private final KeyValueMergeOperator mergeOperator;
 
   /**
    * @param metrics A metrics instance to publish key-value store related statistics
    */
   public InMemoryKeyValueStore(KeyValueStoreMetrics metrics) {
+    this(metrics, null);
+  }
+
+  /**
+   * @param metrics A metrics instance to publish key-value store related statistics
+   * @param mergeOperator The operator used to emulate {@link #merge(byte[], byte[])}, or null if merges are not
+   *                      supported
+   */
+  public InMemoryKeyValueStore(KeyValueStoreMetrics metrics, KeyValueMergeOperator mergeOperator) {
     this.metrics = metrics;
     this.underlying = new ConcurrentSkipListMap<>(UnsignedBytes.lexicographicalComparator());
+    this.mergeOperator = mergeOperator;
   }
 
   @Override
@@ -90,6 +104,18 @@ public class InMemoryKeyValueStore implements KeyValueStore<byte[], byte[]> {
     put(key, null);
   }
 
+  @Override
+  public void merge(byte[] key, byte[] delta) {
+    this.metrics.merges().inc();
+    Preconditions.checkArgument(key != null, "Null argument 'key' not allowed");
+    Preconditions.checkArgument(delta != null, "Null argument 'delta' not allowed");
+    if (this.mergeOperator == null) {
+      throw new UnsupportedOperationException("merge() requires a merge operator to be configured for the store");
+    }
+    this.metrics.bytesWritten().inc(key.length + delta.length);
+    this.underlying.compute(key, (k, existingValue) -> this.mergeOperator.merge(existingValue, delta));
+  }
+
   @Override
   public KeyValueIterator<byte[], byte[]> range(byte[] from, byte[] to) {
     this.metrics.ranges().inc();
@@ -121,6 +147,23 @@ public class InMemoryKeyValueStore implements KeyValueStore<byte[], byte[]> {
     return new InMemoryIterator(this.underlying.entrySet().iterator(), this.metrics);
   }
 
+  @Override
+  public KeyValueIterator<byte[], byte[]> prefixScan(byte[] prefix) {
+    this.metrics.prefixScans().inc();
+    Preconditions.checkArgument(prefix != null, "Null argument 'prefix' not allowed");
+    byte[] upperBound = prefixUpperBound(prefix);
+    Map<byte[], byte[]> entries = upperBound == null
+        ? this.underlying.tailMap(prefix)
+        : this.underlying.subMap(prefix, upperBound);
+    return new InMemoryIterator(entries.entrySet().iterator(), this.metrics);
+  }
+
+  @Override
+  public SeekableKeyValueIterator<byte[], byte[]> seekableIterator() {
+    this.metrics.alls().inc();
+    return new InMemorySeekableIterator(this.underlying, this.metrics);
+  }
+
   @Override
   public Optional<Path> checkpoint(CheckpointId id) {
     // No checkpoint being persisted. State restores from Changelog.
@@ -137,6 +180,21 @@ public class InMemoryKeyValueStore implements KeyValueStore<byte[], byte[]> {
   public void close() {
   }
 
+  /**
+   * Returns the smallest key that is greater than all the keys starting with {@code prefix}, or null if there is
+   * no such key, i.e. if the prefix is empty or consists only of 0xFF bytes.
+   */
+  static byte[] prefixUpperBound(byte[] prefix) {
+    for (int i = prefix.length - 1; i >= 0; i--) {
+      if (prefix[i] != (byte) 0xFF) {
+        byte[] upperBound = Arrays.copyOf(prefix, i + 1);
+        upperBound[i]++;
+        return upperBound;
+      }
+    }
+    return null;
+  }
+
   private static class InMemoryIterator implements KeyValueIterator<byte[], byte[]> {
     private final Iterator<Map.Entry<byte[], byte[]>> iter;
     private final KeyValueStoreMetrics metrics;
@@ -172,4 +230,41 @@ public class InMemoryKeyValueStore implements KeyValueStore<byte[], byte[]> {
     public void close() {
     }
   }
+
+  private static class InMemorySeekableIterator implements SeekableKeyValueIterator<byte[], byte[]> {
+    private final ConcurrentSkipListMap<byte[], byte[]> map;
+    private final KeyValueStoreMetrics metrics;
+    private InMemoryIterator iter;
+
+    private InMemorySeekableIterator(ConcurrentSkipListMap<byte[], byte[]> map, KeyValueStoreMetrics metrics) {
+      this.map = map;
+      this.metrics = metrics;
+      this.iter = new InMemoryIterator(map.entrySet().iterator(), metrics);
+    }
+
+    @Override
+    public void seek(byte[] key) {
+      Preconditions.checkArgument(key != null, "Null argument 'key' not allowed");
+      this.iter = new InMemoryIterator(this.map.tailMap(key).entrySet().iterator(), this.metrics);
+    }
+
+    @Override
+    public boolean hasNext() {
+      return this.iter.hasNext();
+    }
+
+    @Override
+    public Entry<byte[], byte[]> next() {
+      return this.iter.next();
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("InMemoryKeyValueStore iterator doesn't support remove");
+    }
+
+    @Override
+    public void close() {
+    }
+  }
 }
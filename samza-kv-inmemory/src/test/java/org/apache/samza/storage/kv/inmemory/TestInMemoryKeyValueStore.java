@@ -29,8 +29,10 @@ import org.apache.samza.SamzaException;
 import org.apache.samza.metrics.Counter;
 import org.apache.samza.storage.kv.Entry;
 import org.apache.samza.storage.kv.KeyValueIterator;
+import org.apache.samza.storage.kv.KeyValueMergeOperator;
 import org.apache.samza.storage.kv.KeyValueSnapshot;
 import org.apache.samza.storage.kv.KeyValueStoreMetrics;
+import org.apache.samza.storage.kv.SeekableKeyValueIterator;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
@@ -495,6 +497,81 @@ public class TestInMemoryKeyValueStore {
     verify(this.bytesReadCounter).inc(value(OTHER_VALUE_PREFIX, 3).length);
   }
 
+  @Test
+  public void testPrefixScan() {
+    Counter prefixScansCounter = mock(Counter.class);
+    when(this.keyValueStoreMetrics.prefixScans()).thenReturn(prefixScansCounter);
+
+    for (int i = 0; i < 10; i++) {
+      this.inMemoryKeyValueStore.put(key(OTHER_KEY_PREFIX, i), value(OTHER_VALUE_PREFIX, i));
+      this.inMemoryKeyValueStore.put(key(i), value(i));
+    }
+    KeyValueIterator<byte[], byte[]> prefixScan = this.inMemoryKeyValueStore.prefixScan(DEFAULT_KEY_PREFIX.getBytes());
+
+    for (int i = 0; i < 10; i++) {
+      assertEntryEquals(key(i), value(i), prefixScan.next());
+    }
+    assertFalse(prefixScan.hasNext());
+    verify(prefixScansCounter).inc();
+  }
+
+  @Test
+  public void testPrefixScanMaxBytePrefix() {
+    when(this.keyValueStoreMetrics.prefixScans()).thenReturn(mock(Counter.class));
+    byte[] maxKey = new byte[] {(byte) 0xFF, (byte) 0xFF, 1};
+    this.inMemoryKeyValueStore.put(key(0), value(0));
+    this.inMemoryKeyValueStore.put(maxKey, value(1));
+
+    KeyValueIterator<byte[], byte[]> prefixScan =
+        this.inMemoryKeyValueStore.prefixScan(new byte[] {(byte) 0xFF, (byte) 0xFF});
+    assertEntryEquals(maxKey, value(1), prefixScan.next());
+    assertFalse(prefixScan.hasNext());
+
+    assertArrayEquals(new byte[] {1, 3}, InMemoryKeyValueStore.prefixUpperBound(new byte[] {1, 2, (byte) 0xFF}));
+    assertNull(InMemoryKeyValueStore.prefixUpperBound(new byte[] {(byte) 0xFF}));
+  }
+
+  @Test
+  public void testSeekableIterator() {
+    when(this.keyValueStoreMetrics.alls()).thenReturn(mock(Counter.class));
+    for (int i = 0; i < 10; i++) {
+      this.inMemoryKeyValueStore.put(key(i), value(i));
+    }
+    SeekableKeyValueIterator<byte[], byte[]> iterator = this.inMemoryKeyValueStore.seekableIterator();
+    assertEntryEquals(key(0), value(0), iterator.next());
+
+    iterator.seek(key(7));
+    assertEntryEquals(key(7), value(7), iterator.next());
+
+    // seeking backwards repositions the iterator as well
+    iterator.seek(key(2));
+    assertEntryEquals(key(2), value(2), iterator.next());
+    assertEntryEquals(key(3), value(3), iterator.next());
+
+    iterator.seek(key(OTHER_KEY_PREFIX, 0));
+    assertFalse(iterator.hasNext());
+    iterator.close();
+  }
+
+  @Test
+  public void testMerge() {
+    Counter mergesCounter = mock(Counter.class);
+    when(this.keyValueStoreMetrics.merges()).thenReturn(mergesCounter);
+    InMemoryKeyValueStore store =
+        new InMemoryKeyValueStore(this.keyValueStoreMetrics, new KeyValueMergeOperator.Append(""));
+
+    store.merge(key(0), "a".getBytes());
+    store.merge(key(0), "b".getBytes());
+    assertArrayEquals("ab".getBytes(), store.get(key(0)));
+    verify(mergesCounter, times(2)).inc();
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testMergeWithoutMergeOperator() {
+    when(this.keyValueStoreMetrics.merges()).thenReturn(mock(Counter.class));
+    this.inMemoryKeyValueStore.merge(key(0), value(0));
+  }
+
   @Test
   public void testFlush() {
     Counter flushesCounter = mock(Counter.class);
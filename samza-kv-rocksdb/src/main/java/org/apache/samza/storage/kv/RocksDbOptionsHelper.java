@@ -21,15 +21,21 @@ package org.apache.samza.storage.kv;
 
 import java.io.File;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.samza.SamzaException;
 import org.apache.samza.config.Config;
 import org.apache.samza.storage.StorageEngineFactory;
 import org.apache.samza.storage.StorageManagerUtil;
 import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
+import org.rocksdb.Cache;
 import org.rocksdb.CompactionOptionsUniversal;
 import org.rocksdb.CompactionStopStyle;
 import org.rocksdb.CompactionStyle;
 import org.rocksdb.CompressionType;
+import org.rocksdb.MergeOperator;
 import org.rocksdb.Options;
+import org.rocksdb.StringAppendOperator;
+import org.rocksdb.UInt64AddOperator;
 import org.rocksdb.WALRecoveryMode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,6 +48,17 @@ public class RocksDbOptionsHelper {
 
   // TODO HIGH pmaheshw Add these to RockdDBTableDescriptor
   public static final String ROCKSDB_WAL_ENABLED = "rocksdb.wal.enabled";
+  public static final String ROCKSDB_RESTORE_SST_INGESTION_ENABLED = "rocksdb.restore.sst.ingestion.enabled";
+  public static final String ROCKSDB_RESTORE_SST_INGESTION_SORT_BUFFER_BYTES =
+      "rocksdb.restore.sst.ingestion.sort.buffer.bytes";
+  public static final String ROCKSDB_RESTORE_SST_INGESTION_FILE_SIZE_BYTES =
+      "rocksdb.restore.sst.ingestion.file.size.bytes";
+  public static final long DEFAULT_ROCKSDB_RESTORE_SST_INGESTION_SORT_BUFFER_BYTES = 64 * 1024 * 1024L;
+  public static final long DEFAULT_ROCKSDB_RESTORE_SST_INGESTION_FILE_SIZE_BYTES = 256 * 1024 * 1024L;
+  public static final String ROCKSDB_STATISTICS_ENABLED = "rocksdb.statistics.enabled";
+  public static final String ROCKSDB_PREFIX_EXTRACTOR_LENGTH = "rocksdb.prefix.extractor.length";
+  private static final String ROCKSDB_PREFIX_BLOOM_BITS_PER_KEY = "rocksdb.prefix.bloom.bits.per.key";
+  private static final String ROCKSDB_MEMTABLE_PREFIX_BLOOM_SIZE_RATIO = "rocksdb.memtable.prefix.bloom.size.ratio";
   private static final String ROCKSDB_COMPRESSION = "rocksdb.compression";
   private static final String ROCKSDB_BLOCK_SIZE_BYTES = "rocksdb.block.size.bytes";
 
@@ -88,6 +105,15 @@ public class RocksDbOptionsHelper {
 
   public static Options options(Config storeConfig, int numTasksForContainer, long defaultMaxManifestFileSize,
       File storeDir, StorageEngineFactory.StoreMode storeMode) {
+    return options(storeConfig, numTasksForContainer, defaultMaxManifestFileSize, storeDir, storeMode, null);
+  }
+
+  /**
+   * Same as {@link #options(Config, int, long, File, StorageEngineFactory.StoreMode)}, but uses the given block cache
+   * instead of creating one for the store, if it is not null.
+   */
+  public static Options options(Config storeConfig, int numTasksForContainer, long defaultMaxManifestFileSize,
+      File storeDir, StorageEngineFactory.StoreMode storeMode, Cache blockCache) {
     Options options = new Options();
 
     if (storeConfig.getBoolean(ROCKSDB_WAL_ENABLED, false)) {
@@ -95,9 +121,7 @@ public class RocksDbOptionsHelper {
       options.setWalRecoveryMode(WALRecoveryMode.AbsoluteConsistency);
     }
 
-    Long writeBufSize = storeConfig.getLong("container.write.buffer.size.bytes", 32 * 1024 * 1024);
-    // Cache size and write buffer size are specified on a per-container basis.
-    options.setWriteBufferSize((int) (writeBufSize / numTasksForContainer));
+    options.setWriteBufferSize((int) getWriteBufferSize(storeConfig, numTasksForContainer));
 
     CompressionType compressionType = CompressionType.SNAPPY_COMPRESSION;
     String compressionInConfig = storeConfig.get(ROCKSDB_COMPRESSION, "snappy");
@@ -129,10 +153,18 @@ public class RocksDbOptionsHelper {
     long blockCacheSize = getBlockCacheSize(storeConfig, numTasksForContainer);
     int blockSize = storeConfig.getInt(ROCKSDB_BLOCK_SIZE_BYTES, 4096);
     BlockBasedTableConfig tableOptions = new BlockBasedTableConfig();
-    tableOptions.setBlockCacheSize(blockCacheSize).setBlockSize(blockSize);
+    if (blockCache != null) {
+      tableOptions.setBlockCache(blockCache);
+    } else {
+      tableOptions.setBlockCacheSize(blockCacheSize);
+    }
+    tableOptions.setBlockSize(blockSize);
+    setPrefixOptions(storeConfig, options, tableOptions);
     options.setTableFormatConfig(tableOptions);
 
     setCompactionOptions(storeConfig, options);
+    KeyValueMergeOperator.fromConfig(storeConfig)
+        .ifPresent(mergeOperator -> options.setMergeOperator(toRocksDbMergeOperator(mergeOperator)));
 
     options.setMaxWriteBufferNumber(storeConfig.getInt(ROCKSDB_NUM_WRITE_BUFFERS, 3));
     options.setCreateIfMissing(true);
@@ -157,6 +189,35 @@ public class RocksDbOptionsHelper {
     return options;
   }
 
+  /**
+   * Configures a fixed length prefix extractor, along with bloom filters on the extracted prefixes in both the
+   * SST files and the memtable, so that {@link RocksDbKeyValueStore#prefixScan(byte[])} only touches the files
+   * and blocks that may contain the prefix. Nothing is changed unless a prefix extractor length is configured.
+   */
+  private static void setPrefixOptions(Config storeConfig, Options options, BlockBasedTableConfig tableOptions) {
+    int prefixLength = storeConfig.getInt(ROCKSDB_PREFIX_EXTRACTOR_LENGTH, 0);
+    if (prefixLength <= 0) {
+      return;
+    }
+
+    options.useFixedLengthPrefixExtractor(prefixLength);
+    tableOptions.setFilterPolicy(new BloomFilter(storeConfig.getDouble(ROCKSDB_PREFIX_BLOOM_BITS_PER_KEY, 10)));
+    options.setMemtablePrefixBloomSizeRatio(storeConfig.getDouble(ROCKSDB_MEMTABLE_PREFIX_BLOOM_SIZE_RATIO, 0.1));
+  }
+
+  /**
+   * Maps a merge operator to the built-in RocksDB operator with the same semantics, so that merges are applied
+   * natively during reads and compactions.
+   */
+  private static MergeOperator toRocksDbMergeOperator(KeyValueMergeOperator mergeOperator) {
+    if (mergeOperator instanceof KeyValueMergeOperator.UInt64Add) {
+      return new UInt64AddOperator();
+    } else if (mergeOperator instanceof KeyValueMergeOperator.Append) {
+      return new StringAppendOperator(((KeyValueMergeOperator.Append) mergeOperator).getDelimiter());
+    }
+    throw new SamzaException("Unsupported merge operator " + mergeOperator.getClass().getName());
+  }
+
   private static void setCompactionOptions(Config storeConfig, Options options) {
     if (storeConfig.containsKey(ROCKSDB_COMPACTION_NUM_LEVELS)) {
       options.setNumLevels(storeConfig.getInt(ROCKSDB_COMPACTION_NUM_LEVELS));
@@ -238,6 +299,12 @@ public class RocksDbOptionsHelper {
     }
   }
 
+  public static long getWriteBufferSize(Config storeConfig, int numTasksForContainer) {
+    // Cache size and write buffer size are specified on a per-container basis.
+    long writeBufSize = storeConfig.getLong("container.write.buffer.size.bytes", 32 * 1024 * 1024);
+    return writeBufSize / numTasksForContainer;
+  }
+
   public static Long getBlockCacheSize(Config storeConfig, int numTasksForContainer) {
     long cacheSize = storeConfig.getLong("container.cache.size.bytes", 100 * 1024 * 1024L);
     return cacheSize / numTasksForContainer;
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.storage.kv;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import org.apache.samza.SamzaException;
+import org.apache.samza.config.Config;
+import org.apache.samza.config.StorageConfig;
+import org.rocksdb.Cache;
+import org.rocksdb.LRUCache;
+import org.rocksdb.RocksDB;
+import org.rocksdb.WriteBufferManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * A block cache and a {@link WriteBufferManager} shared by all the RocksDB stores of a container, enabled with
+ * {@code stores-default.rocksdb.shared.cache.size.bytes}. Unlike the per-store caches, which each get a fixed share of
+ * {@code stores.<store>.container.cache.size.bytes}, the shared cache lets busy stores use the memory that idle stores
+ * don't need. Memtables are charged to the cache, and writes stall once they exceed the write buffer budget, so that
+ * the block cache and memtables of all stores together stay within the size of the cache. The size is a soft limit:
+ * blocks that are pinned by open iterators or by the index and filter blocks of open tables may take the cache past
+ * it, unless {@code stores-default.rocksdb.shared.cache.strict.capacity.limit} is set, in which case reads that can't
+ * insert a block into a full cache fail instead.
+ *
+ * Every {@link #get} of the cache must be matched by a {@link #release()} once the store that uses it is closed. The
+ * cache is closed, and removed from the caches of the JVM, once all of its stores have released it, so that its native
+ * memory does not outlive the container.
+ */
+public class RocksDbSharedCache {
+  private static final Logger LOG = LoggerFactory.getLogger(RocksDbSharedCache.class);
+
+  private static final Map<String, RocksDbSharedCache> CACHES = new HashMap<>();
+
+  static {
+    RocksDB.loadLibrary();
+  }
+
+  private final String containerId;
+  private final long capacity;
+  private final Cache cache;
+  private final WriteBufferManager writeBufferManager;
+  /**
+   * Number of stores that got the cache and have not released it yet. Guarded by {@link #CACHES}.
+   */
+  private int references = 0;
+
+  /**
+   * Returns the shared cache of a container, creating it on first use, or empty if the stores of the container
+   * don't share a cache. The caller must {@link #release()} the cache once it no longer uses it.
+   *
+   * @param jobConfig the job config
+   * @param containerId id of the container
+   * @return the shared cache of the container, if enabled
+   */
+  public static Optional<RocksDbSharedCache> get(Config jobConfig, String containerId) {
+    StorageConfig storageConfig = new StorageConfig(jobConfig);
+    long capacity = storageConfig.getRocksDbSharedCacheSizeBytes();
+    if (capacity <= 0) {
+      return Optional.empty();
+    }
+    long writeBufferSize = storageConfig.getRocksDbSharedWriteBufferSizeBytes();
+    boolean strictCapacityLimit = storageConfig.getRocksDbSharedCacheStrictCapacityLimit();
+    if (writeBufferSize <= 0 || writeBufferSize > capacity) {
+      throw new SamzaException(String.format(
+          "Shared RocksDB write buffer size: %d must be positive and at most the shared cache size: %d",
+          writeBufferSize, capacity));
+    }
+    synchronized (CACHES) {
+      RocksDbSharedCache sharedCache = CACHES.computeIfAbsent(containerId, id -> {
+        LOG.info("Creating shared RocksDB cache of size: {} with write buffer size: {} and strict capacity limit: {} "
+            + "for container: {}", capacity, writeBufferSize, strictCapacityLimit, id);
+        return new RocksDbSharedCache(id, capacity, writeBufferSize, strictCapacityLimit);
+      });
+      sharedCache.references++;
+      return Optional.of(sharedCache);
+    }
+  }
+
+  RocksDbSharedCache(String containerId, long capacity, long writeBufferSize, boolean strictCapacityLimit) {
+    this.containerId = containerId;
+    this.capacity = capacity;
+    // -1 lets RocksDB pick the number of shards from the capacity
+    this.cache = new LRUCache(capacity, -1, strictCapacityLimit);
+    this.writeBufferManager = new WriteBufferManager(writeBufferSize, cache, true);
+  }
+
+  public long getCapacity() {
+    return capacity;
+  }
+
+  public Cache getCache() {
+    return cache;
+  }
+
+  public WriteBufferManager getWriteBufferManager() {
+    return writeBufferManager;
+  }
+
+  /**
+   * Returns the memory in use in the cache, or 0 once the cache has been closed.
+   */
+  public long getUsage() {
+    synchronized (CACHES) {
+      return cache.isOwningHandle() ? cache.getUsage() : 0;
+    }
+  }
+
+  /**
+   * Releases the cache for a store that got it with {@link #get}, closing it once all of its stores have released it.
+   * Must only be called after the RocksDB instances of the store have been closed.
+   */
+  public void release() {
+    synchronized (CACHES) {
+      if (references == 0 || --references > 0) {
+        return;
+      }
+      LOG.info("Closing shared RocksDB cache of container: {}", containerId);
+      CACHES.remove(containerId, this);
+      writeBufferManager.close();
+      cache.close();
+    }
+  }
+}
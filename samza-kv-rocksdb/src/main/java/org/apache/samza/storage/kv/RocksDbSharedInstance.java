@@ -0,0 +1,506 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.storage.kv;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableSet;
+import org.apache.commons.io.FileUtils;
+import org.apache.samza.SamzaException;
+import org.apache.samza.config.Config;
+import org.apache.samza.config.StorageConfig;
+import org.apache.samza.storage.StorageEngineFactory;
+import org.apache.samza.storage.StorageManagerUtil;
+import org.rocksdb.Cache;
+import org.rocksdb.Checkpoint;
+import org.rocksdb.ColumnFamilyDescriptor;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.DBOptions;
+import org.rocksdb.LRUCache;
+import org.rocksdb.Options;
+import org.rocksdb.ReadOptions;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.Statistics;
+import org.rocksdb.WriteBufferManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * A single RocksDB instance whose column families hold the data of several logical stores of a task, configured
+ * with {@code stores.<store>.rocksdb.shared.instance=<instance>}. The stores share one block cache and one
+ * {@link WriteBufferManager}, which is sized to the sum of what the stores would have used on their own and charges
+ * memtable memory to the block cache, so that the memory of the instance is bounded as a whole. If the stores of the
+ * container share a {@link RocksDbSharedCache}, the instance uses that instead.
+ *
+ * Each store keeps its own directory, which holds its offset files, and its own changelog. A store checkpoint
+ * is a separate RocksDB database holding only the column family of the store, which {@link #open(String, File)}
+ * imports when the store directory is restored from a checkpoint. The column family of a store is reset if its
+ * store directory has been deleted, e.g. because the store was found to be stale, so that the store can be restored
+ * from its changelog independently of the other stores of the instance. Column families of stores that are not
+ * configured for the instance, e.g. because a store was removed from the config, are kept as they are.
+ *
+ * Instances are looked up by their directory with {@link #get}, and the database is opened on the first
+ * {@link #open(String, File)} and closed when the last of its stores is closed. An instance is released once every
+ * store that looked it up has been closed, so that the next lookup, e.g. by the stores of a restarted container or
+ * by the read-write stores created after a bulk load restore, creates a new instance with the requested
+ * {@link StorageEngineFactory.StoreMode}.
+ */
+public class RocksDbSharedInstance {
+  private static final Logger LOG = LoggerFactory.getLogger(RocksDbSharedInstance.class);
+
+  public static final String ROCKSDB_SHARED_INSTANCE = "rocksdb.shared.instance";
+  private static final String STORE_PREFIX = "stores.";
+  /**
+   * Directory under the store base directory holding the shared instances, named after the instance.
+   */
+  static final String SHARED_INSTANCE_DIR_PREFIX = "rocksdb-shared-";
+  /**
+   * Written to the store directory once the column family of the store is in use, so that a deleted store directory
+   * can be told apart from a store directory without data files.
+   */
+  static final String COLUMN_FAMILY_MARKER_FILE_NAME = "SHARED-ROCKSDB-COLUMN-FAMILY";
+  private static final String DEFAULT_COLUMN_FAMILY = new String(RocksDB.DEFAULT_COLUMN_FAMILY, StandardCharsets.UTF_8);
+  private static final Set<String> STORE_DIR_FILES_TO_KEEP = ImmutableSet.of(
+      StorageManagerUtil.OFFSET_FILE_NAME_NEW,
+      StorageManagerUtil.OFFSET_FILE_NAME_LEGACY,
+      StorageManagerUtil.SIDE_INPUT_OFFSET_FILE_NAME_LEGACY,
+      StorageManagerUtil.CHECKPOINT_FILE_NAME,
+      COLUMN_FAMILY_MARKER_FILE_NAME);
+
+  private static final Map<String, RocksDbSharedInstance> INSTANCES = new HashMap<>();
+
+  private final String instanceName;
+  private final File dir;
+  private final StorageEngineFactory.StoreMode storeMode;
+  private final Map<String, Options> storeOptions;
+  private final DBOptions dbOptions;
+  /**
+   * The block cache and write buffer manager of the instance, or null if it uses a {@link RocksDbSharedCache}.
+   * Closed once the instance is released.
+   */
+  private final Cache ownBlockCache;
+  private final WriteBufferManager ownWriteBufferManager;
+  /**
+   * The native statistics of the database, or null if they are not enabled for the first store of the instance.
+   * Closed once the instance is released.
+   */
+  private final Statistics statistics;
+
+  private RocksDB db = null;
+  private final Map<String, ColumnFamilyHandle> columnFamilies = new HashMap<>();
+  // handles of the default column family and the column families of stores not configured for the instance
+  private final List<ColumnFamilyHandle> otherColumnFamilies = new ArrayList<>();
+  // options of the column families of the open database, which must outlive it
+  private final List<ColumnFamilyOptions> columnFamilyOptions = new ArrayList<>();
+  private final Set<String> openStores = new HashSet<>();
+  /**
+   * Number of stores that looked up the instance and have not been closed yet. Guarded by {@link #INSTANCES}.
+   */
+  private int references = 0;
+
+  /**
+   * Returns the shared instance of the given store, creating it on first use.
+   *
+   * @param jobConfig the job config, which is used to find the other stores of the instance
+   * @param storeName name of the store
+   * @param storeDir directory of the store, which determines the directory of the instance
+   * @param numTasksForContainer number of tasks in the container
+   * @param defaultMaxManifestFileSize default max manifest file size
+   * @param storeMode mode in which the store is requested, which the instance is created with
+   * @param sharedCache the block cache of the container, or null if the instance has its own
+   * @return the shared instance of the store
+   */
+  public static RocksDbSharedInstance get(Config jobConfig, String storeName, File storeDir, int numTasksForContainer,
+      long defaultMaxManifestFileSize, StorageEngineFactory.StoreMode storeMode, RocksDbSharedCache sharedCache) {
+    String instanceName = jobConfig.get(sharedInstanceConfig(storeName));
+    if (instanceName == null || instanceName.isEmpty()) {
+      throw new SamzaException("No shared RocksDB instance configured for store: " + storeName);
+    }
+    // store directories are <store base dir>/<store>/<task>
+    File dir = new File(new File(storeDir.getParentFile().getParentFile(), SHARED_INSTANCE_DIR_PREFIX + instanceName),
+        storeDir.getName());
+    synchronized (INSTANCES) {
+      RocksDbSharedInstance instance = INSTANCES.computeIfAbsent(dir.getAbsolutePath(),
+        path -> new RocksDbSharedInstance(jobConfig, instanceName, dir, numTasksForContainer, defaultMaxManifestFileSize,
+            storeMode, sharedCache));
+      if (instance.storeMode != storeMode) {
+        LOG.warn("Store: {} is requested in mode: {}, but its shared RocksDB instance: {} is in use in mode: {}.",
+            storeName, storeMode, instanceName, instance.storeMode);
+      }
+      instance.references++;
+      return instance;
+    }
+  }
+
+  /**
+   * Returns the config key for the shared instance of a store.
+   */
+  public static String sharedInstanceConfig(String storeName) {
+    return String.format("%s%s.%s", STORE_PREFIX, storeName, ROCKSDB_SHARED_INSTANCE);
+  }
+
+  @VisibleForTesting
+  RocksDbSharedInstance(Config jobConfig, String instanceName, File dir, int numTasksForContainer,
+      long defaultMaxManifestFileSize, StorageEngineFactory.StoreMode storeMode, RocksDbSharedCache sharedCache) {
+    this.instanceName = instanceName;
+    this.dir = dir;
+    this.storeMode = storeMode;
+
+    StorageConfig storageConfig = new StorageConfig(jobConfig);
+    Map<String, Config> storeConfigs = new TreeMap<>();
+    for (String storeName : storageConfig.getStoreNames()) {
+      if (instanceName.equals(jobConfig.get(sharedInstanceConfig(storeName)))) {
+        Config storeConfig = jobConfig.subset(STORE_PREFIX + storeName + ".", true);
+        if (storeConfig.containsKey("rocksdb.ttl.ms")) {
+          throw new SamzaException(String.format(
+              "TTL store: %s can not be part of the shared RocksDB instance: %s", storeName, instanceName));
+        }
+        storeConfigs.put(storeName, storeConfig);
+      }
+    }
+
+    long blockCacheSize = 0;
+    long writeBufferSize = 0;
+    for (Config storeConfig : storeConfigs.values()) {
+      blockCacheSize += RocksDbOptionsHelper.getBlockCacheSize(storeConfig, numTasksForContainer);
+      writeBufferSize += RocksDbOptionsHelper.getWriteBufferSize(storeConfig, numTasksForContainer);
+    }
+    Cache blockCache;
+    WriteBufferManager writeBufferManager;
+    if (sharedCache != null) {
+      blockCache = sharedCache.getCache();
+      writeBufferManager = sharedCache.getWriteBufferManager();
+      this.ownBlockCache = null;
+      this.ownWriteBufferManager = null;
+    } else {
+      blockCache = new LRUCache(blockCacheSize + writeBufferSize);
+      writeBufferManager = new WriteBufferManager(writeBufferSize, blockCache);
+      this.ownBlockCache = blockCache;
+      this.ownWriteBufferManager = writeBufferManager;
+    }
+
+    this.storeOptions = new HashMap<>();
+    storeConfigs.forEach((storeName, storeConfig) -> storeOptions.put(storeName,
+        RocksDbOptionsHelper.options(storeConfig, numTasksForContainer, defaultMaxManifestFileSize, dir,
+            storeMode, blockCache)));
+
+    // database wide options, such as the WAL settings, are taken from the first store of the instance
+    Options firstStoreOptions = storeOptions.get(storeConfigs.keySet().iterator().next());
+    this.dbOptions = new DBOptions(firstStoreOptions)
+        .setCreateIfMissing(true)
+        .setCreateMissingColumnFamilies(true)
+        .setWriteBufferManager(writeBufferManager);
+    if (storeConfigs.values().iterator().next().getBoolean(RocksDbOptionsHelper.ROCKSDB_STATISTICS_ENABLED, false)) {
+      this.statistics = new Statistics();
+      dbOptions.setStatistics(statistics);
+    } else {
+      this.statistics = null;
+    }
+    LOG.info("Created shared RocksDB instance: {} in: {} for stores: {} in mode: {} with block cache size: {} "
+        + "and write buffer size: {}", instanceName, dir, storeConfigs.keySet(), storeMode, blockCacheSize,
+        writeBufferSize);
+  }
+
+  /**
+   * Returns the native statistics of the instance, or null if they are not enabled for its first store.
+   */
+  public Statistics getStatistics() {
+    return statistics;
+  }
+
+  /**
+   * Returns the options of a store of the instance, e.g. for writing SST files for it.
+   */
+  public Options getOptions(String storeName) {
+    Options options = storeOptions.get(storeName);
+    if (options == null) {
+      throw new SamzaException(String.format("Store: %s is not part of the shared RocksDB instance: %s",
+          storeName, instanceName));
+    }
+    return options;
+  }
+
+  /**
+   * Opens a store of the instance, opening the database first if this is the first open store.
+   *
+   * @param storeName name of the store
+   * @param storeDir directory of the store
+   * @return the database, and the column family of the store
+   */
+  public synchronized Map.Entry<RocksDB, ColumnFamilyHandle> open(String storeName, File storeDir) {
+    getOptions(storeName);
+    if (!openStores.add(storeName)) {
+      throw new SamzaException(String.format("Store: %s of the shared RocksDB instance: %s is already open",
+          storeName, instanceName));
+    }
+    try {
+      if (db == null) {
+        openDB();
+      }
+      FileUtils.forceMkdir(storeDir);
+      if (new File(storeDir, "CURRENT").exists()) {
+        importColumnFamily(storeName, storeDir);
+      } else if (!new File(storeDir, COLUMN_FAMILY_MARKER_FILE_NAME).exists()) {
+        LOG.info("Resetting column family of store: {} in shared RocksDB instance: {} since the store directory: {} is new.",
+            storeName, instanceName, storeDir);
+        resetColumnFamily(storeName);
+      }
+      FileUtils.touch(new File(storeDir, COLUMN_FAMILY_MARKER_FILE_NAME));
+    } catch (IOException | RocksDBException e) {
+      closeStore(storeName);
+      throw new SamzaException(String.format("Error opening store: %s in shared RocksDB instance: %s",
+          storeName, instanceName), e);
+    }
+    return new HashMap.SimpleImmutableEntry<>(db, columnFamilies.get(storeName));
+  }
+
+  /**
+   * Closes a store of the instance, closing the database once no store is open, and releasing the instance once
+   * every store that looked it up has been closed.
+   */
+  public void close(String storeName) {
+    closeStore(storeName);
+    synchronized (INSTANCES) {
+      if (references > 0 && --references == 0) {
+        LOG.info("Releasing shared RocksDB instance: {} in: {}", instanceName, dir);
+        INSTANCES.remove(dir.getAbsolutePath(), this);
+        release();
+      }
+    }
+  }
+
+  /**
+   * Creates a RocksDB checkpoint of a store of the instance in the given directory. Unlike a checkpoint of the whole
+   * database, it only holds the column family of the store, so that the checkpoint of each store, and its backup,
+   * don't also contain the data of the other stores of the instance. A native checkpoint of the database is created
+   * first, which hard links its SST files, and the column families of the other stores are then dropped from it. The
+   * checkpoint therefore takes time proportional to the number of files rather than to the size of the store, and
+   * keeps the names of the SST files of the store, so that incremental backups of consecutive checkpoints only
+   * upload the files written in between.
+   *
+   * @param storeName name of the store
+   * @param checkpointDir directory of the checkpoint, which must not exist yet
+   */
+  public synchronized void checkpoint(String storeName, File checkpointDir) {
+    getOptions(storeName);
+    if (!openStores.contains(storeName)) {
+      throw new SamzaException(String.format("Store: %s of the shared RocksDB instance: %s is not open",
+          storeName, instanceName));
+    }
+    if (checkpointDir.exists()) {
+      throw new SamzaException(String.format("Checkpoint directory: %s of store: %s already exists",
+          checkpointDir, storeName));
+    }
+    List<ColumnFamilyDescriptor> descriptors = new ArrayList<>();
+    List<ColumnFamilyHandle> handles = new ArrayList<>();
+    try (Checkpoint checkpoint = Checkpoint.create(db)) {
+      checkpoint.createCheckpoint(checkpointDir.getPath());
+
+      try (Options listOptions = new Options()) {
+        for (byte[] name : RocksDB.listColumnFamilies(listOptions, checkpointDir.getPath())) {
+          // don't compact the checkpoint, so that it keeps the SST files of the instance
+          descriptors.add(new ColumnFamilyDescriptor(name,
+              columnFamilyOptions(new String(name, StandardCharsets.UTF_8)).setDisableAutoCompactions(true)));
+        }
+      }
+      try (DBOptions checkpointOptions = new DBOptions();
+          RocksDB checkpointDb = RocksDB.open(checkpointOptions, checkpointDir.getPath(), descriptors, handles)) {
+        for (ColumnFamilyHandle handle : handles) {
+          String name = new String(handle.getName(), StandardCharsets.UTF_8);
+          if (!name.equals(storeName) && !name.equals(DEFAULT_COLUMN_FAMILY)) {
+            checkpointDb.dropColumnFamily(handle);
+          }
+        }
+        handles.forEach(ColumnFamilyHandle::close);
+      }
+    } catch (RocksDBException e) {
+      throw new SamzaException(String.format("Error creating checkpoint of store: %s in shared RocksDB instance: %s",
+          storeName, instanceName), e);
+    } finally {
+      descriptors.forEach(descriptor -> descriptor.getOptions().close());
+    }
+  }
+
+  private synchronized void closeStore(String storeName) {
+    if (!openStores.remove(storeName) || !openStores.isEmpty() || db == null) {
+      return;
+    }
+    LOG.info("Closing shared RocksDB instance: {} in: {}", instanceName, dir);
+    columnFamilies.values().forEach(ColumnFamilyHandle::close);
+    columnFamilies.clear();
+    otherColumnFamilies.forEach(ColumnFamilyHandle::close);
+    otherColumnFamilies.clear();
+    db.close();
+    db = null;
+    columnFamilyOptions.forEach(ColumnFamilyOptions::close);
+    columnFamilyOptions.clear();
+  }
+
+  /**
+   * Closes the native options, cache and statistics of the instance once it has been released.
+   */
+  private synchronized void release() {
+    if (db != null) {
+      LOG.warn("Shared RocksDB instance: {} in: {} is released while stores: {} are open.", instanceName, dir, openStores);
+      return;
+    }
+    storeOptions.values().forEach(Options::close);
+    dbOptions.close();
+    if (ownWriteBufferManager != null) {
+      ownWriteBufferManager.close();
+      ownBlockCache.close();
+    }
+    if (statistics != null) {
+      // the statistics gauges of the stores synchronize on the statistics to not read them once closed
+      synchronized (statistics) {
+        statistics.close();
+      }
+    }
+  }
+
+  private void openDB() throws IOException, RocksDBException {
+    FileUtils.forceMkdir(dir);
+    Set<String> columnFamilyNames = new HashSet<>(storeOptions.keySet());
+    try (Options listOptions = new Options()) {
+      for (byte[] name : RocksDB.listColumnFamilies(listOptions, dir.getPath())) {
+        columnFamilyNames.add(new String(name, StandardCharsets.UTF_8));
+      }
+    }
+    columnFamilyNames.add(DEFAULT_COLUMN_FAMILY);
+
+    List<ColumnFamilyDescriptor> descriptors = new ArrayList<>();
+    for (String name : columnFamilyNames) {
+      ColumnFamilyOptions options = columnFamilyOptions(name);
+      columnFamilyOptions.add(options);
+      descriptors.add(new ColumnFamilyDescriptor(name.getBytes(StandardCharsets.UTF_8), options));
+    }
+    List<ColumnFamilyHandle> handles = new ArrayList<>();
+    LOG.info("Opening shared RocksDB instance: {} in: {} with column families: {}", instanceName, dir, columnFamilyNames);
+    db = RocksDB.open(dbOptions, dir.getPath(), descriptors, handles);
+
+    for (ColumnFamilyHandle handle : handles) {
+      String name = new String(handle.getName(), StandardCharsets.UTF_8);
+      if (storeOptions.containsKey(name)) {
+        columnFamilies.put(name, handle);
+      } else {
+        if (!name.equals(DEFAULT_COLUMN_FAMILY)) {
+          LOG.warn("Keeping column family: {} of shared RocksDB instance: {} although its store is not configured "
+              + "for the instance.", name, instanceName);
+        }
+        otherColumnFamilies.add(handle);
+      }
+    }
+  }
+
+  /**
+   * Returns new column family options for the column family of the given name, which the caller must close.
+   */
+  private ColumnFamilyOptions columnFamilyOptions(String name) {
+    Options options = storeOptions.get(name);
+    return options == null ? new ColumnFamilyOptions() : new ColumnFamilyOptions(options);
+  }
+
+  private void resetColumnFamily(String storeName) throws RocksDBException {
+    ColumnFamilyHandle handle = columnFamilies.remove(storeName);
+    db.dropColumnFamily(handle);
+    handle.close();
+    ColumnFamilyOptions options = columnFamilyOptions(storeName);
+    columnFamilyOptions.add(options);
+    columnFamilies.put(storeName, db.createColumnFamily(new ColumnFamilyDescriptor(
+        storeName.getBytes(StandardCharsets.UTF_8), options)));
+  }
+
+  /**
+   * Replaces the column family of the store with its contents in the RocksDB checkpoint in the store directory, and
+   * deletes the checkpoint files afterwards. The checkpoint is either one of the instance, in which case the column
+   * family of the same name is imported, or one of a store that did not use a shared instance before, in which case
+   * the default column family is imported.
+   */
+  private void importColumnFamily(String storeName, File storeDir) throws IOException, RocksDBException {
+    LOG.info("Importing store: {} into shared RocksDB instance: {} from checkpoint in: {}",
+        storeName, instanceName, storeDir);
+    resetColumnFamily(storeName);
+
+    Options options = storeOptions.get(storeName);
+    List<byte[]> checkpointColumnFamilies = RocksDB.listColumnFamilies(options, storeDir.getPath());
+    byte[] storeColumnFamily = storeName.getBytes(StandardCharsets.UTF_8);
+    boolean hasStoreColumnFamily = checkpointColumnFamilies.stream().anyMatch(name -> Arrays.equals(name, storeColumnFamily));
+    List<ColumnFamilyDescriptor> descriptors = new ArrayList<>();
+    for (byte[] name : checkpointColumnFamilies) {
+      boolean isImported = hasStoreColumnFamily
+          ? Arrays.equals(name, storeColumnFamily)
+          : Arrays.equals(name, RocksDB.DEFAULT_COLUMN_FAMILY);
+      descriptors.add(new ColumnFamilyDescriptor(name,
+          isImported ? new ColumnFamilyOptions(options) : new ColumnFamilyOptions()));
+    }
+    List<ColumnFamilyHandle> handles = new ArrayList<>();
+    try (DBOptions checkpointOptions = new DBOptions();
+        RocksDB checkpoint = RocksDB.openReadOnly(checkpointOptions, storeDir.getPath(), descriptors, handles)) {
+      ColumnFamilyHandle imported = handles.get(0);
+      for (ColumnFamilyHandle handle : handles) {
+        byte[] name = handle.getName();
+        if (hasStoreColumnFamily ? Arrays.equals(name, storeColumnFamily) : Arrays.equals(name, RocksDB.DEFAULT_COLUMN_FAMILY)) {
+          imported = handle;
+        }
+      }
+
+      RocksDbSstBulkLoader loader = new RocksDbSstBulkLoader(db, columnFamilies.get(storeName), options,
+          new File(storeDir, RocksDbKeyValueStore.SST_INGESTION_TEMP_DIR()),
+          RocksDbOptionsHelper.DEFAULT_ROCKSDB_RESTORE_SST_INGESTION_SORT_BUFFER_BYTES,
+          RocksDbOptionsHelper.DEFAULT_ROCKSDB_RESTORE_SST_INGESTION_FILE_SIZE_BYTES, storeName);
+      try (ReadOptions readOptions = new ReadOptions().setTotalOrderSeek(true);
+          RocksIterator iterator = checkpoint.newIterator(imported, readOptions)) {
+        for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
+          loader.add(iterator.key(), iterator.value());
+        }
+        loader.load();
+      } finally {
+        loader.close();
+        handles.forEach(ColumnFamilyHandle::close);
+        descriptors.forEach(descriptor -> descriptor.getOptions().close());
+      }
+    }
+
+    File[] files = storeDir.listFiles();
+    for (File file : files == null ? new File[0] : files) {
+      if (!STORE_DIR_FILES_TO_KEEP.contains(file.getName())) {
+        FileUtils.forceDelete(file);
+      }
+    }
+  }
+
+  @VisibleForTesting
+  File getDir() {
+    return dir;
+  }
+}
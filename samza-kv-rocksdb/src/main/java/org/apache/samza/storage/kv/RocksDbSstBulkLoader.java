@@ -0,0 +1,310 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.storage.kv;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import com.google.common.base.Preconditions;
+import com.google.common.primitives.UnsignedBytes;
+import org.apache.commons.io.FileUtils;
+import org.apache.samza.SamzaException;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.EnvOptions;
+import org.rocksdb.IngestExternalFileOptions;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.SstFileWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Restores a RocksDB store by writing the restored entries into SST files and ingesting them with
+ * {@link RocksDB#ingestExternalFile}, which bypasses the WAL and the memtable.
+ *
+ * Entries are accumulated in a sorted in-memory buffer, where a later entry for a key replaces an earlier one. If the
+ * buffer grows beyond {@code sortBufferBytes}, it is spilled to a sorted run file in {@code tempDir}. On
+ * {@link #load()}, the runs are merged (with entries from later runs winning) into non-overlapping SST files of about
+ * {@code targetFileSizeBytes} each, which are then ingested in a single call. Deletes are written as tombstones so
+ * that they also apply to any data already in the store.
+ */
+class RocksDbSstBulkLoader implements BulkLoadableKeyValueStore.BulkLoader {
+  private static final Logger LOG = LoggerFactory.getLogger(RocksDbSstBulkLoader.class);
+  private static final Comparator<byte[]> KEY_COMPARATOR = UnsignedBytes.lexicographicalComparator();
+  /** rough per-entry overhead of the in-memory buffer, used to decide when to spill */
+  private static final int ENTRY_OVERHEAD_BYTES = 64;
+  private static final int TOMBSTONE_LENGTH = -1;
+
+  private final RocksDB db;
+  private final ColumnFamilyHandle columnFamily;
+  private final Options options;
+  private final File tempDir;
+  private final long sortBufferBytes;
+  private final long targetFileSizeBytes;
+  private final String storeName;
+
+  private final List<File> runs = new ArrayList<>();
+  private TreeMap<byte[], byte[]> buffer = new TreeMap<>(KEY_COMPARATOR);
+  private long bufferBytes = 0;
+  private boolean loaded = false;
+
+  RocksDbSstBulkLoader(RocksDB db, ColumnFamilyHandle columnFamily, Options options, File tempDir,
+      long sortBufferBytes, long targetFileSizeBytes, String storeName) {
+    this.db = db;
+    this.columnFamily = columnFamily;
+    this.options = options;
+    this.tempDir = tempDir;
+    this.sortBufferBytes = sortBufferBytes;
+    this.targetFileSizeBytes = targetFileSizeBytes;
+    this.storeName = storeName;
+  }
+
+  @Override
+  public void add(byte[] key, byte[] value) {
+    Preconditions.checkState(!loaded, "Entries cannot be added after load for store: " + storeName);
+    byte[] previous = buffer.put(key, value);
+    if (previous == null) {
+      bufferBytes += key.length + ENTRY_OVERHEAD_BYTES;
+    } else {
+      bufferBytes -= previous.length;
+    }
+    if (value != null) {
+      bufferBytes += value.length;
+    }
+    if (bufferBytes >= sortBufferBytes) {
+      spill();
+    }
+  }
+
+  @Override
+  public void load() {
+    Preconditions.checkState(!loaded, "Entries have already been loaded for store: " + storeName);
+    loaded = true;
+    if (buffer.isEmpty() && runs.isEmpty()) {
+      return;
+    }
+    List<String> sstFiles = new ArrayList<>();
+    try (SstWriter writer = new SstWriter(sstFiles)) {
+      if (runs.isEmpty()) {
+        for (Map.Entry<byte[], byte[]> entry : buffer.entrySet()) {
+          writer.write(entry.getKey(), entry.getValue());
+        }
+      } else {
+        if (!buffer.isEmpty()) {
+          spill();
+        }
+        mergeRuns(writer);
+      }
+    } catch (IOException | RocksDBException e) {
+      throw new SamzaException("Error writing SST files to restore store: " + storeName, e);
+    }
+    buffer = new TreeMap<>(KEY_COMPARATOR);
+    bufferBytes = 0;
+
+    LOG.info("Ingesting {} SST files to restore store: {}", sstFiles.size(), storeName);
+    try (IngestExternalFileOptions ingestOptions = new IngestExternalFileOptions()) {
+      ingestOptions.setMoveFiles(true);
+      ingestOptions.setAllowGlobalSeqNo(true);
+      ingestOptions.setAllowBlockingFlush(true);
+      db.ingestExternalFile(columnFamily, sstFiles, ingestOptions);
+    } catch (RocksDBException e) {
+      throw new SamzaException("Error ingesting SST files to restore store: " + storeName, e);
+    }
+  }
+
+  @Override
+  public void close() {
+    buffer = null;
+    try {
+      FileUtils.deleteDirectory(tempDir);
+    } catch (IOException e) {
+      LOG.warn("Could not delete temporary restore directory: " + tempDir + " for store: " + storeName, e);
+    }
+  }
+
+  /**
+   * Writes the in-memory buffer to a new run file in key order.
+   */
+  private void spill() {
+    File run = new File(tempDir, String.format("run-%05d.bin", runs.size()));
+    LOG.debug("Spilling {} entries to {} for store: {}", buffer.size(), run, storeName);
+    try {
+      FileUtils.forceMkdir(tempDir);
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), 1 << 16))) {
+        for (Map.Entry<byte[], byte[]> entry : buffer.entrySet()) {
+          byte[] key = entry.getKey();
+          byte[] value = entry.getValue();
+          out.writeInt(key.length);
+          out.write(key);
+          if (value == null) {
+            out.writeInt(TOMBSTONE_LENGTH);
+          } else {
+            out.writeInt(value.length);
+            out.write(value);
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new SamzaException("Error spilling restored entries for store: " + storeName + " to: " + run, e);
+    }
+    runs.add(run);
+    buffer = new TreeMap<>(KEY_COMPARATOR);
+    bufferBytes = 0;
+  }
+
+  /**
+   * Merges all run files in key order. For a key present in several runs, only the entry from the latest run is
+   * written.
+   */
+  private void mergeRuns(SstWriter writer) throws IOException, RocksDBException {
+    PriorityQueue<RunReader> readers = new PriorityQueue<>((r1, r2) -> {
+      int result = KEY_COMPARATOR.compare(r1.key, r2.key);
+      return result != 0 ? result : Integer.compare(r2.index, r1.index);
+    });
+    List<RunReader> opened = new ArrayList<>(runs.size());
+    try {
+      for (int i = 0; i < runs.size(); i++) {
+        RunReader reader = new RunReader(runs.get(i), i);
+        opened.add(reader);
+        if (reader.advance()) {
+          readers.add(reader);
+        }
+      }
+      byte[] lastKey = null;
+      while (!readers.isEmpty()) {
+        RunReader reader = readers.poll();
+        if (lastKey == null || KEY_COMPARATOR.compare(lastKey, reader.key) != 0) {
+          writer.write(reader.key, reader.value);
+          lastKey = reader.key;
+        }
+        if (reader.advance()) {
+          readers.add(reader);
+        }
+      }
+    } finally {
+      for (RunReader reader : opened) {
+        reader.close();
+      }
+    }
+  }
+
+  /**
+   * Writes entries in key order to SST files in {@code tempDir}, rolling to a new file at the target file size.
+   */
+  private class SstWriter implements AutoCloseable {
+    private final List<String> files;
+    private final EnvOptions envOptions = new EnvOptions();
+    private SstFileWriter writer = null;
+
+    SstWriter(List<String> files) {
+      this.files = files;
+    }
+
+    void write(byte[] key, byte[] value) throws IOException, RocksDBException {
+      if (writer == null) {
+        FileUtils.forceMkdir(tempDir);
+        String file = new File(tempDir, String.format("ingest-%05d.sst", files.size())).getAbsolutePath();
+        writer = new SstFileWriter(envOptions, options);
+        writer.open(file);
+        files.add(file);
+      }
+      if (value == null) {
+        writer.delete(key);
+      } else {
+        writer.put(key, value);
+      }
+      if (writer.fileSize() >= targetFileSizeBytes) {
+        finishFile();
+      }
+    }
+
+    private void finishFile() throws RocksDBException {
+      try {
+        writer.finish();
+      } finally {
+        writer.close();
+        writer = null;
+      }
+    }
+
+    @Override
+    public void close() throws RocksDBException {
+      try {
+        if (writer != null) {
+          finishFile();
+        }
+      } finally {
+        envOptions.close();
+      }
+    }
+  }
+
+  private static class RunReader implements AutoCloseable {
+    private final DataInputStream in;
+    private final int index;
+    private byte[] key;
+    private byte[] value;
+
+    RunReader(File run, int index) throws IOException {
+      this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(run), 1 << 16));
+      this.index = index;
+    }
+
+    /**
+     * Reads the next entry of the run, returning false at the end of the run.
+     */
+    boolean advance() throws IOException {
+      int keyLength;
+      try {
+        keyLength = in.readInt();
+      } catch (EOFException e) {
+        return false;
+      }
+      key = new byte[keyLength];
+      in.readFully(key);
+      int valueLength = in.readInt();
+      if (valueLength == TOMBSTONE_LENGTH) {
+        value = null;
+      } else {
+        value = new byte[valueLength];
+        in.readFully(value);
+      }
+      return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+}
@@ -48,16 +48,45 @@ class RocksDbKeyValueStorageEngineFactory [K, V] extends BaseKeyValueStorageEngi
     val rocksDbMetrics = new KeyValueStoreMetrics(storeName, registry)
     val numTasksForContainer = containerContext.getContainerModel.getTasks.keySet().size()
     val defaultMaxManifestFileSize = storageConfig.getDefaultMaxManifestFileSizeBytes
-    rocksDbMetrics.newGauge("rocksdb.block-cache-size",
-      () => RocksDbOptionsHelper.getBlockCacheSize(storageConfigSubset, numTasksForContainer))
+    val sharedCache = RocksDbSharedCache.get(jobContext.getConfig, containerContext.getContainerModel.getId).orElse(null)
+    if (sharedCache != null) {
+      // the block cache, and its usage, are those of the whole container
+      rocksDbMetrics.newGauge("rocksdb.block-cache-size", () => sharedCache.getCapacity)
+      rocksDbMetrics.newGauge("rocksdb.block-cache-usage", () => sharedCache.getUsage)
+    } else {
+      rocksDbMetrics.newGauge("rocksdb.block-cache-size",
+        () => RocksDbOptionsHelper.getBlockCacheSize(storageConfigSubset, numTasksForContainer))
+    }
 
-    val rocksDbOptions = RocksDbOptionsHelper.options(
-      storageConfigSubset,
-      numTasksForContainer,
-      defaultMaxManifestFileSize,
-      storeDir,
-      storeMode
-    )
+    // stores in a shared instance use the options of their column family in that instance
+    val sharedInstance =
+      if (storageConfigSubset.containsKey(RocksDbSharedInstance.ROCKSDB_SHARED_INSTANCE)) {
+        RocksDbSharedInstance.get(jobContext.getConfig, storeName, storeDir, numTasksForContainer,
+          defaultMaxManifestFileSize, storeMode, sharedCache)
+      } else {
+        null
+      }
+    val rocksDbOptions =
+      if (sharedInstance != null) {
+        sharedInstance.getOptions(storeName)
+      } else if (sharedCache != null) {
+        RocksDbOptionsHelper.options(
+          storageConfigSubset,
+          numTasksForContainer,
+          defaultMaxManifestFileSize,
+          storeDir,
+          storeMode,
+          sharedCache.getCache
+        ).setWriteBufferManager(sharedCache.getWriteBufferManager)
+      } else {
+        RocksDbOptionsHelper.options(
+          storageConfigSubset,
+          numTasksForContainer,
+          defaultMaxManifestFileSize,
+          storeDir,
+          storeMode
+        )
+      }
     val rocksDbWriteOptions = new WriteOptions()
 
     if (!storageConfigSubset.getBoolean(RocksDbOptionsHelper.ROCKSDB_WAL_ENABLED, false)) {
@@ -74,7 +103,9 @@ class RocksDbKeyValueStorageEngineFactory [K, V] extends BaseKeyValueStorageEngi
       storeName,
       rocksDbWriteOptions,
       rocksDbFlushOptions,
-      rocksDbMetrics)
+      rocksDbMetrics,
+      sharedInstance,
+      sharedCache)
     rocksDb
   }
 }
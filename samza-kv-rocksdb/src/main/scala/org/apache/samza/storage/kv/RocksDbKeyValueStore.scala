@@ -31,14 +31,40 @@ import org.apache.samza.checkpoint.CheckpointId
 import org.apache.samza.config.Config
 import org.apache.samza.storage.StorageManagerUtil
 import org.apache.samza.util.{FileUtil, Logging}
-import org.rocksdb.{Checkpoint, FlushOptions, Options, ReadOptions, RocksDB, RocksDBException, RocksIterator, TtlDB, WriteBatch, WriteOptions}
+import org.rocksdb.{Checkpoint, ColumnFamilyHandle, FlushOptions, HistogramType, Options, ReadOptions, RocksDB, RocksDBException, RocksIterator, Slice, Statistics, TickerType, TtlDB, WriteBatch, WriteOptions}
 
 import java.util
 
 object RocksDbKeyValueStore extends Logging {
+  /**
+    * Directory inside the store directory for the temporary files of a restore through SST ingestion.
+    */
+  val SST_INGESTION_TEMP_DIR = "restore-sst-ingestion"
 
+  /**
+    * Returns the smallest key that is greater than all keys starting with the prefix, or None if there is none
+    * because the prefix is empty or only has 0xff bytes.
+    */
+  def prefixSuccessor(prefix: Array[Byte]): Option[Array[Byte]] = {
+    var i = prefix.length - 1
+    while (i >= 0 && prefix(i) == 0xff.toByte) {
+      i -= 1
+    }
+    if (i < 0) {
+      None
+    } else {
+      val successor = util.Arrays.copyOf(prefix, i + 1)
+      successor(i) = (successor(i) + 1).toByte
+      Some(successor)
+    }
+  }
+
+  /**
+    * Opens the RocksDB store in the given directory. If statistics are given, they must have been set on the options,
+    * and are exposed as metrics of the store.
+    */
   def openDB(dir: File, options: Options, storeConfig: Config, isLoggedStore: Boolean,
-             storeName: String, metrics: KeyValueStoreMetrics): RocksDB = {
+             storeName: String, metrics: KeyValueStoreMetrics, statistics: Statistics = null): RocksDB = {
     var ttl = 0L
     var useTTL = false
 
@@ -82,31 +108,10 @@ object RocksDbKeyValueStore extends Logging {
           RocksDB.open(options, dir.toString)
         }
 
-      // See https://github.com/facebook/rocksdb/blob/master/include/rocksdb/db.h for available properties
-      val rocksDbMetrics = Set (
-        "rocksdb.estimate-table-readers-mem", // indexes and bloom filters
-        "rocksdb.cur-size-active-mem-table", // approximate active memtable size in bytes
-        "rocksdb.cur-size-all-mem-tables", // approximate active and unflushed memtable size in bytes
-        "rocksdb.size-all-mem-tables", // approximate active, unflushed and pinned memtable size in bytes
-        "rocksdb.estimate-num-keys" // approximate number keys in the active and unflushed memtable and storage
-      )
-
-      val configuredMetrics = storeConfig
-        .get("rocksdb.metrics.list", "")
-        .split(",")
-        .map(property => property.trim)
-        .filter(!_.isEmpty)
-        .toSet
-
-      (configuredMetrics ++ rocksDbMetrics)
-        .foreach(property => metrics.newGauge(property, () =>
-          // Check isOwningHandle flag. The db is open iff the flag is true.
-          if (rocksDb.isOwningHandle) {
-            rocksDb.getProperty(property)
-          } else {
-            "0"
-          }
-        ))
+      newPropertyGauges(storeConfig, metrics, property => rocksDb.getProperty(property), () => rocksDb.isOwningHandle)
+      if (statistics != null) {
+        newStatisticsGauges(statistics, metrics)
+      }
 
       rocksDb
     } catch {
@@ -115,6 +120,81 @@ object RocksDbKeyValueStore extends Logging {
           rocksDBException)
     }
   }
+
+  /**
+    * Opens the column family of a store in its shared RocksDB instance.
+    */
+  def openColumnFamily(sharedInstance: RocksDbSharedInstance, dir: File, storeConfig: Config, storeName: String,
+                       metrics: KeyValueStoreMetrics): (RocksDB, ColumnFamilyHandle) = {
+    info("Opening RocksDB store: %s in shared instance for path: %s" format (storeName, dir.toString))
+    val dbAndColumnFamily = sharedInstance.open(storeName, dir)
+    val rocksDb = dbAndColumnFamily.getKey
+    val columnFamily = dbAndColumnFamily.getValue
+    newPropertyGauges(storeConfig, metrics, property => rocksDb.getProperty(columnFamily, property),
+      () => rocksDb.isOwningHandle)
+    // statistics are collected for the whole instance
+    if (sharedInstance.getStatistics != null) {
+      newStatisticsGauges(sharedInstance.getStatistics, metrics)
+    }
+    (rocksDb, columnFamily)
+  }
+
+  /**
+    * Exposes the native statistics of the store, enabled by rocksdb.statistics.enabled: block cache hits and misses,
+    * compaction and write stall totals, and get and write latency percentiles. The gauges read 0 once the statistics
+    * have been closed.
+    */
+  private def newStatisticsGauges(statistics: Statistics, metrics: KeyValueStoreMetrics): Unit = {
+    def ifOpen[T](value: => T, closedValue: T): T = statistics.synchronized {
+      if (statistics.isOwningHandle) value else closedValue
+    }
+
+    Map(
+      "rocksdb.block-cache-hits" -> TickerType.BLOCK_CACHE_HIT,
+      "rocksdb.block-cache-misses" -> TickerType.BLOCK_CACHE_MISS,
+      "rocksdb.compaction-read-bytes" -> TickerType.COMPACT_READ_BYTES,
+      "rocksdb.compaction-write-bytes" -> TickerType.COMPACT_WRITE_BYTES,
+      "rocksdb.write-stall-micros" -> TickerType.STALL_MICROS
+    ).foreach { case (name, ticker) => metrics.newGauge(name, () => ifOpen(statistics.getTickerCount(ticker), 0L)) }
+
+    Map(
+      "rocksdb.get-micros" -> HistogramType.DB_GET,
+      "rocksdb.write-micros" -> HistogramType.DB_WRITE
+    ).foreach { case (name, histogram) =>
+      metrics.newGauge(name + "-p50", () => ifOpen(statistics.getHistogramData(histogram).getMedian, 0.0))
+      metrics.newGauge(name + "-p99", () => ifOpen(statistics.getHistogramData(histogram).getPercentile99, 0.0))
+      metrics.newGauge(name + "-max", () => ifOpen(statistics.getHistogramData(histogram).getMax, 0.0))
+    }
+  }
+
+  private def newPropertyGauges(storeConfig: Config, metrics: KeyValueStoreMetrics, getProperty: String => String,
+                                isOpen: () => Boolean): Unit = {
+    // See https://github.com/facebook/rocksdb/blob/master/include/rocksdb/db.h for available properties
+    val rocksDbMetrics = Set (
+      "rocksdb.estimate-table-readers-mem", // indexes and bloom filters
+      "rocksdb.cur-size-active-mem-table", // approximate active memtable size in bytes
+      "rocksdb.cur-size-all-mem-tables", // approximate active and unflushed memtable size in bytes
+      "rocksdb.size-all-mem-tables", // approximate active, unflushed and pinned memtable size in bytes
+      "rocksdb.estimate-num-keys" // approximate number keys in the active and unflushed memtable and storage
+    )
+
+    val configuredMetrics = storeConfig
+      .get("rocksdb.metrics.list", "")
+      .split(",")
+      .map(property => property.trim)
+      .filter(!_.isEmpty)
+      .toSet
+
+    (configuredMetrics ++ rocksDbMetrics)
+      .foreach(property => metrics.newGauge(property, () =>
+        // Check isOwningHandle flag. The db is open iff the flag is true.
+        if (isOpen()) {
+          getProperty(property)
+        } else {
+          "0"
+        }
+      ))
+  }
 }
 
 class RocksDbKeyValueStore(
@@ -125,12 +205,52 @@ class RocksDbKeyValueStore(
   val storeName: String,
   val writeOptions: WriteOptions = new WriteOptions(),
   val flushOptions: FlushOptions = new FlushOptions(),
-  val metrics: KeyValueStoreMetrics = new KeyValueStoreMetrics) extends KeyValueStore[Array[Byte], Array[Byte]] with Logging {
+  val metrics: KeyValueStoreMetrics = new KeyValueStoreMetrics,
+  val sharedInstance: RocksDbSharedInstance = null,
+  val sharedCache: RocksDbSharedCache = null) extends BulkLoadableKeyValueStore with Logging {
+
+  def this(dir: File, options: Options, storeConfig: Config, isLoggedStore: Boolean, storeName: String,
+           writeOptions: WriteOptions, flushOptions: FlushOptions, metrics: KeyValueStoreMetrics) =
+    this(dir, options, storeConfig, isLoggedStore, storeName, writeOptions, flushOptions, metrics, null, null)
+
+  /**
+    * The native statistics of the store, enabled by rocksdb.statistics.enabled, which are closed when the store is
+    * closed. Stores in a shared instance use the statistics of the instance instead.
+    */
+  private val statistics: Statistics =
+    if (sharedInstance == null && storeConfig.getBoolean(RocksDbOptionsHelper.ROCKSDB_STATISTICS_ENABLED, false)) {
+      val statistics = new Statistics()
+      options.setStatistics(statistics)
+      statistics
+    } else {
+      null
+    }
 
   // lazy val here is important because the store directories do not exist yet, it can only be opened
   // after the directories are created, which happens much later from now.
-  @VisibleForTesting lazy val db = RocksDbKeyValueStore.openDB(dir, options, storeConfig, isLoggedStore, storeName, metrics)
+  private lazy val dbAndColumnFamily =
+    if (sharedInstance == null) {
+      val rocksDb = RocksDbKeyValueStore.openDB(dir, options, storeConfig, isLoggedStore, storeName, metrics,
+        statistics)
+      (rocksDb, rocksDb.getDefaultColumnFamily)
+    } else {
+      RocksDbKeyValueStore.openColumnFamily(sharedInstance, dir, storeConfig, storeName, metrics)
+    }
+  @VisibleForTesting lazy val db: RocksDB = dbAndColumnFamily._1
+  /**
+    * The column family holding the data of this store, which is the default column family unless the store is part
+    * of a shared instance.
+    */
+  private lazy val columnFamily: ColumnFamilyHandle = dbAndColumnFamily._2
   private val lexicographic = new LexicographicComparator()
+  private val prefixLength = storeConfig.getInt(RocksDbOptionsHelper.ROCKSDB_PREFIX_EXTRACTOR_LENGTH, 0)
+  private val isMergeEnabled = KeyValueMergeOperator.fromConfig(storeConfig).isPresent
+
+  /**
+    * With a prefix extractor configured, iterators default to prefix seek mode, which only returns correct results
+    * within a single extracted prefix. Iterators that may cross prefixes ask for a total order seek instead.
+    */
+  private val totalOrderReadOptions = new ReadOptions().setTotalOrderSeek(true)
 
   /**
     * null while the store is open. Set to an Exception holding the stacktrace at the time of first close by #close.
@@ -143,7 +263,7 @@ class RocksDbKeyValueStore(
   def get(key: Array[Byte]): Array[Byte] = ifOpen {
     metrics.gets.inc
     require(key != null, "Null key not allowed.")
-    val found = db.get(key)
+    val found = db.get(columnFamily, key)
     if (found != null) {
       metrics.bytesRead.inc(found.length)
     }
@@ -153,7 +273,7 @@ class RocksDbKeyValueStore(
   override def getAll(keys: java.util.List[Array[Byte]]): java.util.Map[Array[Byte], Array[Byte]] = ifOpen {
     metrics.getAlls.inc
     require(keys != null, "Null keys not allowed.")
-    val values = db.multiGetAsList(keys)
+    val values = db.multiGetAsList(util.Collections.nCopies(keys.size, columnFamily), keys)
     if (values != null) {
       var bytesRead = 0L
       val iterator = values.iterator
@@ -176,11 +296,11 @@ class RocksDbKeyValueStore(
     require(key != null, "Null key not allowed.")
     if (value == null) {
       metrics.deletes.inc
-      db.delete(writeOptions, key)
+      db.delete(columnFamily, writeOptions, key)
     } else {
       metrics.puts.inc
       metrics.bytesWritten.inc(key.length + value.length)
-      db.put(writeOptions, key, value)
+      db.put(columnFamily, writeOptions, key, value)
     }
   }
 
@@ -194,13 +314,13 @@ class RocksDbKeyValueStore(
       val curr = iter.next()
       if (curr.getValue == null) {
         deletes += 1
-        writeBatch.delete(curr.getKey)
+        writeBatch.delete(columnFamily, curr.getKey)
       } else {
         wrote += 1
         val key = curr.getKey
         val value = curr.getValue
         metrics.bytesWritten.inc(key.length + value.length)
-        writeBatch.put(key, value)
+        writeBatch.put(columnFamily, key, value)
       }
     }
     db.write(writeOptions, writeBatch)
@@ -213,26 +333,62 @@ class RocksDbKeyValueStore(
     put(key, null)
   }
 
+  override def merge(key: Array[Byte], delta: Array[Byte]): Unit = ifOpen {
+    if (!isMergeEnabled) {
+      throw new UnsupportedOperationException("merge() requires %s to be configured for store %s."
+        format (KeyValueMergeOperator.MERGE_OPERATOR, storeName))
+    }
+    metrics.merges.inc
+    require(key != null && delta != null, "Null key or delta not allowed.")
+    metrics.bytesWritten.inc(key.length + delta.length)
+    db.merge(columnFamily, writeOptions, key, delta)
+  }
+
   def range(from: Array[Byte], to: Array[Byte]): KeyValueIterator[Array[Byte], Array[Byte]] = ifOpen {
     metrics.ranges.inc
     require(from != null && to != null, "Null bound not allowed.")
-    new RocksDbRangeIterator(db.newIterator(), from, to)
+    new RocksDbRangeIterator(db.newIterator(columnFamily, totalOrderReadOptions), from, to)
   }
 
   def all(): KeyValueIterator[Array[Byte], Array[Byte]] = ifOpen {
     metrics.alls.inc
-    val iter = db.newIterator()
+    val iter = db.newIterator(columnFamily, totalOrderReadOptions)
     iter.seekToFirst()
     new RocksDbIterator(iter)
   }
 
+  override def prefixScan(prefix: Array[Byte]): KeyValueIterator[Array[Byte], Array[Byte]] = ifOpen {
+    metrics.prefixScans.inc
+    require(prefix != null, "Null prefix not allowed.")
+    // A prefix shorter than the extracted prefix spans several extracted prefixes, so it can't use prefix seek mode.
+    val readOptions = new ReadOptions()
+    if (prefixLength > 0 && prefix.length >= prefixLength) {
+      readOptions.setPrefixSameAsStart(true)
+    } else {
+      readOptions.setTotalOrderSeek(true)
+    }
+    // The iterator stops at the first key after the prefix without reading it, so its keys don't need to be compared
+    // with the prefix. A prefix of only 0xff bytes has no successor, and is compared instead.
+    val upperBound = RocksDbKeyValueStore.prefixSuccessor(prefix).map(new Slice(_))
+    upperBound.foreach(readOptions.setIterateUpperBound)
+    new RocksDbPrefixIterator(db.newIterator(columnFamily, readOptions), prefix, readOptions, upperBound)
+  }
+
+  override def seekableIterator(): SeekableKeyValueIterator[Array[Byte], Array[Byte]] = ifOpen {
+    metrics.alls.inc
+    val iter = db.newIterator(columnFamily, totalOrderReadOptions)
+    iter.seekToFirst()
+    new RocksDbSeekableIterator(iter)
+  }
+
   override def snapshot(from: Array[Byte], to: Array[Byte]): KeyValueSnapshot[Array[Byte], Array[Byte]] = {
     val readOptions = new ReadOptions()
     readOptions.setSnapshot(db.getSnapshot)
+    readOptions.setTotalOrderSeek(true)
 
     new KeyValueSnapshot[Array[Byte], Array[Byte]] {
       def iterator(): KeyValueIterator[Array[Byte], Array[Byte]] = {
-        new RocksDbRangeIterator(db.newIterator(readOptions), from, to)
+        new RocksDbRangeIterator(db.newIterator(columnFamily, readOptions), from, to)
       }
 
       def close() = {
@@ -247,15 +403,40 @@ class RocksDbKeyValueStore(
     if (storeConfig.getBoolean(RocksDbOptionsHelper.ROCKSDB_WAL_ENABLED, false)) {
       db.flushWal(true)
     } else {
-      db.flush(flushOptions)
+      db.flush(flushOptions, columnFamily)
     }
     trace("Flushed store: %s" format storeName)
   }
 
+  /**
+    * SST ingestion is not used for TTL stores, since TtlDB expects a timestamp suffix on every value.
+    */
+  override def isBulkLoadEnabled: Boolean = {
+    storeConfig.getBoolean(RocksDbOptionsHelper.ROCKSDB_RESTORE_SST_INGESTION_ENABLED, false) &&
+      !storeConfig.containsKey("rocksdb.ttl.ms")
+  }
+
+  override def newBulkLoader(): BulkLoadableKeyValueStore.BulkLoader = ifOpen {
+    val sortBufferBytes = storeConfig.getLong(RocksDbOptionsHelper.ROCKSDB_RESTORE_SST_INGESTION_SORT_BUFFER_BYTES,
+      RocksDbOptionsHelper.DEFAULT_ROCKSDB_RESTORE_SST_INGESTION_SORT_BUFFER_BYTES)
+    val fileSizeBytes = storeConfig.getLong(RocksDbOptionsHelper.ROCKSDB_RESTORE_SST_INGESTION_FILE_SIZE_BYTES,
+      RocksDbOptionsHelper.DEFAULT_ROCKSDB_RESTORE_SST_INGESTION_FILE_SIZE_BYTES)
+    new RocksDbSstBulkLoader(db, columnFamily, options, new File(dir, RocksDbKeyValueStore.SST_INGESTION_TEMP_DIR),
+      sortBufferBytes, fileSizeBytes, storeName)
+  }
+
+  /**
+    * For a store in a shared instance, the checkpoint only holds the column family of this store, rather than the
+    * column families of all the stores of the instance.
+    */
   override def checkpoint(id: CheckpointId): Optional[Path] = {
-    val checkpoint = Checkpoint.create(db)
     val checkpointPath = new StorageManagerUtil().getStoreCheckpointDir(dir, id)
-    checkpoint.createCheckpoint(checkpointPath)
+    if (sharedInstance == null) {
+      val checkpoint = Checkpoint.create(db)
+      checkpoint.createCheckpoint(checkpointPath)
+    } else {
+      sharedInstance.checkpoint(storeName, new File(checkpointPath))
+    }
     Optional.of(Paths.get(checkpointPath))
   }
 
@@ -266,14 +447,27 @@ class RocksDbKeyValueStore(
     // if auto-compaction is disabled, e.g., when bulk-loading
     if(options.disableAutoCompactions()) {
       trace("Auto compaction is disabled, invoking compact range.")
-      db.compactRange()
+      db.compactRange(columnFamily)
     }
 
     try {
       trace("Closing.")
       if (stackAtFirstClose == null) { // first close
         stackAtFirstClose = new Exception()
-        db.close()
+        if (sharedInstance == null) {
+          db.close()
+        } else {
+          sharedInstance.close(storeName)
+        }
+        if (statistics != null) {
+          statistics.synchronized {
+            statistics.close()
+          }
+        }
+        if (sharedCache != null) {
+          sharedCache.release()
+        }
+        totalOrderReadOptions.close()
       } else {
         warn(new SamzaException("Close called again on a closed store: %s. Ignoring this close." +
           "Stack at first close is under 'Caused By'." format storeName, stackAtFirstClose))
@@ -368,6 +562,43 @@ class RocksDbKeyValueStore(
     }
   }
 
+  class RocksDbPrefixIterator(iter: RocksIterator, prefix: Array[Byte], readOptions: ReadOptions,
+    upperBound: Option[Slice]) extends RocksDbIterator(iter) {
+    ifOpen(iter.seek(prefix))
+
+    override def hasNext() = ifOpen {
+      super.hasNext() && (upperBound.isDefined || startsWith(iter.key, prefix))
+    }
+
+    override def close() = ifOpen {
+      super.close()
+      readOptions.close()
+      upperBound.foreach(_.close())
+    }
+
+    private def startsWith(key: Array[Byte], prefix: Array[Byte]): Boolean = {
+      if (key.length < prefix.length) {
+        return false
+      }
+      var i = 0
+      while (i < prefix.length) {
+        if (key(i) != prefix(i))
+          return false
+        i += 1
+      }
+      true
+    }
+  }
+
+  class RocksDbSeekableIterator(iter: RocksIterator) extends RocksDbIterator(iter)
+    with SeekableKeyValueIterator[Array[Byte], Array[Byte]] {
+
+    override def seek(key: Array[Byte]): Unit = ifOpen {
+      require(key != null, "Null key not allowed.")
+      iter.seek(key)
+    }
+  }
+
   /**
     * A comparator that applies a lexicographical comparison on byte arrays.
     */
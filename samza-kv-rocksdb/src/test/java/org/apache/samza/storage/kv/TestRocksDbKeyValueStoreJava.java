@@ -23,7 +23,11 @@ import com.google.common.collect.Iterators;
 import com.google.common.primitives.Ints;
 import org.apache.samza.config.Config;
 import org.apache.samza.config.MapConfig;
+import org.apache.samza.metrics.Gauge;
+import org.apache.samza.metrics.Metric;
 import org.apache.samza.metrics.MetricsRegistryMap;
+import org.apache.samza.serializers.LittleEndianLongSerde;
+import org.apache.samza.storage.StorageEngineFactory;
 import org.junit.Test;
 import org.rocksdb.FlushOptions;
 import org.rocksdb.Options;
@@ -33,13 +37,17 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public class TestRocksDbKeyValueStoreJava {
@@ -126,6 +134,183 @@ public class TestRocksDbKeyValueStoreJava {
     store.close();
   }
 
+  @Test
+  public void testPrefixScanOfMaxBytePrefixes() throws Exception {
+    File dbDir = new File(System.getProperty("java.io.tmpdir") + "/dbStore" + System.currentTimeMillis());
+    RocksDbKeyValueStore store = new RocksDbKeyValueStore(dbDir, new Options().setCreateIfMissing(true),
+        new MapConfig(), false, "dbStore", new WriteOptions(), new FlushOptions(),
+        new KeyValueStoreMetrics("dbStore", new MetricsRegistryMap()));
+    byte[][] keys = {{1}, {1, -1}, {1, -1, 0}, {2}, {-1}, {-1, -1}, {-1, -1, 1}};
+    for (byte[] key : keys) {
+      store.put(key, genValue());
+    }
+
+    assertArrayEquals(new byte[] {2}, RocksDbKeyValueStore.prefixSuccessor(new byte[] {1, -1}).get());
+    KeyValueIterator<byte[], byte[]> iterator = store.prefixScan(new byte[] {1, -1});
+    assertEquals(2, Iterators.size(iterator));
+    iterator.close();
+
+    // a prefix without a successor is compared with the keys instead
+    assertFalse(RocksDbKeyValueStore.prefixSuccessor(new byte[] {-1, -1}).isDefined());
+    iterator = store.prefixScan(new byte[] {-1, -1});
+    assertEquals(2, Iterators.size(iterator));
+    iterator.close();
+    iterator = store.prefixScan(new byte[0]);
+    assertEquals(keys.length, Iterators.size(iterator));
+    iterator.close();
+
+    store.close();
+  }
+
+  @Test
+  public void testPrefixScan() throws Exception {
+    String prefix = "prefix";
+    String otherPrefix = "prefiy";
+    Config config = new MapConfig(Collections.singletonMap(RocksDbOptionsHelper.ROCKSDB_PREFIX_EXTRACTOR_LENGTH,
+        String.valueOf(prefix.length())));
+    File dbDir = new File(System.getProperty("java.io.tmpdir") + "/dbStore" + System.currentTimeMillis());
+    Options options = RocksDbOptionsHelper.options(config, 1, 1024 * 1024 * 1024L, dbDir,
+        StorageEngineFactory.StoreMode.ReadWrite);
+    RocksDbKeyValueStore store = new RocksDbKeyValueStore(dbDir, options, config, false, "dbStore",
+        new WriteOptions(), new FlushOptions(), new KeyValueStoreMetrics("dbStore", new MetricsRegistryMap()));
+
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    for (int i = 0; i < 100; i++) {
+      store.put(genKey(outputStream, prefix, i), genValue());
+      store.put(genKey(outputStream, otherPrefix, i), genValue());
+    }
+    // keys in the sst files and in the memtable must both be found
+    store.flush();
+    store.put(genKey(outputStream, prefix, 100), genValue());
+
+    KeyValueIterator<byte[], byte[]> iterator = store.prefixScan(prefix.getBytes());
+    List<Integer> keys = new ArrayList<>();
+    while (iterator.hasNext()) {
+      Entry<byte[], byte[]> entry = iterator.next();
+      keys.add(Ints.fromByteArray(Arrays.copyOfRange(entry.getKey(), prefix.length(), entry.getKey().length)));
+    }
+    iterator.close();
+    assertEquals(IntStream.rangeClosed(0, 100).boxed().collect(Collectors.toList()), keys);
+
+    // a prefix longer than the extracted prefix
+    iterator = store.prefixScan(genKey(outputStream, otherPrefix, 42));
+    assertArrayEquals(genKey(outputStream, otherPrefix, 42), iterator.next().getKey());
+    assertFalse(iterator.hasNext());
+    iterator.close();
+
+    // a prefix shorter than the extracted prefix spans both prefixes
+    iterator = store.prefixScan("pref".getBytes());
+    assertEquals(201, Iterators.size(iterator));
+    iterator.close();
+
+    // range queries across prefixes are unaffected by the prefix extractor
+    iterator = store.range(genKey(outputStream, prefix, 50), genKey(outputStream, otherPrefix, 50));
+    assertEquals(101, Iterators.size(iterator));
+    iterator.close();
+
+    outputStream.close();
+    store.close();
+  }
+
+  @Test
+  public void testStatisticsGauges() throws Exception {
+    Config config = new MapConfig(Collections.singletonMap(RocksDbOptionsHelper.ROCKSDB_STATISTICS_ENABLED, "true"));
+    File dbDir = new File(System.getProperty("java.io.tmpdir") + "/dbStore" + System.currentTimeMillis());
+    Options options = RocksDbOptionsHelper.options(config, 1, 1024 * 1024 * 1024L, dbDir,
+        StorageEngineFactory.StoreMode.ReadWrite);
+    MetricsRegistryMap registry = new MetricsRegistryMap();
+    RocksDbKeyValueStore store = new RocksDbKeyValueStore(dbDir, options, config, false, "dbStore",
+        new WriteOptions(), new FlushOptions(), new KeyValueStoreMetrics("dbStore", registry));
+
+    store.put("key".getBytes(), "value".getBytes());
+    store.flush();
+    assertArrayEquals("value".getBytes(), store.get("key".getBytes()));
+    store.get("missing".getBytes());
+
+    Map<String, Metric> metrics = registry.getGroup(KeyValueStoreMetrics.class.getName());
+    long blockCacheMisses = (Long) ((Gauge<?>) metrics.get("dbstore-rocksdb.block-cache-misses")).getValue();
+    assertTrue(blockCacheMisses > 0);
+    double maxGetMicros = (Double) ((Gauge<?>) metrics.get("dbstore-rocksdb.get-micros-max")).getValue();
+    assertTrue(maxGetMicros > 0);
+    assertTrue(metrics.containsKey("dbstore-rocksdb.write-stall-micros"));
+    store.close();
+
+    // the statistics are closed with the store
+    assertEquals(0L, ((Gauge<?>) metrics.get("dbstore-rocksdb.block-cache-misses")).getValue());
+    assertEquals(0.0, ((Gauge<?>) metrics.get("dbstore-rocksdb.get-micros-max")).getValue());
+  }
+
+  @Test
+  public void testMerge() throws Exception {
+    Config config = new MapConfig(Collections.singletonMap(KeyValueMergeOperator.MERGE_OPERATOR,
+        KeyValueMergeOperator.UINT64_ADD));
+    File dbDir = new File(System.getProperty("java.io.tmpdir") + "/dbStore" + System.currentTimeMillis());
+    Options options = RocksDbOptionsHelper.options(config, 1, 1024 * 1024 * 1024L, dbDir,
+        StorageEngineFactory.StoreMode.ReadWrite);
+    RocksDbKeyValueStore store = new RocksDbKeyValueStore(dbDir, options, config, false, "dbStore",
+        new WriteOptions(), new FlushOptions(), new KeyValueStoreMetrics("dbStore", new MetricsRegistryMap()));
+
+    LittleEndianLongSerde serde = new LittleEndianLongSerde();
+    byte[] key = "counter".getBytes();
+    store.merge(key, serde.toBytes(5L));
+    store.flush();
+    store.merge(key, serde.toBytes(7L));
+    assertEquals(12L, (long) serde.fromBytes(store.get(key)));
+    // the merged value matches the emulated merge
+    assertArrayEquals(new KeyValueMergeOperator.UInt64Add().merge(serde.toBytes(5L), serde.toBytes(7L)),
+        store.get(key));
+
+    store.put(key, serde.toBytes(1L));
+    store.merge(key, serde.toBytes(1L));
+    assertEquals(2L, (long) serde.fromBytes(store.get(key)));
+    store.close();
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testMergeWithoutMergeOperator() throws Exception {
+    Config config = new MapConfig();
+    Options options = new Options();
+    options.setCreateIfMissing(true);
+    File dbDir = new File(System.getProperty("java.io.tmpdir") + "/dbStore" + System.currentTimeMillis());
+    RocksDbKeyValueStore store = new RocksDbKeyValueStore(dbDir, options, config, false, "dbStore",
+        new WriteOptions(), new FlushOptions(), new KeyValueStoreMetrics("dbStore", new MetricsRegistryMap()));
+    try {
+      store.merge("key".getBytes(), "value".getBytes());
+    } finally {
+      store.close();
+    }
+  }
+
+  @Test
+  public void testSeekableIterator() throws Exception {
+    Config config = new MapConfig();
+    Options options = new Options();
+    options.setCreateIfMissing(true);
+
+    File dbDir = new File(System.getProperty("java.io.tmpdir") + "/dbStore" + System.currentTimeMillis());
+    RocksDbKeyValueStore store = new RocksDbKeyValueStore(dbDir, options, config, false, "dbStore",
+        new WriteOptions(), new FlushOptions(), new KeyValueStoreMetrics("dbStore", new MetricsRegistryMap()));
+
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    String prefix = "prefix";
+    for (int i = 0; i < 100; i++) {
+      store.put(genKey(outputStream, prefix, i), genValue());
+    }
+
+    SeekableKeyValueIterator<byte[], byte[]> iterator = store.seekableIterator();
+    assertArrayEquals(genKey(outputStream, prefix, 0), iterator.next().getKey());
+    iterator.seek(genKey(outputStream, prefix, 70));
+    assertArrayEquals(genKey(outputStream, prefix, 70), iterator.next().getKey());
+    iterator.seek(genKey(outputStream, prefix, 10));
+    assertArrayEquals(genKey(outputStream, prefix, 10), iterator.next().getKey());
+    iterator.seek(genKey(outputStream, prefix, 1000));
+    assertFalse(iterator.hasNext());
+    iterator.close();
+
+    outputStream.close();
+    store.close();
+  }
+
   private byte[] genKey(ByteArrayOutputStream outputStream, String prefix, int i) throws Exception {
     outputStream.reset();
     outputStream.write(prefix.getBytes());
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.storage.kv;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.samza.SamzaException;
+import org.apache.samza.config.Config;
+import org.apache.samza.config.MapConfig;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+public class TestRocksDbSharedCache {
+  private static final String CACHE_SIZE = "stores-default.rocksdb.shared.cache.size.bytes";
+  private static final String WRITE_BUFFER_SIZE = "stores-default.rocksdb.shared.write.buffer.size.bytes";
+
+  @Test
+  public void testDisabledByDefault() {
+    assertFalse(RocksDbSharedCache.get(new MapConfig(), "disabled").isPresent());
+  }
+
+  @Test
+  public void testOneCachePerContainer() {
+    Config config = new MapConfig(ImmutableMap.of(CACHE_SIZE, "1048576"));
+    RocksDbSharedCache cache = RocksDbSharedCache.get(config, "container-0").get();
+    assertSame(cache, RocksDbSharedCache.get(config, "container-0").get());
+    assertNotSame(cache, RocksDbSharedCache.get(config, "container-1").get());
+    assertEquals(1048576, cache.getCapacity());
+    assertEquals(0, cache.getCache().getUsage());
+  }
+
+  @Test
+  public void testCacheIsClosedOnceReleasedByAllStores() {
+    Config config = new MapConfig(ImmutableMap.of(CACHE_SIZE, "1048576"));
+    RocksDbSharedCache cache = RocksDbSharedCache.get(config, "container-2").get();
+    assertSame(cache, RocksDbSharedCache.get(config, "container-2").get());
+
+    cache.release();
+    assertTrue(cache.getCache().isOwningHandle());
+    assertSame(cache, RocksDbSharedCache.get(config, "container-2").get());
+    cache.release();
+    cache.release();
+    assertFalse(cache.getCache().isOwningHandle());
+    assertFalse(cache.getWriteBufferManager().isOwningHandle());
+    assertEquals(0, cache.getUsage());
+
+    // the container is restarted in the same JVM
+    RocksDbSharedCache restartedCache = RocksDbSharedCache.get(config, "container-2").get();
+    assertNotSame(cache, restartedCache);
+    assertTrue(restartedCache.getCache().isOwningHandle());
+    restartedCache.release();
+  }
+
+  @Test(expected = SamzaException.class)
+  public void testWriteBufferLargerThanCache() {
+    RocksDbSharedCache.get(new MapConfig(ImmutableMap.of(CACHE_SIZE, "1024", WRITE_BUFFER_SIZE, "2048")), "invalid");
+  }
+}
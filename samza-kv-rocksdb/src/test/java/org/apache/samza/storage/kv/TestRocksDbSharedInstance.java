@@ -0,0 +1,253 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.storage.kv;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.apache.commons.io.FileUtils;
+import org.apache.samza.SamzaException;
+import org.apache.samza.checkpoint.CheckpointId;
+import org.apache.samza.config.Config;
+import org.apache.samza.config.MapConfig;
+import org.apache.samza.metrics.MetricsRegistryMap;
+import org.apache.samza.storage.StorageEngineFactory;
+import org.apache.samza.storage.StorageManagerUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.rocksdb.FlushOptions;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+import org.rocksdb.WriteOptions;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+public class TestRocksDbSharedInstance {
+  private static final String TASK_DIR = "Partition_0";
+
+  private File baseDir;
+  private Config config;
+
+  @Before
+  public void setup() throws Exception {
+    baseDir = Files.createTempDirectory("testSharedInstance").toFile();
+    Map<String, String> configMap = new HashMap<>();
+    for (String storeName : new String[] {"store1", "store2"}) {
+      configMap.put("stores." + storeName + ".factory", RocksDbKeyValueStorageEngineFactory.class.getName());
+      configMap.put(RocksDbSharedInstance.sharedInstanceConfig(storeName), "shared");
+    }
+    configMap.put("stores.store3.factory", RocksDbKeyValueStorageEngineFactory.class.getName());
+    configMap.put("stores.store3.rocksdb.ttl.ms", "60000");
+    configMap.put(RocksDbSharedInstance.sharedInstanceConfig("store3"), "ttl");
+    config = new MapConfig(configMap);
+  }
+
+  @After
+  public void teardown() throws Exception {
+    FileUtils.deleteDirectory(baseDir);
+  }
+
+  @Test
+  public void testStoresAreIsolated() {
+    RocksDbKeyValueStore store1 = newStore("store1");
+    RocksDbKeyValueStore store2 = newStore("store2");
+    store1.put(key(1), value(1));
+    store2.put(key(1), value(2));
+    store2.put(key(2), value(2));
+
+    assertTrue(store1.db() == store2.db());
+    assertArrayEquals(value(1), store1.get(key(1)));
+    assertArrayEquals(value(2), store2.get(key(1)));
+    assertNull(store1.get(key(2)));
+    assertEquals(1, count(store1));
+    assertEquals(2, count(store2));
+    assertTrue(new File(storeDir("store1"), RocksDbSharedInstance.COLUMN_FAMILY_MARKER_FILE_NAME).exists());
+
+    store1.close();
+    // the instance stays open for the other store
+    assertArrayEquals(value(2), store2.get(key(2)));
+    store2.close();
+    assertFalse(store2.db().isOwningHandle());
+
+    store1 = newStore("store1");
+    assertArrayEquals(value(1), store1.get(key(1)));
+    store1.close();
+  }
+
+  @Test
+  public void testDeletedStoreDirResetsColumnFamily() throws Exception {
+    RocksDbKeyValueStore store1 = newStore("store1");
+    RocksDbKeyValueStore store2 = newStore("store2");
+    store1.put(key(1), value(1));
+    store2.put(key(1), value(2));
+    store1.close();
+    store2.close();
+
+    FileUtils.deleteDirectory(storeDir("store1"));
+    store1 = newStore("store1");
+    store2 = newStore("store2");
+    assertEquals(0, count(store1));
+    assertArrayEquals(value(2), store2.get(key(1)));
+    store1.close();
+    store2.close();
+  }
+
+  @Test
+  public void testRestoreFromCheckpoint() throws Exception {
+    RocksDbKeyValueStore store1 = newStore("store1");
+    RocksDbKeyValueStore store2 = newStore("store2");
+    store1.put(key(1), value(1));
+    store2.put(key(1), value(2));
+    store1.flush();
+    Path checkpointDir = store1.checkpoint(CheckpointId.create()).get();
+    // the checkpoint only holds the column family of the store
+    List<String> checkpointColumnFamilies = RocksDB.listColumnFamilies(new Options(), checkpointDir.toString())
+        .stream().map(String::new).collect(Collectors.toList());
+    assertEquals(Arrays.asList("default", "store1"), checkpointColumnFamilies);
+    // and hard links the SST files of the store instead of writing new ones
+    File[] checkpointSstFiles = checkpointDir.toFile().listFiles((dir, name) -> name.endsWith(".sst"));
+    assertEquals(1, checkpointSstFiles.length);
+    assertTrue(new File(store1.sharedInstance().getDir(), checkpointSstFiles[0].getName()).exists());
+    store1.put(key(2), value(1));
+    store2.put(key(2), value(2));
+    FileUtils.touch(new File(checkpointDir.toFile(), StorageManagerUtil.OFFSET_FILE_NAME_NEW));
+    store1.close();
+    store2.close();
+
+    // restore store1 from its checkpoint, as a transactional state restore does
+    FileUtils.deleteDirectory(storeDir("store1"));
+    FileUtils.moveDirectory(checkpointDir.toFile(), storeDir("store1"));
+    store1 = newStore("store1");
+    store2 = newStore("store2");
+    assertArrayEquals(value(1), store1.get(key(1)));
+    assertNull(store1.get(key(2)));
+    assertEquals(2, count(store2));
+    assertFalse(new File(storeDir("store1"), "CURRENT").exists());
+    assertTrue(new File(storeDir("store1"), StorageManagerUtil.OFFSET_FILE_NAME_NEW).exists());
+    store1.close();
+    store2.close();
+  }
+
+  @Test
+  public void testImportFromUnsharedStore() {
+    RocksDbKeyValueStore unshared = new RocksDbKeyValueStore(storeDir("store1"), new Options().setCreateIfMissing(true),
+        new MapConfig(), false, "store1", new WriteOptions(), new FlushOptions(),
+        new KeyValueStoreMetrics("store1", new MetricsRegistryMap()));
+    unshared.put(key(1), value(1));
+    unshared.close();
+
+    RocksDbKeyValueStore store1 = newStore("store1");
+    assertArrayEquals(value(1), store1.get(key(1)));
+    store1.close();
+  }
+
+  @Test
+  public void testInstanceIsReleasedOnceAllStoresAreClosed() {
+    RocksDbKeyValueStore store1 = newStore("store1", StorageEngineFactory.StoreMode.BulkLoad);
+    RocksDbKeyValueStore store2 = newStore("store2", StorageEngineFactory.StoreMode.BulkLoad);
+    assertTrue(store1.sharedInstance() == store2.sharedInstance());
+    assertTrue(store1.sharedInstance().getOptions("store1").disableAutoCompactions());
+    store1.put(key(1), value(1));
+    store1.close();
+    store2.close();
+
+    // the stores created after the bulk load restore get a new instance in the requested mode
+    store1 = newStore("store1");
+    assertFalse(store1.sharedInstance() == store2.sharedInstance());
+    assertFalse(store1.sharedInstance().getOptions("store1").disableAutoCompactions());
+    assertArrayEquals(value(1), store1.get(key(1)));
+    store1.close();
+  }
+
+  @Test
+  public void testColumnFamilyOfUnconfiguredStoreIsKept() {
+    RocksDbKeyValueStore store2 = newStore("store2");
+    store2.put(key(1), value(2));
+    store2.close();
+
+    // store2 is temporarily left out of the instance
+    Config sharedConfig = config;
+    Map<String, String> configMap = new HashMap<>(config);
+    configMap.remove(RocksDbSharedInstance.sharedInstanceConfig("store2"));
+    config = new MapConfig(configMap);
+    RocksDbKeyValueStore store1 = newStore("store1");
+    store1.put(key(1), value(1));
+    store1.close();
+
+    config = sharedConfig;
+    store2 = newStore("store2");
+    assertArrayEquals(value(2), store2.get(key(1)));
+    store2.close();
+  }
+
+  @Test(expected = SamzaException.class)
+  public void testTtlStoreNotAllowed() {
+    RocksDbSharedInstance.get(config, "store3", storeDir("store3"), 1, 1024 * 1024L,
+        StorageEngineFactory.StoreMode.ReadWrite, null);
+  }
+
+  private RocksDbKeyValueStore newStore(String storeName) {
+    return newStore(storeName, StorageEngineFactory.StoreMode.ReadWrite);
+  }
+
+  private RocksDbKeyValueStore newStore(String storeName, StorageEngineFactory.StoreMode storeMode) {
+    File storeDir = storeDir(storeName);
+    RocksDbSharedInstance sharedInstance =
+        RocksDbSharedInstance.get(config, storeName, storeDir, 1, 1024 * 1024L, storeMode, null);
+    assertEquals(new File(new File(baseDir, RocksDbSharedInstance.SHARED_INSTANCE_DIR_PREFIX + "shared"), TASK_DIR),
+        sharedInstance.getDir());
+    return new RocksDbKeyValueStore(storeDir, sharedInstance.getOptions(storeName),
+        config.subset("stores." + storeName + ".", true), true, storeName, new WriteOptions(), new FlushOptions(),
+        new KeyValueStoreMetrics(storeName, new MetricsRegistryMap()), sharedInstance, null);
+  }
+
+  private File storeDir(String storeName) {
+    return new File(new File(baseDir, storeName), TASK_DIR);
+  }
+
+  private static int count(RocksDbKeyValueStore store) {
+    int count = 0;
+    KeyValueIterator<byte[], byte[]> iterator = store.all();
+    while (iterator.hasNext()) {
+      iterator.next();
+      count++;
+    }
+    iterator.close();
+    return count;
+  }
+
+  private static byte[] key(int i) {
+    return ("key" + i).getBytes();
+  }
+
+  private static byte[] value(int i) {
+    return ("value" + i).getBytes();
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.storage.kv;
+
+import java.io.File;
+import java.nio.file.Files;
+import com.google.common.collect.ImmutableMap;
+import org.apache.commons.io.FileUtils;
+import org.apache.samza.config.Config;
+import org.apache.samza.config.MapConfig;
+import org.apache.samza.metrics.MetricsRegistryMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.rocksdb.FlushOptions;
+import org.rocksdb.Options;
+import org.rocksdb.WriteOptions;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+public class TestRocksDbSstBulkLoader {
+  private File dbDir;
+  private RocksDbKeyValueStore store;
+
+  @Before
+  public void setup() throws Exception {
+    dbDir = Files.createTempDirectory("testSstBulkLoader").toFile();
+    // a tiny sort buffer, so that entries are spilled and merged
+    Config config = new MapConfig(ImmutableMap.of(
+        RocksDbOptionsHelper.ROCKSDB_RESTORE_SST_INGESTION_ENABLED, "true",
+        RocksDbOptionsHelper.ROCKSDB_RESTORE_SST_INGESTION_SORT_BUFFER_BYTES, "4096",
+        RocksDbOptionsHelper.ROCKSDB_RESTORE_SST_INGESTION_FILE_SIZE_BYTES, "8192"));
+    Options options = new Options().setCreateIfMissing(true);
+    store = new RocksDbKeyValueStore(dbDir, options, config, true, "dbStore", new WriteOptions(), new FlushOptions(),
+        new KeyValueStoreMetrics("dbStore", new MetricsRegistryMap()));
+  }
+
+  @After
+  public void teardown() throws Exception {
+    store.close();
+    FileUtils.deleteDirectory(dbDir);
+  }
+
+  @Test
+  public void testBulkLoadEnabled() {
+    assertTrue(store.isBulkLoadEnabled());
+    RocksDbKeyValueStore ttlStore = new RocksDbKeyValueStore(dbDir, new Options(),
+        new MapConfig(ImmutableMap.of(RocksDbOptionsHelper.ROCKSDB_RESTORE_SST_INGESTION_ENABLED, "true",
+            "rocksdb.ttl.ms", "60000")), true, "dbStore", new WriteOptions(), new FlushOptions(),
+        new KeyValueStoreMetrics("dbStore", new MetricsRegistryMap()));
+    assertFalse(ttlStore.isBulkLoadEnabled());
+  }
+
+  @Test
+  public void testLoad() {
+    // existing entries, some of which the restore overwrites or deletes
+    store.put(key(1), value(1, 0));
+    store.put(key(2), value(2, 0));
+    store.put(key(5000), value(5000, 0));
+
+    try (BulkLoadableKeyValueStore.BulkLoader loader = store.newBulkLoader()) {
+      for (int round = 1; round <= 3; round++) {
+        for (int i = 0; i < 1000; i++) {
+          loader.add(key(i), value(i, round));
+        }
+      }
+      loader.add(key(2), null);
+      loader.add(key(3), null);
+      loader.add(key(3), value(3, 4));
+      assertNull("entries are not visible before load", store.get(key(10)));
+      assertTrue(new File(dbDir, RocksDbKeyValueStore.SST_INGESTION_TEMP_DIR()).exists());
+
+      loader.load();
+    }
+
+    assertFalse(new File(dbDir, RocksDbKeyValueStore.SST_INGESTION_TEMP_DIR()).exists());
+    assertArrayEquals(value(0, 3), store.get(key(0)));
+    assertArrayEquals(value(1, 3), store.get(key(1)));
+    assertNull(store.get(key(2)));
+    assertArrayEquals(value(3, 4), store.get(key(3)));
+    assertArrayEquals(value(999, 3), store.get(key(999)));
+    assertArrayEquals(value(5000, 0), store.get(key(5000)));
+
+    int count = 0;
+    KeyValueIterator<byte[], byte[]> iterator = store.all();
+    while (iterator.hasNext()) {
+      iterator.next();
+      count++;
+    }
+    iterator.close();
+    // 1000 restored keys, minus the deleted one, plus the untouched existing one
+    assertEquals(1000, count);
+  }
+
+  @Test
+  public void testLoadWithoutEntries() {
+    try (BulkLoadableKeyValueStore.BulkLoader loader = store.newBulkLoader()) {
+      loader.load();
+    }
+    assertFalse(store.all().hasNext());
+  }
+
+  private static byte[] key(int i) {
+    return String.format("key-%06d", i).getBytes();
+  }
+
+  private static byte[] value(int i, int round) {
+    return String.format("value-%06d-%d", i, round).getBytes();
+  }
+}
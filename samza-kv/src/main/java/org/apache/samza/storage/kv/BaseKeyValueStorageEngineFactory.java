@@ -53,6 +53,9 @@ public abstract class BaseKeyValueStorageEngineFactory<K, V> implements StorageE
   private static final int DEFAULT_WRITE_BATCH_SIZE = 500;
   private static final String OBJECT_CACHE_SIZE = "object.cache.size";
   private static final int DEFAULT_OBJECT_CACHE_SIZE = 1000;
+  private static final String OBJECT_CACHE_TYPE = "object.cache.type";
+  private static final String OBJECT_CACHE_TYPE_LRU = "lru";
+  private static final String OBJECT_CACHE_TYPE_TINYLFU = "tinylfu";
 
   /**
    * Implement this to return a KeyValueStore instance for the given store name, which will be used as the underlying
@@ -116,6 +119,12 @@ public abstract class BaseKeyValueStorageEngineFactory<K, V> implements StorageE
           String.format("cache.size for store %s cannot be less than batch.size as batched values reside in cache.",
               storeName));
     }
+    String cacheType = storageConfigSubset.get(OBJECT_CACHE_TYPE, OBJECT_CACHE_TYPE_LRU);
+    if (!OBJECT_CACHE_TYPE_LRU.equals(cacheType) && !OBJECT_CACHE_TYPE_TINYLFU.equals(cacheType)) {
+      throw new SamzaException(
+          String.format("Unknown object.cache.type %s for store %s. Expected one of %s or %s.", cacheType, storeName,
+              OBJECT_CACHE_TYPE_LRU, OBJECT_CACHE_TYPE_TINYLFU));
+    }
     if (keySerde == null) {
       throw new SamzaException(
           String.format("Must define a key serde when using key value storage for store %s.", storeName));
@@ -131,7 +140,7 @@ public abstract class BaseKeyValueStorageEngineFactory<K, V> implements StorageE
         storeName, registry, storePropertiesBuilder, rawStore, changelogCollector);
     // this also applies serialization and caching layers
     KeyValueStore<K, V> toBeAccessLoggedStore = buildStoreWithLargeMessageHandling(storeName, registry,
-        maybeLoggedStore, storageConfig, cacheSize, batchSize, keySerde, msgSerde);
+        maybeLoggedStore, storageConfig, cacheSize, cacheType, batchSize, keySerde, msgSerde);
     KeyValueStore<K, V> maybeAccessLoggedStore =
         buildMaybeAccessLoggedStore(storeName, toBeAccessLoggedStore, changelogCollector, changelogSSP, storageConfig,
             keySerde);
@@ -175,6 +184,7 @@ public abstract class BaseKeyValueStorageEngineFactory<K, V> implements StorageE
       KeyValueStore<byte[], byte[]> storeToWrap,
       StorageConfig storageConfig,
       int cacheSize,
+      String cacheType,
       int batchSize,
       Serde<T> keySerde,
       Serde<U> msgSerde) {
@@ -186,7 +196,7 @@ public abstract class BaseKeyValueStorageEngineFactory<K, V> implements StorageE
        * deserialized even when cached.
        */
       KeyValueStore<byte[], byte[]> maybeCachedStore =
-          buildMaybeCachedStore(storeName, registry, storeToWrap, cacheSize, batchSize);
+          buildMaybeCachedStore(storeName, registry, storeToWrap, cacheSize, cacheType, batchSize);
       // this will throw a RecordTooLargeException when a large message is encountered
       LargeMessageSafeStore largeMessageSafeKeyValueStore =
           new LargeMessageSafeStore(maybeCachedStore, storeName, false, maxMessageSize);
@@ -204,7 +214,7 @@ public abstract class BaseKeyValueStorageEngineFactory<K, V> implements StorageE
        * Allows deserialized entries to be stored in the cache, but it means that a large message may end up in the
        * cache even though it was not persisted to the logged store.
        */
-      return buildMaybeCachedStore(storeName, registry, serializedStore, cacheSize, batchSize);
+      return buildMaybeCachedStore(storeName, registry, serializedStore, cacheSize, cacheType, batchSize);
     }
   }
 
@@ -213,9 +223,12 @@ public abstract class BaseKeyValueStorageEngineFactory<K, V> implements StorageE
    * Otherwise, returns the {@code storeToWrap}.
    */
   private static <T, U> KeyValueStore<T, U> buildMaybeCachedStore(String storeName, MetricsRegistry registry,
-      KeyValueStore<T, U> storeToWrap, int cacheSize, int batchSize) {
+      KeyValueStore<T, U> storeToWrap, int cacheSize, String cacheType, int batchSize) {
     if (cacheSize > 0) {
       CachedStoreMetrics cachedStoreMetrics = new CachedStoreMetrics(storeName, registry);
+      if (OBJECT_CACHE_TYPE_TINYLFU.equals(cacheType)) {
+        return new TinyLfuCachedStore<>(storeToWrap, cacheSize, batchSize, cachedStoreMetrics);
+      }
       return new CachedStore<>(storeToWrap, cacheSize, batchSize, cachedStoreMetrics);
     } else {
       return storeToWrap;
@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.storage.kv;
+
+/**
+ * A raw key-value store that can be restored from its changelog by loading all restored entries at once, instead of
+ * writing them through {@link #putAll(java.util.List)} in batches.
+ *
+ * {@link KeyValueStorageEngine#restore} uses a {@link BulkLoader} for the restore phase of a changelog if
+ * {@link #isBulkLoadEnabled()} returns true.
+ */
+public interface BulkLoadableKeyValueStore extends KeyValueStore<byte[], byte[]> {
+
+  /**
+   * @return true if restores of this store should use {@link #newBulkLoader()}
+   */
+  boolean isBulkLoadEnabled();
+
+  /**
+   * @return a new {@link BulkLoader} for this store. The caller must close it once it is done.
+   */
+  BulkLoader newBulkLoader();
+
+  /**
+   * Accumulates entries to be loaded into a {@link BulkLoadableKeyValueStore}. Entries are added in changelog order,
+   * so a later entry for a key replaces an earlier one. Added entries are not visible in the store until
+   * {@link #load()} returns.
+   */
+  interface BulkLoader extends AutoCloseable {
+
+    /**
+     * Adds an entry to be loaded.
+     *
+     * @param key the key of the entry
+     * @param value the value of the entry, or null if the key should be deleted
+     */
+    void add(byte[] key, byte[] value);
+
+    /**
+     * Loads all added entries into the store. No entries may be added afterwards.
+     */
+    void load();
+
+    /**
+     * Releases any resources, such as temporary files, held by this loader.
+     */
+    @Override
+    void close();
+  }
+}
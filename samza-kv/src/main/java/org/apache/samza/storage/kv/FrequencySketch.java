@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.storage.kv;
+
+/**
+ * A count-min sketch of 4-bit counters used by {@link TinyLfuCachedStore} to estimate how often a key has been accessed
+ * recently. Each key maps to four counters, one in each of four different table slots, and its estimated frequency is
+ * the minimum of those counters. Once the number of recorded accesses reaches a sample size proportional to the
+ * cache capacity, every counter is halved so that the sketch favors recent popularity over old popularity.
+ *
+ * This class is not thread safe. Callers must synchronize access.
+ */
+class FrequencySketch {
+  private static final long[] SEEDS = {
+      0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+  };
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final int MAX_COUNT = 15;
+  private static final int SAMPLE_FACTOR = 10;
+
+  private final long[] table;
+  private final int tableMask;
+  private final int sampleSize;
+  private int additions = 0;
+
+  /**
+   * @param capacity the number of entries whose frequency should be tracked with reasonable accuracy
+   */
+  FrequencySketch(int capacity) {
+    int maximum = Math.max(capacity, 1);
+    int tableSize = Integer.highestOneBit(Math.max(maximum - 1, 4)) << 1;
+    this.table = new long[tableSize];
+    this.tableMask = tableSize - 1;
+    this.sampleSize = SAMPLE_FACTOR * maximum;
+  }
+
+  /**
+   * Returns the estimated number of accesses recorded for {@code hash}, up to 15.
+   */
+  int frequency(int hash) {
+    int start = (hash & 3) << 2;
+    int frequency = MAX_COUNT;
+    for (int i = 0; i < 4; i++) {
+      int index = indexOf(hash, i);
+      int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+      frequency = Math.min(frequency, count);
+    }
+    return frequency;
+  }
+
+  /**
+   * Records an access for {@code hash}, halving all counters once the sample size is reached.
+   */
+  void increment(int hash) {
+    int start = (hash & 3) << 2;
+    boolean added = false;
+    for (int i = 0; i < 4; i++) {
+      added |= incrementAt(indexOf(hash, i), start + i);
+    }
+    if (added && ++additions == sampleSize) {
+      reset();
+    }
+  }
+
+  private boolean incrementAt(int index, int counter) {
+    int offset = counter << 2;
+    long mask = 0xfL << offset;
+    if ((table[index] & mask) != mask) {
+      table[index] += 1L << offset;
+      return true;
+    }
+    return false;
+  }
+
+  private void reset() {
+    for (int i = 0; i < table.length; i++) {
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    additions >>>= 1;
+  }
+
+  private int indexOf(int hash, int depth) {
+    long h = (hash + SEEDS[depth]) * SEEDS[depth];
+    h += h >>> 32;
+    return ((int) h) & tableMask;
+  }
+}
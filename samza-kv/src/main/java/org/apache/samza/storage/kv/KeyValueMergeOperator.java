@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.storage.kv;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import org.apache.samza.SamzaException;
+import org.apache.samza.config.Config;
+
+
+/**
+ * An associative operator that {@link KeyValueStore#merge(Object, Object)} uses to combine the serialized value of a
+ * key with a serialized merge operand, configured per store with {@link #MERGE_OPERATOR}.
+ *
+ * Stores that natively support merges (e.g. RocksDB) map these operators to their built-in equivalents, so the
+ * semantics of {@link #merge(byte[], byte[])} match them exactly. Others can use it to emulate merges.
+ */
+public abstract class KeyValueMergeOperator {
+  public static final String MERGE_OPERATOR = "merge.operator";
+  public static final String MERGE_OPERATOR_APPEND_DELIMITER = "merge.operator.append.delimiter";
+  public static final String UINT64_ADD = "uint64add";
+  public static final String APPEND = "append";
+
+  /**
+   * Returns the merge operator configured in {@code storeConfig}, the subset of the config for a single store.
+   *
+   * @param storeConfig the config of the store, without the "stores.store-name." prefix
+   * @return the configured merge operator, or {@link Optional#empty()} if merges are not enabled for the store
+   * @throws SamzaException if the configured merge operator is unknown
+   */
+  public static Optional<KeyValueMergeOperator> fromConfig(Config storeConfig) {
+    String name = storeConfig.get(MERGE_OPERATOR);
+    if (name == null || name.isEmpty()) {
+      return Optional.empty();
+    }
+    switch (name) {
+      case UINT64_ADD:
+        return Optional.of(new UInt64Add());
+      case APPEND:
+        return Optional.of(new Append(storeConfig.get(MERGE_OPERATOR_APPEND_DELIMITER, "")));
+      default:
+        throw new SamzaException(String.format("Unknown %s %s. Expected one of %s or %s.", MERGE_OPERATOR, name,
+            UINT64_ADD, APPEND));
+    }
+  }
+
+  /**
+   * Combines the current value of a key with a merge operand.
+   *
+   * @param existingValue the current value of the key, or null if the key has no value
+   * @param operand the merge operand
+   * @return the new value of the key
+   */
+  public abstract byte[] merge(byte[] existingValue, byte[] operand);
+
+  /**
+   * Adds 64 bit integers, encoded as 8 bytes in little-endian order (see
+   * {@link org.apache.samza.serializers.LittleEndianLongSerde}). Like RocksDB's operator, a value or operand of any
+   * other length is treated as 0.
+   */
+  public static final class UInt64Add extends KeyValueMergeOperator {
+    @Override
+    public byte[] merge(byte[] existingValue, byte[] operand) {
+      long sum = decode(existingValue) + decode(operand);
+      return ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).putLong(sum).array();
+    }
+
+    private static long decode(byte[] bytes) {
+      if (bytes == null || bytes.length != Long.BYTES) {
+        return 0;
+      }
+      return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).getLong();
+    }
+  }
+
+  /**
+   * Appends the operand to the existing value, separated by the configured delimiter. With the default empty
+   * delimiter, values are plain concatenations of the operands, so operands should be self-delimiting.
+   */
+  public static final class Append extends KeyValueMergeOperator {
+    private final String delimiter;
+    private final byte[] delimiterBytes;
+
+    public Append(String delimiter) {
+      this.delimiter = delimiter;
+      this.delimiterBytes = delimiter.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public String getDelimiter() {
+      return delimiter;
+    }
+
+    @Override
+    public byte[] merge(byte[] existingValue, byte[] operand) {
+      if (existingValue == null) {
+        return operand;
+      }
+      byte[] merged = new byte[existingValue.length + delimiterBytes.length + operand.length];
+      System.arraycopy(existingValue, 0, merged, 0, existingValue.length);
+      System.arraycopy(delimiterBytes, 0, merged, existingValue.length, delimiterBytes.length);
+      System.arraycopy(operand, 0, merged, existingValue.length + delimiterBytes.length, operand.length);
+      return merged;
+    }
+  }
+}
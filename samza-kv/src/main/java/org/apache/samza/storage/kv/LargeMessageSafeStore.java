@@ -97,6 +97,21 @@ public class LargeMessageSafeStore implements KeyValueStore<byte[], byte[]> {
     store.delete(key);
   }
 
+  /**
+   * Only the size of the merge operand is validated, since the merged value is not known here.
+   */
+  @Override
+  public void merge(byte[] key, byte[] delta) {
+    validateMessageSize(delta);
+    if (!isLargeMessage(delta)) {
+      store.merge(key, delta);
+    } else {
+      LOG.info("Ignoring a large merge operand with size " + delta.length + " since it is greater than "
+          + "the maximum allowed value of " + maxMessageSize);
+      largeMessageSafeStoreMetrics.ignoredLargeMessages().inc();
+    }
+  }
+
   @Override
   public void deleteAll(List<byte[]> keys) {
     store.deleteAll(keys);
@@ -117,6 +132,16 @@ public class LargeMessageSafeStore implements KeyValueStore<byte[], byte[]> {
     return store.all();
   }
 
+  @Override
+  public KeyValueIterator<byte[], byte[]> prefixScan(byte[] prefix) {
+    return store.prefixScan(prefix);
+  }
+
+  @Override
+  public SeekableKeyValueIterator<byte[], byte[]> seekableIterator() {
+    return store.seekableIterator();
+  }
+
   @Override
   public void close() {
     store.close();
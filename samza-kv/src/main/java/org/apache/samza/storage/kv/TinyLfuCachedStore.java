@@ -0,0 +1,649 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.storage.kv;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import org.apache.samza.checkpoint.CheckpointId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * A write-behind caching layer with the same contract as {@link CachedStore}, designed for stores that are accessed by
+ * several threads (e.g. with task.max.concurrency greater than 1) or whose working set is larger than the cache.
+ *
+ * Differences from {@link CachedStore}:
+ * 1. The cache is split into independently locked segments by key hash, instead of being guarded by one lock. Reads
+ * and writes of the underlying store are done outside of the segment locks.
+ * 2. Each segment uses a W-TinyLFU eviction policy: new entries enter a small LRU admission window and are only
+ * admitted into the main (segmented LRU) space if a {@link FrequencySketch} estimates that they are accessed more
+ * often than the entry they would replace. This keeps frequently read keys cached during scans and bursts of one-off
+ * keys.
+ * 3. Dirty entries are tracked with an intrusive list through the cache entries themselves, so a write to a cached key
+ * does not allocate. A dirty entry that is evicted from the cache stays reachable until it is written out, so evicting
+ * it does not force a write of all dirty entries. Dirty entries are written to the underlying store with a single
+ * putAll once there are {@code writeBatchSize} of them, oldest first within each segment.
+ *
+ * The same corner cases as {@link CachedStore} apply: items in the cache have pass-by-reference semantics, range
+ * queries require writing out the dirty entries first, and array keys cause every write to be written through.
+ *
+ * This class is thread safe.
+ *
+ * @param <K> the type of keys maintained by this store.
+ * @param <V> the type of values maintained by this store.
+ */
+public class TinyLfuCachedStore<K, V> implements KeyValueStore<K, V> {
+  private static final Logger LOG = LoggerFactory.getLogger(TinyLfuCachedStore.class);
+  static final int DEFAULT_CONCURRENCY = 16;
+
+  private static final byte NONE = 0;
+  private static final byte WINDOW = 1;
+  private static final byte PROBATION = 2;
+  private static final byte PROTECTED = 3;
+
+  private final KeyValueStore<K, V> store;
+  private final int writeBatchSize;
+  private final CachedStoreMetrics metrics;
+  private final Segment[] segments;
+  private final int segmentMask;
+
+  /** the number of dirty entries across all segments */
+  private final AtomicInteger dirtyCount = new AtomicInteger();
+
+  /** the number of entries currently in the cache, excluding evicted entries that are still dirty */
+  private final AtomicInteger cacheCount = new AtomicInteger();
+
+  /** serializes writes of dirty entries so that an older value of a key is never written after a newer one */
+  private final ReentrantLock flushLock = new ReentrantLock();
+
+  /** tracks whether an array has been used as a key, since array keys never hit the cache */
+  private volatile boolean containsArrayKeys = false;
+
+  public TinyLfuCachedStore(KeyValueStore<K, V> store, int cacheSize, int writeBatchSize, CachedStoreMetrics metrics) {
+    this(store, cacheSize, writeBatchSize, DEFAULT_CONCURRENCY, metrics);
+  }
+
+  /**
+   * @param store the store to cache
+   * @param cacheSize the number of entries to hold in the in-memory cache
+   * @param writeBatchSize the number of dirty entries to batch together before forcing a write
+   * @param concurrency the maximum number of independently locked segments, rounded down to a power of two and to
+   *                    no more than {@code cacheSize}
+   * @param metrics the metrics recording object for this cached store
+   */
+  @SuppressWarnings("unchecked")
+  public TinyLfuCachedStore(KeyValueStore<K, V> store, int cacheSize, int writeBatchSize, int concurrency,
+      CachedStoreMetrics metrics) {
+    Preconditions.checkArgument(cacheSize > 0, "cacheSize must be positive");
+    Preconditions.checkArgument(concurrency > 0, "concurrency must be positive");
+    this.store = store;
+    this.writeBatchSize = writeBatchSize;
+    this.metrics = metrics;
+    int segmentCount = Integer.highestOneBit(Math.min(concurrency, cacheSize));
+    int segmentCapacity = (cacheSize + segmentCount - 1) / segmentCount;
+    this.segments = (Segment[]) new TinyLfuCachedStore.Segment[segmentCount];
+    for (int i = 0; i < segmentCount; i++) {
+      this.segments[i] = new Segment(segmentCapacity);
+    }
+    this.segmentMask = segmentCount - 1;
+
+    metrics.setDirtyCount(dirtyCount::get);
+    metrics.setCacheSize(cacheCount::get);
+  }
+
+  @Override
+  public V get(K key) {
+    metrics.gets().inc();
+    int hash = spread(key.hashCode());
+    Segment segment = segmentFor(hash);
+    long invalidations;
+    synchronized (segment) {
+      Node<K, V> node = segment.lookup(key, hash);
+      if (node != null) {
+        metrics.cacheHits().inc();
+        return node.value;
+      }
+      invalidations = segment.invalidations;
+    }
+    V value = store.get(key);
+    synchronized (segment) {
+      segment.insertIfAbsent(key, hash, value, invalidations);
+    }
+    return value;
+  }
+
+  @Override
+  public Map<K, V> getAll(List<K> keys) {
+    metrics.gets().inc(keys.size());
+    Map<K, V> values = new HashMap<>(keys.size());
+    // the invalidation count of the segment of each missed key, at the time of the miss
+    Map<K, Long> misses = new HashMap<>();
+    for (K key : keys) {
+      int hash = spread(key.hashCode());
+      Segment segment = segmentFor(hash);
+      synchronized (segment) {
+        Node<K, V> node = segment.lookup(key, hash);
+        if (node != null) {
+          metrics.cacheHits().inc();
+          values.put(key, node.value);
+        } else {
+          misses.put(key, segment.invalidations);
+        }
+      }
+    }
+    if (!misses.isEmpty()) {
+      for (Map.Entry<K, V> entry : store.getAll(new ArrayList<>(misses.keySet())).entrySet()) {
+        K key = entry.getKey();
+        Long invalidations = misses.get(key);
+        if (invalidations != null) {
+          int hash = spread(key.hashCode());
+          Segment segment = segmentFor(hash);
+          synchronized (segment) {
+            segment.insertIfAbsent(key, hash, entry.getValue(), invalidations);
+          }
+        }
+        values.put(key, entry.getValue());
+      }
+    }
+    return values;
+  }
+
+  @Override
+  public void put(K key, V value) {
+    metrics.puts().inc();
+    checkKeyIsArray(key);
+    int hash = spread(key.hashCode());
+    Segment segment = segmentFor(hash);
+    synchronized (segment) {
+      segment.write(key, hash, value);
+    }
+    // Array keys are written through to support the same legacy behavior as CachedStore.
+    if (dirtyCount.get() >= writeBatchSize || containsArrayKeys) {
+      flushLock.lock();
+      try {
+        if (dirtyCount.get() >= writeBatchSize || containsArrayKeys) {
+          LOG.trace("Dirty count {} >= write batch size {}. Calling putAll() on all dirty entries.",
+              dirtyCount.get(), writeBatchSize);
+          putAllDirtyEntries();
+        }
+      } finally {
+        flushLock.unlock();
+      }
+    }
+  }
+
+  @Override
+  public void putAll(List<Entry<K, V>> entries) {
+    for (Entry<K, V> entry : entries) {
+      put(entry.getKey(), entry.getValue());
+    }
+  }
+
+  @Override
+  public void delete(K key) {
+    metrics.deletes().inc();
+    put(key, null);
+  }
+
+  /**
+   * Merges go straight to the underlying store, since only it knows how to apply the merge operator. A dirty entry
+   * for the key is written out first so that the merge applies on top of it, and the stale cache entry is dropped.
+   */
+  @Override
+  public void merge(K key, V delta) {
+    metrics.merges().inc();
+    checkKeyIsArray(key);
+    int hash = spread(key.hashCode());
+    Segment segment = segmentFor(hash);
+    boolean isDirty;
+    synchronized (segment) {
+      Node<K, V> node = segment.nodes.get(key);
+      isDirty = node != null && node.isDirty;
+    }
+    if (isDirty) {
+      writeDirtyEntries();
+    }
+    store.merge(key, delta);
+    synchronized (segment) {
+      segment.invalidate(key);
+    }
+  }
+
+  @Override
+  public KeyValueIterator<K, V> range(K from, K to) {
+    metrics.ranges().inc();
+    writeDirtyEntries();
+    return new TinyLfuCachedStoreIterator<>(store.range(from, to));
+  }
+
+  @Override
+  public KeyValueIterator<K, V> all() {
+    metrics.alls().inc();
+    writeDirtyEntries();
+    return new TinyLfuCachedStoreIterator<>(store.all());
+  }
+
+  @Override
+  public KeyValueIterator<K, V> prefixScan(K prefix) {
+    metrics.prefixScans().inc();
+    writeDirtyEntries();
+    return new TinyLfuCachedStoreIterator<>(store.prefixScan(prefix));
+  }
+
+  @Override
+  public SeekableKeyValueIterator<K, V> seekableIterator() {
+    metrics.alls().inc();
+    writeDirtyEntries();
+    return store.seekableIterator();
+  }
+
+  @Override
+  public void flush() {
+    LOG.trace("Purging dirty entries from TinyLfuCachedStore.");
+    metrics.flushes().inc();
+    flushLock.lock();
+    try {
+      putAllDirtyEntries();
+      store.flush();
+    } finally {
+      flushLock.unlock();
+    }
+    LOG.trace("Flushed store.");
+  }
+
+  @Override
+  public void close() {
+    LOG.trace("Closing.");
+    flush();
+    store.close();
+  }
+
+  @Override
+  public KeyValueSnapshot<K, V> snapshot(K from, K to) {
+    return store.snapshot(from, to);
+  }
+
+  @Override
+  public Optional<Path> checkpoint(CheckpointId id) {
+    return store.checkpoint(id);
+  }
+
+  boolean hasArrayKeys() {
+    return containsArrayKeys;
+  }
+
+  @VisibleForTesting
+  KeyValueStore<K, V> getStore() {
+    return store;
+  }
+
+  private void writeDirtyEntries() {
+    flushLock.lock();
+    try {
+      putAllDirtyEntries();
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  /**
+   * Writes all dirty entries to the underlying store. Entries stay dirty, and therefore readable from the cache, until
+   * the write completes, so a concurrent cache miss can not read a stale value from the underlying store.
+   *
+   * The flush lock must be held before calling this method.
+   */
+  private void putAllDirtyEntries() {
+    int expected = dirtyCount.get();
+    if (expected == 0) {
+      return;
+    }
+    List<Entry<K, V>> batch = new ArrayList<>(expected);
+    List<Node<K, V>> written = new ArrayList<>(expected);
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        for (Node<K, V> node = segment.dirty.nextDirty; node != segment.dirty; node = node.nextDirty) {
+          node.writtenVersion = node.version;
+          batch.add(new Entry<>(node.key, node.value));
+          written.add(node);
+        }
+      }
+    }
+    store.putAll(batch);
+    metrics.putAllDirtyEntriesBatchSize().inc(batch.size());
+    for (Node<K, V> node : written) {
+      Segment segment = segmentFor(node.hash);
+      synchronized (segment) {
+        // a write that happened while the batch was being written leaves the entry dirty
+        if (node.version == node.writtenVersion) {
+          segment.markClean(node);
+        }
+      }
+    }
+  }
+
+  private void checkKeyIsArray(K key) {
+    if (!containsArrayKeys && key.getClass().isArray()) {
+      LOG.warn("Using arrays as keys results in unpredictable behavior since cache is implemented with a map. "
+          + "Consider using ByteBuffer, or a different key type, or turn off the cache altogether.");
+      containsArrayKeys = true;
+    }
+  }
+
+  private Segment segmentFor(int hash) {
+    return segments[(hash >>> 16) & segmentMask];
+  }
+
+  private static int spread(int hash) {
+    int h = hash * 0x9e3779b9;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * One independently locked part of the cache. All methods must be called while holding the segment's monitor.
+   *
+   * The entries of a segment are kept in three access-ordered queues: the admission window, and the probation and
+   * protected parts of the main space. An entry is promoted from probation to protected when it is accessed again.
+   * Entries that are evicted while dirty are removed from the queues but stay in {@code nodes} and in the dirty list
+   * until they are written out.
+   */
+  private final class Segment {
+    private final Map<K, Node<K, V>> nodes = new HashMap<>();
+    private final FrequencySketch sketch;
+    private final Node<K, V> window = Node.sentinel();
+    private final Node<K, V> probation = Node.sentinel();
+    private final Node<K, V> protectedQueue = Node.sentinel();
+    /** dirty entries from the oldest to the newest write */
+    private final Node<K, V> dirty = Node.sentinel();
+    private final int windowCapacity;
+    private final int mainCapacity;
+    private final int protectedCapacity;
+    private int windowSize = 0;
+    private int mainSize = 0;
+    private int protectedSize = 0;
+    /**
+     * The number of writes (puts, deletes and merges) to keys of this segment. A value read from the underlying store is
+     * only cached if no key of the segment was written since the read started, since the read may have missed the
+     * write, and the written entry may have been written out and evicted again before the read completes.
+     */
+    private long invalidations = 0;
+
+    Segment(int capacity) {
+      this.sketch = new FrequencySketch(capacity);
+      this.windowCapacity = Math.max(1, capacity / 100);
+      this.mainCapacity = capacity - windowCapacity;
+      this.protectedCapacity = mainCapacity * 4 / 5;
+    }
+
+    /**
+     * Returns the entry for {@code key}, recording the access, or null if it is not cached.
+     */
+    Node<K, V> lookup(K key, int hash) {
+      sketch.increment(hash);
+      Node<K, V> node = nodes.get(key);
+      if (node != null) {
+        onAccess(node);
+      }
+      return node;
+    }
+
+    void insertIfAbsent(K key, int hash, V value, long invalidationsBeforeRead) {
+      if (invalidations == invalidationsBeforeRead && !nodes.containsKey(key)) {
+        Node<K, V> node = new Node<>(key, hash, value);
+        nodes.put(key, node);
+        admit(node);
+      }
+    }
+
+    void write(K key, int hash, V value) {
+      invalidations++;
+      sketch.increment(hash);
+      Node<K, V> node = nodes.get(key);
+      if (node == null) {
+        node = new Node<>(key, hash, value);
+        nodes.put(key, node);
+        markDirty(node);
+        admit(node);
+      } else {
+        node.value = value;
+        markDirty(node);
+        onAccess(node);
+      }
+    }
+
+    /**
+     * Drops the entry for {@code key}, unless it was written again and is dirty.
+     */
+    void invalidate(K key) {
+      invalidations++;
+      Node<K, V> node = nodes.get(key);
+      if (node == null || node.isDirty) {
+        return;
+      }
+      nodes.remove(key);
+      switch (node.queue) {
+        case WINDOW:
+          windowSize--;
+          break;
+        case PROBATION:
+          mainSize--;
+          break;
+        case PROTECTED:
+          mainSize--;
+          protectedSize--;
+          break;
+        default:
+          return;
+      }
+      unlink(node);
+      node.queue = NONE;
+      cacheCount.decrementAndGet();
+    }
+
+    void markClean(Node<K, V> node) {
+      unlinkDirty(node);
+      node.isDirty = false;
+      dirtyCount.decrementAndGet();
+      if (node.queue == NONE) {
+        nodes.remove(node.key);
+      }
+    }
+
+    private void markDirty(Node<K, V> node) {
+      node.version++;
+      if (node.isDirty) {
+        unlinkDirty(node);
+      } else {
+        node.isDirty = true;
+        dirtyCount.incrementAndGet();
+      }
+      node.prevDirty = dirty.prevDirty;
+      node.nextDirty = dirty;
+      dirty.prevDirty.nextDirty = node;
+      dirty.prevDirty = node;
+    }
+
+    private void unlinkDirty(Node<K, V> node) {
+      node.prevDirty.nextDirty = node.nextDirty;
+      node.nextDirty.prevDirty = node.prevDirty;
+      node.prevDirty = null;
+      node.nextDirty = null;
+    }
+
+    private void onAccess(Node<K, V> node) {
+      switch (node.queue) {
+        case WINDOW:
+          moveToTail(window, node);
+          break;
+        case PROBATION:
+          unlink(node);
+          node.queue = PROTECTED;
+          append(protectedQueue, node);
+          protectedSize++;
+          if (protectedSize > protectedCapacity) {
+            Node<K, V> demoted = protectedQueue.next;
+            unlink(demoted);
+            protectedSize--;
+            demoted.queue = PROBATION;
+            append(probation, demoted);
+          }
+          break;
+        case PROTECTED:
+          moveToTail(protectedQueue, node);
+          break;
+        default:
+          // an evicted entry that is still dirty
+          admit(node);
+      }
+    }
+
+    /**
+     * Adds {@code node} to the admission window. The least recently used entry of an overflowing window is then
+     * admitted into the main space if there is room, or if it is more popular than the main space's eviction victim.
+     */
+    private void admit(Node<K, V> node) {
+      node.queue = WINDOW;
+      append(window, node);
+      windowSize++;
+      cacheCount.incrementAndGet();
+      if (windowSize <= windowCapacity) {
+        return;
+      }
+      Node<K, V> candidate = window.next;
+      unlink(candidate);
+      windowSize--;
+      if (mainSize < mainCapacity) {
+        candidate.queue = PROBATION;
+        append(probation, candidate);
+        mainSize++;
+        return;
+      }
+      Node<K, V> victim = probation.next != probation ? probation.next : protectedQueue.next;
+      if (victim != protectedQueue && sketch.frequency(candidate.hash) > sketch.frequency(victim.hash)) {
+        unlink(victim);
+        mainSize--;
+        if (victim.queue == PROTECTED) {
+          protectedSize--;
+        }
+        evict(victim);
+        candidate.queue = PROBATION;
+        append(probation, candidate);
+        mainSize++;
+      } else {
+        evict(candidate);
+      }
+    }
+
+    private void evict(Node<K, V> node) {
+      node.queue = NONE;
+      cacheCount.decrementAndGet();
+      metrics.evictions().inc();
+      if (!node.isDirty) {
+        nodes.remove(node.key);
+      }
+    }
+
+    private void moveToTail(Node<K, V> queue, Node<K, V> node) {
+      unlink(node);
+      append(queue, node);
+    }
+
+    private void append(Node<K, V> queue, Node<K, V> node) {
+      node.prev = queue.prev;
+      node.next = queue;
+      queue.prev.next = node;
+      queue.prev = node;
+    }
+
+    private void unlink(Node<K, V> node) {
+      node.prev.next = node.next;
+      node.next.prev = node.prev;
+      node.prev = null;
+      node.next = null;
+    }
+  }
+
+  /**
+   * A cache entry, linked into one of its segment's access queues and, while dirty, into its segment's dirty list.
+   */
+  private static final class Node<K, V> {
+    final K key;
+    final int hash;
+    V value;
+    byte queue = NONE;
+    Node<K, V> prev;
+    Node<K, V> next;
+    boolean isDirty = false;
+    long version = 0;
+    long writtenVersion = 0;
+    Node<K, V> prevDirty;
+    Node<K, V> nextDirty;
+
+    Node(K key, int hash, V value) {
+      this.key = key;
+      this.hash = hash;
+      this.value = value;
+    }
+
+    static <K, V> Node<K, V> sentinel() {
+      Node<K, V> sentinel = new Node<>(null, 0, null);
+      sentinel.prev = sentinel;
+      sentinel.next = sentinel;
+      sentinel.prevDirty = sentinel;
+      sentinel.nextDirty = sentinel;
+      return sentinel;
+    }
+  }
+
+  private static class TinyLfuCachedStoreIterator<K, V> implements KeyValueIterator<K, V> {
+    private final KeyValueIterator<K, V> iter;
+
+    TinyLfuCachedStoreIterator(KeyValueIterator<K, V> iter) {
+      this.iter = iter;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return iter.hasNext();
+    }
+
+    @Override
+    public Entry<K, V> next() {
+      return iter.next();
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("TinyLfuCachedStore iterator doesn't support remove");
+    }
+
+    @Override
+    public void close() {
+      iter.close();
+    }
+  }
+}
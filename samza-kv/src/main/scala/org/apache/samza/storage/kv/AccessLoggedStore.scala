@@ -47,6 +47,7 @@ class AccessLoggedStore[K, V](
     val DELETE = 3
     val RANGE = 4
     val SNAPSHOT = 5
+    val PREFIX_SCAN = 6
   }
 
   val streamName = storageConfig.getAccessLogStream(changelogSystemStreamPartition.getSystemStream.getStream)
@@ -86,6 +87,12 @@ class AccessLoggedStore[K, V](
     logAccess(DBOperation.DELETE, serializeKeys(keys), store.deleteAll(keys))
   }
 
+  override def merge(key: K, delta: V): Unit = {
+    val list = new util.ArrayList[Array[Byte]]
+    list.add(toBytesOrNull(key))
+    logAccess(DBOperation.WRITE, list, store.merge(key, delta))
+  }
+
   def range(from: K, to: K): KeyValueIterator[K, V] = {
     val list : util.ArrayList[K] = new util.ArrayList[K]()
     list.add(from)
@@ -97,6 +104,16 @@ class AccessLoggedStore[K, V](
     store.all()
   }
 
+  override def prefixScan(prefix: K): KeyValueIterator[K, V] = {
+    val list : util.ArrayList[K] = new util.ArrayList[K]()
+    list.add(prefix)
+    logAccess(DBOperation.PREFIX_SCAN, serializeKeys(list), store.prefixScan(prefix))
+  }
+
+  override def seekableIterator(): SeekableKeyValueIterator[K, V] = {
+    store.seekableIterator()
+  }
+
   override def snapshot(from: K, to: K): KeyValueSnapshot[K, V] = {
     val list : util.ArrayList[K] = new util.ArrayList[K]()
     list.add(from)
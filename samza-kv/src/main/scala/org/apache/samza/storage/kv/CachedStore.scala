@@ -73,6 +73,7 @@ class CachedStore[K, V](
     override def removeEldestEntry(eldest: java.util.Map.Entry[K, CacheEntry[K, V]]): Boolean = {
       val evict = super.size > cacheSize
       if (evict) {
+        metrics.evictions.inc
         val entry = eldest.getValue
         // if this entry hasn't been written out yet, flush it and all other dirty keys
         if (entry.dirty != null) {
@@ -140,6 +141,20 @@ class CachedStore[K, V](
     new CachedStoreIterator(store.all())
   })
 
+  override def prefixScan(prefix: K): KeyValueIterator[K, V] = lock.synchronized({
+    metrics.prefixScans.inc
+    putAllDirtyEntries()
+
+    new CachedStoreIterator(store.prefixScan(prefix))
+  })
+
+  override def seekableIterator(): SeekableKeyValueIterator[K, V] = lock.synchronized({
+    metrics.alls.inc
+    putAllDirtyEntries()
+
+    store.seekableIterator()
+  })
+
   override def put(key: K, value: V) {
     lock.synchronized({
       metrics.puts.inc
@@ -240,6 +255,28 @@ class CachedStore[K, V](
     })
   }
 
+  /**
+   * Merges go straight to the underlying store, since only it knows how to apply the merge operator. A dirty entry
+   * for the key is written out first so that the merge applies on top of it, and the stale cache entry is dropped.
+   */
+  override def merge(key: K, delta: V) {
+    lock.synchronized({
+      metrics.merges.inc
+
+      checkKeyIsArray(key)
+
+      val found = cache.get(key)
+      if (found != null) {
+        if (found.dirty != null) {
+          putAllDirtyEntries()
+        }
+        cache.remove(key)
+        cacheCount = cache.size
+      }
+      store.merge(key, delta)
+    })
+  }
+
   override def close() {
     lock.synchronized({
       trace("Closing.")
@@ -30,10 +30,13 @@ class CachedStoreMetrics(
   val gets = newCounter("gets")
   val ranges = newCounter("ranges")
   val alls = newCounter("alls")
+  val prefixScans = newCounter("prefix-scans")
   val cacheHits = newCounter("cache-hits")
   val puts = newCounter("puts")
   val deletes = newCounter("deletes")
+  val merges = newCounter("merges")
   val flushes = newCounter("flushes")
+  val evictions = newCounter("evictions")
   val putAllDirtyEntriesBatchSize = newCounter("put-all-dirty-entries-batch-size")
 
   def setDirtyCount(getValue: () => Int) {
@@ -102,6 +102,13 @@ class KeyValueStorageEngine[K, V](
     }
   }
 
+  override def merge(key: K, delta: V) = {
+    updateTimer(metrics.mergeNs) {
+      metrics.merges.inc
+      wrapperStore.merge(key, delta)
+    }
+  }
+
   def range(from: K, to: K) = {
     updateTimer(metrics.rangeNs) {
       metrics.ranges.inc
@@ -116,9 +123,24 @@ class KeyValueStorageEngine[K, V](
     }
   }
 
+  override def prefixScan(prefix: K): KeyValueIterator[K, V] = {
+    updateTimer(metrics.prefixScanNs) {
+      metrics.prefixScans.inc
+      wrapperStore.prefixScan(prefix)
+    }
+  }
+
+  override def seekableIterator(): SeekableKeyValueIterator[K, V] = {
+    updateTimer(metrics.allNs) {
+      metrics.alls.inc
+      wrapperStore.seekableIterator()
+    }
+  }
+
   /**
    * Restore the contents of this key/value store from the change log, batching updates to underlying raw store
-   * for efficiency.
+   * for efficiency. If the raw store is a [[BulkLoadableKeyValueStore]] with bulk load enabled, restored entries are
+   * instead loaded into it all at once at the end of the restore phase.
    *
    * With transactional state disabled, iterator mode will always be 'restore'. With transactional state enabled,
    * iterator mode may switch from 'restore' to 'trim' at some point, but will not switch back to 'restore'.
@@ -126,85 +148,110 @@ class KeyValueStorageEngine[K, V](
   def restore(iterator: ChangelogSSPIterator) {
     info("Restoring entries for store: " + storeName + " in directory: " + storeDir.toString)
     var restoredMessages = 0
-    var restoredBytes = 0
+    var restoredBytes = 0L
     var trimmedMessages = 0
-    var trimmedBytes = 0
+    var trimmedBytes = 0L
     var previousMode = ChangelogSSPIterator.Mode.RESTORE
+    val restoreStartNs = clock()
 
     val batch = new java.util.ArrayList[Entry[Array[Byte], Array[Byte]]](batchSize)
+    val bulkLoader = rawStore match {
+      case bulkLoadableStore: BulkLoadableKeyValueStore if bulkLoadableStore.isBulkLoadEnabled =>
+        info("Using bulk load to restore store: " + storeName + " in directory: " + storeDir.toString)
+        bulkLoadableStore.newBulkLoader()
+      case _ => null
+    }
     var lastBatchFlushed = false
 
-    while(iterator.hasNext && !Thread.currentThread().isInterrupted) {
-      val envelope = iterator.next()
-      val keyBytes = envelope.getKey.asInstanceOf[Array[Byte]]
-      val valBytes = envelope.getMessage.asInstanceOf[Array[Byte]]
-      val mode = iterator.getMode
-
-      if (mode.equals(ChangelogSSPIterator.Mode.RESTORE)) {
-        if (previousMode == ChangelogSSPIterator.Mode.TRIM) {
-          throw new IllegalStateException(
-            String.format("Illegal ChangelogSSPIterator mode change from TRIM to RESTORE for store: %s " +
-              "in dir: %s with changelog SSP: {}.", storeName, storeDir, changelogSSP))
+    // write any open restore batches (or all bulk loaded entries) to store
+    def flushRestoredEntries() {
+      info(restoredMessages + " total entries restored for store: " + storeName + " in directory: " + storeDir.toString + ".")
+      if (bulkLoader != null) {
+        updateTimer(metrics.putAllNs) {
+          bulkLoader.load()
         }
-        batch.add(new Entry(keyBytes, valBytes))
+      } else if (batch.size > 0) {
+        doPutAll(rawStore, batch)
+        batch.clear()
+      }
+      updateRestoreRates(restoredMessages, restoredBytes, restoreStartNs)
+      lastBatchFlushed = true
+    }
 
-        if (batch.size >= batchSize) {
-          doPutAll(rawStore, batch)
-          batch.clear()
-        }
+    try {
+      while(iterator.hasNext && !Thread.currentThread().isInterrupted) {
+        val envelope = iterator.next()
+        val keyBytes = envelope.getKey.asInstanceOf[Array[Byte]]
+        val valBytes = envelope.getMessage.asInstanceOf[Array[Byte]]
+        val mode = iterator.getMode
+
+        if (mode.equals(ChangelogSSPIterator.Mode.RESTORE)) {
+          if (previousMode == ChangelogSSPIterator.Mode.TRIM) {
+            throw new IllegalStateException(
+              String.format("Illegal ChangelogSSPIterator mode change from TRIM to RESTORE for store: %s " +
+                "in dir: %s with changelog SSP: {}.", storeName, storeDir, changelogSSP))
+          }
+          if (bulkLoader != null) {
+            bulkLoader.add(keyBytes, valBytes)
+          } else {
+            batch.add(new Entry(keyBytes, valBytes))
+
+            if (batch.size >= batchSize) {
+              doPutAll(rawStore, batch)
+              batch.clear()
+            }
+          }
 
-        // update metrics
-        restoredMessages += 1
-        restoredBytes += keyBytes.length
-        if (valBytes != null) restoredBytes += valBytes.length
-        metrics.restoredMessagesGauge.set(restoredMessages)
-        metrics.restoredBytesGauge.set(restoredBytes)
+          // update metrics
+          restoredMessages += 1
+          restoredBytes += keyBytes.length
+          if (valBytes != null) restoredBytes += valBytes.length
+          metrics.restoredMessagesGauge.set(restoredMessages)
+          metrics.restoredBytesGauge.set(restoredBytes)
+          if (restoredMessages % 10000 == 0) {
+            updateRestoreRates(restoredMessages, restoredBytes, restoreStartNs)
+          }
 
-        // log progress every million messages
-        if (restoredMessages % 1000000 == 0) {
-          info(restoredMessages + " entries restored for store: " + storeName + " in directory: " + storeDir.toString + "...")
-        }
-      } else {
-        // first write any open restore batches to store
-        if (!lastBatchFlushed) {
-          info(restoredMessages + " total entries restored for store: " + storeName + " in directory: " + storeDir.toString + ".")
-          if (batch.size > 0) {
-            doPutAll(rawStore, batch)
-            batch.clear()
+          // log progress every million messages
+          if (restoredMessages % 1000000 == 0) {
+            info(restoredMessages + " entries restored for store: " + storeName + " in directory: " + storeDir.toString + "...")
+          }
+        } else {
+          // first write any open restore batches to store
+          if (!lastBatchFlushed) {
+            flushRestoredEntries()
           }
-          lastBatchFlushed = true
-        }
 
-        // then overwrite the value to be trimmed with its current store value
-        val currentValBytes = rawStore.get(keyBytes)
-        val changelogMessage = new OutgoingMessageEnvelope(
-          changelogSSP.getSystemStream, changelogSSP.getPartition, keyBytes, currentValBytes)
-        changelogCollector.send(changelogMessage)
-
-        // update metrics
-        trimmedMessages += 1
-        trimmedBytes += keyBytes.length
-        if (currentValBytes != null) trimmedBytes += currentValBytes.length
-        metrics.trimmedMessagesGauge.set(trimmedMessages)
-        metrics.trimmedBytesGauge.set(trimmedBytes)
-
-        // log progress every hundred thousand messages
-        if (trimmedMessages % 100000 == 0) {
-          info(trimmedMessages + " entries trimmed for store: " + storeName + " in directory: " + storeDir.toString + "...")
+          // then overwrite the value to be trimmed with its current store value
+          val currentValBytes = rawStore.get(keyBytes)
+          val changelogMessage = new OutgoingMessageEnvelope(
+            changelogSSP.getSystemStream, changelogSSP.getPartition, keyBytes, currentValBytes)
+          changelogCollector.send(changelogMessage)
+
+          // update metrics
+          trimmedMessages += 1
+          trimmedBytes += keyBytes.length
+          if (currentValBytes != null) trimmedBytes += currentValBytes.length
+          metrics.trimmedMessagesGauge.set(trimmedMessages)
+          metrics.trimmedBytesGauge.set(trimmedBytes)
+
+          // log progress every hundred thousand messages
+          if (trimmedMessages % 100000 == 0) {
+            info(trimmedMessages + " entries trimmed for store: " + storeName + " in directory: " + storeDir.toString + "...")
+          }
         }
-      }
 
-      previousMode = mode
-    }
+        previousMode = mode
+      }
 
-    // if the last batch isn't flushed yet (e.g., for non transactional state or no messages to trim), flush it now
-    if (!lastBatchFlushed) {
-      info(restoredMessages + " total entries restored for store: " + storeName + " in directory: " + storeDir.toString + ".")
-      if (batch.size > 0) {
-        doPutAll(rawStore, batch)
-        batch.clear()
+      // if the last batch isn't flushed yet (e.g., for non transactional state or no messages to trim), flush it now
+      if (!lastBatchFlushed) {
+        flushRestoredEntries()
+      }
+    } finally {
+      if (bulkLoader != null) {
+        bulkLoader.close()
       }
-      lastBatchFlushed = true
     }
     info(trimmedMessages + " entries trimmed for store: " + storeName + " in directory: " + storeDir.toString + ".")
 
@@ -217,6 +264,14 @@ class KeyValueStorageEngine[K, V](
     }
   }
 
+  private def updateRestoreRates(restoredMessages: Int, restoredBytes: Long, restoreStartNs: Long) {
+    val elapsedNs = clock() - restoreStartNs
+    if (elapsedNs > 0) {
+      metrics.restoredMessagesPerSecGauge.set(restoredMessages * 1000000000L / elapsedNs)
+      metrics.restoredBytesPerSecGauge.set((restoredBytes.toDouble * 1000000000L / elapsedNs).toLong)
+    }
+  }
+
   def flush() = {
     updateTimer(metrics.flushNs) {
       trace("Flushing.")
@@ -33,11 +33,13 @@ class KeyValueStorageEngineMetrics(
   val putAlls = newCounter("put-alls")
   val deletes = newCounter("deletes")
   val deleteAlls = newCounter("delete-alls")
+  val merges = newCounter("merges")
   val flushes = newCounter("flushes")
   val checkpoints = newCounter("checkpoints")
   val alls = newCounter("alls")
   val ranges = newCounter("ranges")
   val snapshots = newCounter("snapshots")
+  val prefixScans = newCounter("prefix-scans")
 
   val getNs = newTimer("get-ns")
   val getAllNs = newTimer("get-all-ns")
@@ -45,17 +47,22 @@ class KeyValueStorageEngineMetrics(
   val putAllNs = newTimer("put-all-ns")
   val deleteNs = newTimer("delete-ns")
   val deleteAllNs = newTimer("delete-all-ns")
+  val mergeNs = newTimer("merge-ns")
   val flushNs = newTimer("flush-ns")
   val checkpointNs = newTimer("checkpoint-ns")
   val allNs = newTimer("all-ns")
   val rangeNs = newTimer("range-ns")
   val snapshotNs = newTimer("snapshot-ns")
+  val prefixScanNs = newTimer("prefix-scan-ns")
 
   val restoredMessagesGauge = newGauge("restored-messages", 0)
   val trimmedMessagesGauge = newGauge("trimmed-messages", 0)
 
-  val restoredBytesGauge = newGauge("restored-bytes", 0)
-  val trimmedBytesGauge = newGauge("trimmed-bytes", 0)
+  val restoredBytesGauge = newGauge("restored-bytes", 0L)
+  val trimmedBytesGauge = newGauge("trimmed-bytes", 0L)
+
+  val restoredMessagesPerSecGauge = newGauge("restored-messages-per-sec", 0L)
+  val restoredBytesPerSecGauge = newGauge("restored-bytes-per-sec", 0L)
 
   override def getPrefix = storeName + "-"
 }
\ No newline at end of file
@@ -19,6 +19,7 @@
 
 package org.apache.samza.storage.kv
 
+import java.nio.ByteBuffer
 import java.nio.file.Path
 import java.util.Optional
 
@@ -28,6 +29,14 @@ import org.apache.samza.util.Logging
 import org.apache.samza.system.{OutgoingMessageEnvelope, SystemStreamPartition}
 import org.apache.samza.task.MessageCollector
 
+object LoggedStore {
+  /**
+    * The number of merged keys after which their values are logged without waiting for the next flush, to bound the
+    * memory used to track them.
+    */
+  val MaxMergedKeysBeforeLogging = 10000
+}
+
 /**
   * A key/value store decorator that adds a changelog for any changes made to the underlying store
   */
@@ -40,6 +49,9 @@ class LoggedStore[K, V](
   val systemStream = systemStreamPartition.getSystemStream
   val partitionId = systemStreamPartition.getPartition.getPartitionId
 
+  /** keys merged since their values were last logged, by content for array keys */
+  private val mergedKeys = new java.util.LinkedHashMap[Any, K]()
+
   /* pass through methods */
   def get(key: K) = {
     metrics.gets.inc
@@ -61,6 +73,16 @@ class LoggedStore[K, V](
     store.all()
   }
 
+  override def prefixScan(prefix: K): KeyValueIterator[K, V] = {
+    metrics.prefixScans.inc
+    store.prefixScan(prefix)
+  }
+
+  override def seekableIterator(): SeekableKeyValueIterator[K, V] = {
+    metrics.alls.inc
+    store.seekableIterator()
+  }
+
   /**
     * Perform the local update and log it out to the changelog
     */
@@ -104,15 +126,55 @@ class LoggedStore[K, V](
     store.deleteAll(keys)
   }
 
+  /**
+    * Perform the local merge. The changelog is compacted, so it has to hold the merged values rather than the merge
+    * operands. Merged keys are logged with their current values on the next flush instead, which also logs a key that
+    * is merged many times within a commit interval only once.
+    */
+  override def merge(key: K, delta: V) {
+    metrics.merges.inc
+    store.merge(key, delta)
+    val numMergedKeys = mergedKeys.synchronized {
+      mergedKeys.put(mergedKeyId(key), key)
+      mergedKeys.size
+    }
+    if (numMergedKeys >= LoggedStore.MaxMergedKeysBeforeLogging) {
+      logMergedValues()
+    }
+  }
+
   def flush {
     trace("Flushing store.")
 
     metrics.flushes.inc
 
+    logMergedValues()
     store.flush
     trace("Flushed store.")
   }
 
+  private def logMergedValues() {
+    val keys = mergedKeys.synchronized {
+      val keys = new java.util.ArrayList[K](mergedKeys.values)
+      mergedKeys.clear()
+      keys
+    }
+    if (!keys.isEmpty) {
+      trace("Logging %d merged keys." format keys.size)
+      val values = store.getAll(keys)
+      val keysIterator = keys.iterator
+      while (keysIterator.hasNext) {
+        val key = keysIterator.next
+        collector.send(new OutgoingMessageEnvelope(systemStream, partitionId, key, values.get(key)))
+      }
+    }
+  }
+
+  private def mergedKeyId(key: K): Any = key match {
+    case bytes: Array[Byte] => ByteBuffer.wrap(bytes)
+    case _ => key
+  }
+
   def close {
     trace("Closing.")
 
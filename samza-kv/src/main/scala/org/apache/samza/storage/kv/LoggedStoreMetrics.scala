@@ -30,8 +30,10 @@ class LoggedStoreMetrics(
   val gets = newCounter("gets")
   val ranges = newCounter("ranges")
   val alls = newCounter("alls")
+  val prefixScans = newCounter("prefix-scans")
   val puts = newCounter("puts")
   val deletes = newCounter("deletes")
+  val merges = newCounter("merges")
   val flushes = newCounter("flushes")
 
   override def getPrefix = storeName + "-"
@@ -66,6 +66,12 @@ class NullSafeKeyValueStore[K, V](store: KeyValueStore[K, V]) extends KeyValueSt
     store.delete(key)
   }
 
+  override def merge(key: K, delta: V) {
+    notNull(key, NullKeyErrorMessage)
+    notNull(delta, NullValueErrorMessage)
+    store.merge(key, delta)
+  }
+
   override def deleteAll(keys: java.util.List[K]) = {
     notNull(keys, NullKeysErrorMessage)
     keys.asScala.foreach(key => notNull(key, NullKeyErrorMessage))
@@ -82,6 +88,26 @@ class NullSafeKeyValueStore[K, V](store: KeyValueStore[K, V]) extends KeyValueSt
     store.all
   }
 
+  override def prefixScan(prefix: K): KeyValueIterator[K, V] = {
+    notNull(prefix, NullKeyErrorMessage)
+    store.prefixScan(prefix)
+  }
+
+  override def seekableIterator(): SeekableKeyValueIterator[K, V] = {
+    new NullSafeSeekableIterator(store.seekableIterator())
+  }
+
+  private class NullSafeSeekableIterator(iter: SeekableKeyValueIterator[K, V]) extends SeekableKeyValueIterator[K, V] {
+    override def hasNext() = iter.hasNext()
+    override def next() = iter.next()
+    override def remove() = iter.remove()
+    override def close() = iter.close()
+    override def seek(key: K) = {
+      notNull(key, NullKeyErrorMessage)
+      iter.seek(key)
+    }
+  }
+
   def flush {
     store.flush
   }
@@ -102,6 +102,13 @@ class SerializedKeyValueStore[K, V](
     store.deleteAll(serializeKeys(keys))
   }
 
+  override def merge(key: K, delta: V) {
+    metrics.merges.inc
+    val keyBytes = toBytesOrNull(key, keySerde)
+    val deltaBytes = toBytesOrNull(delta, msgSerde)
+    store.merge(keyBytes, deltaBytes)
+  }
+
   def range(from: K, to: K): KeyValueIterator[K, V] = {
     metrics.ranges.inc
     val fromBytes = toBytesOrNull(from, keySerde)
@@ -114,6 +121,21 @@ class SerializedKeyValueStore[K, V](
     new DeserializingIterator(store.all)
   }
 
+  override def prefixScan(prefix: K): KeyValueIterator[K, V] = {
+    metrics.prefixScans.inc
+    new DeserializingIterator(store.prefixScan(toBytesOrNull(prefix, keySerde)))
+  }
+
+  override def seekableIterator(): SeekableKeyValueIterator[K, V] = {
+    metrics.alls.inc
+    new DeserializingSeekableIterator(store.seekableIterator())
+  }
+
+  private class DeserializingSeekableIterator(iter: SeekableKeyValueIterator[Array[Byte], Array[Byte]])
+    extends DeserializingIterator(iter) with SeekableKeyValueIterator[K, V] {
+    override def seek(key: K) = iter.seek(toBytesOrNull(key, keySerde))
+  }
+
   private class DeserializingIterator(iter: KeyValueIterator[Array[Byte], Array[Byte]]) extends KeyValueIterator[K, V] {
     override def hasNext() = iter.hasNext()
     override def remove() = iter.remove()
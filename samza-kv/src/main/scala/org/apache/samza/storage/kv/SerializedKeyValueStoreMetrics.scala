@@ -29,8 +29,10 @@ class SerializedKeyValueStoreMetrics(
   val gets = newCounter("gets")
   val ranges = newCounter("ranges")
   val alls = newCounter("alls")
+  val prefixScans = newCounter("prefix-scans")
   val puts = newCounter("puts")
   val deletes = newCounter("deletes")
+  val merges = newCounter("merges")
   val flushes = newCounter("flushes")
   val bytesSerialized = newCounter("bytes-serialized")
   val bytesDeserialized = newCounter("bytes-deserialized")
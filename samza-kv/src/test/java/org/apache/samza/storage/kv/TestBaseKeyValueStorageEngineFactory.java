@@ -58,6 +58,8 @@ public class TestBaseKeyValueStorageEngineFactory {
           MockKeyValueStorageEngineFactory.class.getName());
   private static final Map<String, String> DISABLE_CACHE =
       ImmutableMap.of(String.format("stores.%s.object.cache.size", STORE_NAME), "0");
+  private static final Map<String, String> TINYLFU_CACHE =
+      ImmutableMap.of(String.format("stores.%s.object.cache.type", STORE_NAME), "tinylfu");
   private static final Map<String, String> DISALLOW_LARGE_MESSAGES =
       ImmutableMap.of(String.format(StorageConfig.DISALLOW_LARGE_MESSAGES, STORE_NAME), "true");
   private static final Map<String, String> DROP_LARGE_MESSAGES =
@@ -198,6 +200,29 @@ public class TestBaseKeyValueStorageEngineFactory {
     assertEquals(this.rawKeyValueStore, loggedStore.getStore());
   }
 
+  @Test
+  public void testWithTinyLfuCachedStore() {
+    Config config = new MapConfig(BASE_CONFIG, TINYLFU_CACHE);
+    StorageEngine storageEngine = callGetStorageEngine(config, null);
+    KeyValueStorageEngine<?, ?> keyValueStorageEngine = baseStorageEngineValidation(storageEngine);
+    NullSafeKeyValueStore<?, ?> nullSafeKeyValueStore =
+        assertAndCast(keyValueStorageEngine.getWrapperStore(), NullSafeKeyValueStore.class);
+    TinyLfuCachedStore<?, ?> cachedStore =
+        assertAndCast(nullSafeKeyValueStore.getStore(), TinyLfuCachedStore.class);
+    SerializedKeyValueStore<?, ?> serializedKeyValueStore =
+        assertAndCast(cachedStore.getStore(), SerializedKeyValueStore.class);
+    // type generics don't match due to wildcard type, but checking reference equality, so type generics don't matter
+    // noinspection AssertEqualsBetweenInconvertibleTypes
+    assertEquals(this.rawKeyValueStore, serializedKeyValueStore.getStore());
+  }
+
+  @Test(expected = SamzaException.class)
+  public void testInvalidCacheType() {
+    Config config = new MapConfig(BASE_CONFIG,
+        ImmutableMap.of(String.format("stores.%s.object.cache.type", STORE_NAME), "fifo"));
+    callGetStorageEngine(config, null);
+  }
+
   @Test
   public void testDisallowLargeMessages() {
     Config config = new MapConfig(BASE_CONFIG, DISABLE_CACHE, DISALLOW_LARGE_MESSAGES);
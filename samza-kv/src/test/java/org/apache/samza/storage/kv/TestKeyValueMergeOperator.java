@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.storage.kv;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.samza.SamzaException;
+import org.apache.samza.config.MapConfig;
+import org.apache.samza.serializers.LittleEndianLongSerde;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class TestKeyValueMergeOperator {
+  @Test
+  public void testFromConfig() {
+    assertFalse(KeyValueMergeOperator.fromConfig(new MapConfig()).isPresent());
+    assertTrue(KeyValueMergeOperator.fromConfig(
+        new MapConfig(ImmutableMap.of(KeyValueMergeOperator.MERGE_OPERATOR, KeyValueMergeOperator.UINT64_ADD)))
+        .get() instanceof KeyValueMergeOperator.UInt64Add);
+    assertTrue(KeyValueMergeOperator.fromConfig(
+        new MapConfig(ImmutableMap.of(KeyValueMergeOperator.MERGE_OPERATOR, KeyValueMergeOperator.APPEND)))
+        .get() instanceof KeyValueMergeOperator.Append);
+  }
+
+  @Test(expected = SamzaException.class)
+  public void testFromConfigUnknownOperator() {
+    KeyValueMergeOperator.fromConfig(new MapConfig(ImmutableMap.of(KeyValueMergeOperator.MERGE_OPERATOR, "max")));
+  }
+
+  @Test
+  public void testUInt64Add() {
+    LittleEndianLongSerde serde = new LittleEndianLongSerde();
+    KeyValueMergeOperator operator = new KeyValueMergeOperator.UInt64Add();
+    assertEquals(5L, (long) serde.fromBytes(operator.merge(null, serde.toBytes(5L))));
+    assertEquals(12L, (long) serde.fromBytes(operator.merge(serde.toBytes(5L), serde.toBytes(7L))));
+    assertEquals(4L, (long) serde.fromBytes(operator.merge(serde.toBytes(5L), serde.toBytes(-1L))));
+    // malformed values count as 0
+    assertEquals(7L, (long) serde.fromBytes(operator.merge(new byte[] {1}, serde.toBytes(7L))));
+  }
+
+  @Test
+  public void testAppend() {
+    assertArrayEquals("ab".getBytes(), new KeyValueMergeOperator.Append("").merge("a".getBytes(), "b".getBytes()));
+    assertArrayEquals("a,b".getBytes(), new KeyValueMergeOperator.Append(",").merge("a".getBytes(), "b".getBytes()));
+    assertArrayEquals("b".getBytes(), new KeyValueMergeOperator.Append(",").merge(null, "b".getBytes()));
+  }
+}
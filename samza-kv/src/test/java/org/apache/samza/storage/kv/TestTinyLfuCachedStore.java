@@ -0,0 +1,303 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.storage.kv;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import org.apache.samza.metrics.Gauge;
+import org.apache.samza.metrics.MetricsRegistryMap;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+
+public class TestTinyLfuCachedStore {
+  private static final String STORE_NAME = "store";
+
+  @Test
+  public void testArrayCheck() {
+    @SuppressWarnings("unchecked")
+    KeyValueStore<byte[], byte[]> kv = mock(KeyValueStore.class);
+    TinyLfuCachedStore<byte[], byte[]> store = new TinyLfuCachedStore<>(kv, 100, 100, newMetrics());
+
+    assertFalse(store.hasArrayKeys());
+    store.put("test1-key".getBytes(), "test1-value".getBytes());
+    assertTrue(store.hasArrayKeys());
+    verify(kv).putAll(any());
+  }
+
+  @Test
+  public void testMergeWritesDirtyEntryAndInvalidatesCache() {
+    MockKeyValueStore kv = new MockKeyValueStore();
+    TinyLfuCachedStore<String, String> store = new TinyLfuCachedStore<>(kv, 100, 100, newMetrics());
+
+    store.put("key", "a");
+    assertEquals("a", store.get("key"));
+    store.merge("key", "b");
+    assertEquals("ab", kv.get("key"));
+    assertEquals("ab", store.get("key"));
+    store.merge("key", "c");
+    assertEquals("abc", store.getAll(Arrays.asList("key", "other-key")).get("key"));
+  }
+
+  @Test
+  public void testPutAllDirtyEntries() {
+    @SuppressWarnings("unchecked")
+    KeyValueStore<String, String> kv = mock(KeyValueStore.class);
+    TinyLfuCachedStore<String, String> store = new TinyLfuCachedStore<>(kv, 4, 4, 1, newMetrics());
+
+    store.put("test1-key", "old-value");
+    store.put("test2-key", "test2-value");
+    store.put("test1-key", "test1-value");
+    store.put("test3-key", "test3-value");
+    verify(kv, never()).putAll(any());
+
+    store.put("test4-key", "test4-value");
+
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<List<Entry<String, String>>> entriesCaptor = ArgumentCaptor.forClass((Class) List.class);
+    verify(kv).putAll(entriesCaptor.capture());
+    verify(kv, never()).flush();
+    List<Entry<String, String>> dirtyEntries = entriesCaptor.getValue();
+    // written out once per key, oldest write first
+    assertEquals(Arrays.asList("test2-key", "test1-key", "test3-key", "test4-key"),
+        dirtyEntries.stream().map(Entry::getKey).collect(Collectors.toList()));
+    assertEquals(Arrays.asList("test2-value", "test1-value", "test3-value", "test4-value"),
+        dirtyEntries.stream().map(Entry::getValue).collect(Collectors.toList()));
+  }
+
+  @Test
+  public void testGetCachesValues() {
+    MockKeyValueStore kv = spy(new MockKeyValueStore());
+    kv.put("test1-key", "test1-value");
+    CachedStoreMetrics metrics = newMetrics();
+    TinyLfuCachedStore<String, String> store = new TinyLfuCachedStore<>(kv, 10, 10, metrics);
+
+    assertEquals("test1-value", store.get("test1-key"));
+    assertEquals("test1-value", store.get("test1-key"));
+    assertNull(store.get("test2-key"));
+    assertNull(store.get("test2-key"));
+
+    verify(kv, times(1)).get("test1-key");
+    verify(kv, times(1)).get("test2-key");
+    assertEquals(4, metrics.gets().getCount());
+    assertEquals(2, metrics.cacheHits().getCount());
+  }
+
+  @Test
+  public void testDeleteIsCached() {
+    MockKeyValueStore kv = new MockKeyValueStore();
+    kv.put("test1-key", "test1-value");
+    TinyLfuCachedStore<String, String> store = new TinyLfuCachedStore<>(kv, 10, 10, newMetrics());
+
+    store.delete("test1-key");
+    assertNull(store.get("test1-key"));
+    assertEquals("test1-value", kv.get("test1-key"));
+
+    store.flush();
+    assertNull(kv.get("test1-key"));
+  }
+
+  @Test
+  public void testEvictedDirtyEntriesAreNotLost() {
+    MockKeyValueStore kv = spy(new MockKeyValueStore());
+    MetricsRegistryMap registry = new MetricsRegistryMap();
+    CachedStoreMetrics metrics = new CachedStoreMetrics(STORE_NAME, registry);
+    TinyLfuCachedStore<String, String> store = new TinyLfuCachedStore<>(kv, 2, 10, 1, metrics);
+
+    for (int i = 0; i < 5; i++) {
+      store.put("key" + i, "value" + i);
+    }
+    assertTrue(metrics.evictions().getCount() > 0);
+    // evicting a dirty entry does not force a write
+    verify(kv, never()).putAll(any());
+    verify(kv, never()).get(anyString());
+    for (int i = 0; i < 5; i++) {
+      assertEquals("value" + i, store.get("key" + i));
+    }
+    verify(kv, never()).get(anyString());
+
+    store.flush();
+    assertEquals(5, kv.kvMap().size());
+    Gauge<?> dirtyCount =
+        (Gauge<?>) registry.getGroup(CachedStoreMetrics.class.getName()).get(STORE_NAME + "-dirty-count");
+    assertEquals(0, dirtyCount.getValue());
+  }
+
+  @Test
+  public void testFrequentKeysSurviveScan() {
+    MockKeyValueStore kv = spy(new MockKeyValueStore());
+    for (int i = 0; i < 1000; i++) {
+      kv.put("key" + i, "value" + i);
+    }
+    TinyLfuCachedStore<String, String> store = new TinyLfuCachedStore<>(kv, 100, 10, 1, newMetrics());
+
+    for (int round = 0; round < 5; round++) {
+      for (int i = 0; i < 50; i++) {
+        store.get("key" + i);
+      }
+    }
+    // a scan over keys that are each read once should not push out the frequently read keys
+    for (int i = 100; i < 1000; i++) {
+      store.get("key" + i);
+    }
+    for (int i = 0; i < 50; i++) {
+      assertEquals("value" + i, store.get("key" + i));
+      verify(kv, times(1)).get("key" + i);
+    }
+  }
+
+  @Test
+  public void testIterator() {
+    MockKeyValueStore kv = new MockKeyValueStore();
+    TinyLfuCachedStore<String, String> store = new TinyLfuCachedStore<>(kv, 100, 100, newMetrics());
+    List<String> keys = Arrays.asList("test1-key", "test2-key", "test3-key");
+    List<String> values = Arrays.asList("test1-value", "test2-value", "test3-value");
+    for (int i = 0; i < 3; i++) {
+      store.put(keys.get(i), values.get(i));
+    }
+
+    KeyValueIterator<String, String> iter = store.all();
+    for (int i = 0; i < 3; i++) {
+      assertTrue(iter.hasNext());
+      Entry<String, String> entry = iter.next();
+      assertEquals(keys.get(i), entry.getKey());
+      assertEquals(values.get(i), entry.getValue());
+    }
+    assertFalse(iter.hasNext());
+
+    iter = store.range(keys.get(0), keys.get(2));
+    for (int i = 0; i < 2; i++) {
+      assertTrue(iter.hasNext());
+      Entry<String, String> entry = iter.next();
+      assertEquals(keys.get(i), entry.getKey());
+      assertEquals(values.get(i), entry.getValue());
+    }
+    assertFalse(iter.hasNext());
+  }
+
+  @Test
+  public void testPutDuringMissIsNotOverwrittenByReadValue() throws Exception {
+    CountDownLatch readStarted = new CountDownLatch(1);
+    CountDownLatch readMayComplete = new CountDownLatch(1);
+    InMemoryStringStore kv = new InMemoryStringStore() {
+      @Override
+      public String get(String key) {
+        String value = super.get(key);
+        if (key.equals("key")) {
+          readStarted.countDown();
+          try {
+            readMayComplete.await();
+          } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+          }
+        }
+        return value;
+      }
+    };
+    kv.put("key", "old");
+    // a single entry cache, so that writing another key evicts "key"
+    TinyLfuCachedStore<String, String> store = new TinyLfuCachedStore<>(kv, 1, 10, 1, newMetrics());
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    Future<String> read = executor.submit(() -> store.get("key"));
+    readStarted.await();
+
+    // the put is written out and evicted before the miss completes
+    store.put("key", "new");
+    store.flush();
+    store.put("other-key", "value");
+    store.flush();
+    readMayComplete.countDown();
+    assertEquals("old", read.get());
+    executor.shutdown();
+
+    assertEquals("new", store.get("key"));
+  }
+
+  @Test
+  public void testConcurrentWrites() throws Exception {
+    InMemoryStringStore kv = new InMemoryStringStore();
+    TinyLfuCachedStore<String, String> store = new TinyLfuCachedStore<>(kv, 64, 16, 4, newMetrics());
+    int threads = 4;
+    int writesPerThread = 5000;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      int thread = t;
+      futures.add(executor.submit(() -> {
+        start.await();
+        for (int i = 0; i < writesPerThread; i++) {
+          String key = "key" + (i % 200);
+          store.put(key, thread + "-" + i);
+          String value = store.get(key);
+          // another thread may have written the key since, but the key must never read as missing
+          assertTrue(value != null);
+        }
+        return null;
+      }));
+    }
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+
+    store.flush();
+    for (int i = 0; i < 200; i++) {
+      assertEquals(store.get("key" + i), kv.get("key" + i));
+    }
+  }
+
+  private static CachedStoreMetrics newMetrics() {
+    return new CachedStoreMetrics(STORE_NAME, new MetricsRegistryMap());
+  }
+
+  /**
+   * A thread safe string store for tests that write from several threads.
+   */
+  private static class InMemoryStringStore extends MockKeyValueStore {
+    @Override
+    public synchronized String get(String key) {
+      return super.get(key);
+    }
+
+    @Override
+    public synchronized void putAll(List<Entry<String, String>> entries) {
+      super.putAll(entries);
+    }
+  }
+}
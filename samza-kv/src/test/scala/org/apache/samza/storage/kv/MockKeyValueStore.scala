@@ -70,6 +70,16 @@ class MockKeyValueStore extends KeyValueStore[String, String] {
   override def all(): KeyValueIterator[String, String] =
     new MockIterator(kvMap.entrySet().iterator())
 
+  // merges append the delta to the existing value
+  override def merge(key: String, delta: String) {
+    kvMap.merge(key, delta, new java.util.function.BiFunction[String, String, String] {
+      override def apply(existing: String, delta: String): String = existing + delta
+    })
+  }
+
+  override def prefixScan(prefix: String): KeyValueIterator[String, String] =
+    new MockIterator(kvMap.subMap(prefix, prefix + Character.MAX_VALUE).entrySet().iterator())
+
   override def flush() {}  // no-op
 
   override def close() { kvMap.clear() }
@@ -91,6 +91,36 @@ class TestCachedStore {
     verify(kv, times(2)).putAll(anyObject());
   }
 
+  @Test
+  def testMergeWritesDirtyEntryAndInvalidatesCache() {
+    val kv = new MockKeyValueStore()
+    val store = new CachedStore[String, String](kv, 100, 100)
+
+    store.put("key", "a")
+    assertEquals("a", store.get("key"))
+    store.merge("key", "b")
+    assertEquals("ab", kv.get("key"))
+    assertEquals("ab", store.get("key"))
+    store.merge("other-key", "c")
+    assertEquals("c", store.get("other-key"))
+  }
+
+  @Test
+  def testPrefixScanWritesDirtyEntries() {
+    val kv = new MockKeyValueStore()
+    val store = new CachedStore[String, String](kv, 100, 100)
+
+    store.put("a-1", "v1")
+    store.put("b-1", "v2")
+    store.put("a-2", "v3")
+
+    val iter = store.prefixScan("a-")
+    assertEquals("a-1", iter.next().getKey)
+    assertEquals("a-2", iter.next().getKey)
+    assertFalse(iter.hasNext)
+    iter.close()
+  }
+
   @Test
   def testIterator() {
     val kv = new MockKeyValueStore()
@@ -164,7 +164,46 @@ class TestKeyValueStorageEngine {
     engine.restore(iterator)
 
     assertEquals(3, metrics.restoredMessagesGauge.getValue)
-    assertEquals(15, metrics.restoredBytesGauge.getValue) // 3 keys * 2 bytes/key +  3 msgs * 3 bytes/msg
+    assertEquals(15L, metrics.restoredBytesGauge.getValue) // 3 keys * 2 bytes/key +  3 msgs * 3 bytes/msg
+  }
+
+  @Test
+  def testRestoreWithBulkLoad(): Unit = {
+    val rawKv = mock(classOf[BulkLoadableKeyValueStore])
+    val bulkLoader = mock(classOf[BulkLoadableKeyValueStore.BulkLoader])
+    when(rawKv.isBulkLoadEnabled).thenReturn(true)
+    when(rawKv.newBulkLoader()).thenReturn(bulkLoader)
+    val changelogSSP = new SystemStreamPartition("TestSystem", "TestStream", new Partition(0))
+    val bulkLoadEngine = new KeyValueStorageEngine[String, String]("test-storeName", mock(classOf[File]),
+      mock(classOf[StoreProperties]), new MockKeyValueStore(), rawKv, changelogSSP, mock(classOf[MessageCollector]),
+      metrics, clock = () => { getNextTimestamp() })
+    val iterator = mock(classOf[ChangelogSSPIterator])
+    when(iterator.hasNext)
+      .thenReturn(true)
+      .thenReturn(true)
+      .thenReturn(true)
+      .thenReturn(false)
+    when(iterator.next())
+      .thenReturn(new IncomingMessageEnvelope(changelogSSP, "0", Array[Byte](1, 2), Array[Byte](3, 4, 5)))
+      .thenReturn(new IncomingMessageEnvelope(changelogSSP, "1", Array[Byte](2, 3), null))
+      .thenReturn(new IncomingMessageEnvelope(changelogSSP, "2", Array[Byte](3, 4), Array[Byte](5, 6, 7)))
+    when(iterator.getMode)
+      .thenReturn(Mode.RESTORE)
+      .thenReturn(Mode.RESTORE)
+      .thenReturn(Mode.TRIM)
+
+    bulkLoadEngine.restore(iterator)
+
+    val inOrder = org.mockito.Mockito.inOrder(bulkLoader, rawKv)
+    inOrder.verify(bulkLoader).add(Array[Byte](1, 2), Array[Byte](3, 4, 5))
+    inOrder.verify(bulkLoader).add(Array[Byte](2, 3), null)
+    // entries are loaded before the first trimmed entry is read back from the store
+    inOrder.verify(bulkLoader).load()
+    inOrder.verify(rawKv).get(Array[Byte](3, 4))
+    inOrder.verify(bulkLoader).close()
+    verify(rawKv, never()).putAll(org.mockito.Matchers.any())
+    assertEquals(2, metrics.restoredMessagesGauge.getValue)
+    assertTrue(metrics.restoredMessagesPerSecGauge.getValue > 0)
   }
 
   @Test
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.storage.kv
+
+import org.apache.samza.Partition
+import org.apache.samza.system.{OutgoingMessageEnvelope, SystemStreamPartition}
+import org.apache.samza.task.MessageCollector
+import org.junit.Assert._
+import org.junit.Test
+import org.mockito.ArgumentCaptor
+import org.mockito.Matchers.any
+import org.mockito.Mockito._
+
+import scala.collection.JavaConverters._
+
+class TestLoggedStore {
+  private val changelogSSP = new SystemStreamPartition("system", "stream", new Partition(0))
+
+  @Test
+  def testMergedValuesAreLoggedOnFlush() {
+    val collector = mock(classOf[MessageCollector])
+    val store = new LoggedStore[String, String](new MockKeyValueStore(), changelogSSP, collector)
+
+    store.put("key1", "a")
+    store.merge("key1", "b")
+    store.merge("key2", "c")
+    store.merge("key1", "d")
+    // only the put is logged right away
+    verify(collector, times(1)).send(any(classOf[OutgoingMessageEnvelope]))
+    assertEquals("abd", store.get("key1"))
+
+    store.flush()
+    val envelopeCaptor = ArgumentCaptor.forClass(classOf[OutgoingMessageEnvelope])
+    verify(collector, times(3)).send(envelopeCaptor.capture())
+    val logged = envelopeCaptor.getAllValues.asScala.map(envelope => (envelope.getKey, envelope.getMessage))
+    assertEquals(Seq(("key1", "a"), ("key1", "abd"), ("key2", "c")), logged)
+
+    // merged keys are logged only once
+    store.flush()
+    verify(collector, times(3)).send(any(classOf[OutgoingMessageEnvelope]))
+  }
+
+  @Test
+  def testMergedArrayKeysAreLoggedOnce() {
+    val collector = mock(classOf[MessageCollector])
+    val kv = mock(classOf[KeyValueStore[Array[Byte], Array[Byte]]])
+    when(kv.getAll(any(classOf[java.util.List[Array[Byte]]]))).thenReturn(new java.util.HashMap[Array[Byte], Array[Byte]]())
+    val store = new LoggedStore[Array[Byte], Array[Byte]](kv, changelogSSP, collector)
+
+    store.merge("key".getBytes, "a".getBytes)
+    store.merge("key".getBytes, "b".getBytes)
+    store.flush()
+    verify(collector, times(1)).send(any(classOf[OutgoingMessageEnvelope]))
+  }
+}